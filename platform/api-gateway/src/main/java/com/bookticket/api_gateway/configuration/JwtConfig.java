@@ -16,6 +16,10 @@ import javax.crypto.SecretKey;
 public class JwtConfig {
     private String jwtSecret;
     private long jwtExpiration;
+    /**
+     * Verified tokens kept in memory, each one is then verified once per lifetime
+     */
+    private int claimsCacheSize = 10000;
     public SecretKey getJwtSecret() {
         return Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
     }
@@ -2,26 +2,114 @@ package com.bookticket.api_gateway.configuration;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.MalformedJwtException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
-import java.util.Collections;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Component
 @Slf4j
 public class JwtUtils {
+    /**
+     * Exchange attribute holding the claims verified for the request, shared by all gateway filters
+     */
+    public static final String VERIFIED_CLAIMS_ATTRIBUTE = JwtUtils.class.getName() + ".verifiedClaims";
+
     private final JwtConfig jwtConfig;
+    private final Map<String, VerifiedToken> verifiedTokens = new ConcurrentHashMap<>();
+    private volatile JwtParser jwtParser;
 
     public JwtUtils(JwtConfig jwtConfig) {
         this.jwtConfig = jwtConfig;
     }
 
+    /**
+     * Get the verified claims of the request token, verifying it at most once per exchange
+     * and at most once per token lifetime across requests.
+     *
+     * @return claims, or null if the token is invalid or expired
+     */
+    public Claims getVerifiedClaims(ServerWebExchange exchange, String token) {
+        Claims claims = exchange.getAttribute(VERIFIED_CLAIMS_ATTRIBUTE);
+        if (claims == null) {
+            claims = getVerifiedClaims(token);
+            if (claims != null) {
+                exchange.getAttributes().put(VERIFIED_CLAIMS_ATTRIBUTE, claims);
+            }
+        }
+        return claims;
+    }
+
+    /**
+     * Get the verified claims of a token from the cache, or verify and cache them
+     *
+     * @return claims, or null if the token is invalid or expired
+     */
+    public Claims getVerifiedClaims(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        String tokenHash = hash(token);
+        long now = System.currentTimeMillis();
+        VerifiedToken cached = verifiedTokens.get(tokenHash);
+        if (cached != null) {
+            if (cached.expiresAt() > now) {
+                return cached.claims();
+            }
+            verifiedTokens.remove(tokenHash);
+            log.error("JWT token is expired");
+            return null;
+        }
+
+        Claims claims;
+        try {
+            claims = extractAllClaims(token);
+        } catch (ExpiredJwtException e) {
+            log.error("JWT token is expired: {}", e.getMessage());
+            return null;
+        } catch (JwtException | IllegalArgumentException e) {
+            log.error("Invalid JWT token: {}", e.getMessage());
+            return null;
+        }
+        if (claims.getSubject() == null || claims.getExpiration() == null) {
+            return null;
+        }
+        cache(tokenHash, claims, now);
+        return claims;
+    }
+
+    private void cache(String tokenHash, Claims claims, long now) {
+        if (verifiedTokens.size() >= jwtConfig.getClaimsCacheSize()) {
+            verifiedTokens.values().removeIf(entry -> entry.expiresAt() <= now);
+            if (verifiedTokens.size() >= jwtConfig.getClaimsCacheSize()) {
+                return; // Full of live tokens, verify this one on every request
+            }
+        }
+        verifiedTokens.put(tokenHash, new VerifiedToken(claims, claims.getExpiration().getTime()));
+    }
+
+    private String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
     public String extractSubject(String token) {
         return extractClaim(token, Claims::getSubject);
     }
@@ -36,13 +124,22 @@ public class JwtUtils {
     }
 
     public Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(jwtConfig.getJwtSecret())
-                .build()
+        return getJwtParser()
                 .parseSignedClaims(token)
                 .getPayload();
     }
 
+    private JwtParser getJwtParser() {
+        JwtParser parser = jwtParser;
+        if (parser == null) {
+            parser = Jwts.parser()
+                    .verifyWith(jwtConfig.getJwtSecret())
+                    .build();
+            jwtParser = parser;
+        }
+        return parser;
+    }
+
     @SuppressWarnings("unchecked")
     public String extractRoles(Claims claims) {
         List<Map<String, String>> rolesMap = claims.get("roles", List.class);
@@ -59,30 +156,18 @@ public class JwtUtils {
             if (token == null || token.isEmpty()) {
                 return null;
             }
-            if (validateToken(token)) {
-                return extractSubject(token);
-            }
-            return null;
+            Claims claims = getVerifiedClaims(token);
+            return claims != null ? claims.getSubject() : null;
         } catch (Exception e) {
             log.debug("Failed to extract user ID from token: {}", e.getMessage());
             return null;
         }
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public Boolean validateToken(String token) {
+        return getVerifiedClaims(token) != null;
     }
 
-    public Boolean validateToken(String token) {
-        try {
-            final String subject = extractSubject(token);
-            return (subject != null && !isTokenExpired(token));
-        } catch (MalformedJwtException e) {
-            log.error("Invalid JWT token: {}", e.getMessage());
-            return false;
-        } catch(ExpiredJwtException e) {
-            log.error("JWT token is expired: {}", e.getMessage());
-            return false;
-        }
+    private record VerifiedToken(Claims claims, long expiresAt) {
     }
 }
@@ -15,5 +15,21 @@ public class RateLimitConfig {
     private int bucketCapacity;
     private String prefix;
     private boolean enabled;
+    /**
+     * Tokens taken from Redis at once and handed out locally, 1 checks Redis on every request
+     */
+    private int localBatchSize = 5;
+    /**
+     * How long locally held tokens stay valid before they must be taken from Redis again
+     */
+    private long localLeaseMs = 1000;
+    /**
+     * Redis calls slower than this fail open, so gateway latency does not follow Redis latency
+     */
+    private long redisTimeoutMs = 100;
+    /**
+     * Keys with a local bucket before expired buckets are evicted
+     */
+    private int maxLocalKeys = 100000;
 }
 
@@ -5,7 +5,9 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
@@ -45,29 +47,22 @@ public class RedisConfig {
     }
 
     /**
-     * This is a specialized RedisTemplate specifically for executing Lua scripts.
-     * It uses StringRedisSerializer for all its parts to ensure that keys and arguments
-     * are passed to the Lua script as plain strings, which is what Lua expects.
-     * The return type is String to handle script execution results.
+     * Non-blocking template for executing Lua scripts from the gateway filters.
+     * Keys and arguments are passed as plain strings, which is what Lua expects.
+     * Scripts are run with EVALSHA (the SHA1 is computed once per RedisScript) and only
+     * fall back to EVAL when Redis does not have the script cached yet.
      */
-    @Bean("scriptRedisTemplate")
-    public RedisTemplate<String, String> scriptRedisTemplate(RedisConnectionFactory connectionFactory) {
-        RedisTemplate<String, String> template = new RedisTemplate<>();
-        template.setConnectionFactory(connectionFactory);
-        template.setKeySerializer(new StringRedisSerializer());
-        template.setValueSerializer(new StringRedisSerializer());
-        template.setDefaultSerializer(new StringRedisSerializer()); // Important for args
-        template.afterPropertiesSet();
-
-        log.info("Script RedisTemplate configured with String serialization for Lua scripts");
-        return template;
+    @Bean("reactiveScriptRedisTemplate")
+    public ReactiveStringRedisTemplate reactiveScriptRedisTemplate(ReactiveRedisConnectionFactory connectionFactory) {
+        log.info("Reactive script RedisTemplate configured with String serialization for Lua scripts");
+        return new ReactiveStringRedisTemplate(connectionFactory);
     }
 
     /**
      * Redis script bean for rate limiting using Token Bucket algorithm.
      * The script returns a List with two elements:
-     * - Index 0: allowed (1 if request is allowed, 0 if rate limit exceeded)
-     * - Index 1: remaining tokens (double value)
+     * - Index 0: granted tokens (0 if rate limit exceeded)
+     * - Index 1: remaining tokens
      *
      * @return RedisScript that executes the Lua rate limiting logic
      */
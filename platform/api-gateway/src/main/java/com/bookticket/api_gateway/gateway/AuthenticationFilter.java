@@ -14,6 +14,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -40,7 +41,8 @@ public class AuthenticationFilter implements GlobalFilter, Ordered {
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
         ServerHttpRequest request = exchange.getRequest();
         log.info("Request URI: {}", request.getURI());
-        if (routerValidator.isSecured.test(request)) {
+        RoutePolicy routePolicy = routerValidator.resolve(exchange);
+        if (routePolicy.secured()) {
             if (!request.getHeaders().containsKey("Authorization")) {
                 log.error("Authorization header is missing");
                 return this.onError(exchange, HttpStatus.UNAUTHORIZED);
@@ -52,17 +54,20 @@ public class AuthenticationFilter implements GlobalFilter, Ordered {
             }
 
             String token = authHeader.substring(7);
-            if (!jwtUtil.validateToken(token)) {
+            // Usually already verified by the rate limiting filter or a previous request with the same token
+            Claims claims = jwtUtil.getVerifiedClaims(exchange, token);
+            if (claims == null) {
                 log.error("JWT token is not valid");
                 return this.onError(exchange, HttpStatus.UNAUTHORIZED);
             }
 
-            Claims claims = jwtUtil.extractAllClaims(token);
             String userId = claims.getSubject().toString();
             String roles = jwtUtil.extractRoles(claims);
             String username = claims.get("username").toString();
+            Object email = claims.get("email"); // Absent in tokens issued before the claim was added
 
-            if (!roles.contains("ADMIN") && !roles.contains("USER")) {
+            List<String> userRoles = Arrays.asList(roles.split(","));
+            if (routePolicy.requiredRoles().stream().noneMatch(role -> userRoles.contains("ROLE_" + role))) {
                 log.error("User does not have the required role");
                 return this.onError(exchange, HttpStatus.FORBIDDEN);
             }
@@ -71,6 +76,13 @@ public class AuthenticationFilter implements GlobalFilter, Ordered {
                     .header("X-User-ID", userId) // Immutable User ID
                     .header("X-User-Roles", roles)
                     .header("X-User-Name", username)
+                    .headers(headers -> {
+                        if (email != null) {
+                            headers.set("X-User-Email", email.toString());
+                        } else {
+                            headers.remove("X-User-Email");
+                        }
+                    })
                     .build();
             return chain.filter(exchange.mutate().request(newRequest).build());
         }
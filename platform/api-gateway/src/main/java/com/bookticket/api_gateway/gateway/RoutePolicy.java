@@ -0,0 +1,23 @@
+package com.bookticket.api_gateway.gateway;
+
+import java.util.Set;
+
+/**
+ * Security and rate limiting metadata of a route
+ *
+ * @param secured        whether a valid JWT is required
+ * @param requiredRoles  roles of which the user needs at least one, without the ROLE_ prefix
+ * @param rateLimitCost  tokens taken from the caller's rate limit bucket per request
+ */
+public record RoutePolicy(
+        boolean secured,
+        Set<String> requiredRoles,
+        int rateLimitCost
+) {
+    public static final RoutePolicy OPEN = new RoutePolicy(false, Set.of(), 1);
+    public static final RoutePolicy AUTHENTICATED = new RoutePolicy(true, Set.of("ADMIN", "USER"), 1);
+
+    public RoutePolicy withRateLimitCost(int rateLimitCost) {
+        return new RoutePolicy(secured, requiredRoles, rateLimitCost);
+    }
+}
@@ -1,18 +1,30 @@
 package com.bookticket.api_gateway.gateway;
 
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.stereotype.Component;
-import org.springframework.util.AntPathMatcher;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.function.Predicate;
 
+/**
+ * Resolves the {@link RoutePolicy} of a request.
+ * Patterns are compiled once at startup and matched against the already parsed request path,
+ * the result is kept on the exchange so every filter shares a single match.
+ */
 @Component
 public class RouterValidator {
 
+    public static final String ROUTE_POLICY_ATTRIBUTE = RouterValidator.class.getName() + ".routePolicy";
+
     public static final List<String> openApiEndpoints = List.of(
             "/api/v1/auth/register",
             "/api/v1/auth/login",
+            "/api/v1/payments/webhook",
             "/eureka",
             "/actuator/**",
             "/v3/api-docs/**",
@@ -20,10 +32,42 @@ public class RouterValidator {
             "/webjars/**"
     );
 
-    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final List<RouteRule> rules = new ArrayList<>();
+
+    public RouterValidator() {
+        openApiEndpoints.forEach(pattern -> addRule(null, pattern, RoutePolicy.OPEN));
+        // Booking creation locks seats and opens a checkout session, it costs more than a read
+        addRule(HttpMethod.POST, "/api/v1/bookings", RoutePolicy.AUTHENTICATED.withRateLimitCost(5));
+        // Seat maps are public, and EventSource cannot send an Authorization header
+        addRule(HttpMethod.GET, "/api/v1/shows/*/seats/stream", RoutePolicy.OPEN);
+    }
+
+    /**
+     * Get the policy of the request, matched once per exchange
+     */
+    public RoutePolicy resolve(ServerWebExchange exchange) {
+        RoutePolicy policy = exchange.getAttribute(ROUTE_POLICY_ATTRIBUTE);
+        if (policy == null) {
+            policy = match(exchange.getRequest());
+            exchange.getAttributes().put(ROUTE_POLICY_ATTRIBUTE, policy);
+        }
+        return policy;
+    }
+
+    private RoutePolicy match(ServerHttpRequest request) {
+        PathContainer path = request.getPath().pathWithinApplication();
+        for (RouteRule rule : rules) {
+            if ((rule.method() == null || rule.method().equals(request.getMethod())) && rule.pattern().matches(path)) {
+                return rule.policy();
+            }
+        }
+        return RoutePolicy.AUTHENTICATED;
+    }
+
+    private void addRule(HttpMethod method, String pattern, RoutePolicy policy) {
+        rules.add(new RouteRule(method, PathPatternParser.defaultInstance.parse(pattern), policy));
+    }
 
-    public Predicate<ServerHttpRequest> isSecured =
-            request -> openApiEndpoints
-                    .stream()
-                    .noneMatch(uri -> pathMatcher.match(uri, request.getURI().getPath()));
+    private record RouteRule(HttpMethod method, PathPattern pattern, RoutePolicy policy) {
+    }
 }
@@ -2,6 +2,7 @@ package com.bookticket.api_gateway.ratelimit;
 
 import com.bookticket.api_gateway.configuration.JwtUtils;
 import com.bookticket.api_gateway.gateway.RouterValidator;
+import io.jsonwebtoken.Claims;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
@@ -47,11 +48,11 @@ public class RateLimitingFilter implements GlobalFilter, Ordered {
         ServerHttpRequest request = exchange.getRequest();
         
         // Get rate limit key - prefer user ID from header, fallback to IP address
-        String rateLimitKey = getRateLimitKey(request);
+        String rateLimitKey = getRateLimitKey(exchange);
         
         log.debug("Checking rate limit for key: {}", rateLimitKey);
         
-        return rateLimiterService.isAllowed(rateLimitKey)
+        return rateLimiterService.isAllowed(rateLimitKey, routerValidator.resolve(exchange).rateLimitCost())
             .flatMap(result -> {
                 if (result.isAllowed()) {
                     // Add rate limit headers to response
@@ -77,7 +78,8 @@ public class RateLimitingFilter implements GlobalFilter, Ordered {
      * 2. Extract from JWT token (for direct user requests)
      * 3. IP address (for unauthenticated requests)
      */
-    private String getRateLimitKey(ServerHttpRequest request) {
+    private String getRateLimitKey(ServerWebExchange exchange) {
+        ServerHttpRequest request = exchange.getRequest();
         // Check if user ID is available in header (from inter-service requests)
         String userId = request.getHeaders().getFirst("X-User-ID");
         if (userId != null && !userId.isEmpty()) {
@@ -86,11 +88,13 @@ public class RateLimitingFilter implements GlobalFilter, Ordered {
         }
 
         // Try to extract user ID from JWT token for authenticated requests
-        if (routerValidator.isSecured.test(request)) {
+        if (routerValidator.resolve(exchange).secured()) {
             String authHeader = request.getHeaders().getFirst("Authorization");
             if (authHeader != null && authHeader.startsWith("Bearer ")) {
                 String token = authHeader.substring(7);
-                userId = jwtUtils.extractUserId(token);
+                // Verified claims are kept on the exchange for AuthenticationFilter
+                Claims claims = jwtUtils.getVerifiedClaims(exchange, token);
+                userId = claims != null ? claims.getSubject() : null;
                 if (userId != null && !userId.isEmpty()) {
                     log.debug("Extracted user ID from JWT token for rate limiting: {}", userId);
                     return "user:" + userId;
@@ -3,19 +3,24 @@ package com.bookticket.api_gateway.ratelimit;
 import com.bookticket.api_gateway.configuration.RateLimitConfig;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Redis-based rate limiter service using Token Bucket algorithm.
  * Provides distributed rate limiting across multiple gateway instances.
- * Uses synchronous RedisTemplate wrapped in Mono for reactive compatibility.
+ * Tokens are taken from the Redis bucket in batches and handed out from a local bucket,
+ * so most requests are authorized without a Redis round trip. Redis is called without
+ * blocking the event loop, using EVALSHA on the cached script.
  */
 @Service
 @Slf4j
@@ -23,19 +28,20 @@ public class RedisRateLimiterService {
 
     private static final int REQUESTED_TOKENS = 1;
 
-    private final RedisTemplate<String, String> scriptRedisTemplate;
+    private final ReactiveStringRedisTemplate reactiveScriptRedisTemplate;
     private final RedisScript<List> rateLimitScript;
     private final RateLimitConfig rateLimitConfig;
+    private final Map<String, LocalBucket> localBuckets = new ConcurrentHashMap<>();
 
     public RedisRateLimiterService(
-            @Qualifier("scriptRedisTemplate") RedisTemplate<String, String> scriptRedisTemplate,
+            @Qualifier("reactiveScriptRedisTemplate") ReactiveStringRedisTemplate reactiveScriptRedisTemplate,
             @Qualifier("rateLimitScript") RedisScript<List> rateLimitScript,
             RateLimitConfig rateLimitConfig) {
-        this.scriptRedisTemplate = scriptRedisTemplate;
+        this.reactiveScriptRedisTemplate = reactiveScriptRedisTemplate;
         this.rateLimitScript = rateLimitScript;
         this.rateLimitConfig = rateLimitConfig;
-        log.info("RedisRateLimiterService initialized with config: {} tokens/sec, {} bucket capacity",
-                rateLimitConfig.getTokensPerSecond(), rateLimitConfig.getBucketCapacity());
+        log.info("RedisRateLimiterService initialized with config: {} tokens/sec, {} bucket capacity, local batch of {}",
+                rateLimitConfig.getTokensPerSecond(), rateLimitConfig.getBucketCapacity(), rateLimitConfig.getLocalBatchSize());
     }
 
     /**
@@ -55,53 +61,104 @@ public class RedisRateLimiterService {
 
     /**
      * Check if the request is allowed based on token bucket rate limiting.
-     * Executes Lua script synchronously and wraps result in Mono for reactive compatibility.
+     * Served from the local bucket when it still holds tokens, otherwise a batch of tokens is taken from Redis.
      *
      * @param key The rate limit key (e.g., "user:123" or "ip:192.168.1.1")
      * @param requestedTokens Number of tokens to consume
      * @return Mono<RateLimitResult> containing whether request is allowed and remaining tokens
      */
     public Mono<RateLimitResult> isAllowed(String key, int requestedTokens) {
-        return Mono.fromCallable(() -> {
-            String redisKey = rateLimitConfig.getPrefix() + ":" + key;
-            long nowInSeconds = Instant.now().getEpochSecond();
-
-            try {
-                List result = scriptRedisTemplate.execute(
-                        rateLimitScript,
-                        Collections.singletonList(redisKey),
-                        String.valueOf(rateLimitConfig.getBucketCapacity()),
-                        String.valueOf(rateLimitConfig.getTokensPerSecond()),
-                        String.valueOf(requestedTokens),
-                        String.valueOf(nowInSeconds)
-                );
-
-                if (result != null && result.size() >= 2) {
-                    long allowed = ((Number) result.get(0)).longValue();
-                    double remainingTokens = ((Number) result.get(1)).doubleValue();
-                    boolean isAllowed = allowed == 1;
-
-                    if (isAllowed) {
-                        log.debug("Rate limit check for key '{}': ALLOWED, remaining tokens: {:.2f}",
-                                key, remainingTokens);
-                    } else {
-                        log.warn("Rate limit check for key '{}': EXCEEDED, remaining tokens: {:.2f}",
-                                key, remainingTokens);
-                    }
-
-                    return new RateLimitResult(isAllowed, remainingTokens);
-                }
-
-                log.warn("Unexpected result from rate limit script for key '{}': {}", key, result);
-                return new RateLimitResult(false, 0.0);
-
-            } catch (Exception e) {
-                log.error("Error executing rate limiter script for key '{}'. Failing open (allowing request). Error: {}",
-                        key, e.getMessage(), e);
-                // Fail open - allow request if Redis is unavailable
-                return new RateLimitResult(true, rateLimitConfig.getBucketCapacity());
+        long nowMillis = System.currentTimeMillis();
+        LocalBucket localBucket = localBuckets.computeIfAbsent(key, k -> new LocalBucket());
+        if (localBucket.tryConsume(requestedTokens, nowMillis)) {
+            return Mono.just(new RateLimitResult(true, localBucket.remaining()));
+        }
+        evictExpiredBuckets(nowMillis);
+
+        String redisKey = rateLimitConfig.getPrefix() + ":" + key;
+        int batchSize = Math.max(requestedTokens, rateLimitConfig.getLocalBatchSize());
+        List<String> args = List.of(
+                String.valueOf(rateLimitConfig.getBucketCapacity()),
+                String.valueOf(rateLimitConfig.getTokensPerSecond()),
+                String.valueOf(requestedTokens),
+                String.valueOf(Instant.now().getEpochSecond()),
+                String.valueOf(batchSize)
+        );
+
+        return reactiveScriptRedisTemplate.execute(rateLimitScript, Collections.singletonList(redisKey), args)
+                .next()
+                .timeout(Duration.ofMillis(rateLimitConfig.getRedisTimeoutMs()))
+                .map(result -> toRateLimitResult(key, result, requestedTokens, localBucket))
+                .onErrorResume(e -> {
+                    log.error("Error executing rate limiter script for key '{}'. Failing open (allowing request). Error: {}",
+                            key, e.getMessage());
+                    // Fail open - allow request if Redis is unavailable or slow
+                    return Mono.just(new RateLimitResult(true, rateLimitConfig.getBucketCapacity()));
+                })
+                .defaultIfEmpty(new RateLimitResult(true, rateLimitConfig.getBucketCapacity()));
+    }
+
+    private RateLimitResult toRateLimitResult(String key, List<?> result, int requestedTokens, LocalBucket localBucket) {
+        if (result == null || result.size() < 2) {
+            log.warn("Unexpected result from rate limit script for key '{}': {}", key, result);
+            return new RateLimitResult(false, 0.0);
+        }
+        long granted = ((Number) result.get(0)).longValue();
+        double remoteRemaining = ((Number) result.get(1)).doubleValue();
+
+        if (granted < requestedTokens) {
+            localBucket.update(0, remoteRemaining, System.currentTimeMillis() + rateLimitConfig.getLocalLeaseMs());
+            log.warn("Rate limit check for key '{}': EXCEEDED, remaining tokens: {}", key, remoteRemaining);
+            return new RateLimitResult(false, remoteRemaining);
+        }
+        // Keep the tokens granted beyond this request for the next requests of the key
+        localBucket.update(granted - requestedTokens, remoteRemaining,
+                System.currentTimeMillis() + rateLimitConfig.getLocalLeaseMs());
+        log.debug("Rate limit check for key '{}': ALLOWED, {} tokens granted, remaining tokens: {}",
+                key, granted, remoteRemaining);
+        return new RateLimitResult(true, localBucket.remaining());
+    }
+
+    private void evictExpiredBuckets(long nowMillis) {
+        if (localBuckets.size() > rateLimitConfig.getMaxLocalKeys()) {
+            localBuckets.values().removeIf(bucket -> bucket.isExpired(nowMillis));
+        }
+    }
+
+    /**
+     * Tokens granted by Redis to this gateway instance for one key
+     * Unused tokens expire with the lease, so an idle instance does not hold on to a key's budget
+     */
+    private static final class LocalBucket {
+        private long tokens;
+        private double remoteRemaining;
+        private long expiresAt;
+
+        synchronized boolean tryConsume(int requestedTokens, long nowMillis) {
+            if (nowMillis >= expiresAt) {
+                tokens = 0;
+            }
+            if (tokens >= requestedTokens) {
+                tokens -= requestedTokens;
+                return true;
             }
-        });
+            return false;
+        }
+
+        synchronized void update(long leasedTokens, double remoteRemaining, long expiresAt) {
+            // Concurrent refills for the same key add up instead of dropping granted tokens
+            this.tokens = (System.currentTimeMillis() < this.expiresAt ? this.tokens : 0) + leasedTokens;
+            this.remoteRemaining = remoteRemaining;
+            this.expiresAt = expiresAt;
+        }
+
+        synchronized double remaining() {
+            return tokens + remoteRemaining;
+        }
+
+        synchronized boolean isExpired(long nowMillis) {
+            return nowMillis >= expiresAt;
+        }
     }
 
     /**
@@ -125,4 +182,3 @@ public class RedisRateLimiterService {
         }
     }
 }
-
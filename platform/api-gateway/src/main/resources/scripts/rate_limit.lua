@@ -4,12 +4,14 @@
 -- ARGV[2]: tokens per second (refill rate)
 -- ARGV[3]: requested tokens (usually 1)
 -- ARGV[4]: current timestamp in seconds
+-- ARGV[5]: batch size, tokens to grant at once so the gateway can hand them out locally
 
 local key = KEYS[1]
 local capacity = tonumber(ARGV[1])
 local tokens_per_second = tonumber(ARGV[2])
 local requested_tokens = tonumber(ARGV[3])
 local now = tonumber(ARGV[4])
+local batch_size = math.max(requested_tokens, tonumber(ARGV[5]) or requested_tokens)
 
 -- Get current bucket state
 local bucket = redis.call('HMGET', key, 'tokens', 'last_refill')
@@ -28,11 +30,11 @@ local tokens_to_add = time_elapsed * tokens_per_second
 tokens = math.min(capacity, tokens + tokens_to_add)
 last_refill = now
 
--- Check if request can be allowed
-local allowed = 0
+-- The request itself is all or nothing, extra tokens up to the batch size are granted if available
+local granted = 0
 if tokens >= requested_tokens then
-  tokens = tokens - requested_tokens
-  allowed = 1
+  granted = math.min(batch_size, math.floor(tokens))
+  tokens = tokens - granted
 end
 
 -- Update bucket state
@@ -40,6 +42,5 @@ redis.call('HMSET', key, 'tokens', tokens, 'last_refill', last_refill)
 -- Set expiration to 2 minutes (120 seconds)
 redis.call('EXPIRE', key, 120)
 
--- Return: [allowed (1 or 0), remaining tokens]
-return {allowed, tokens}
-
+-- Return: [granted tokens (0 if rate limited), remaining tokens]
+return {granted, tokens}
@@ -1,8 +1,13 @@
 package com.bookticket.booking_service;
 
+import com.bookticket.booking_service.configuration.DLQRetryProperties;
+import com.bookticket.booking_service.configuration.IdempotencyProperties;
+import com.bookticket.booking_service.configuration.OutboxProperties;
 import com.bookticket.booking_service.configuration.PaymentPollingProperties;
 import com.bookticket.booking_service.configuration.RedisLockProperties;
+import com.bookticket.booking_service.configuration.SequencerProperties;
 import com.bookticket.booking_service.configuration.ServiceUrlProperties;
+import com.bookticket.booking_service.configuration.WaitingRoomProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -13,7 +18,12 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 @EnableConfigurationProperties({
         RedisLockProperties.class,
         ServiceUrlProperties.class,
-        PaymentPollingProperties.class}
+        PaymentPollingProperties.class,
+        OutboxProperties.class,
+        DLQRetryProperties.class,
+        IdempotencyProperties.class,
+        WaitingRoomProperties.class,
+        SequencerProperties.class}
 )
 @EnableAsync
 @EnableScheduling
@@ -4,6 +4,7 @@ import com.bookticket.booking_service.security.HeaderPropagationInterceptor;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.web.client.RestClient;
 
 @Configuration
@@ -46,9 +47,33 @@ public class AppConfig {
                 .build();
     }
 
+    /**
+     * RestClient calling a specific booking-service instance, not load-balanced
+     * Reads wait for the sequencer of the instance, a little longer than a booking waits for it locally
+     */
+    @Bean("bookingPeerRestClient")
+    public RestClient bookingPeerRestClient(SequencerProperties sequencerProperties) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout((int) sequencerProperties.getConnectTimeoutMs());
+        requestFactory.setReadTimeout((int) (sequencerProperties.getWaitTimeoutMs() + sequencerProperties.getConnectTimeoutMs()));
+        return RestClient.builder()
+                .requestFactory(requestFactory)
+                .requestInterceptor(headerPropagationInterceptor())
+                .build();
+    }
+
+    /**
+     * RestClient calling notification service, with timeouts so DLQ retries falling back to it fit their lease
+     */
     @Bean("notificationRestClient")
-    public RestClient notificationRestClient(RestClient.Builder loadBalancedRestClientBuilder) {
-        return loadBalancedRestClientBuilder
+    public RestClient notificationRestClient(RestClient.Builder loadBalancedRestClientBuilder,
+                                             DLQRetryProperties dlqRetryProperties) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout((int) dlqRetryProperties.getRestTimeoutMs());
+        requestFactory.setReadTimeout((int) dlqRetryProperties.getRestTimeoutMs());
+        // Cloned so the timeouts do not leak into the other clients of the shared builder
+        return loadBalancedRestClientBuilder.clone()
+                .requestFactory(requestFactory)
                 .baseUrl(serviceUrlProperties.getNotificationUrl())
                 .requestInterceptor(headerPropagationInterceptor())
                 .build();
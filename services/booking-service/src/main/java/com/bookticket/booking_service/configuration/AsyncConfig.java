@@ -8,6 +8,7 @@ import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 @EnableRetry
@@ -43,6 +44,21 @@ public class AsyncConfig implements AsyncConfigurer {
         return executor;
     }
 
+    /**
+     * Bounded pool retrying Dead Letter Queue events, the scheduler thread retries events itself when it is saturated
+     */
+    @Bean(name = "dlqRetryExecutor")
+    public Executor dlqRetryExecutor(DLQRetryProperties dlqRetryProperties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(dlqRetryProperties.getParallelism());
+        executor.setMaxPoolSize(dlqRetryProperties.getParallelism());
+        executor.setQueueCapacity(dlqRetryProperties.getBatchSize());
+        executor.setThreadNamePrefix("dlq-retry-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
     /**
      * Default executor for other async operations
      */
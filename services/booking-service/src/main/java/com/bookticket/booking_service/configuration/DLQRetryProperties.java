@@ -0,0 +1,50 @@
+package com.bookticket.booking_service.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "booking.dlq")
+@Data
+public class DLQRetryProperties {
+    /**
+     * Number of due events claimed and retried per round
+     */
+    private int batchSize = 200;
+    /**
+     * Events of a round retried concurrently
+     */
+    private int parallelism = 8;
+    /**
+     * How long claimed events stay hidden from other instances, must cover the retries of one round
+     * Derived from the batch size, parallelism and timeouts when not set, see {@link #getLeaseMs()}
+     */
+    private long leaseMs;
+    /**
+     * Delay before the first retry of a failing event, doubled on every further failure
+     */
+    private long baseBackoffMs = 30000;
+    /**
+     * Upper bound of the delay between two retries of an event
+     */
+    private long maxBackoffMs = 3600000;
+    /**
+     * How long a retry waits for the Kafka acknowledgement before falling back to REST
+     */
+    private long sendTimeoutMs = 10000;
+    /**
+     * Connect and read timeout of REST calls to notification service, bounds the fallback of a retry
+     */
+    private long restTimeoutMs = 10000;
+
+    /**
+     * @return configured lease, or the worst case of a round: every event waiting out the Kafka and REST
+     * timeouts, parallelism events at a time, doubled for margin
+     */
+    public long getLeaseMs() {
+        if (leaseMs > 0) {
+            return leaseMs;
+        }
+        long waves = (batchSize + parallelism - 1) / Math.max(1, parallelism);
+        return 2 * waves * (sendTimeoutMs + 2 * restTimeoutMs);
+    }
+}
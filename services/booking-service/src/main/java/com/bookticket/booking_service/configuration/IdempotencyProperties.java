@@ -0,0 +1,30 @@
+package com.bookticket.booking_service.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "booking.idempotency")
+@Data
+public class IdempotencyProperties {
+    /**
+     * Key prefix of idempotency records in Redis
+     * Example: "idempotency:booking" results in keys like "idempotency:booking:userId:key"
+     */
+    private String keyPrefix = "idempotency:booking";
+    /**
+     * How long a request holds its key while being processed, a crashed request frees it after this time
+     */
+    private Duration inFlightTtl = Duration.ofSeconds(60);
+    /**
+     * How long the final response of a request is replayed to retries carrying the same key
+     */
+    private Duration responseTtl = Duration.ofHours(24);
+    /**
+     * How long a retry waits for the original request to finish before it is rejected
+     */
+    private long waitTimeoutMs = 10000;
+    private long pollIntervalMs = 100;
+    private int maxKeyLength = 255;
+}
@@ -0,0 +1,27 @@
+package com.bookticket.booking_service.configuration;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+
+@Configuration
+public class KafkaProducerConfig {
+
+    /**
+     * Booking events are relayed from the outbox in batches, so let the producer batch and compress them.
+     * Idempotence keeps retried sends from being written twice to the same partition.
+     */
+    @Bean
+    public DefaultKafkaProducerFactoryCustomizer bookingEventProducerCustomizer(OutboxProperties outboxProperties) {
+        return producerFactory -> producerFactory.updateConfigs(Map.<String, Object>of(
+                ProducerConfig.LINGER_MS_CONFIG, outboxProperties.getLingerMs(),
+                ProducerConfig.BATCH_SIZE_CONFIG, outboxProperties.getProducerBatchSizeBytes(),
+                ProducerConfig.COMPRESSION_TYPE_CONFIG, outboxProperties.getCompressionType(),
+                ProducerConfig.ACKS_CONFIG, "all",
+                ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true
+        ));
+    }
+}
@@ -0,0 +1,30 @@
+package com.bookticket.booking_service.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "booking.outbox")
+@Data
+public class OutboxProperties {
+    /**
+     * Maximum number of events read and sent per relay round
+     */
+    private int batchSize = 200;
+    /**
+     * How long a batch waits for Kafka acknowledgements before failed sends are rescheduled
+     */
+    private long sendTimeoutMs = 10000;
+    /**
+     * Failed sends before an event is handed over to the Dead Letter Queue
+     */
+    private int maxAttempts = 10;
+    /**
+     * Upper bound of the exponential delay between two sends of a failing event
+     */
+    private long maxBackoffMs = 300000;
+
+    // Producer settings applied to the booking event producer
+    private long lingerMs = 20;
+    private int producerBatchSizeBytes = 65536;
+    private String compressionType = "lz4";
+}
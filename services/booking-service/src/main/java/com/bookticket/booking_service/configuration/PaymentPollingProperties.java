@@ -2,13 +2,12 @@ package com.bookticket.booking_service.configuration;
 
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
-import org.springframework.stereotype.Component;
 
 @ConfigurationProperties(prefix = "booking.payment.polling")
 @Data
 public class PaymentPollingProperties {
-    private int maxAttempts;
-    private long intervalMs;
-    private long timeoutMs;
+    /**
+     * How long verify-payment waits for the payment event before answering with the current status
+     */
+    private long timeoutMs = 30000;
 }
-
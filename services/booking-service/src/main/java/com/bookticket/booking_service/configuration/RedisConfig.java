@@ -0,0 +1,103 @@
+package com.bookticket.booking_service.configuration;
+
+import com.bookticket.booking_service.service.PaymentCompletionHub;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scripting.support.ResourceScriptSource;
+
+import java.io.IOException;
+import java.util.List;
+
+@Configuration
+@Slf4j
+public class RedisConfig {
+
+    /**
+     * Redis script bean for acquiring all seat locks of a booking in a single round trip.
+     * The script returns a List of the 1-based positions of the keys that are held by
+     * another booking. An empty list means all locks were acquired.
+     *
+     * @return RedisScript that executes the all-or-nothing seat lock logic
+     */
+    @Bean("acquireSeatLocksScript")
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public RedisScript<List> acquireSeatLocksScript() {
+        return (RedisScript<List>) RedisScript.of(loadScript("scripts/acquire_seat_locks.lua"), List.class);
+    }
+
+    /**
+     * Redis script bean for releasing seat locks only if they are still owned by the booking.
+     * The script returns the number of locks that were released.
+     *
+     * @return RedisScript that executes the owner-checked release logic
+     */
+    @Bean("releaseSeatLocksScript")
+    public RedisScript<Long> releaseSeatLocksScript() {
+        return RedisScript.of(loadScript("scripts/release_seat_locks.lua"), Long.class);
+    }
+
+    /**
+     * Redis script bean for joining or polling the waiting room of a show and letting users through
+     * at its admission rate. The script returns the ticket of the user and the number of tickets let
+     * through so far, or an empty list when polling for a user that is not in the queue.
+     *
+     * @return RedisScript that executes the waiting room admission logic
+     */
+    @Bean("waitingRoomEnterScript")
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public RedisScript<List> waitingRoomEnterScript() {
+        return (RedisScript<List>) RedisScript.of(loadScript("scripts/waiting_room_enter.lua"), List.class);
+    }
+
+    /**
+     * Redis script bean for giving a redeemed admission back to its user after a failed booking.
+     * The script returns 1 if the ticket was restored, 0 if the room is gone or the user is queued again.
+     *
+     * @return RedisScript that executes the waiting room admission restore
+     */
+    @Bean("waitingRoomRestoreScript")
+    public RedisScript<Long> waitingRoomRestoreScript() {
+        return RedisScript.of(loadScript("scripts/waiting_room_restore.lua"), Long.class);
+    }
+
+    /**
+     * Redis script bean for completing or releasing an idempotency key only if it still holds the
+     * in-flight marker of the request finishing it. The script returns 1 if the key was finished.
+     *
+     * @return RedisScript that executes the owner-checked idempotency key completion
+     */
+    @Bean("idempotencyFinishScript")
+    public RedisScript<Long> idempotencyFinishScript() {
+        return RedisScript.of(loadScript("scripts/idempotency_finish.lua"), Long.class);
+    }
+
+    /**
+     * Listener container delivering payment completions broadcast by any booking-service instance
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                       PaymentCompletionHub paymentCompletionHub) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(paymentCompletionHub, new ChannelTopic(PaymentCompletionHub.CHANNEL));
+        return container;
+    }
+
+    private String loadScript(String path) {
+        try {
+            ClassPathResource resource = new ClassPathResource(path);
+            String scriptText = new ResourceScriptSource(resource).getScriptAsString();
+            log.info("Successfully loaded Lua script from classpath: {}", resource.getPath());
+            return scriptText;
+        } catch (IOException e) {
+            log.error("Failed to load Lua script {} from classpath", path, e);
+            throw new IllegalStateException("Failed to load Lua script: " + path, e);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.bookticket.booking_service.configuration;
 
 import com.bookticket.booking_service.security.HeaderAuthenticatorFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -31,6 +32,9 @@ public class SecurityConfig {
                 .authorizeHttpRequests(requests -> requests
                         .requestMatchers("/actuator/**").permitAll()
                         .requestMatchers("v3/api-docs/**").permitAll()
+                        // Long-polled responses are written on an async dispatch, already authorized on the request
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
+                        .requestMatchers("/api/v1/bookings/internal/**").hasRole("SERVICE_ACCOUNT")
                         .anyRequest().authenticated()
                 )
                 .addFilterBefore(headerAuthenticatorFilter(), UsernamePasswordAuthenticationFilter.class);
@@ -0,0 +1,39 @@
+package com.bookticket.booking_service.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "booking.sequencer")
+@Data
+public class SequencerProperties {
+    /**
+     * Number of lanes reserving seats, all bookings of a show are reserved by the same lane
+     */
+    private int lanes = 8;
+    /**
+     * Reservations a lane takes at once, the non-conflicting ones of a show share one theater-service call
+     */
+    private int maxBatchSize = 32;
+    /**
+     * Reservations waiting per lane before new bookings are rejected
+     */
+    private int queueCapacity = 1000;
+    /**
+     * How long a booking waits for its seats to be reserved
+     */
+    private long waitTimeoutMs = 10000;
+    /**
+     * Route the reservations of a show to the booking-service instance owning it, so they are sequenced cluster-wide
+     * When disabled every instance reserves its own bookings, the Redis seat locks keep them consistent
+     */
+    private boolean routingEnabled = true;
+    /**
+     * Eureka metadata key advertising that an instance sequences reservations, only those are put on the ring
+     */
+    private String metadataKey = "booking-sequencer";
+    /**
+     * Points per instance on the ring, more points spread shows more evenly across instances
+     */
+    private int virtualNodes = 64;
+    private long connectTimeoutMs = 1000;
+}
@@ -0,0 +1,38 @@
+package com.bookticket.booking_service.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "booking.waiting-room")
+@Data
+public class WaitingRoomProperties {
+    /**
+     * Key prefix of waiting room state in Redis
+     * Example: "waiting-room" results in keys like "waiting-room:42:queue" and "waiting-room:shows"
+     */
+    private String keyPrefix = "waiting-room";
+    /**
+     * Where queue state lives: "redis" shared by every instance, or "local" in memory for tests
+     */
+    private String store = "redis";
+    /**
+     * Users let through per second when a room is opened without a rate
+     * Should match the measured booking capacity of a single show
+     */
+    private double defaultAdmitRatePerSecond = 20;
+    /**
+     * How long an admission token allows booking the show, a token is used up by the first booking made with it
+     */
+    private Duration tokenTtl = Duration.ofMinutes(10);
+    /**
+     * HMAC secret signing admission tokens, must be the same on every instance
+     * Required with the redis store, the local store generates a random secret when empty
+     */
+    private String tokenSecret;
+    /**
+     * How long the queue of a show is kept after the last user joined or polled it
+     */
+    private Duration queueTtl = Duration.ofHours(6);
+}
@@ -3,9 +3,16 @@ package com.bookticket.booking_service.controller;
 import com.bookticket.booking_service.dto.BookingStatusResponse;
 import com.bookticket.booking_service.dto.CreateBookingResponse;
 import com.bookticket.booking_service.dto.CreateBookingRequest;
+import com.bookticket.booking_service.dto.PaymentResponse;
 import com.bookticket.booking_service.dto.SeatDetailsResponse;
+import com.bookticket.booking_service.dto.SeatReservationRequest;
+import com.bookticket.booking_service.dto.ValidSeatResponse;
 import com.bookticket.booking_service.security.UserPrincipal;
 import com.bookticket.booking_service.service.BookingService;
+import com.bookticket.booking_service.service.IdempotencyService;
+import com.bookticket.booking_service.service.PaymentCompletionHub;
+import com.bookticket.booking_service.service.SeatReservationSequencer;
+import com.bookticket.booking_service.service.WaitingRoomService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -18,6 +25,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -30,26 +38,40 @@ import java.util.List;
 @SecurityRequirement(name = "bearerAuth")
 public class BookingController {
     private final BookingService bookingService;
+    private final PaymentCompletionHub paymentCompletionHub;
+    private final IdempotencyService idempotencyService;
+    private final WaitingRoomService waitingRoomService;
+    private final SeatReservationSequencer seatReservationSequencer;
 
-    public BookingController(BookingService bookingService) {
+    public BookingController(BookingService bookingService, PaymentCompletionHub paymentCompletionHub,
+                             IdempotencyService idempotencyService, WaitingRoomService waitingRoomService,
+                             SeatReservationSequencer seatReservationSequencer) {
         this.bookingService = bookingService;
+        this.paymentCompletionHub = paymentCompletionHub;
+        this.idempotencyService = idempotencyService;
+        this.waitingRoomService = waitingRoomService;
+        this.seatReservationSequencer = seatReservationSequencer;
     }
 
     @Operation(
             summary = "Create a new booking",
-            description = "Creates a new booking, locks the selected seats, and generates a payment session. The user should be redirected to the `paymentUrl` to complete the transaction.",
+            description = "Creates a new booking, locks the selected seats, and generates a payment session. The user should be redirected to the `paymentUrl` to complete the transaction. Requests carrying an `Idempotency-Key` header create at most one booking per key: retries with the same key get the response of the first request replayed, with the `Idempotent-Replayed` header set. Shows with an open waiting room are only booked with the `Admission-Token` issued by it.",
             responses = {
                     @ApiResponse(responseCode = "201", description = "Booking created successfully, pending payment",
                             content = @Content(mediaType = "application/json", schema = @Schema(implementation = CreateBookingResponse.class))),
-                    @ApiResponse(responseCode = "400", description = "Invalid booking data or seats not available",
+                    @ApiResponse(responseCode = "400", description = "Invalid booking data, seats not available or invalid Idempotency-Key",
                             content = @Content(mediaType = "application/json")),
                     @ApiResponse(responseCode = "401", description = "Unauthorized - Missing or invalid JWT token",
                             content = @Content(mediaType = "application/json")),
-                    @ApiResponse(responseCode = "409", description = "Seats already locked by another booking",
+                    @ApiResponse(responseCode = "403", description = "Show has an open waiting room and the Admission-Token is missing, invalid, expired or already used",
+                            content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "409", description = "Seats already locked by another booking, or the request with the same Idempotency-Key is still running",
+                            content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "422", description = "Idempotency-Key already used for a different booking request",
                             content = @Content(mediaType = "application/json")),
                     @ApiResponse(responseCode = "500", description = "Internal server error",
                             content = @Content(mediaType = "application/json")),
-                    @ApiResponse(responseCode = "503", description = "Service unavailable",
+                    @ApiResponse(responseCode = "503", description = "Service unavailable, or too many bookings waiting for the show",
                             content = @Content(mediaType = "application/json")),
                     @ApiResponse(responseCode = "504", description = "Gateway timeout",
                             content = @Content(mediaType = "application/json")),
@@ -62,27 +84,47 @@ public class BookingController {
     @PostMapping
     public ResponseEntity<CreateBookingResponse> createBooking(
             @Parameter(hidden = true) @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @Parameter(description = "Client-generated key making retries of this request safe")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @Parameter(description = "Token issued by the waiting room of the show, required while it is open")
+            @RequestHeader(value = "Admission-Token", required = false) String admissionToken,
             @Valid @RequestBody CreateBookingRequest createBookingRequest) {
         log.info("Creating booking for user {} with request: {}", userPrincipal.getUserId(), createBookingRequest);
-        CreateBookingResponse response = bookingService.createBooking(userPrincipal.getUserId(), createBookingRequest);
-        return new ResponseEntity<>(response, HttpStatus.CREATED);
+        if (idempotencyKey == null) {
+            CreateBookingResponse response = waitingRoomService.withAdmission(userPrincipal.getUserId(),
+                    createBookingRequest.showId(), admissionToken, () -> bookingService.createBooking(
+                            userPrincipal.getUserId(), userPrincipal.getEmail(), createBookingRequest));
+            return new ResponseEntity<>(response, HttpStatus.CREATED);
+        }
+        // Admission is used up by the first request, replays of its response do not need it again
+        IdempotencyService.IdempotentResult result = idempotencyService.createOnce(userPrincipal.getUserId(),
+                idempotencyKey, createBookingRequest, () -> waitingRoomService.withAdmission(userPrincipal.getUserId(),
+                        createBookingRequest.showId(), admissionToken, () -> bookingService.createBooking(
+                                userPrincipal.getUserId(), userPrincipal.getEmail(), createBookingRequest)));
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .header("Idempotent-Replayed", String.valueOf(result.replayed()))
+                .body(result.response());
     }
 
     @Operation(
             summary = "Verify payment and complete booking",
-            description = "Verifies the Stripe payment session and updates the booking status to CONFIRMED or FAILED. This endpoint should be called as the callback/success URL after payment.",
+            description = "Waits for the payment outcome reported by Stripe and returns the booking as CONFIRMED, or fails with 402 if the payment failed. The request is held without blocking a server thread. If no outcome arrives within the wait time, 202 is returned with the PENDING booking and the client should call again.",
             responses = {
                     @ApiResponse(responseCode = "200", description = "Payment verified and booking status updated",
                             content = @Content(mediaType = "application/json", schema = @Schema(implementation = BookingStatusResponse.class))),
+                    @ApiResponse(responseCode = "202", description = "Payment still pending, call again",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = BookingStatusResponse.class))),
                     @ApiResponse(responseCode = "400", description = "Invalid booking or session ID",
                             content = @Content(mediaType = "application/json")),
                     @ApiResponse(responseCode = "401", description = "Unauthorized - Missing or invalid JWT token",
                             content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "402", description = "Payment failed",
+                            content = @Content(mediaType = "application/json")),
                     @ApiResponse(responseCode = "404", description = "Booking not found",
                             content = @Content(mediaType = "application/json")),
                     @ApiResponse(responseCode = "500", description = "Internal server error",
                             content = @Content(mediaType = "application/json")),
-                    @ApiResponse(responseCode = "503", description = "Service unavailable",
+                    @ApiResponse(responseCode = "503", description = "Service unavailable, or too many bookings waiting for the show",
                             content = @Content(mediaType = "application/json")),
                     @ApiResponse(responseCode = "504", description = "Gateway timeout",
                             content = @Content(mediaType = "application/json")),
@@ -91,14 +133,53 @@ public class BookingController {
             }
     )
     @GetMapping("/{bookingId}/verify-payment")
-    public ResponseEntity<BookingStatusResponse> verifyPayment(
+    public DeferredResult<ResponseEntity<BookingStatusResponse>> verifyPayment(
             @Parameter(description = "ID of the booking to verify", required = true)
             @PathVariable Long bookingId,
             @Parameter(description = "Stripe checkout session ID", required = true)
             @RequestParam String sessionId) {
-        log.info("Verifying payment for booking {} with session {}", bookingId, sessionId);
-        BookingStatusResponse response = bookingService.verifyAndCompleteBooking(bookingId, sessionId);
-        return ResponseEntity.ok(response);
+        log.info("Waiting for payment of booking {} with session {}", bookingId, sessionId);
+        return paymentCompletionHub.awaitCompletion(bookingId, sessionId);
+    }
+
+    @Operation(
+            summary = "Receive final payment outcome",
+            description = "Called by the Payment Service when Stripe reports that the payment of a booking completed or failed. Completes the booking and wakes up waiting verify-payment requests.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Booking status updated",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = BookingStatusResponse.class))),
+                    @ApiResponse(responseCode = "403", description = "Forbidden - Service account required",
+                            content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "500", description = "Internal server error",
+                            content = @Content(mediaType = "application/json"))
+            }
+    )
+    @PostMapping("/internal/payment-events")
+    public ResponseEntity<BookingStatusResponse> handlePaymentEvent(@RequestBody PaymentResponse paymentResponse) {
+        return ResponseEntity.ok(paymentCompletionHub.onPaymentEvent(paymentResponse));
+    }
+
+    @Operation(
+            summary = "Reserve seats through the sequencer of this instance",
+            description = "Called by other Booking Service instances for shows this instance owns on the sequencer ring. Locks the seats of the booking and reserves them with the Theater Service, in sequence with the other bookings of the show.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Seats locked and reserved for the booking",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ValidSeatResponse.class))),
+                    @ApiResponse(responseCode = "403", description = "Forbidden - Service account required",
+                            content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "409", description = "Seats no longer available, nothing was locked",
+                            content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "500", description = "Internal server error",
+                            content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "503", description = "Sequencer of the show is saturated, nothing was locked",
+                            content = @Content(mediaType = "application/json"))
+            }
+    )
+    @PostMapping("/internal/reservations")
+    public ResponseEntity<List<ValidSeatResponse>> reserveSeats(@Valid @RequestBody SeatReservationRequest seatReservationRequest) {
+        // Reserved here even if the ring changed meanwhile, forwarding again could bounce between instances
+        return ResponseEntity.ok(seatReservationSequencer.reserve(seatReservationRequest.showId(),
+                seatReservationRequest.seatIds(), seatReservationRequest.bookingId()));
     }
 
     @Operation(
@@ -113,7 +194,7 @@ public class BookingController {
                             content = @Content(mediaType = "application/json")),
                     @ApiResponse(responseCode = "500", description = "Internal server error",
                             content = @Content(mediaType = "application/json")),
-                    @ApiResponse(responseCode = "503", description = "Service unavailable",
+                    @ApiResponse(responseCode = "503", description = "Service unavailable, or too many bookings waiting for the show",
                             content = @Content(mediaType = "application/json")),
                     @ApiResponse(responseCode = "504", description = "Gateway timeout",
                             content = @Content(mediaType = "application/json")),
@@ -0,0 +1,88 @@
+package com.bookticket.booking_service.controller;
+
+import com.bookticket.booking_service.dto.WaitingRoomRequest;
+import com.bookticket.booking_service.dto.WaitingRoomResponse;
+import com.bookticket.booking_service.service.WaitingRoomService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/admin/waiting-rooms")
+@Slf4j
+@Tag(name = "Admin - Waiting Rooms", description = "APIs for opening and closing the waiting rooms of shows")
+@SecurityRequirement(name = "bearerAuth")
+@PreAuthorize("hasRole('ADMIN')")
+public class WaitingRoomAdminController {
+
+    private final WaitingRoomService waitingRoomService;
+
+    public WaitingRoomAdminController(WaitingRoomService waitingRoomService) {
+        this.waitingRoomService = waitingRoomService;
+    }
+
+    @Operation(
+            summary = "Get open waiting rooms",
+            description = "Lists the shows with an open waiting room and their admission rates.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Successfully retrieved open waiting rooms",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = WaitingRoomResponse.class))),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized - Missing or invalid JWT token"),
+                    @ApiResponse(responseCode = "403", description = "Forbidden - User does not have ADMIN role"),
+                    @ApiResponse(responseCode = "500", description = "Internal server error")
+            }
+    )
+    @GetMapping
+    public ResponseEntity<List<WaitingRoomResponse>> getOpenRooms() {
+        return ResponseEntity.ok(waitingRoomService.getOpenRooms());
+    }
+
+    @Operation(
+            summary = "Open the waiting room of a show",
+            description = "Opens the waiting room of a show, or changes the admission rate of an open one. The rate should match the measured booking capacity of a single show. From then on, bookings for the show need an admission token.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Waiting room opened",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = WaitingRoomResponse.class))),
+                    @ApiResponse(responseCode = "400", description = "Invalid admission rate"),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized - Missing or invalid JWT token"),
+                    @ApiResponse(responseCode = "403", description = "Forbidden - User does not have ADMIN role"),
+                    @ApiResponse(responseCode = "500", description = "Internal server error")
+            }
+    )
+    @PutMapping("/{showId}")
+    public ResponseEntity<WaitingRoomResponse> openRoom(
+            @Parameter(description = "ID of the show", required = true) @PathVariable Long showId,
+            @Valid @RequestBody(required = false) WaitingRoomRequest request) {
+        log.info("Admin request: Open waiting room of show {}", showId);
+        return ResponseEntity.ok(waitingRoomService.open(showId, request != null ? request.admitRatePerSecond() : null));
+    }
+
+    @Operation(
+            summary = "Close the waiting room of a show",
+            description = "Closes the waiting room of a show and drops its queue. Bookings for the show no longer need an admission token.",
+            responses = {
+                    @ApiResponse(responseCode = "204", description = "Waiting room closed"),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized - Missing or invalid JWT token"),
+                    @ApiResponse(responseCode = "403", description = "Forbidden - User does not have ADMIN role"),
+                    @ApiResponse(responseCode = "500", description = "Internal server error")
+            }
+    )
+    @DeleteMapping("/{showId}")
+    public ResponseEntity<Void> closeRoom(
+            @Parameter(description = "ID of the show", required = true) @PathVariable Long showId) {
+        log.info("Admin request: Close waiting room of show {}", showId);
+        waitingRoomService.close(showId);
+        return ResponseEntity.noContent().build();
+    }
+}
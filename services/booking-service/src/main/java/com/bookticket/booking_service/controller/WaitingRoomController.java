@@ -0,0 +1,78 @@
+package com.bookticket.booking_service.controller;
+
+import com.bookticket.booking_service.dto.WaitingRoomStatusResponse;
+import com.bookticket.booking_service.security.UserPrincipal;
+import com.bookticket.booking_service.service.WaitingRoomService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/bookings/waiting-room")
+@Slf4j
+@Tag(name = "Waiting Room Controller", description = "APIs for queueing to book shows under a rush")
+@SecurityRequirement(name = "bearerAuth")
+public class WaitingRoomController {
+    private final WaitingRoomService waitingRoomService;
+
+    public WaitingRoomController(WaitingRoomService waitingRoomService) {
+        this.waitingRoomService = waitingRoomService;
+    }
+
+    @Operation(
+            summary = "Join the waiting room of a show",
+            description = "Puts the user in the queue of the show, or returns the current place if already queued. Users are let through in arrival order at the admission rate of the show. Once admitted, the response carries the `admissionToken` to send as `Admission-Token` header when creating the booking. Until then, call the status endpoint again after roughly `estimatedWaitSeconds`.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Place in the queue, with the admission token once admitted",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = WaitingRoomStatusResponse.class))),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized - Missing or invalid JWT token",
+                            content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "404", description = "Show has no open waiting room",
+                            content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "500", description = "Internal server error",
+                            content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "429", description = "Too many requests",
+                            content = @Content(mediaType = "application/json"))
+            }
+    )
+    @PostMapping("/{showId}")
+    public ResponseEntity<WaitingRoomStatusResponse> join(
+            @Parameter(hidden = true) @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @Parameter(description = "ID of the show to queue for", required = true)
+            @PathVariable Long showId) {
+        log.info("User {} joining waiting room of show {}", userPrincipal.getUserId(), showId);
+        return ResponseEntity.ok(waitingRoomService.enter(showId, userPrincipal.getUserId(), true));
+    }
+
+    @Operation(
+            summary = "Get place in the waiting room of a show",
+            description = "Returns the place of the user in the queue of the show, with the `admissionToken` once admitted.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Place in the queue, with the admission token once admitted",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = WaitingRoomStatusResponse.class))),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized - Missing or invalid JWT token",
+                            content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "404", description = "Show has no open waiting room, or the user did not join it",
+                            content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "500", description = "Internal server error",
+                            content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "429", description = "Too many requests",
+                            content = @Content(mediaType = "application/json"))
+            }
+    )
+    @GetMapping("/{showId}")
+    public ResponseEntity<WaitingRoomStatusResponse> getStatus(
+            @Parameter(hidden = true) @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @Parameter(description = "ID of the show queued for", required = true)
+            @PathVariable Long showId) {
+        return ResponseEntity.ok(waitingRoomService.enter(showId, userPrincipal.getUserId(), false));
+    }
+}
@@ -0,0 +1,9 @@
+package com.bookticket.booking_service.dto;
+
+public record AllocateSeatsRequest(
+        Long showId,
+        Integer seatCount,
+        String seatType,
+        Integer preferredRow
+) {
+}
@@ -1,9 +1,27 @@
 package com.bookticket.booking_service.dto;
 
+import java.util.List;
+
+/**
+ * Published when a booking is confirmed
+ * Version 2 carries everything the ticket needs (email, show, seats), version 1 events only carry the ids
+ */
 public record BookingSuccessEvent(
+        Integer eventVersion,
         Long bookingId,
         Long userId,
         Long showId,
-        Double totalAmount
+        Double totalAmount,
+        String userEmail,
+        ShowDetailsResponse show,
+        List<SeatDetailsResponse> seats
 ) {
+    public static final int CURRENT_VERSION = 2;
+
+    /**
+     * Version 1 event, rebuilt from DLQ rows which only store the ids
+     */
+    public BookingSuccessEvent(Long bookingId, Long userId, Long showId, Double totalAmount) {
+        this(1, bookingId, userId, showId, totalAmount, null, null, null);
+    }
 }
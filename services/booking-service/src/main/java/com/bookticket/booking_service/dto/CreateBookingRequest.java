@@ -1,12 +1,31 @@
 package com.bookticket.booking_service.dto;
 
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
 
 import java.util.List;
 
 public record CreateBookingRequest(
         @NotNull Long showId,
-        @NotNull List<Long> seatIds
+        // Seats picked by the user, left out to have the best available adjacent seats allocated
+        List<Long> seatIds,
+        // Number of adjacent seats to allocate when no seats are picked
+        @Min(1) @Max(10) Integer seatCount,
+        // Seat type of the allocated seats, any type when null
+        @Pattern(regexp = "SILVER|GOLD|PLATINUM") String seatType,
+        // Preferred row of the allocated seats, two thirds back from the screen when null
+        Integer preferredRow
 
 ) {
+    public boolean isAllocation() {
+        return seatIds == null || seatIds.isEmpty();
+    }
+
+    @AssertTrue(message = "Either seatIds or seatCount is required, not both")
+    public boolean isSeatSelectionValid() {
+        return isAllocation() == (seatCount != null);
+    }
 }
@@ -0,0 +1,9 @@
+package com.bookticket.booking_service.dto;
+
+import java.util.List;
+
+public record ReserveSeatsBatchRequest(
+        Long showId,
+        List<List<Long>> reservations  // Show seat ids of each booking, reserved all-or-nothing per booking
+) {
+}
@@ -0,0 +1,13 @@
+package com.bookticket.booking_service.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.List;
+
+public record SeatReservationRequest(
+        @NotNull Long showId,
+        @NotEmpty List<Long> seatIds,
+        @NotNull Long bookingId      // Owner of the Redis seat locks
+) {
+}
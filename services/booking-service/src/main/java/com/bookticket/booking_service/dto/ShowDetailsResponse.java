@@ -0,0 +1,15 @@
+package com.bookticket.booking_service.dto;
+
+import java.time.LocalDateTime;
+
+public record ShowDetailsResponse(
+        Long showId,
+        LocalDateTime startTime,
+        LocalDateTime endTime,
+        String movieId,
+        String movieTitle,
+        String theaterName,
+        String theaterAddress,
+        String screenName
+) {
+}
@@ -0,0 +1,8 @@
+package com.bookticket.booking_service.dto;
+
+import jakarta.validation.constraints.Positive;
+
+public record WaitingRoomRequest(
+        @Positive Double admitRatePerSecond  // Defaults to booking.waiting-room.default-admit-rate-per-second
+) {
+}
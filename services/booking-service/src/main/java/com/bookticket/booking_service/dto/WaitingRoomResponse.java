@@ -0,0 +1,7 @@
+package com.bookticket.booking_service.dto;
+
+public record WaitingRoomResponse(
+        Long showId,
+        double admitRatePerSecond
+) {
+}
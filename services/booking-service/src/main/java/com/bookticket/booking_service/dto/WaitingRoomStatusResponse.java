@@ -0,0 +1,11 @@
+package com.bookticket.booking_service.dto;
+
+public record WaitingRoomStatusResponse(
+        Long showId,
+        boolean admitted,
+        long position,               // Users let through before this one, 0 once admitted
+        long estimatedWaitSeconds,
+        String admissionToken,       // Pass as Admission-Token header when creating the booking (once admitted)
+        Long admissionExpiresAt      // Unix timestamp when the admission token expires
+) {
+}
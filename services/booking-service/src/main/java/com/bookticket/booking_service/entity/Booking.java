@@ -21,4 +21,5 @@ public class Booking extends Auditable{
     private BookingStatus status;
     @Column(nullable = false)
     private double totalAmount;
+    private String userEmail; // Carried in booking events so notification service needs no lookup
 }
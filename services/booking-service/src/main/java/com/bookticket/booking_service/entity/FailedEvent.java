@@ -14,7 +14,7 @@ import java.time.LocalDateTime;
  * When Kafka and REST fallback both fail, events are stored here for manual retry
  */
 @Entity
-@Table(name = "failed_events")
+@Table(name = "failed_events", indexes = @Index(name = "idx_failed_events_status_next_retry_at", columnList = "status, next_retry_at"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -68,9 +68,15 @@ public class FailedEvent {
     @Column
     private LocalDateTime processedAt;
     
+    @Column
+    private LocalDateTime nextRetryAt;  // Due time of the next retry, or end of the lease while being retried
+    
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
+        if (nextRetryAt == null) {
+            nextRetryAt = createdAt;
+        }
     }
 }
 
@@ -0,0 +1,55 @@
+package com.bookticket.booking_service.entity;
+
+import com.bookticket.booking_service.enums.EventType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Booking event waiting to be published to Kafka (transactional outbox)
+ * Written in the same transaction as the booking status change and deleted once Kafka acknowledged it
+ */
+@Entity
+@Table(name = "outbox_events", indexes = @Index(name = "idx_outbox_available_at", columnList = "available_at, id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EventType eventType;
+
+    @Column(nullable = false)
+    private Long bookingId;  // Kafka message key
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String eventPayload;  // JSON representation of the event
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(length = 2000)
+    private String lastError;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime availableAt;  // Not relayed before this time, pushed back after failed sends
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        if (availableAt == null) {
+            availableAt = createdAt;
+        }
+    }
+}
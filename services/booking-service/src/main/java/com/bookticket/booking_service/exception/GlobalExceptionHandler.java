@@ -31,6 +31,31 @@ public class GlobalExceptionHandler {
         problemDetail.setProperty("timestamp", Instant.now());
         problemDetail.setProperty("errorCode", "SEAT_LOCK_CONFLICT");
 
+        if (!ex.getConflictingSeatIds().isEmpty()) {
+            problemDetail.setProperty("conflictingSeatIds", ex.getConflictingSeatIds());
+        }
+
+        return problemDetail;
+    }
+
+    /**
+     * Handle SeatReservationBusyException - returns 503 Service Unavailable
+     * Thrown when the seat reservation sequencer of a show is saturated, the booking can be retried
+     */
+    @ExceptionHandler(SeatReservationBusyException.class)
+    public ProblemDetail handleSeatReservationBusyException(SeatReservationBusyException ex) {
+        log.warn("Seat reservation rejected: {}", ex.getMessage());
+
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(
+                HttpStatus.SERVICE_UNAVAILABLE,
+                ex.getMessage()
+        );
+
+        problemDetail.setTitle("Too Many Bookings");
+        problemDetail.setType(URI.create("https://bookticket.com/errors/seat-reservation-busy"));
+        problemDetail.setProperty("timestamp", Instant.now());
+        problemDetail.setProperty("errorCode", "SEAT_RESERVATION_BUSY");
+
         return problemDetail;
     }
 
@@ -60,6 +85,49 @@ public class GlobalExceptionHandler {
         return problemDetail;
     }
     
+    /**
+     * Handle IdempotencyKeyException - returns 400, 409 Conflict or 422 Unprocessable Entity
+     * Thrown when a request carries an invalid Idempotency-Key, or the key of a request still running or of a different request
+     */
+    @ExceptionHandler(IdempotencyKeyException.class)
+    public ProblemDetail handleIdempotencyKeyException(IdempotencyKeyException ex) {
+        log.warn("Idempotency key rejected: {}", ex.getMessage());
+
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(
+                ex.getStatus(),
+                ex.getMessage()
+        );
+
+        problemDetail.setTitle("Idempotency Key Rejected");
+        problemDetail.setType(URI.create("https://bookticket.com/errors/idempotency-key"));
+        problemDetail.setProperty("timestamp", Instant.now());
+        problemDetail.setProperty("errorCode", ex.getErrorCode());
+
+        return problemDetail;
+    }
+
+    /**
+     * Handle WaitingRoomException - returns 403 Forbidden or 404 Not Found
+     * Thrown when a booking for a show with an open waiting room lacks a valid admission token,
+     * or when the waiting room or the place of the user in it does not exist
+     */
+    @ExceptionHandler(WaitingRoomException.class)
+    public ProblemDetail handleWaitingRoomException(WaitingRoomException ex) {
+        log.warn("Waiting room rejected request: {}", ex.getMessage());
+
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(
+                ex.getStatus(),
+                ex.getMessage()
+        );
+
+        problemDetail.setTitle("Waiting Room");
+        problemDetail.setType(URI.create("https://bookticket.com/errors/waiting-room"));
+        problemDetail.setProperty("timestamp", Instant.now());
+        problemDetail.setProperty("errorCode", ex.getErrorCode());
+
+        return problemDetail;
+    }
+
     /**
      * Handle generic RuntimeException - returns 500 Internal Server Error
      */
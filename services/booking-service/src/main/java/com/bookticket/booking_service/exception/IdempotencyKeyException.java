@@ -0,0 +1,28 @@
+package com.bookticket.booking_service.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Exception thrown when the Idempotency-Key of a request cannot be honored
+ * Results in HTTP 400 for invalid keys, HTTP 409 Conflict while the original request is still running,
+ * and HTTP 422 Unprocessable Entity when the key was used for a different request
+ */
+public class IdempotencyKeyException extends RuntimeException {
+
+    private final HttpStatus status;
+    private final String errorCode;
+
+    public IdempotencyKeyException(String message, HttpStatus status, String errorCode) {
+        super(message);
+        this.status = status;
+        this.errorCode = errorCode;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+}
@@ -1,17 +1,31 @@
 package com.bookticket.booking_service.exception;
 
+import java.util.List;
+
 /**
  * Exception thrown when seats cannot be locked due to concurrent booking attempts
  * Results in HTTP 409 Conflict response
  */
 public class SeatLockException extends RuntimeException {
-    
+
+    private final List<Long> conflictingSeatIds;
+
     public SeatLockException(String message) {
         super(message);
+        this.conflictingSeatIds = List.of();
+    }
+
+    public SeatLockException(String message, List<Long> conflictingSeatIds) {
+        super(message);
+        this.conflictingSeatIds = conflictingSeatIds;
     }
-    
+
     public SeatLockException(String message, Throwable cause) {
         super(message, cause);
+        this.conflictingSeatIds = List.of();
     }
-}
 
+    public List<Long> getConflictingSeatIds() {
+        return conflictingSeatIds;
+    }
+}
@@ -0,0 +1,13 @@
+package com.bookticket.booking_service.exception;
+
+/**
+ * Exception thrown when the seat reservation sequencer of a show cannot take a booking in time,
+ * because its lane is full or the reservation did not start before the booking stopped waiting
+ * Results in HTTP 503 Service Unavailable, nothing is reserved and the booking can be retried
+ */
+public class SeatReservationBusyException extends RuntimeException {
+
+    public SeatReservationBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,28 @@
+package com.bookticket.booking_service.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Exception thrown when a request is not let through the waiting room of a show
+ * Results in HTTP 403 Forbidden for bookings without a valid admission token,
+ * and HTTP 404 Not Found for shows without an open waiting room or users not in its queue
+ */
+public class WaitingRoomException extends RuntimeException {
+
+    private final HttpStatus status;
+    private final String errorCode;
+
+    public WaitingRoomException(String message, HttpStatus status, String errorCode) {
+        super(message);
+        this.status = status;
+        this.errorCode = errorCode;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+}
@@ -3,8 +3,13 @@ package com.bookticket.booking_service.repository;
 import com.bookticket.booking_service.entity.FailedEvent;
 import com.bookticket.booking_service.enums.EventStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -24,5 +29,55 @@ public interface FailedEventRepository extends JpaRepository<FailedEvent, Long>
      * Find all events with FAILED status (exhausted retries)
      */
     List<FailedEvent> findByStatus(EventStatus status);
+
+    /**
+     * Lock the next events due for retry, in id order after the given id
+     * Events being retried are due again once their lease ran out, rows locked by another instance are skipped
+     */
+    @Query(value = """
+            SELECT * FROM failed_events
+            WHERE status IN ('PENDING', 'RETRYING')
+              AND (next_retry_at <= :now OR next_retry_at IS NULL)
+              AND id > :afterId
+            ORDER BY id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED""", nativeQuery = true)
+    List<FailedEvent> lockDueEvents(@Param("now") LocalDateTime now,
+                                    @Param("afterId") Long afterId,
+                                    @Param("limit") int limit);
+
+    /**
+     * Hide events from other instances until the lease ends
+     */
+    @Modifying
+    @Query("UPDATE FailedEvent e SET e.status = :status, e.nextRetryAt = :leaseUntil WHERE e.id IN :ids")
+    int leaseEvents(@Param("ids") Collection<Long> ids,
+                    @Param("status") EventStatus status,
+                    @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Modifying
+    @Query("UPDATE FailedEvent e SET e.status = :status, e.processedAt = :now, e.lastRetryAt = :now WHERE e.id IN :ids")
+    int markProcessed(@Param("ids") Collection<Long> ids,
+                      @Param("status") EventStatus status,
+                      @Param("now") LocalDateTime now);
+
+    /**
+     * Count a failed retry and schedule the next one with exponential backoff
+     * Events reaching their max retries are marked as FAILED
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE failed_events
+            SET retry_count = retry_count + 1,
+                last_retry_at = :now,
+                last_error = :error,
+                status = CASE WHEN retry_count + 1 >= max_retries THEN 'FAILED' ELSE 'PENDING' END,
+                next_retry_at = :now + make_interval(secs => LEAST(:maxBackoffSeconds, :baseBackoffSeconds * power(2, retry_count)))
+            WHERE id IN (:ids)""", nativeQuery = true)
+    int recordFailedRetries(@Param("ids") Collection<Long> ids,
+                            @Param("error") String error,
+                            @Param("now") LocalDateTime now,
+                            @Param("baseBackoffSeconds") double baseBackoffSeconds,
+                            @Param("maxBackoffSeconds") double maxBackoffSeconds);
 }
 
@@ -22,6 +22,7 @@ public class HeaderAuthenticatorFilter  extends OncePerRequestFilter {
         String id = request.getHeader("X-User-Id");
         String username = request.getHeader("X-User-Name");
         String roles = request.getHeader("X-User-Roles");
+        String email = request.getHeader("X-User-Email");
 
         if (id != null && username != null && roles != null) {
             try {
@@ -32,8 +33,8 @@ public class HeaderAuthenticatorFilter  extends OncePerRequestFilter {
                         .map(SimpleGrantedAuthority::new)
                         .toList();
 
-                // Create UserPrincipal with userId and username
-                UserPrincipal userPrincipal = new UserPrincipal(userId, username);
+                // Create UserPrincipal with userId, username and email
+                UserPrincipal userPrincipal = new UserPrincipal(userId, username, email);
 
                 // Create authentication object with UserPrincipal as principal
                 UsernamePasswordAuthenticationToken authentication =
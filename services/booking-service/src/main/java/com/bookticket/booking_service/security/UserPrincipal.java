@@ -16,5 +16,6 @@ import java.io.Serializable;
 public class UserPrincipal implements Serializable {
     private Long userId;
     private String username;
+    private String email; // Optional, forwarded by the gateway from the JWT
 }
 
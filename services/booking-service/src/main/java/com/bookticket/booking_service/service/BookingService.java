@@ -4,18 +4,13 @@ import com.bookticket.booking_service.dto.*;
 import com.bookticket.booking_service.entity.Booking;
 import com.bookticket.booking_service.entity.BookingSeat;
 import com.bookticket.booking_service.enums.BookingStatus;
-import com.bookticket.booking_service.exception.PaymentFailedException;
 import com.bookticket.booking_service.exception.SeatLockException;
+import com.bookticket.booking_service.exception.SeatReservationBusyException;
 import com.bookticket.booking_service.repository.BookingRepository;
 import com.bookticket.booking_service.repository.BookingSeatRepository;
-import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Recover;
-import org.springframework.retry.annotation.Retryable;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
 
@@ -27,71 +22,80 @@ public class BookingService {
     private final RedisLockService redisLockService;
     private final PaymentService paymentService;
     private final TheaterService theaterService;
-    private final KafkaTemplate<String, BookingSuccessEvent> kafkaSuccessTemplate;
-    private final KafkaTemplate<String, BookingFailedEvent> kafkaFailedTemplate;
-    private final NotificationService notificationService;
-    private final DeadLetterQueueService deadLetterQueueService;
+    private final OutboxService outboxService;
+    private final SeatReservationRouter seatReservationRouter;
+    private final ShowDetailsCache showDetailsCache;
+    private final TransactionTemplate transactionTemplate;
 
     public BookingService(BookingRepository bookingRepository,
                           BookingSeatRepository bookingSeatRepository,
                           RedisLockService redisLockService,
                           PaymentService paymentService, TheaterService theaterService,
-                          KafkaTemplate<String, BookingSuccessEvent> kafkaSuccessTemplate,
-                          KafkaTemplate<String, BookingFailedEvent> kafkaFailedTemplate,
-                          NotificationService notificationService,
-                          DeadLetterQueueService deadLetterQueueService) {
+                          OutboxService outboxService, SeatReservationRouter seatReservationRouter,
+                          ShowDetailsCache showDetailsCache, TransactionTemplate transactionTemplate) {
         this.bookingRepository = bookingRepository;
         this.bookingSeatRepository = bookingSeatRepository;
         this.redisLockService = redisLockService;
         this.paymentService = paymentService;
         this.theaterService = theaterService;
-        this.kafkaSuccessTemplate = kafkaSuccessTemplate;
-        this.kafkaFailedTemplate = kafkaFailedTemplate;
-        this.notificationService = notificationService;
-        this.deadLetterQueueService = deadLetterQueueService;
+        this.outboxService = outboxService;
+        this.seatReservationRouter = seatReservationRouter;
+        this.showDetailsCache = showDetailsCache;
+        this.transactionTemplate = transactionTemplate;
     }
 
-    @Transactional
-    public CreateBookingResponse createBooking(Long userId, CreateBookingRequest createBookingRequest) {
-        log.info("Creating booking for user {} with {} seats in show {}",
-                userId, createBookingRequest.seatIds().size(), createBookingRequest.showId());
-
-        // Verify seats with theater service
-        log.info("Verifying Seats With Theater Service: {}", createBookingRequest.seatIds());
-        List<ValidSeatResponse> validSeats = theaterService.verifySeats(createBookingRequest);
+    /**
+     * Create a PENDING booking, reserve its seats and open a checkout session for it
+     * The reservation can wait on the sequencer of the show, so no transaction is held across it:
+     * the booking is saved on its own first, and its seats and failure are written in short transactions after.
+     */
+    public CreateBookingResponse createBooking(Long userId, String userEmail, CreateBookingRequest createBookingRequest) {
+        log.info("Creating booking for user {} with {} seats in show {}", userId,
+                createBookingRequest.isAllocation() ? createBookingRequest.seatCount() : createBookingRequest.seatIds().size(),
+                createBookingRequest.showId());
 
         // Create booking entity first (to get booking ID for lock value)
         log.info("Creating booking entity for user {}", userId);
         Booking booking = new Booking();
         booking.setUserId(userId);
+        booking.setUserEmail(userEmail);
         booking.setShowId(createBookingRequest.showId());
-        booking.setTotalAmount(calculateTotalAmount(validSeats)); // Source of Truth - Theater Service
         booking.setStatus(BookingStatus.PENDING);
         Booking createdBooking = bookingRepository.save(booking);
         log.info("Created Booking with ID: {}", createdBooking.getId());
-        List<Long> seatIds = validSeats.stream()
-                .map(ValidSeatResponse::seatId)
+        // Known once the seats are allocated when the user did not pick any
+        List<Long> seatIds = createBookingRequest.isAllocation() ? List.of() : createBookingRequest.seatIds().stream()
+                .distinct()
                 .toList();
 
-        // Acquire Redis locks for all seats
-        List<String> acquiredLocks = null;
+        // Set once the seats are locked in Redis and reserved with theater service
+        boolean seatsReserved = false;
         try {
-            log.info("Acquiring locks for {} seats", seatIds.size());
-
-            acquiredLocks = redisLockService.acquireSeatsLock(
-                    createBookingRequest.showId(),
-                    seatIds,
-                    createdBooking.getId()
-            );
-            log.info("Successfully acquired locks for {} seats", acquiredLocks.size());
-            // Mark Seats as locked
-            theaterService.lockSeats(createBookingRequest.showId(), seatIds);
+            List<ValidSeatResponse> validSeats;
+            if (createBookingRequest.isAllocation()) {
+                validSeats = allocateSeats(createBookingRequest, createdBooking.getId());
+                seatIds = validSeats.stream().map(ValidSeatResponse::seatId).toList();
+            } else {
+                // Lock and reserve the seats through the sequencer of the show, in sequence with its other bookings
+                log.info("Reserving {} seats through the sequencer of show {}", seatIds.size(), createBookingRequest.showId());
+                validSeats = seatReservationRouter.reserve(
+                        createBookingRequest.showId(),
+                        seatIds,
+                        createdBooking.getId()
+                );
+            }
+            seatsReserved = true;
+            log.info("Successfully reserved {} seats", validSeats.size());
 
             // Create Booking Seats
-            List<BookingSeat> bookingSeats = validSeats.stream()
-                    .map(validSeat -> createBookingSeat(createdBooking, validSeat))
-                    .toList();
-            List<BookingSeat> savedBookingSeats = bookingSeatRepository.saveAll(bookingSeats);
+            List<BookingSeat> savedBookingSeats = transactionTemplate.execute(tx -> {
+                createdBooking.setTotalAmount(calculateTotalAmount(validSeats)); // Source of Truth - Theater Service
+                bookingRepository.save(createdBooking);
+                List<BookingSeat> bookingSeats = validSeats.stream()
+                        .map(validSeat -> createBookingSeat(createdBooking, validSeat))
+                        .toList();
+                return bookingSeatRepository.saveAll(bookingSeats);
+            });
             log.info("Created {} Booking Seats for Booking ID: {}", savedBookingSeats.size(), createdBooking.getId());
 
             // Create Stripe Checkout Session
@@ -131,55 +135,99 @@ public class BookingService {
                 // Checkout session creation failed - release locks and mark booking as FAILED
                 log.error("Failed to create checkout session for booking {}: {}", createdBooking.getId(), e.getMessage());
 
-                createdBooking.setStatus(BookingStatus.FAILED);
-                bookingRepository.save(createdBooking);
+                failBooking(createdBooking, "Failed to create payment session");
                 log.info("Marked booking {} as FAILED due to checkout session creation failure", createdBooking.getId());
 
                 // Release locks after checkout session creation failure
                 log.info("Releasing seat locks for booking {} after checkout session creation failure", createdBooking.getId());
-                redisLockService.releaseSeatsLock(acquiredLocks);
+                redisLockService.releaseSeatsLock(createBookingRequest.showId(), seatIds, createdBooking.getId());
                 //Mark Seats as Available
                 theaterService.releaseSeats(createBookingRequest.showId(), seatIds);
-                sendBookingFailedEvent(createdBooking, "Failed to create payment session");
 
                 // Re-throw exception to return error to user
                 throw new RuntimeException("Failed to create payment session: " + e.getMessage(), e);
             }
 
         } catch (SeatLockException e) {
-            // Lock acquisition failed - mark booking as FAILED and rollback
+            // Lock acquisition or seat reservation failed - mark booking as FAILED
+            // The sequencer already released the locks it took for the booking
             log.error("Failed to acquire seat locks for booking {}: {}", createdBooking.getId(), e.getMessage());
 
-            // Update booking status to FAILED
-            createdBooking.setStatus(BookingStatus.FAILED);
-            bookingRepository.save(createdBooking);
+            failBooking(createdBooking, "Seats no longer available");
             log.info("Marked booking {} as FAILED due to lock acquisition failure", createdBooking.getId());
-            sendBookingFailedEvent(createdBooking, "Seats no longer available");
 
             // Re-throw exception to return 409 Conflict to user
             throw e;
 
+        } catch (SeatReservationBusyException e) {
+            // The sequencer of the show did not take the booking, nothing was reserved
+            log.warn("Seat reservation of booking {} rejected: {}", createdBooking.getId(), e.getMessage());
+
+            failBooking(createdBooking, "Too many bookings for this show");
+            log.info("Marked booking {} as FAILED as the show is saturated", createdBooking.getId());
+
+            // Re-throw exception to return 503 Service Unavailable to user
+            throw e;
+
         } catch (Exception e) {
+            if (createdBooking.getStatus() == BookingStatus.FAILED) {
+                // Checkout session failure, already handled
+                throw e;
+            }
             // Unexpected error - release locks and mark booking as FAILED
             log.error("Unexpected error during booking creation for booking {}: {}",
                     createdBooking.getId(), e.getMessage(), e);
 
-            // Release any acquired locks
-            if (acquiredLocks != null && !acquiredLocks.isEmpty()) {
-                redisLockService.releaseSeatsLock(acquiredLocks);
+            // Release the reserved seats
+            if (seatsReserved) {
+                redisLockService.releaseSeatsLock(createBookingRequest.showId(), seatIds, createdBooking.getId());
                 theaterService.releaseSeats(createBookingRequest.showId(), seatIds);
             }
 
-            // Update booking status to FAILED
-            createdBooking.setStatus(BookingStatus.FAILED);
-            bookingRepository.save(createdBooking);
+            failBooking(createdBooking, e.getMessage());
             log.info("Marked booking {} as FAILED due to unexpected error", createdBooking.getId());
-            sendBookingFailedEvent(createdBooking, e.getMessage());
 
             throw new RuntimeException("Failed to create booking due to system error", e);
         }
     }
 
+    /**
+     * Let theater service pick and lock the best available adjacent seats, and lock them in Redis for the booking
+     * Theater service picks and locks the block atomically, so two allocations never get the same seats.
+     * A picked seat can still be locked in Redis by a reservation theater service has not seen yet,
+     * the allocation then gives its seats back and fails like a reservation of taken seats.
+     *
+     * @return priced seats, all of them locked for this booking
+     * @throws SeatLockException if no block of adjacent seats is available
+     */
+    private List<ValidSeatResponse> allocateSeats(CreateBookingRequest createBookingRequest, Long bookingId) {
+        Long showId = createBookingRequest.showId();
+        log.info("Allocating {} best available seats in show {}", createBookingRequest.seatCount(), showId);
+        List<ValidSeatResponse> allocatedSeats = theaterService.allocateSeats(showId, createBookingRequest.seatCount(),
+                createBookingRequest.seatType(), createBookingRequest.preferredRow());
+        List<Long> seatIds = allocatedSeats.stream().map(ValidSeatResponse::seatId).toList();
+        try {
+            redisLockService.acquireSeatsLock(showId, seatIds, bookingId);
+        } catch (SeatLockException e) {
+            try {
+                theaterService.releaseSeats(showId, seatIds);
+            } catch (Exception releaseError) {
+                log.warn("Failed to release allocated seats {} of show {}, they are released when their hold expires: {}",
+                        seatIds, showId, releaseError.getMessage());
+            }
+            throw e;
+        }
+        return allocatedSeats;
+    }
+
+    private void failBooking(Booking booking, String reason) {
+        transactionTemplate.executeWithoutResult(tx -> {
+            booking.setStatus(BookingStatus.FAILED);
+            bookingRepository.save(booking);
+            outboxService.enqueueBookingFailed(booking, reason);
+        });
+    }
+
     private BookingSeat createBookingSeat(Booking booking, ValidSeatResponse validSeat) {
         BookingSeat bookingSeat = new BookingSeat();
         bookingSeat.setBooking(booking);
@@ -219,19 +267,71 @@ public class BookingService {
     }
 
     /**
-     * Verify payment status and complete/fail booking accordingly
-     * This method should be called after user completes payment on Stripe
+     * Get the current status of a booking
+     *
+     * @param bookingId Booking ID
+     * @return BookingStatusResponse with current status and seats
+     */
+    public BookingStatusResponse getBookingStatus(Long bookingId) {
+        Booking booking = bookingRepository.findById(bookingId)
+                .orElseThrow(() -> new RuntimeException("Booking not found: " + bookingId));
+        return buildBookingStatusResponse(booking, bookingSeatRepository.findByBookingId(bookingId));
+    }
+
+    /**
+     * Verify payment status once with payment service and complete/fail booking accordingly
+     * Fallback for when no payment event reached booking service in time
      *
      * @param bookingId Booking ID
      * @param sessionId Stripe Checkout Session ID
-     * @return BookingResponse with updated status
+     * @return BookingResponse with updated status, still PENDING if the payment is not final yet
      */
-    @Transactional
     public BookingStatusResponse verifyAndCompleteBooking(Long bookingId, String sessionId) {
         log.info("Verifying payment and completing booking {} with session {}", bookingId, sessionId);
 
-        // Fetch booking
-        Booking booking = bookingRepository.findById(bookingId)
+        BookingStatusResponse current = getBookingStatus(bookingId);
+        if (current.status() != BookingStatus.PENDING) {
+            log.info("Booking {} is already in {} status. Skipping verification.", bookingId, current.status());
+            return current;
+        }
+
+        PaymentResponse paymentResponse = paymentService.verifyCheckoutSession(sessionId);
+        if (!bookingId.equals(paymentResponse.bookingId())) {
+            log.error("Checkout session {} belongs to booking {}, not to booking {}",
+                    sessionId, paymentResponse.bookingId(), bookingId);
+            throw new RuntimeException("Checkout session does not belong to booking: " + bookingId);
+        }
+        return completeBooking(bookingId, paymentResponse);
+    }
+
+    /**
+     * Apply the final payment outcome to a booking
+     * COMPLETED confirms the booking and books the seats, FAILED fails it and releases the seats
+     * Applied at most once per booking, later calls return the booking as it is
+     * Show details for the success event are resolved before the transaction, so a theater-service call
+     * never runs while the booking row is locked.
+     *
+     * @param bookingId Booking ID
+     * @param paymentResponse Payment status reported by payment service
+     * @return BookingStatusResponse with updated status
+     */
+    public BookingStatusResponse completeBooking(Long bookingId, PaymentResponse paymentResponse) {
+        ShowDetailsResponse showDetails = null;
+        if ("COMPLETED".equalsIgnoreCase(paymentResponse.paymentStatus())) {
+            Booking booking = bookingRepository.findById(bookingId)
+                    .orElseThrow(() -> new RuntimeException("Booking not found: " + bookingId));
+            if (booking.getStatus() == BookingStatus.PENDING) {
+                showDetails = showDetailsCache.get(booking.getShowId());
+            }
+        }
+        ShowDetailsResponse show = showDetails;
+        return transactionTemplate.execute(tx -> applyPaymentOutcome(bookingId, paymentResponse, show));
+    }
+
+    private BookingStatusResponse applyPaymentOutcome(Long bookingId, PaymentResponse paymentResponse,
+                                                      ShowDetailsResponse showDetails) {
+        // Lock the booking row so a payment event and a verify fallback cannot both complete it
+        Booking booking = bookingRepository.findByIdForUpdate(bookingId)
                 .orElseThrow(() -> new RuntimeException("Booking not found: " + bookingId));
         List<BookingSeat> bookingSeats = bookingSeatRepository.findByBookingId(bookingId);
         // Get seat IDs for lock release
@@ -241,235 +341,72 @@ public class BookingService {
 
         // Check if booking is already processed
         if (booking.getStatus() != BookingStatus.PENDING) {
-            log.warn("Booking {} is already in {} status. Skipping verification.",
+            log.warn("Booking {} is already in {} status. Skipping completion.",
                     bookingId, booking.getStatus());
-
-            List<BookingSeatResponse> seatResponses = bookingSeats.stream()
-                    .map(seat -> new BookingSeatResponse(
-                            seat.getId(),
-                            seat.getSeatId(),
-                            seat.getSeatNumber(),
-                            seat.getSeatType(),
-                            seat.getPrice()
-                    ))
-                    .toList();
-
-            return new BookingStatusResponse(
-                    booking.getId(),
-                    booking.getUserId(),
-                    booking.getShowId(),
-                    booking.getTotalAmount(),
-                    booking.getStatus(),
-                    seatResponses
-            );
+            return buildBookingStatusResponse(booking, bookingSeats);
         }
 
-        // Poll payment status until COMPLETED or FAILED
-        try {
-            log.info("Polling payment status for session {}", sessionId);
-            PaymentResponse paymentResponse = paymentService.pollPaymentStatus(sessionId);
-
-            String paymentStatus = paymentResponse.paymentStatus();
-            log.info("Payment status for booking {}: {}", bookingId, paymentStatus);
-
-            if ("COMPLETED".equalsIgnoreCase(paymentStatus)) {
-                // Payment successful - update booking to CONFIRMED and release locks
-                booking.setStatus(BookingStatus.CONFIRMED);
-                Booking confirmedBooking = bookingRepository.save(booking);
-                log.info("Booking {} confirmed successfully", bookingId);
-
-                // Mark Seats as Booked
-                theaterService.bookSeats(confirmedBooking.getShowId(), seatIds);
-
-                // Release locks
-                log.info("Releasing seat locks for booking {} after successful payment", bookingId);
-                redisLockService.releaseSeatsLockByIds(confirmedBooking.getShowId(), seatIds);
-
-                //Push to booking_success topic in Kafka
-                sendBookingSuccessEvent(confirmedBooking);
-
-                // Map to response
-                List<BookingSeatResponse> seatResponses = bookingSeats.stream()
-                        .map(seat -> new BookingSeatResponse(
-                                seat.getId(),
-                                seat.getSeatId(),
-                                seat.getSeatNumber(),
-                                seat.getSeatType(),
-                                seat.getPrice()
-                        ))
-                        .toList();
+        String paymentStatus = paymentResponse.paymentStatus();
+        log.info("Payment status for booking {}: {}", bookingId, paymentStatus);
 
-                return new BookingStatusResponse(
-                        confirmedBooking.getId(),
-                        confirmedBooking.getUserId(),
-                        confirmedBooking.getShowId(),
-                        confirmedBooking.getTotalAmount(),
-                        confirmedBooking.getStatus(),
-                        seatResponses
-                );
+        if ("COMPLETED".equalsIgnoreCase(paymentStatus)) {
+            // Payment successful - update booking to CONFIRMED and release locks
+            booking.setStatus(BookingStatus.CONFIRMED);
+            Booking confirmedBooking = bookingRepository.save(booking);
+            log.info("Booking {} confirmed successfully", bookingId);
 
-            } else {
-                // Payment failed - update booking to FAILED and release locks
-                booking.setStatus(BookingStatus.FAILED);
-                Booking failedBooking = bookingRepository.save(booking);
-                log.warn("Booking {} marked as FAILED due to payment failure", bookingId);
-
-                // Release locks
-                log.info("Releasing seat locks for booking {} after payment failure", bookingId);
-                redisLockService.releaseSeatsLockByIds(failedBooking.getShowId(), seatIds);
-                //Mark Seats as Available
-                theaterService.releaseSeats(failedBooking.getShowId(), seatIds);
+            // Mark Seats as Booked
+            theaterService.bookSeats(confirmedBooking.getShowId(), seatIds);
 
-                // Send booking_failed event to kafka
-                sendBookingFailedEvent(failedBooking, paymentResponse.message());
+            // Release locks
+            log.info("Releasing seat locks for booking {} after successful payment", bookingId);
+            redisLockService.releaseSeatsLock(confirmedBooking.getShowId(), seatIds, bookingId);
 
-                throw new PaymentFailedException(
-                        paymentResponse.message() != null ?
-                                paymentResponse.message() : "Payment failed",
-                        paymentStatus,
-                        paymentResponse.transactionId()
-                );
-            }
+            // Recorded with the status change, relayed to the booking_success topic in Kafka
+            outboxService.enqueueBookingSuccess(confirmedBooking, bookingSeats, showDetails);
+            return buildBookingStatusResponse(confirmedBooking, bookingSeats);
+        }
 
-        } catch (PaymentFailedException e) {
-            // Mark booking as FAILED and release locks
+        if ("FAILED".equalsIgnoreCase(paymentStatus)) {
+            // Payment failed - update booking to FAILED and release locks
             booking.setStatus(BookingStatus.FAILED);
             Booking failedBooking = bookingRepository.save(booking);
+            log.warn("Booking {} marked as FAILED due to payment failure", bookingId);
 
-            log.info("Releasing seat locks for booking {} after verification error", bookingId);
-            redisLockService.releaseSeatsLockByIds(booking.getShowId(), seatIds);
+            // Release locks
+            log.info("Releasing seat locks for booking {} after payment failure", bookingId);
+            redisLockService.releaseSeatsLock(failedBooking.getShowId(), seatIds, bookingId);
             //Mark Seats as Available
-            theaterService.releaseSeats(booking.getShowId(), seatIds);
+            theaterService.releaseSeats(failedBooking.getShowId(), seatIds);
 
-            // Send booking_failed event to kafka
-            sendBookingFailedEvent(failedBooking, e.getMessage());
-            // Re-throw PaymentFailedException
-            throw e;
-        }
-        catch (Exception e) {
-            // Unexpected error during payment verification
-            log.error("Unexpected error during payment verification for booking {}: {}",
-                    bookingId, e.getMessage(), e);
-            throw new RuntimeException("Failed to verify payment: " + e.getMessage(), e);
+            // Recorded with the status change, relayed to the booking_failed topic in Kafka
+            outboxService.enqueueBookingFailed(failedBooking, paymentResponse.message());
+            return buildBookingStatusResponse(failedBooking, bookingSeats);
         }
-    }
-    
-    /**
-     * Send booking success event with retry mechanism
-     * Retries 3 times with exponential backoff (1s, 2s, 4s)
-     * If all retries fail, stores in Dead Letter Queue
-     */
-    @Async("bookingEventExecutor")
-    @Retryable(
-        retryFor = {Exception.class},
-        maxAttempts = 3,
-        backoff = @Backoff(delay = 1000, multiplier = 2)
-    )
-    public void sendBookingSuccessEvent(Booking confirmedBooking) {
-        BookingSuccessEvent bookingSuccessEvent = new BookingSuccessEvent(
-                confirmedBooking.getId(),
-                confirmedBooking.getUserId(),
-                confirmedBooking.getShowId(),
-                confirmedBooking.getTotalAmount()
-        );
 
-        try {
-            // Try Kafka first
-            kafkaSuccessTemplate.send("booking_success", bookingSuccessEvent);
-            log.info("Sent booking success event to Kafka for booking {}", confirmedBooking.getId());
-
-        } catch (Exception e) {
-            log.error("Failed to send booking success event to Kafka for booking {}: {}",
-                    confirmedBooking.getId(), e.getMessage());
-
-            // Try REST fallback
-            log.info("[FallBack] : Attempting REST fallback for booking success event, booking {}",
-                    confirmedBooking.getId());
-            notificationService.sendBookingSuccessEvent(bookingSuccessEvent);
-            log.info("Successfully sent booking success event via REST fallback for booking {}",
-                    confirmedBooking.getId());
-        }
+        log.info("Payment for booking {} is still {}, leaving booking PENDING", bookingId, paymentStatus);
+        return buildBookingStatusResponse(booking, bookingSeats);
     }
 
-    /**
-     * Recovery method called when all retry attempts are exhausted
-     * Stores the failed event in Dead Letter Queue for manual processing
-     */
-    @Recover
-    public void recoverBookingSuccessEvent(Exception e, Booking confirmedBooking) {
-        log.error("All retry attempts exhausted for booking success event, booking {}: {}",
-                confirmedBooking.getId(), e.getMessage());
-
-        // Store in DLQ for manual retry
-        deadLetterQueueService.storeFailedSuccessEvent(
-                confirmedBooking.getId(),
-                confirmedBooking.getUserId(),
-                confirmedBooking.getShowId(),
-                confirmedBooking.getTotalAmount(),
-                e.getMessage()
-        );
-
-        log.warn("Booking success event stored in DLQ for booking {}", confirmedBooking.getId());
-    }
-    
-    /**
-     * Send booking failed event with retry mechanism
-     * Retries 3 times with exponential backoff (1s, 2s, 4s)
-     * If all retries fail, stores in Dead Letter Queue
-     */
-    @Async("bookingEventExecutor")
-    @Retryable(
-        retryFor = {Exception.class},
-        maxAttempts = 3,
-        backoff = @Backoff(delay = 1000, multiplier = 2)
-    )
-    public void sendBookingFailedEvent(Booking failedBooking, String reason) {
-        BookingFailedEvent bookingFailedEvent = new BookingFailedEvent(
-                failedBooking.getId(),
-                failedBooking.getUserId(),
-                failedBooking.getShowId(),
-                failedBooking.getTotalAmount(),
-                reason
-        );
-
-        try {
-            // Try Kafka first
-            kafkaFailedTemplate.send("booking_failed", bookingFailedEvent);
-            log.info("Sent booking failed event to Kafka for booking {}", failedBooking.getId());
-
-        } catch (Exception e) {
-            log.error("Failed to send booking failed event to Kafka for booking {}: {}",
-                    failedBooking.getId(), e.getMessage());
-
-            // Try REST fallback
-            log.info("[FallBack] : Attempting REST fallback for booking failed event, booking {}",
-                    failedBooking.getId());
-            notificationService.sendBookingFailedEvent(bookingFailedEvent);
-            log.info("Successfully sent booking failed event via REST fallback for booking {}",
-                    failedBooking.getId());
-        }
-    }
+    private BookingStatusResponse buildBookingStatusResponse(Booking booking, List<BookingSeat> bookingSeats) {
+        List<BookingSeatResponse> seatResponses = bookingSeats.stream()
+                .map(seat -> new BookingSeatResponse(
+                        seat.getId(),
+                        seat.getSeatId(),
+                        seat.getSeatNumber(),
+                        seat.getSeatType(),
+                        seat.getPrice()
+                ))
+                .toList();
 
-    /**
-     * Recovery method called when all retry attempts are exhausted
-     * Stores the failed event in Dead Letter Queue for manual processing
-     */
-    @Recover
-    public void recoverBookingFailedEvent(Exception e, Booking failedBooking, String reason) {
-        log.error("All retry attempts exhausted for booking failed event, booking {}: {}",
-                failedBooking.getId(), e.getMessage());
-
-        // Store in DLQ for manual retry
-        deadLetterQueueService.storeFailedFailureEvent(
-                failedBooking.getId(),
-                failedBooking.getUserId(),
-                failedBooking.getShowId(),
-                failedBooking.getTotalAmount(),
-                reason,
-                e.getMessage()
+        return new BookingStatusResponse(
+                booking.getId(),
+                booking.getUserId(),
+                booking.getShowId(),
+                booking.getTotalAmount(),
+                booking.getStatus(),
+                seatResponses
         );
-
-        log.warn("Booking failed event stored in DLQ for booking {}", failedBooking.getId());
     }
 
     public List<SeatDetailsResponse> getSeatDetailsByBookingId(Long bookingId) {
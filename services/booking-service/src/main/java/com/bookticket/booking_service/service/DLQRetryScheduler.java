@@ -1,125 +1,171 @@
 package com.bookticket.booking_service.service;
 
+import com.bookticket.booking_service.configuration.DLQRetryProperties;
 import com.bookticket.booking_service.dto.BookingFailedEvent;
 import com.bookticket.booking_service.dto.BookingSuccessEvent;
 import com.bookticket.booking_service.entity.FailedEvent;
 import com.bookticket.booking_service.enums.EventType;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Scheduled service to automatically retry failed events from Dead Letter Queue
- * Runs every 5 minutes to process pending events
+ * Due events are claimed in keyset-paged batches and leased, so several instances share the work.
+ * The events of a batch are retried in parallel on a bounded pool, and their results are written back
+ * in batched updates. Failing events are retried with exponential backoff until their max retries.
  */
 @Service
 @Slf4j
 public class DLQRetryScheduler {
-    
+
     private final DeadLetterQueueService dlqService;
     private final KafkaTemplate<String, BookingSuccessEvent> kafkaSuccessTemplate;
     private final KafkaTemplate<String, BookingFailedEvent> kafkaFailedTemplate;
     private final NotificationService notificationService;
-    private final ObjectMapper objectMapper;
-    
+    private final DLQRetryProperties dlqRetryProperties;
+    private final Executor dlqRetryExecutor;
+
     public DLQRetryScheduler(DeadLetterQueueService dlqService,
                             KafkaTemplate<String, BookingSuccessEvent> kafkaSuccessTemplate,
                             KafkaTemplate<String, BookingFailedEvent> kafkaFailedTemplate,
                             NotificationService notificationService,
-                            ObjectMapper objectMapper) {
+                            DLQRetryProperties dlqRetryProperties,
+                            @Qualifier("dlqRetryExecutor") Executor dlqRetryExecutor) {
         this.dlqService = dlqService;
         this.kafkaSuccessTemplate = kafkaSuccessTemplate;
         this.kafkaFailedTemplate = kafkaFailedTemplate;
         this.notificationService = notificationService;
-        this.objectMapper = objectMapper;
+        this.dlqRetryProperties = dlqRetryProperties;
+        this.dlqRetryExecutor = dlqRetryExecutor;
     }
-    
+
     /**
-     * Scheduled job to retry failed events
-     * Runs every 5 minutes (300000 ms)
+     * Scheduled job to retry failed events that are due
      * Initial delay of 1 minute to allow application to fully start
      */
-    @Scheduled(fixedDelay = 300000, initialDelay = 60000)
+    @Scheduled(fixedDelayString = "${booking.dlq.poll-interval-ms:30000}", initialDelay = 60000)
     public void retryFailedEvents() {
-        log.info("Starting DLQ retry job...");
-        
-        List<FailedEvent> pendingEvents = dlqService.getPendingEvents();
-        
-        if (pendingEvents.isEmpty()) {
-            log.info("No pending events in DLQ to retry");
-            return;
+        int batchSize = dlqRetryProperties.getBatchSize();
+        long afterId = 0;
+        int processed = 0;
+        int failed = 0;
+        while (true) {
+            List<FailedEvent> batch = dlqService.claimDueEvents(afterId, batchSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+            int batchProcessed = retryBatch(batch);
+            processed += batchProcessed;
+            failed += batch.size() - batchProcessed;
+            if (batch.size() < batchSize) {
+                break;
+            }
+            afterId = batch.get(batch.size() - 1).getId();
+        }
+
+        if (processed + failed > 0) {
+            log.info("DLQ retry job completed: {} events processed, {} failed", processed, failed);
         }
-        
-        log.info("Found {} pending events in DLQ to retry", pendingEvents.size());
-        
-        for (FailedEvent event : pendingEvents) {
-            try {
-                retryEvent(event);
-            } catch (Exception e) {
-                log.error("Error retrying DLQ event {}: {}", event.getId(), e.getMessage(), e);
+    }
+
+    /**
+     * Retry the events of a batch in parallel and write the results back
+     *
+     * @return number of events successfully processed
+     */
+    private int retryBatch(List<FailedEvent> batch) {
+        List<CompletableFuture<Exception>> retries = batch.stream()
+                .map(event -> CompletableFuture.supplyAsync(() -> retryEvent(event), dlqRetryExecutor))
+                .toList();
+
+        List<Long> processedIds = new ArrayList<>();
+        // Failures are written back per kind of exception, not per error message, which may differ for every event
+        // The group keeps the error of its first failure, the error of each event is in the log of its retry
+        Map<Class<?>, List<Long>> failedIdsByKind = new HashMap<>();
+        Map<Class<?>, String> kindErrors = new HashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            Exception failure = retries.get(i).join();
+            if (failure == null) {
+                processedIds.add(batch.get(i).getId());
+            } else {
+                failedIdsByKind.computeIfAbsent(failure.getClass(), k -> new ArrayList<>()).add(batch.get(i).getId());
+                kindErrors.putIfAbsent(failure.getClass(),
+                        failure.getMessage() != null ? failure.getMessage() : failure.getClass().getSimpleName());
             }
         }
-        
-        log.info("DLQ retry job completed");
+
+        dlqService.markAsProcessed(processedIds);
+        failedIdsByKind.forEach((kind, ids) -> dlqService.recordFailedRetries(ids, kindErrors.get(kind)));
+        return processedIds.size();
     }
-    
+
     /**
      * Retry a single failed event
+     *
+     * @return null if the event was delivered, the failure otherwise
      */
-    private void retryEvent(FailedEvent event) {
+    private Exception retryEvent(FailedEvent event) {
         log.info("Retrying DLQ event {} (type: {}, booking: {}, attempt: {}/{})",
-                event.getId(), event.getEventType(), event.getBookingId(), 
+                event.getId(), event.getEventType(), event.getBookingId(),
                 event.getRetryCount() + 1, event.getMaxRetries());
-        
+
         try {
             if (event.getEventType() == EventType.BOOKING_SUCCESS) {
                 retryBookingSuccessEvent(event);
             } else if (event.getEventType() == EventType.BOOKING_FAILED) {
                 retryBookingFailedEvent(event);
             }
-            
-            // If successful, mark as processed
-            dlqService.markAsProcessed(event.getId());
             log.info("Successfully processed DLQ event {}", event.getId());
-            
+            return null;
+
         } catch (Exception e) {
-            // Increment retry count and update error
-            dlqService.incrementRetryCount(event.getId(), e.getMessage());
             log.error("Failed to retry DLQ event {}: {}", event.getId(), e.getMessage());
+            return e;
         }
     }
-    
+
     /**
      * Retry booking success event
      */
-    private void retryBookingSuccessEvent(FailedEvent event) throws Exception {
+    private void retryBookingSuccessEvent(FailedEvent event) {
         BookingSuccessEvent successEvent = new BookingSuccessEvent(
                 event.getBookingId(),
                 event.getUserId(),
                 event.getShowId(),
                 event.getTotalAmount()
         );
-        
+
         try {
-            // Try Kafka first
-            kafkaSuccessTemplate.send("booking_success", successEvent);
+            // Try Kafka first, the event only counts as sent once Kafka acknowledged it
+            kafkaSuccessTemplate.send(OutboxRelay.BOOKING_SUCCESS_TOPIC, event.getBookingId().toString(), successEvent)
+                    .get(dlqRetryProperties.getSendTimeoutMs(), TimeUnit.MILLISECONDS);
             log.info("Successfully sent booking success event to Kafka for DLQ event {}", event.getId());
         } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
             // Try REST fallback
             log.info("Kafka failed for DLQ event {}, trying REST fallback", event.getId());
             notificationService.sendBookingSuccessEvent(successEvent);
             log.info("Successfully sent booking success event via REST for DLQ event {}", event.getId());
         }
     }
-    
+
     /**
      * Retry booking failed event
      */
-    private void retryBookingFailedEvent(FailedEvent event) throws Exception {
+    private void retryBookingFailedEvent(FailedEvent event) {
         BookingFailedEvent failedEvent = new BookingFailedEvent(
                 event.getBookingId(),
                 event.getUserId(),
@@ -127,12 +173,16 @@ public class DLQRetryScheduler {
                 event.getTotalAmount(),
                 event.getReason()
         );
-        
+
         try {
-            // Try Kafka first
-            kafkaFailedTemplate.send("booking_failed", failedEvent);
+            // Try Kafka first, the event only counts as sent once Kafka acknowledged it
+            kafkaFailedTemplate.send(OutboxRelay.BOOKING_FAILED_TOPIC, event.getBookingId().toString(), failedEvent)
+                    .get(dlqRetryProperties.getSendTimeoutMs(), TimeUnit.MILLISECONDS);
             log.info("Successfully sent booking failed event to Kafka for DLQ event {}", event.getId());
         } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
             // Try REST fallback
             log.info("Kafka failed for DLQ event {}, trying REST fallback", event.getId());
             notificationService.sendBookingFailedEvent(failedEvent);
@@ -140,4 +190,3 @@ public class DLQRetryScheduler {
         }
     }
 }
-
@@ -1,5 +1,6 @@
 package com.bookticket.booking_service.service;
 
+import com.bookticket.booking_service.configuration.DLQRetryProperties;
 import com.bookticket.booking_service.entity.FailedEvent;
 import com.bookticket.booking_service.enums.EventStatus;
 import com.bookticket.booking_service.enums.EventType;
@@ -12,6 +13,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Service to manage Dead Letter Queue (DLQ) for failed booking events
@@ -23,10 +25,13 @@ public class DeadLetterQueueService {
     
     private final FailedEventRepository failedEventRepository;
     private final ObjectMapper objectMapper;
+    private final DLQRetryProperties dlqRetryProperties;
     
-    public DeadLetterQueueService(FailedEventRepository failedEventRepository, ObjectMapper objectMapper) {
+    public DeadLetterQueueService(FailedEventRepository failedEventRepository, ObjectMapper objectMapper,
+                                  DLQRetryProperties dlqRetryProperties) {
         this.failedEventRepository = failedEventRepository;
         this.objectMapper = objectMapper;
+        this.dlqRetryProperties = dlqRetryProperties;
     }
     
     /**
@@ -120,23 +125,44 @@ public class DeadLetterQueueService {
     }
     
     /**
-     * Increment retry count and update last error
+     * Claim the next events due for retry and lease them to this instance
+     * Leased events are skipped by other instances until they are written back or the lease ends
+     *
+     * @param afterId only events with a greater id are claimed, for keyset paging within one round
      */
     @Transactional
-    public void incrementRetryCount(Long eventId, String errorMessage) {
-        failedEventRepository.findById(eventId).ifPresent(event -> {
-            event.setRetryCount(event.getRetryCount() + 1);
-            event.setLastRetryAt(LocalDateTime.now());
-            event.setLastError(truncateError(errorMessage));
-            
-            // If max retries reached, mark as FAILED
-            if (event.getRetryCount() >= event.getMaxRetries()) {
-                event.setStatus(EventStatus.FAILED);
-                log.error("DLQ event {} has exhausted all retries. Marking as FAILED", eventId);
-            }
-            
-            failedEventRepository.save(event);
-        });
+    public List<FailedEvent> claimDueEvents(Long afterId, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<FailedEvent> events = failedEventRepository.lockDueEvents(now, afterId, limit);
+        if (!events.isEmpty()) {
+            failedEventRepository.leaseEvents(events.stream().map(FailedEvent::getId).toList(), EventStatus.RETRYING,
+                    now.plusNanos(TimeUnit.MILLISECONDS.toNanos(dlqRetryProperties.getLeaseMs())));
+        }
+        return events;
+    }
+    
+    /**
+     * Mark retried events as successfully processed
+     */
+    @Transactional
+    public void markAsProcessed(List<Long> eventIds) {
+        if (eventIds.isEmpty()) {
+            return;
+        }
+        int updated = failedEventRepository.markProcessed(eventIds, EventStatus.PROCESSED, LocalDateTime.now());
+        log.info("Marked {} DLQ events as PROCESSED", updated);
+    }
+    
+    /**
+     * Increment retry count and schedule the next retry of events that failed the same way, with the error of one of them
+     */
+    @Transactional
+    public void recordFailedRetries(List<Long> eventIds, String errorMessage) {
+        if (eventIds.isEmpty()) {
+            return;
+        }
+        failedEventRepository.recordFailedRetries(eventIds, truncateError(errorMessage), LocalDateTime.now(),
+                dlqRetryProperties.getBaseBackoffMs() / 1000.0, dlqRetryProperties.getMaxBackoffMs() / 1000.0);
     }
     
     /**
@@ -0,0 +1,202 @@
+package com.bookticket.booking_service.service;
+
+import com.bookticket.booking_service.configuration.IdempotencyProperties;
+import com.bookticket.booking_service.dto.CreateBookingRequest;
+import com.bookticket.booking_service.dto.CreateBookingResponse;
+import com.bookticket.booking_service.exception.IdempotencyKeyException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Honors the Idempotency-Key of booking creation requests
+ * The first request with a key marks it as in flight in Redis, runs the booking pipeline and stores its response.
+ * Retries with the same key wait for that response and get it replayed, instead of creating another booking.
+ * Keys are scoped per user, and a key reused for a different request is rejected.
+ * The in-flight marker carries a token of its request, the response is stored and the key released only
+ * while that marker is still there, so a request outliving its marker cannot clobber the key of a retry.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+    private static final String IN_FLIGHT = "IN_FLIGHT";
+    private static final String COMPLETED = "COMPLETED";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+    private final IdempotencyProperties idempotencyProperties;
+    private final RedisScript<Long> idempotencyFinishScript;
+
+    public IdempotencyService(StringRedisTemplate stringRedisTemplate,
+                              ObjectMapper objectMapper,
+                              IdempotencyProperties idempotencyProperties,
+                              @Qualifier("idempotencyFinishScript") RedisScript<Long> idempotencyFinishScript) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.objectMapper = objectMapper;
+        this.idempotencyProperties = idempotencyProperties;
+        this.idempotencyFinishScript = idempotencyFinishScript;
+    }
+
+    /**
+     * Create a booking at most once per Idempotency-Key
+     *
+     * @param userId         ID of the user creating the booking
+     * @param idempotencyKey value of the Idempotency-Key header
+     * @param request        booking request, must be the same for every use of the key
+     * @param createBooking  runs the booking pipeline
+     * @return the response of the first request with this key, and whether it was replayed
+     * @throws IdempotencyKeyException if the key is invalid, belongs to a different request, or its request is still running
+     */
+    public IdempotentResult createOnce(Long userId, String idempotencyKey, CreateBookingRequest request,
+                                       Supplier<CreateBookingResponse> createBooking) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > idempotencyProperties.getMaxKeyLength()) {
+            throw new IdempotencyKeyException("Idempotency-Key must be between 1 and "
+                    + idempotencyProperties.getMaxKeyLength() + " characters", HttpStatus.BAD_REQUEST, "IDEMPOTENCY_KEY_INVALID");
+        }
+        String redisKey = String.format("%s:%d:%s", idempotencyProperties.getKeyPrefix(), userId, idempotencyKey);
+        String fingerprint = fingerprint(request);
+        String marker = write(new IdempotencyRecord(IN_FLIGHT, fingerprint, UUID.randomUUID().toString(), null));
+
+        Boolean acquired;
+        try {
+            acquired = stringRedisTemplate.opsForValue().setIfAbsent(redisKey, marker, idempotencyProperties.getInFlightTtl());
+        } catch (Exception e) {
+            // Seat locks still prevent double booking, only the amplified work is not saved
+            log.warn("Idempotency store unavailable, processing request with key {} without it: {}",
+                    idempotencyKey, e.getMessage());
+            return new IdempotentResult(createBooking.get(), false);
+        }
+        if (Boolean.TRUE.equals(acquired)) {
+            return new IdempotentResult(runAndStore(redisKey, marker, fingerprint, createBooking), false);
+        }
+        return new IdempotentResult(awaitOriginal(redisKey, idempotencyKey, fingerprint), true);
+    }
+
+    private CreateBookingResponse runAndStore(String redisKey, String marker, String fingerprint,
+                                              Supplier<CreateBookingResponse> createBooking) {
+        CreateBookingResponse response;
+        try {
+            response = createBooking.get();
+        } catch (RuntimeException e) {
+            // Failed requests did not create a usable booking, a retry with the same key runs again
+            release(redisKey, marker);
+            throw e;
+        }
+        try {
+            if (!finish(redisKey, marker, write(new IdempotencyRecord(COMPLETED, fingerprint, null, response)),
+                    idempotencyProperties.getResponseTtl().toMillis())) {
+                log.warn("In-flight marker of key {} expired before booking {} completed, its response is not replayed",
+                        redisKey, response.bookingId());
+            }
+        } catch (Exception e) {
+            log.error("Failed to store response of booking {} for replay: {}", response.bookingId(), e.getMessage());
+        }
+        return response;
+    }
+
+    /**
+     * Wait for the request that first used the key and return its response
+     */
+    private CreateBookingResponse awaitOriginal(String redisKey, String idempotencyKey, String fingerprint) {
+        long deadline = System.currentTimeMillis() + idempotencyProperties.getWaitTimeoutMs();
+        while (true) {
+            String value = stringRedisTemplate.opsForValue().get(redisKey);
+            if (value == null) {
+                // The original request failed or its marker expired, the client has to retry
+                throw new IdempotencyKeyException("The request with Idempotency-Key " + idempotencyKey
+                        + " did not complete, please retry", HttpStatus.CONFLICT, "IDEMPOTENCY_REQUEST_FAILED");
+            }
+            IdempotencyRecord record = read(value);
+            if (!record.fingerprint().equals(fingerprint)) {
+                throw new IdempotencyKeyException("Idempotency-Key " + idempotencyKey
+                        + " was already used for a different booking request",
+                        HttpStatus.UNPROCESSABLE_ENTITY, "IDEMPOTENCY_KEY_REUSED");
+            }
+            if (COMPLETED.equals(record.state())) {
+                log.info("Replaying booking {} for Idempotency-Key {}", record.response().bookingId(), idempotencyKey);
+                return record.response();
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                throw new IdempotencyKeyException("The request with Idempotency-Key " + idempotencyKey
+                        + " is still being processed, please retry later",
+                        HttpStatus.CONFLICT, "IDEMPOTENCY_REQUEST_IN_PROGRESS");
+            }
+            try {
+                Thread.sleep(idempotencyProperties.getPollIntervalMs());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for request with Idempotency-Key " + idempotencyKey, e);
+            }
+        }
+    }
+
+    private void release(String redisKey, String marker) {
+        try {
+            finish(redisKey, marker, "", 0);
+        } catch (Exception e) {
+            log.warn("Failed to release idempotency key {}, it expires after {}: {}",
+                    redisKey, idempotencyProperties.getInFlightTtl(), e.getMessage());
+        }
+    }
+
+    /**
+     * Replace or delete the key, only if it still holds the given in-flight marker
+     *
+     * @param value record to store, or an empty string to delete the key
+     * @return true if the key was finished
+     */
+    private boolean finish(String redisKey, String marker, String value, long ttlMillis) {
+        Long finished = stringRedisTemplate.execute(idempotencyFinishScript, List.of(redisKey),
+                marker, value, String.valueOf(ttlMillis));
+        return finished != null && finished == 1;
+    }
+
+    private String fingerprint(CreateBookingRequest request) {
+        if (request.isAllocation()) {
+            return request.showId() + ":best:" + request.seatCount() + ":" + request.seatType() + ":" + request.preferredRow();
+        }
+        return request.showId() + ":" + request.seatIds().stream()
+                .sorted()
+                .map(String::valueOf)
+                .collect(Collectors.joining(","));
+    }
+
+    private String write(IdempotencyRecord record) {
+        try {
+            return objectMapper.writeValueAsString(record);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to serialize idempotency record", e);
+        }
+    }
+
+    private IdempotencyRecord read(String value) {
+        try {
+            return objectMapper.readValue(value, IdempotencyRecord.class);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to read idempotency record", e);
+        }
+    }
+
+    /**
+     * Response of an idempotent booking creation
+     *
+     * @param replayed true if the response belongs to an earlier request with the same key
+     */
+    public record IdempotentResult(CreateBookingResponse response, boolean replayed) {
+    }
+
+    /**
+     * @param owner token of the request holding the key while it is in flight
+     */
+    record IdempotencyRecord(String state, String fingerprint, String owner, CreateBookingResponse response) {
+    }
+}
@@ -0,0 +1,113 @@
+package com.bookticket.booking_service.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Waiting rooms kept in memory of a single instance, for tests and local runs without Redis
+ * Lets users through exactly like waiting_room_enter.lua.
+ */
+@Component
+@ConditionalOnProperty(name = "booking.waiting-room.store", havingValue = "local")
+public class InMemoryWaitingRoomStore implements WaitingRoomStore {
+
+    private final Map<Long, Double> rooms = new ConcurrentHashMap<>();
+    private final Map<Long, Queue> queues = new ConcurrentHashMap<>();
+    private final LongSupplier clock;
+
+    public InMemoryWaitingRoomStore() {
+        this(System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock current time in milliseconds, so tests can let time pass
+     */
+    public InMemoryWaitingRoomStore(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public void open(Long showId, double admitRatePerSecond) {
+        rooms.put(showId, admitRatePerSecond);
+    }
+
+    @Override
+    public void close(Long showId) {
+        rooms.remove(showId);
+        queues.remove(showId);
+    }
+
+    @Override
+    public Optional<Double> getAdmitRate(Long showId) {
+        return Optional.ofNullable(rooms.get(showId));
+    }
+
+    @Override
+    public Map<Long, Double> getOpenRooms() {
+        return Map.copyOf(rooms);
+    }
+
+    @Override
+    public Optional<QueueTicket> enter(Long showId, Long userId, double admitRatePerSecond, boolean join) {
+        Queue queue = queues.computeIfAbsent(showId, id -> new Queue());
+        synchronized (queue) {
+            Long ticket = queue.tickets.get(userId);
+            if (ticket == null) {
+                if (!join) {
+                    return Optional.empty();
+                }
+                ticket = ++queue.joined;
+                queue.tickets.put(userId, ticket);
+            }
+
+            long now = clock.getAsLong();
+            if (queue.updatedAt < 0) {
+                queue.updatedAt = now;
+            }
+            long earned = (long) Math.floor(Math.max(0, now - queue.updatedAt) * admitRatePerSecond / 1000);
+            if (queue.admitted + earned >= queue.joined) {
+                queue.admitted = queue.joined;
+                queue.updatedAt = now;
+            } else if (earned > 0) {
+                queue.admitted += earned;
+                queue.updatedAt += (long) Math.floor(earned * 1000 / admitRatePerSecond);
+            }
+            return Optional.of(new QueueTicket(ticket, queue.admitted));
+        }
+    }
+
+    @Override
+    public Optional<Long> redeem(Long showId, Long userId) {
+        Queue queue = queues.get(showId);
+        if (queue == null) {
+            return Optional.empty();
+        }
+        synchronized (queue) {
+            return Optional.ofNullable(queue.tickets.remove(userId));
+        }
+    }
+
+    @Override
+    public void restore(Long showId, Long userId, long ticket) {
+        Queue queue = queues.get(showId);
+        if (queue == null) {
+            return;
+        }
+        synchronized (queue) {
+            queue.tickets.putIfAbsent(userId, ticket);
+        }
+    }
+
+    private static class Queue {
+        private final Map<Long, Long> tickets = new HashMap<>();
+        private long joined;
+        private long admitted;
+        private long updatedAt = -1;
+    }
+}
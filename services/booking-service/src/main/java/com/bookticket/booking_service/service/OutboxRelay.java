@@ -0,0 +1,154 @@
+package com.bookticket.booking_service.service;
+
+import com.bookticket.booking_service.configuration.OutboxProperties;
+import com.bookticket.booking_service.dto.BookingFailedEvent;
+import com.bookticket.booking_service.dto.BookingSuccessEvent;
+import com.bookticket.booking_service.entity.OutboxEvent;
+import com.bookticket.booking_service.enums.EventType;
+import com.bookticket.booking_service.repository.OutboxEventRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains the outbox table to Kafka in batches (at-least-once)
+ * All sends of a batch are in flight together and keyed by booking ID, rows are deleted only after Kafka acknowledged them.
+ * Failed sends are retried with exponential backoff and handed to the Dead Letter Queue once attempts are exhausted.
+ */
+@Service
+@Slf4j
+public class OutboxRelay {
+    public static final String BOOKING_SUCCESS_TOPIC = "booking_success";
+    public static final String BOOKING_FAILED_TOPIC = "booking_failed";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final KafkaTemplate<String, BookingSuccessEvent> kafkaSuccessTemplate;
+    private final KafkaTemplate<String, BookingFailedEvent> kafkaFailedTemplate;
+    private final DeadLetterQueueService deadLetterQueueService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final OutboxProperties outboxProperties;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       KafkaTemplate<String, BookingSuccessEvent> kafkaSuccessTemplate,
+                       KafkaTemplate<String, BookingFailedEvent> kafkaFailedTemplate,
+                       DeadLetterQueueService deadLetterQueueService,
+                       TransactionTemplate transactionTemplate,
+                       ObjectMapper objectMapper,
+                       OutboxProperties outboxProperties) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.kafkaSuccessTemplate = kafkaSuccessTemplate;
+        this.kafkaFailedTemplate = kafkaFailedTemplate;
+        this.deadLetterQueueService = deadLetterQueueService;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.outboxProperties = outboxProperties;
+    }
+
+    /**
+     * Relay due events until the outbox is drained or a batch had failures
+     */
+    @Scheduled(fixedDelayString = "${booking.outbox.poll-interval-ms:200}")
+    public void relay() {
+        boolean drainMore = true;
+        while (drainMore) {
+            Boolean fullBatchSent = transactionTemplate.execute(status -> relayBatch());
+            drainMore = Boolean.TRUE.equals(fullBatchSent);
+        }
+    }
+
+    /**
+     * Send one batch while holding its row locks
+     *
+     * @return true if a full batch was sent without failures, so more events may be waiting
+     */
+    private boolean relayBatch() {
+        List<OutboxEvent> batch = outboxEventRepository.lockNextBatch(LocalDateTime.now(), outboxProperties.getBatchSize());
+        if (batch.isEmpty()) {
+            return false;
+        }
+
+        List<CompletableFuture<?>> sends = new ArrayList<>(batch.size());
+        for (OutboxEvent event : batch) {
+            sends.add(send(event));
+        }
+
+        List<OutboxEvent> sent = new ArrayList<>(batch.size());
+        int failed = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            OutboxEvent event = batch.get(i);
+            try {
+                sends.get(i).get(outboxProperties.getSendTimeoutMs(), TimeUnit.MILLISECONDS);
+                sent.add(event);
+            } catch (Exception e) {
+                failed++;
+                handleFailedSend(event, e);
+            }
+        }
+        outboxEventRepository.deleteAllInBatch(sent);
+        log.info("Relayed {} outbox events to Kafka, {} failed", sent.size(), failed);
+        return failed == 0 && batch.size() == outboxProperties.getBatchSize();
+    }
+
+    private CompletableFuture<?> send(OutboxEvent event) {
+        String key = event.getBookingId().toString();
+        try {
+            if (event.getEventType() == EventType.BOOKING_SUCCESS) {
+                return kafkaSuccessTemplate.send(BOOKING_SUCCESS_TOPIC, key,
+                        objectMapper.readValue(event.getEventPayload(), BookingSuccessEvent.class));
+            }
+            return kafkaFailedTemplate.send(BOOKING_FAILED_TOPIC, key,
+                    objectMapper.readValue(event.getEventPayload(), BookingFailedEvent.class));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void handleFailedSend(OutboxEvent event, Exception e) {
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        int attempts = event.getAttempts() + 1;
+        log.error("Failed to relay {} event {} for booking {} (attempt {}/{}): {}",
+                event.getEventType(), event.getId(), event.getBookingId(),
+                attempts, outboxProperties.getMaxAttempts(), cause.getMessage());
+
+        if (attempts >= outboxProperties.getMaxAttempts()) {
+            moveToDeadLetterQueue(event, cause.getMessage());
+            outboxEventRepository.delete(event);
+            return;
+        }
+        long backoffMs = Math.min(outboxProperties.getMaxBackoffMs(), 1000L << Math.min(attempts, 20));
+        event.setAttempts(attempts);
+        event.setLastError(truncateError(cause.getMessage()));
+        event.setAvailableAt(LocalDateTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(backoffMs)));
+    }
+
+    private void moveToDeadLetterQueue(OutboxEvent event, String errorMessage) {
+        try {
+            if (event.getEventType() == EventType.BOOKING_SUCCESS) {
+                BookingSuccessEvent successEvent = objectMapper.readValue(event.getEventPayload(), BookingSuccessEvent.class);
+                deadLetterQueueService.storeFailedSuccessEvent(successEvent.bookingId(), successEvent.userId(),
+                        successEvent.showId(), successEvent.totalAmount(), errorMessage);
+            } else {
+                BookingFailedEvent failedEvent = objectMapper.readValue(event.getEventPayload(), BookingFailedEvent.class);
+                deadLetterQueueService.storeFailedFailureEvent(failedEvent.bookingId(), failedEvent.userId(),
+                        failedEvent.showId(), failedEvent.totalAmount(), failedEvent.reason(), errorMessage);
+            }
+        } catch (Exception e) {
+            log.error("Failed to read outbox event {} for DLQ: {}", event.getId(), e.getMessage(), e);
+        }
+    }
+
+    private String truncateError(String error) {
+        if (error == null) return null;
+        return error.length() > 2000 ? error.substring(0, 2000) : error;
+    }
+}
@@ -0,0 +1,95 @@
+package com.bookticket.booking_service.service;
+
+import com.bookticket.booking_service.dto.BookingFailedEvent;
+import com.bookticket.booking_service.dto.BookingSuccessEvent;
+import com.bookticket.booking_service.dto.SeatDetailsResponse;
+import com.bookticket.booking_service.dto.ShowDetailsResponse;
+import com.bookticket.booking_service.entity.Booking;
+import com.bookticket.booking_service.entity.BookingSeat;
+import com.bookticket.booking_service.entity.OutboxEvent;
+import com.bookticket.booking_service.enums.EventType;
+import com.bookticket.booking_service.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Records booking events in the outbox table, relayed to Kafka by {@link OutboxRelay}
+ */
+@Service
+@Slf4j
+public class OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+
+    public OutboxService(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Record a booking success event in the transaction confirming the booking
+     * The event carries the seats, show and email, so the ticket can be sent without calling back other services
+     *
+     * @param showDetails show of the booking resolved before the transaction, null if theater service was unavailable
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueBookingSuccess(Booking confirmedBooking, List<BookingSeat> bookingSeats,
+                                      ShowDetailsResponse showDetails) {
+        List<SeatDetailsResponse> seats = bookingSeats.stream()
+                .map(bookingSeat -> new SeatDetailsResponse(
+                        bookingSeat.getSeatId(),
+                        bookingSeat.getSeatNumber(),
+                        bookingSeat.getSeatType(),
+                        bookingSeat.getPrice()
+                ))
+                .toList();
+        enqueue(EventType.BOOKING_SUCCESS, confirmedBooking.getId(), new BookingSuccessEvent(
+                BookingSuccessEvent.CURRENT_VERSION,
+                confirmedBooking.getId(),
+                confirmedBooking.getUserId(),
+                confirmedBooking.getShowId(),
+                confirmedBooking.getTotalAmount(),
+                confirmedBooking.getUserEmail(),
+                showDetails,
+                seats
+        ));
+    }
+
+    /**
+     * Record a booking failed event in the transaction failing the booking
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueBookingFailed(Booking failedBooking, String reason) {
+        enqueue(EventType.BOOKING_FAILED, failedBooking.getId(), buildFailedEvent(failedBooking, reason));
+    }
+
+    private BookingFailedEvent buildFailedEvent(Booking failedBooking, String reason) {
+        return new BookingFailedEvent(
+                failedBooking.getId(),
+                failedBooking.getUserId(),
+                failedBooking.getShowId(),
+                failedBooking.getTotalAmount(),
+                reason
+        );
+    }
+
+    private void enqueue(EventType eventType, Long bookingId, Object event) {
+        OutboxEvent outboxEvent = new OutboxEvent();
+        outboxEvent.setEventType(eventType);
+        outboxEvent.setBookingId(bookingId);
+        try {
+            outboxEvent.setEventPayload(objectMapper.writeValueAsString(event));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize " + eventType + " event for booking " + bookingId, e);
+        }
+        outboxEventRepository.save(outboxEvent);
+        log.info("Recorded {} event in outbox for booking {}", eventType, bookingId);
+    }
+}
@@ -0,0 +1,167 @@
+package com.bookticket.booking_service.service;
+
+import com.bookticket.booking_service.configuration.PaymentPollingProperties;
+import com.bookticket.booking_service.dto.BookingStatusResponse;
+import com.bookticket.booking_service.dto.PaymentResponse;
+import com.bookticket.booking_service.enums.BookingStatus;
+import com.bookticket.booking_service.exception.PaymentFailedException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Completes verify-payment long-polls when the payment outcome of a booking is known.
+ * Payment events can land on any instance, so final booking states are broadcast over
+ * Redis pub/sub and every instance completes the requests it holds for that booking.
+ */
+@Service
+@Slf4j
+public class PaymentCompletionHub implements MessageListener {
+    public static final String CHANNEL = "booking:payment-completed";
+
+    private final BookingService bookingService;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Executor bookingEventExecutor;
+    private final PaymentPollingProperties pollingProperties;
+
+    private final Map<Long, Set<DeferredResult<ResponseEntity<BookingStatusResponse>>>> waiters = new ConcurrentHashMap<>();
+
+    public PaymentCompletionHub(BookingService bookingService,
+                                StringRedisTemplate stringRedisTemplate,
+                                ObjectMapper objectMapper,
+                                @Qualifier("bookingEventExecutor") Executor bookingEventExecutor,
+                                PaymentPollingProperties pollingProperties) {
+        this.bookingService = bookingService;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.objectMapper = objectMapper;
+        this.bookingEventExecutor = bookingEventExecutor;
+        this.pollingProperties = pollingProperties;
+    }
+
+    /**
+     * Wait for the payment outcome of a booking without holding a request thread
+     *
+     * @param bookingId Booking ID
+     * @param sessionId Stripe Checkout Session ID, verified once if no event arrives in time
+     * @return result completed with the final booking, or with 202 and the current status on timeout
+     */
+    public DeferredResult<ResponseEntity<BookingStatusResponse>> awaitCompletion(Long bookingId, String sessionId) {
+        DeferredResult<ResponseEntity<BookingStatusResponse>> result = new DeferredResult<>(pollingProperties.getTimeoutMs());
+        waiters.computeIfAbsent(bookingId, id -> ConcurrentHashMap.newKeySet()).add(result);
+        result.onCompletion(() -> removeWaiter(bookingId, result));
+        result.onTimeout(() -> handleTimeout(bookingId, sessionId, result));
+
+        // The event may have been handled before this request registered
+        try {
+            BookingStatusResponse current = bookingService.getBookingStatus(bookingId);
+            if (current.status() != BookingStatus.PENDING) {
+                complete(result, current);
+            }
+        } catch (Exception e) {
+            result.setErrorResult(e);
+        }
+        return result;
+    }
+
+    /**
+     * Apply a final payment outcome pushed by payment service and wake up waiting requests
+     *
+     * @param paymentResponse Payment status reported by payment service
+     * @return BookingStatusResponse with updated status
+     */
+    public BookingStatusResponse onPaymentEvent(PaymentResponse paymentResponse) {
+        log.info("Received payment event {} for booking {}", paymentResponse.paymentStatus(), paymentResponse.bookingId());
+        BookingStatusResponse response = bookingService.completeBooking(paymentResponse.bookingId(), paymentResponse);
+        if (response.status() != BookingStatus.PENDING) {
+            publish(response);
+        }
+        return response;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            BookingStatusResponse response = objectMapper.readValue(message.getBody(), BookingStatusResponse.class);
+            completeLocalWaiters(response);
+        } catch (Exception e) {
+            log.error("Failed to read payment completion message: {}", e.getMessage(), e);
+        }
+    }
+
+    private void publish(BookingStatusResponse response) {
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, objectMapper.writeValueAsString(response));
+        } catch (Exception e) {
+            // Other instances will answer their waiters with the current status on timeout
+            log.error("Failed to broadcast completion of booking {}: {}", response.bookingId(), e.getMessage());
+            completeLocalWaiters(response);
+        }
+    }
+
+    private void completeLocalWaiters(BookingStatusResponse response) {
+        Set<DeferredResult<ResponseEntity<BookingStatusResponse>>> pending = waiters.remove(response.bookingId());
+        if (pending != null) {
+            log.info("Completing {} waiting verify-payment requests for booking {}", pending.size(), response.bookingId());
+            pending.forEach(result -> complete(result, response));
+        }
+    }
+
+    private void handleTimeout(Long bookingId, String sessionId,
+                               DeferredResult<ResponseEntity<BookingStatusResponse>> result) {
+        // Answer with the current status now, and verify the session once in the background
+        try {
+            BookingStatusResponse current = bookingService.getBookingStatus(bookingId);
+            if (current.status() == BookingStatus.PENDING) {
+                result.setResult(ResponseEntity.status(HttpStatus.ACCEPTED).body(current));
+            } else {
+                complete(result, current);
+                return;
+            }
+        } catch (Exception e) {
+            result.setErrorResult(e);
+            return;
+        }
+
+        log.info("No payment event for booking {} within {}ms, verifying session {}",
+                bookingId, pollingProperties.getTimeoutMs(), sessionId);
+        bookingEventExecutor.execute(() -> {
+            try {
+                BookingStatusResponse response = bookingService.verifyAndCompleteBooking(bookingId, sessionId);
+                if (response.status() != BookingStatus.PENDING) {
+                    publish(response);
+                }
+            } catch (Exception e) {
+                log.warn("Fallback verification failed for booking {}: {}", bookingId, e.getMessage());
+            }
+        });
+    }
+
+    private void complete(DeferredResult<ResponseEntity<BookingStatusResponse>> result, BookingStatusResponse response) {
+        if (response.status() == BookingStatus.FAILED) {
+            result.setErrorResult(new PaymentFailedException(
+                    "Payment failed for booking " + response.bookingId(), "FAILED", null));
+            return;
+        }
+        result.setResult(ResponseEntity.ok(response));
+    }
+
+    private void removeWaiter(Long bookingId, DeferredResult<ResponseEntity<BookingStatusResponse>> result) {
+        waiters.computeIfPresent(bookingId, (id, pending) -> {
+            pending.remove(result);
+            return pending.isEmpty() ? null : pending;
+        });
+    }
+}
@@ -1,6 +1,5 @@
 package com.bookticket.booking_service.service;
 
-import com.bookticket.booking_service.configuration.PaymentPollingProperties;
 import com.bookticket.booking_service.dto.CheckoutSessionRequest;
 import com.bookticket.booking_service.dto.CheckoutSessionResponse;
 import com.bookticket.booking_service.dto.PaymentRequest;
@@ -8,6 +7,7 @@ import com.bookticket.booking_service.dto.PaymentResponse;
 import com.bookticket.booking_service.exception.PaymentFailedException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
@@ -18,13 +18,12 @@ import org.springframework.web.client.RestClient;
 @Service
 @Slf4j
 public class PaymentService {
+    private static final String SERVICE_ACCOUNT = "booking-service";
 
     private final RestClient paymentRestClient;
-    private final PaymentPollingProperties pollingProperties;
 
-    public PaymentService(@Qualifier("paymentRestClient") RestClient paymentRestClient, PaymentPollingProperties pollingProperties) {
+    public PaymentService(@Qualifier("paymentRestClient") RestClient paymentRestClient) {
         this.paymentRestClient = paymentRestClient;
-        this.pollingProperties = pollingProperties;
     }
     
     /**
@@ -133,6 +132,7 @@ public class PaymentService {
 
     /**
      * Verify Checkout Session status
+     * Also called by the verify-payment fallback outside of any user request, so it authenticates as this service.
      *
      * @param sessionId Stripe Checkout Session ID
      * @return PaymentResponse with current payment status
@@ -143,6 +143,7 @@ public class PaymentService {
         try {
             PaymentResponse response = paymentRestClient.get()
                     .uri("/api/v1/internal/payments/checkout/verify/{sessionId}", sessionId)
+                    .headers(this::serviceAccountHeaders)
                     .retrieve()
                     .body(PaymentResponse.class);
 
@@ -157,6 +158,13 @@ public class PaymentService {
         }
     }
 
+    // Used when there is no user request to propagate, the header propagation interceptor replaces them otherwise
+    private void serviceAccountHeaders(HttpHeaders headers) {
+        headers.set("X-User-Id", SERVICE_ACCOUNT);
+        headers.set("X-User-Name", SERVICE_ACCOUNT);
+        headers.set("X-User-Roles", "ROLE_SERVICE_ACCOUNT");
+    }
+
     /**
      * Get payment status from database (no Stripe API call)
      *
@@ -182,85 +190,4 @@ public class PaymentService {
             throw new RuntimeException("Failed to get payment status: " + e.getMessage(), e);
         }
     }
-
-    /**
-     * Poll payment status until it's COMPLETED or FAILED
-     * Uses exponential backoff with configurable max attempts
-     *
-     * @param sessionId Stripe Checkout Session ID
-     * @return PaymentResponse with final payment status
-     * @throws RuntimeException if polling times out or payment verification fails
-     */
-    public PaymentResponse pollPaymentStatus(String sessionId) {
-        log.info("Starting payment status polling for session: {}", sessionId);
-
-        int attempts = 0;
-        long startTime = System.currentTimeMillis();
-
-        while (attempts < pollingProperties.getMaxAttempts()) {
-            attempts++;
-
-            // Check if total timeout exceeded
-            long elapsedTime = System.currentTimeMillis() - startTime;
-            if (elapsedTime > pollingProperties.getTimeoutMs()) {
-                log.error("Payment polling timeout exceeded for session: {}. Elapsed: {}ms",
-                        sessionId, elapsedTime);
-                throw new RuntimeException("Payment verification timeout exceeded");
-            }
-
-            try {
-                log.debug("Polling attempt {}/{} for session: {}",
-                        attempts, pollingProperties.getMaxAttempts(), sessionId);
-
-                PaymentResponse response = verifyCheckoutSession(sessionId);
-                String status = response.paymentStatus();
-
-                // Check if payment is in final state
-                if ("COMPLETED".equalsIgnoreCase(status)) {
-                    log.info("Payment completed successfully for session: {} after {} attempts",
-                            sessionId, attempts);
-                    return response;
-                }
-
-                if ("FAILED".equalsIgnoreCase(status)) {
-                    log.warn("Payment failed for session: {} after {} attempts",
-                            sessionId, attempts);
-                    return response;
-                }
-
-                // Payment still pending, wait before next poll
-                log.debug("Payment still pending for session: {}. Status: {}. Waiting {}ms before next poll",
-                        sessionId, status, pollingProperties.getIntervalMs());
-
-                Thread.sleep(pollingProperties.getIntervalMs());
-
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                log.error("Payment polling interrupted for session: {}", sessionId, e);
-                throw new RuntimeException("Payment polling interrupted", e);
-            } catch (Exception e) {
-                log.error("Error during payment polling attempt {} for session: {}",
-                        attempts, sessionId, e);
-
-                // If this is the last attempt, throw exception
-                if (attempts >= pollingProperties.getMaxAttempts()) {
-                    throw new RuntimeException("Payment verification failed after " + attempts + " attempts", e);
-                }
-
-                // Otherwise, wait and retry
-                try {
-                    Thread.sleep(pollingProperties.getIntervalMs());
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    throw new RuntimeException("Payment polling interrupted", ie);
-                }
-            }
-        }
-
-        // Max attempts reached without final status
-        log.error("Payment polling max attempts ({}) reached for session: {}",
-                pollingProperties.getMaxAttempts(), sessionId);
-        throw new RuntimeException("Payment verification timeout: max polling attempts reached");
-    }
 }
-
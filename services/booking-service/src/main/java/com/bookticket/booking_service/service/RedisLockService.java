@@ -3,12 +3,12 @@ package com.bookticket.booking_service.service;
 import com.bookticket.booking_service.configuration.RedisLockProperties;
 import com.bookticket.booking_service.exception.SeatLockException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 
 @Service
 @Slf4j
@@ -16,74 +16,94 @@ public class RedisLockService {
     
     private final StringRedisTemplate redisTemplate;
     private final RedisLockProperties lockProperties;
+    private final RedisScript<List> acquireSeatLocksScript;
+    private final RedisScript<Long> releaseSeatLocksScript;
     
-    public RedisLockService(StringRedisTemplate redisTemplate, RedisLockProperties lockProperties) {
+    public RedisLockService(StringRedisTemplate redisTemplate, RedisLockProperties lockProperties,
+                            @Qualifier("acquireSeatLocksScript") RedisScript<List> acquireSeatLocksScript,
+                            @Qualifier("releaseSeatLocksScript") RedisScript<Long> releaseSeatLocksScript) {
         this.redisTemplate = redisTemplate;
         this.lockProperties = lockProperties;
+        this.acquireSeatLocksScript = acquireSeatLocksScript;
+        this.releaseSeatLocksScript = releaseSeatLocksScript;
     }
     
     /**
      * Attempt to acquire locks for all seats in a show
-     * If any lock fails, releases all previously acquired locks and throws SeatLockException
+     * Runs a single Lua script so the whole set is locked atomically in one round trip:
+     * either every seat is locked for the booking or none is, and no partial locks are ever visible
      * 
      * @param showId The show ID
      * @param seatIds List of seat IDs to lock
      * @param bookingId The booking ID that will own these locks
      * @return List of successfully locked seat keys
-     * @throws SeatLockException if any seat cannot be locked
+     * @throws SeatLockException if any seat cannot be locked, carrying the conflicting seat IDs
      */
     public List<String> acquireSeatsLock(Long showId, List<Long> seatIds, Long bookingId) {
         log.info("Attempting to acquire locks for {} seats in show {} for booking {}", 
                 seatIds.size(), showId, bookingId);
         
-        List<String> acquiredLocks = new ArrayList<>();
+        List<String> lockKeys = generateSeatLockKeys(showId, seatIds);
         String lockValue = lockProperties.generateBookingLockValue(bookingId);
         
+        List<?> conflicts;
         try {
-            for (Long seatId : seatIds) {
-                String lockKey = lockProperties.generateSeatLockKey(showId, seatId);
-                
-                // Try to acquire lock using SET NX (SET if Not eXists)
-                Boolean lockAcquired = redisTemplate.opsForValue()
-                        .setIfAbsent(
-                                lockKey, 
-                                lockValue, 
-                                lockProperties.getTtl().toMinutes(), 
-                                TimeUnit.MINUTES
-                        );
-                
-                if (Boolean.TRUE.equals(lockAcquired)) {
-                    acquiredLocks.add(lockKey);
-                    log.debug("Successfully acquired lock for seat {} in show {}: {}", 
-                            seatId, showId, lockKey);
-                } else {
-                    // Lock acquisition failed - seat is already locked by another booking
-                    log.warn("Failed to acquire lock for seat {} in show {}. Seat is already locked.", 
-                            seatId, showId);
-                    
-                    // Release all previously acquired locks
-                    releaseSeatsLock(acquiredLocks);
-                    
-                    throw new SeatLockException(
-                            String.format("Seats no longer available. Seat %d in show %d is already locked.", 
-                                    seatId, showId)
-                    );
-                }
-            }
-            
-            log.info("Successfully acquired locks for all {} seats in show {} for booking {}", 
-                    acquiredLocks.size(), showId, bookingId);
-            return acquiredLocks;
-            
-        } catch (SeatLockException e) {
-            // Re-throw SeatLockException as-is
-            throw e;
+            conflicts = redisTemplate.execute(
+                    acquireSeatLocksScript,
+                    lockKeys,
+                    lockValue,
+                    String.valueOf(lockProperties.getTtl().toMillis())
+            );
         } catch (Exception e) {
-            // Unexpected error - release any acquired locks
             log.error("Unexpected error while acquiring seat locks for show {}: {}", showId, e.getMessage(), e);
-            releaseSeatsLock(acquiredLocks);
             throw new SeatLockException("Failed to acquire seat locks due to system error", e);
         }
+        
+        if (conflicts != null && !conflicts.isEmpty()) {
+            // Script returns 1-based positions of the keys held by another booking
+            List<Long> conflictingSeatIds = conflicts.stream()
+                    .map(position -> seatIds.get(((Number) position).intValue() - 1))
+                    .toList();
+            log.warn("Failed to acquire locks for show {}. Seats {} are already locked.", 
+                    showId, conflictingSeatIds);
+            throw new SeatLockException(
+                    String.format("Seats no longer available. Seats %s in show %d are already locked.", 
+                            conflictingSeatIds, showId),
+                    conflictingSeatIds
+            );
+        }
+        
+        log.info("Successfully acquired locks for all {} seats in show {} for booking {}", 
+                lockKeys.size(), showId, bookingId);
+        return lockKeys;
+    }
+    
+    /**
+     * Release the locks a booking holds on the given seats in a single round trip
+     * Locks that have expired and been re-acquired by another booking are left untouched
+     * 
+     * @param showId The show ID
+     * @param seatIds List of seat IDs to unlock
+     * @param bookingId The booking ID that owns the locks
+     */
+    public void releaseSeatsLock(Long showId, List<Long> seatIds, Long bookingId) {
+        if (seatIds == null || seatIds.isEmpty()) {
+            log.debug("No locks to release");
+            return;
+        }
+        
+        try {
+            Long releasedCount = redisTemplate.execute(
+                    releaseSeatLocksScript,
+                    generateSeatLockKeys(showId, seatIds),
+                    lockProperties.generateBookingLockValue(bookingId)
+            );
+            log.info("Released {} seat locks out of {} requested for booking {}", 
+                    releasedCount, seatIds.size(), bookingId);
+        } catch (Exception e) {
+            log.error("Error releasing seat locks for booking {}: {}", bookingId, e.getMessage(), e);
+            // Don't throw exception here - this is cleanup code
+        }
     }
     
     /**
@@ -113,11 +133,7 @@ public class RedisLockService {
      * @param seatIds List of seat IDs to unlock
      */
     public void releaseSeatsLockByIds(Long showId, List<Long> seatIds) {
-        List<String> lockKeys = seatIds.stream()
-                .map(seatId -> lockProperties.generateSeatLockKey(showId, seatId))
-                .toList();
-        
-        releaseSeatsLock(lockKeys);
+        releaseSeatsLock(generateSeatLockKeys(showId, seatIds));
     }
     
     /**
@@ -144,5 +160,11 @@ public class RedisLockService {
         String lockKey = lockProperties.generateSeatLockKey(showId, seatId);
         return redisTemplate.opsForValue().get(lockKey);
     }
+    
+    private List<String> generateSeatLockKeys(Long showId, List<Long> seatIds) {
+        return seatIds.stream()
+                .map(seatId -> lockProperties.generateSeatLockKey(showId, seatId))
+                .toList();
+    }
 }
 
@@ -0,0 +1,113 @@
+package com.bookticket.booking_service.service;
+
+import com.bookticket.booking_service.configuration.WaitingRoomProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Waiting rooms kept in Redis
+ * Each show has a sorted set of user IDs scored by their ticket number, and a gate hash counting
+ * the tickets handed out and let through. Joining and opening the gate run in a single Lua script.
+ */
+@Component
+@ConditionalOnProperty(name = "booking.waiting-room.store", havingValue = "redis", matchIfMissing = true)
+@Slf4j
+public class RedisWaitingRoomStore implements WaitingRoomStore {
+
+    private final StringRedisTemplate redisTemplate;
+    private final WaitingRoomProperties waitingRoomProperties;
+    private final RedisScript<List> waitingRoomEnterScript;
+    private final RedisScript<Long> waitingRoomRestoreScript;
+
+    public RedisWaitingRoomStore(StringRedisTemplate redisTemplate, WaitingRoomProperties waitingRoomProperties,
+                                 @Qualifier("waitingRoomEnterScript") RedisScript<List> waitingRoomEnterScript,
+                                 @Qualifier("waitingRoomRestoreScript") RedisScript<Long> waitingRoomRestoreScript) {
+        this.redisTemplate = redisTemplate;
+        this.waitingRoomProperties = waitingRoomProperties;
+        this.waitingRoomEnterScript = waitingRoomEnterScript;
+        this.waitingRoomRestoreScript = waitingRoomRestoreScript;
+    }
+
+    @Override
+    public void open(Long showId, double admitRatePerSecond) {
+        redisTemplate.opsForHash().put(roomsKey(), showId.toString(), String.valueOf(admitRatePerSecond));
+    }
+
+    @Override
+    public void close(Long showId) {
+        redisTemplate.opsForHash().delete(roomsKey(), showId.toString());
+        redisTemplate.delete(List.of(queueKey(showId), gateKey(showId)));
+    }
+
+    @Override
+    public Optional<Double> getAdmitRate(Long showId) {
+        Object rate = redisTemplate.opsForHash().get(roomsKey(), showId.toString());
+        return Optional.ofNullable(rate).map(value -> Double.valueOf((String) value));
+    }
+
+    @Override
+    public Map<Long, Double> getOpenRooms() {
+        return redisTemplate.opsForHash().entries(roomsKey()).entrySet().stream()
+                .collect(Collectors.toMap(
+                        entry -> Long.valueOf((String) entry.getKey()),
+                        entry -> Double.valueOf((String) entry.getValue())));
+    }
+
+    @Override
+    public Optional<QueueTicket> enter(Long showId, Long userId, double admitRatePerSecond, boolean join) {
+        List<?> result = redisTemplate.execute(
+                waitingRoomEnterScript,
+                List.of(queueKey(showId), gateKey(showId)),
+                userId.toString(),
+                String.valueOf(admitRatePerSecond),
+                String.valueOf(waitingRoomProperties.getQueueTtl().toMillis()),
+                join ? "1" : "0"
+        );
+        if (result == null || result.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(new QueueTicket(((Number) result.get(0)).longValue(), ((Number) result.get(1)).longValue()));
+    }
+
+    @Override
+    public Optional<Long> redeem(Long showId, Long userId) {
+        Double ticket = redisTemplate.opsForZSet().score(queueKey(showId), userId.toString());
+        if (ticket == null) {
+            return Optional.empty();
+        }
+        // Tickets never change, only the caller removing the user owns the admission
+        Long removed = redisTemplate.opsForZSet().remove(queueKey(showId), userId.toString());
+        return removed != null && removed > 0 ? Optional.of(ticket.longValue()) : Optional.empty();
+    }
+
+    @Override
+    public void restore(Long showId, Long userId, long ticket) {
+        redisTemplate.execute(
+                waitingRoomRestoreScript,
+                List.of(queueKey(showId), gateKey(showId)),
+                userId.toString(),
+                String.valueOf(ticket)
+        );
+    }
+
+    private String roomsKey() {
+        return waitingRoomProperties.getKeyPrefix() + ":shows";
+    }
+
+    private String queueKey(Long showId) {
+        return String.format("%s:%d:queue", waitingRoomProperties.getKeyPrefix(), showId);
+    }
+
+    private String gateKey(Long showId) {
+        return String.format("%s:%d:gate", waitingRoomProperties.getKeyPrefix(), showId);
+    }
+}
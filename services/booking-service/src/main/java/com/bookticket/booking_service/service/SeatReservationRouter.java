@@ -0,0 +1,101 @@
+package com.bookticket.booking_service.service;
+
+import com.bookticket.booking_service.configuration.SequencerProperties;
+import com.bookticket.booking_service.dto.SeatReservationRequest;
+import com.bookticket.booking_service.dto.ValidSeatResponse;
+import com.bookticket.booking_service.exception.SeatLockException;
+import com.bookticket.booking_service.exception.SeatReservationBusyException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+
+import java.net.ConnectException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Sends the seat reservation of a booking to the sequencer of its show
+ * Reservations of a show are forwarded to the instance owning it on the {@link SequencerRing}, so they are
+ * sequenced by one lane cluster-wide. Reservations run on the local sequencer when this instance owns the show,
+ * routing is disabled or the owner can not be reached, the Redis seat locks keep them consistent meanwhile.
+ */
+@Service
+@Slf4j
+public class SeatReservationRouter {
+    private final SeatReservationSequencer seatReservationSequencer;
+    private final SequencerRing sequencerRing;
+    private final SequencerProperties sequencerProperties;
+    private final RestClient bookingPeerRestClient;
+
+    public SeatReservationRouter(SeatReservationSequencer seatReservationSequencer, SequencerRing sequencerRing,
+                                 SequencerProperties sequencerProperties,
+                                 @Qualifier("bookingPeerRestClient") RestClient bookingPeerRestClient) {
+        this.seatReservationSequencer = seatReservationSequencer;
+        this.sequencerRing = sequencerRing;
+        this.sequencerProperties = sequencerProperties;
+        this.bookingPeerRestClient = bookingPeerRestClient;
+    }
+
+    /**
+     * Lock the seats of a booking in Redis and reserve them with theater service
+     *
+     * @return priced seats, all of them locked for this booking
+     * @throws SeatLockException            if any seat is invalid or no longer available
+     * @throws SeatReservationBusyException if the sequencer of the show is saturated
+     */
+    public List<ValidSeatResponse> reserve(Long showId, List<Long> seatIds, Long bookingId) {
+        Optional<ServiceInstance> owner = sequencerProperties.isRoutingEnabled()
+                ? sequencerRing.ownerOf(showId)
+                : Optional.empty();
+        if (owner.isEmpty()) {
+            return seatReservationSequencer.reserve(showId, seatIds, bookingId);
+        }
+
+        try {
+            return forward(owner.get(), new SeatReservationRequest(showId, seatIds, bookingId));
+        } catch (ResourceAccessException e) {
+            if (!(e.getCause() instanceof ConnectException)) {
+                throw e;
+            }
+            // The request never reached the owner, it may have left before the ring noticed
+            log.warn("Sequencer {} of show {} is unreachable, reserving booking {} locally",
+                    owner.get().getInstanceId(), showId, bookingId);
+            return seatReservationSequencer.reserve(showId, seatIds, bookingId);
+        }
+    }
+
+    private List<ValidSeatResponse> forward(ServiceInstance owner, SeatReservationRequest seatReservationRequest) {
+        log.info("Forwarding reservation of booking {} to sequencer {} of show {}",
+                seatReservationRequest.bookingId(), owner.getInstanceId(), seatReservationRequest.showId());
+        List<ValidSeatResponse> reservedSeats = bookingPeerRestClient.post()
+                .uri(owner.getUri().resolve("/api/v1/bookings/internal/reservations"))
+                .body(seatReservationRequest)
+                .retrieve()
+                .onStatus(status -> status.isSameCodeAs(HttpStatus.CONFLICT), (request, response) -> {
+                    log.warn("Seats {} of show {} are no longer available",
+                            seatReservationRequest.seatIds(), seatReservationRequest.showId());
+                    throw new SeatLockException("Some seats are no longer available, Please try again.");
+                })
+                .onStatus(status -> status.isSameCodeAs(HttpStatus.SERVICE_UNAVAILABLE), (request, response) -> {
+                    log.warn("Sequencer {} of show {} is saturated", owner.getInstanceId(), seatReservationRequest.showId());
+                    throw new SeatReservationBusyException("Too many bookings waiting for show "
+                            + seatReservationRequest.showId() + ", please try again");
+                })
+                .onStatus(HttpStatusCode::isError, (request, response) -> {
+                    log.error("Error while Reserving Seats : Service Call to Sequencer {} Failed", owner.getInstanceId());
+                    throw new RuntimeException("Error while Reserving Seats: Http Status: " + response.getStatusCode());
+                })
+                .body(new ParameterizedTypeReference<>() {
+                });
+        if (reservedSeats == null || reservedSeats.isEmpty()) {
+            throw new RuntimeException("No Seats Reserved");
+        }
+        return reservedSeats;
+    }
+}
@@ -0,0 +1,266 @@
+package com.bookticket.booking_service.service;
+
+import com.bookticket.booking_service.configuration.SequencerProperties;
+import com.bookticket.booking_service.dto.ValidSeatResponse;
+import com.bookticket.booking_service.exception.SeatLockException;
+import com.bookticket.booking_service.exception.SeatReservationBusyException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Single writer reserving the seats of each show on this instance
+ * Shows are striped over a fixed number of lanes, each drained by its own thread, so the bookings of a show
+ * are reserved one after another instead of racing on the Redis seat locks and the show_seats rows.
+ * The reservations a lane takes at once are reserved with one theater-service call per show, reservations
+ * sharing a seat with an earlier one wait for its outcome in the next round.
+ * Best-available allocations lock seats of the same shows outside the lanes, so the Redis locks a lane
+ * takes can still lose against a concurrent booking.
+ */
+@Component
+@Slf4j
+public class SeatReservationSequencer {
+
+    private final RedisLockService redisLockService;
+    private final TheaterService theaterService;
+    private final SequencerProperties sequencerProperties;
+    private final List<Lane> lanes = new ArrayList<>();
+
+    public SeatReservationSequencer(RedisLockService redisLockService, TheaterService theaterService,
+                                    SequencerProperties sequencerProperties) {
+        this.redisLockService = redisLockService;
+        this.theaterService = theaterService;
+        this.sequencerProperties = sequencerProperties;
+        for (int i = 0; i < sequencerProperties.getLanes(); i++) {
+            lanes.add(new Lane(i));
+        }
+        log.info("Started seat reservation sequencer with {} lanes", lanes.size());
+    }
+
+    /**
+     * Lock the seats of a booking in Redis and reserve them with theater service
+     * Nothing stays locked for the booking when the reservation fails.
+     *
+     * @param showId    show to reserve seats in
+     * @param seatIds   show seat ids to reserve
+     * @param bookingId booking that will own the locks
+     * @return priced seats, all of them locked for this booking
+     * @throws SeatLockException            if any seat is invalid or no longer available
+     * @throws SeatReservationBusyException if the lane of the show is full or did not reserve the seats in time
+     */
+    public List<ValidSeatResponse> reserve(Long showId, List<Long> seatIds, Long bookingId) {
+        PendingReservation reservation = new PendingReservation(showId, seatIds, bookingId, new CompletableFuture<>());
+        Lane lane = lanes.get(Math.floorMod(Long.hashCode(showId), lanes.size()));
+        if (!lane.queue.offer(reservation)) {
+            log.warn("Sequencer lane {} is full, rejecting booking {} for show {}", lane.index, bookingId, showId);
+            throw new SeatReservationBusyException("Too many bookings waiting for show " + showId + ", please try again");
+        }
+
+        CompletableFuture<List<ValidSeatResponse>> result = reservation.result();
+        try {
+            return result.get(sequencerProperties.getWaitTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Once cancelled the lane skips the reservation, or releases the seats if it reserved them meanwhile
+            if (result.cancel(false)) {
+                throw new SeatReservationBusyException("Timed out waiting for seats of booking " + bookingId + " to be reserved");
+            }
+            return await(result);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.cancel(false);
+            throw new IllegalStateException("Interrupted waiting for seats of booking " + bookingId, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Failed to reserve seats of booking " + bookingId, e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lanes.forEach(lane -> lane.thread.interrupt());
+    }
+
+    private static List<ValidSeatResponse> await(CompletableFuture<List<ValidSeatResponse>> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for seat reservation", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Failed to reserve seats", e.getCause());
+        }
+    }
+
+    /**
+     * Reserve the reservations a lane took at once, show by show in arrival order
+     */
+    private void reserveBatch(List<PendingReservation> batch) {
+        Map<Long, List<PendingReservation>> reservationsByShow = batch.stream()
+                .filter(reservation -> !reservation.result().isDone())
+                .collect(Collectors.groupingBy(PendingReservation::showId, LinkedHashMap::new, Collectors.toList()));
+
+        reservationsByShow.forEach((showId, reservations) -> {
+            List<PendingReservation> remaining = reservations;
+            while (!remaining.isEmpty()) {
+                // A reservation sharing a seat with an earlier one has to see its outcome first
+                Set<Long> claimedSeatIds = new HashSet<>();
+                List<PendingReservation> round = new ArrayList<>();
+                List<PendingReservation> deferred = new ArrayList<>();
+                for (PendingReservation reservation : remaining) {
+                    if (reservation.seatIds().stream().anyMatch(claimedSeatIds::contains)) {
+                        deferred.add(reservation);
+                    } else {
+                        claimedSeatIds.addAll(reservation.seatIds());
+                        round.add(reservation);
+                    }
+                }
+                reserveRound(showId, round);
+                remaining = deferred;
+            }
+        });
+    }
+
+    /**
+     * Reserve reservations of a show that share no seat, with a single theater-service call
+     */
+    private void reserveRound(Long showId, List<PendingReservation> round) {
+        // Allocations lock seats of this show outside the lane, a lock can be lost to one of them
+        List<PendingReservation> locked = new ArrayList<>();
+        for (PendingReservation reservation : round) {
+            if (reservation.result().isDone()) {
+                continue;
+            }
+            try {
+                redisLockService.acquireSeatsLock(showId, reservation.seatIds(), reservation.bookingId());
+                locked.add(reservation);
+            } catch (SeatLockException e) {
+                reservation.result().completeExceptionally(lockFailure(reservation, e));
+            }
+        }
+        if (locked.isEmpty()) {
+            return;
+        }
+
+        List<List<ValidSeatResponse>> reservedSeats;
+        try {
+            reservedSeats = theaterService.reserveSeatsBatch(showId,
+                    locked.stream().map(PendingReservation::seatIds).toList());
+        } catch (Exception e) {
+            log.error("Failed to reserve seats of {} bookings for show {}: {}", locked.size(), showId, e.getMessage());
+            // Theater service may have locked the seats before failing
+            locked.forEach(reservation -> {
+                release(reservation, true);
+                reservation.result().completeExceptionally(e);
+            });
+            return;
+        }
+
+        for (int i = 0; i < locked.size(); i++) {
+            PendingReservation reservation = locked.get(i);
+            List<ValidSeatResponse> seats = reservedSeats.get(i);
+            if (seats.isEmpty()) {
+                log.warn("Seats {} of show {} are no longer available", reservation.seatIds(), showId);
+                release(reservation, false);
+                reservation.result().completeExceptionally(
+                        new SeatLockException("Some seats are no longer available, Please try again."));
+            } else if (!reservation.result().complete(seats)) {
+                log.warn("Booking {} stopped waiting for its seats, releasing them", reservation.bookingId());
+                release(reservation, true);
+            }
+        }
+    }
+
+    /**
+     * Seats locked by another booking fail the reservation as a conflict, nothing was locked for it.
+     * Without conflicting seats the lock store itself failed, which says nothing about the seats, so the
+     * booking is rejected as busy and can be retried.
+     */
+    private RuntimeException lockFailure(PendingReservation reservation, SeatLockException e) {
+        if (e.getConflictingSeatIds().isEmpty()) {
+            log.error("Failed to lock seats {} of booking {}: {}", reservation.seatIds(), reservation.bookingId(),
+                    e.getMessage());
+            return new SeatReservationBusyException("Could not lock seats of booking " + reservation.bookingId()
+                    + ", please try again");
+        }
+        log.info("Seats {} of booking {} are locked by a concurrent booking", e.getConflictingSeatIds(),
+                reservation.bookingId());
+        return e;
+    }
+
+    private void release(PendingReservation reservation, boolean releaseTheaterSeats) {
+        redisLockService.releaseSeatsLock(reservation.showId(), reservation.seatIds(), reservation.bookingId());
+        if (releaseTheaterSeats) {
+            try {
+                theaterService.releaseSeats(reservation.showId(), reservation.seatIds());
+            } catch (Exception e) {
+                log.warn("Failed to release seats of booking {}, they are released when their hold expires: {}",
+                        reservation.bookingId(), e.getMessage());
+            }
+        }
+    }
+
+    private final class Lane implements Runnable {
+        private final int index;
+        private final BlockingQueue<PendingReservation> queue;
+        private final Thread thread;
+
+        private Lane(int index) {
+            this.index = index;
+            this.queue = new ArrayBlockingQueue<>(sequencerProperties.getQueueCapacity());
+            this.thread = new Thread(this, "seat-sequencer-" + index);
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                List<PendingReservation> batch = new ArrayList<>();
+                try {
+                    batch.add(queue.take());
+                } catch (InterruptedException e) {
+                    break;
+                }
+                queue.drainTo(batch, sequencerProperties.getMaxBatchSize() - 1);
+
+                // Theater service calls of the lane authenticate as this service, not as one of the waiting users
+                try {
+                    reserveBatch(batch);
+                } catch (Exception e) {
+                    log.error("Sequencer lane {} failed to reserve a batch of {} bookings: {}",
+                            index, batch.size(), e.getMessage(), e);
+                    batch.forEach(reservation -> reservation.result().completeExceptionally(e));
+                }
+            }
+
+            // Bookings still queued fail instead of waiting for their timeout
+            List<PendingReservation> abandoned = new ArrayList<>();
+            queue.drainTo(abandoned);
+            abandoned.forEach(reservation -> reservation.result().completeExceptionally(
+                    new RuntimeException("Booking service is shutting down, please try again")));
+        }
+    }
+
+    private record PendingReservation(Long showId, List<Long> seatIds, Long bookingId,
+                                      CompletableFuture<List<ValidSeatResponse>> result) {
+    }
+}
@@ -0,0 +1,127 @@
+package com.bookticket.booking_service.service;
+
+import com.bookticket.booking_service.configuration.SequencerProperties;
+import com.netflix.appinfo.ApplicationInfoManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Consistent hash ring assigning each show to one booking-service instance
+ * Instances advertise in their Eureka metadata that they sequence reservations once they are ready,
+ * and the ring is rebuilt from the registry periodically. An instance joining or leaving only moves
+ * the shows of its own segments, the other shows keep their sequencer.
+ */
+@Component
+@Slf4j
+public class SequencerRing {
+    private static final String BOOKING_SERVICE = "booking-service";
+
+    private final DiscoveryClient discoveryClient;
+    private final ObjectProvider<Registration> registration;
+    private final ObjectProvider<ApplicationInfoManager> applicationInfoManager;
+    private final SequencerProperties sequencerProperties;
+
+    private volatile NavigableMap<Long, ServiceInstance> ring = new TreeMap<>();
+    private volatile Set<String> members = Set.of();
+
+    public SequencerRing(DiscoveryClient discoveryClient, ObjectProvider<Registration> registration,
+                         ObjectProvider<ApplicationInfoManager> applicationInfoManager,
+                         SequencerProperties sequencerProperties) {
+        this.discoveryClient = discoveryClient;
+        this.registration = registration;
+        this.applicationInfoManager = applicationInfoManager;
+        this.sequencerProperties = sequencerProperties;
+    }
+
+    /**
+     * Join the ring once this instance is ready to take reservations of other instances
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void advertise() {
+        if (!sequencerProperties.isRoutingEnabled()) {
+            return;
+        }
+        applicationInfoManager.ifAvailable(manager -> {
+            manager.registerAppMetadata(Map.of(sequencerProperties.getMetadataKey(), "true"));
+            log.info("Advertised seat reservation sequencer in Eureka metadata");
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${booking.sequencer.ring-refresh-ms:10000}")
+    public void refresh() {
+        if (!sequencerProperties.isRoutingEnabled()) {
+            return;
+        }
+        NavigableMap<Long, ServiceInstance> nodes = new TreeMap<>();
+        try {
+            for (ServiceInstance instance : discoveryClient.getInstances(BOOKING_SERVICE)) {
+                if (!"true".equals(instance.getMetadata().get(sequencerProperties.getMetadataKey()))) {
+                    continue;
+                }
+                for (int i = 0; i < sequencerProperties.getVirtualNodes(); i++) {
+                    nodes.put(hash(instance.getInstanceId() + "#" + i), instance);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to refresh sequencer ring, keeping {} members: {}", members.size(), e.getMessage());
+            return;
+        }
+
+        Set<String> refreshedMembers = nodes.values().stream()
+                .map(ServiceInstance::getInstanceId)
+                .collect(Collectors.toSet());
+        if (!refreshedMembers.equals(members)) {
+            log.info("Sequencer ring changed from {} to {}", members, refreshedMembers);
+        }
+        ring = nodes;
+        members = refreshedMembers;
+    }
+
+    /**
+     * Find the instance sequencing the reservations of a show
+     *
+     * @return the owning instance, empty if this instance owns the show or no instance is on the ring
+     */
+    public Optional<ServiceInstance> ownerOf(Long showId) {
+        NavigableMap<Long, ServiceInstance> nodes = ring;
+        if (nodes.isEmpty()) {
+            return Optional.empty();
+        }
+        Map.Entry<Long, ServiceInstance> node = nodes.ceilingEntry(hash("show:" + showId));
+        ServiceInstance owner = node != null ? node.getValue() : nodes.firstEntry().getValue();
+
+        Registration self = registration.getIfAvailable();
+        if (self != null && owner.getInstanceId().equals(self.getInstanceId())) {
+            return Optional.empty();
+        }
+        return Optional.of(owner);
+    }
+
+    private static long hash(String key) {
+        try {
+            // Leading 8 bytes of MD5, spreads instances and shows evenly over the ring
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.bookticket.booking_service.service;
+
+import com.bookticket.booking_service.dto.ShowDetailsResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Show details embedded in booking events, fetched from theater service once per show
+ * Bookings of an on-sale burst all hit the same few shows, so this keeps event enrichment off the theater service
+ */
+@Service
+@Slf4j
+public class ShowDetailsCache {
+    private static final Duration TTL = Duration.ofMinutes(10);
+    private static final int MAX_ENTRIES = 1000;
+
+    private final TheaterService theaterService;
+    private final Map<Long, CachedShow> shows = new ConcurrentHashMap<>();
+
+    public ShowDetailsCache(TheaterService theaterService) {
+        this.theaterService = theaterService;
+    }
+
+    /**
+     * @return show details, or null if theater service could not be reached
+     */
+    public ShowDetailsResponse get(Long showId) {
+        CachedShow cached = shows.get(showId);
+        if (cached != null && cached.expiresAt().isAfter(Instant.now())) {
+            return cached.details();
+        }
+        try {
+            ShowDetailsResponse details = theaterService.getShowDetails(showId);
+            if (details != null) {
+                if (shows.size() >= MAX_ENTRIES) {
+                    Instant now = Instant.now();
+                    shows.values().removeIf(entry -> entry.expiresAt().isBefore(now));
+                }
+                shows.put(showId, new CachedShow(details, Instant.now().plus(TTL)));
+            }
+            return details;
+        } catch (Exception e) {
+            // Notification service fetches the show itself when it is missing from the event
+            log.warn("Failed to fetch details of show {} for booking event: {}", showId, e.getMessage());
+            return null;
+        }
+    }
+
+    private record CachedShow(ShowDetailsResponse details, Instant expiresAt) {
+    }
+}
@@ -1,9 +1,12 @@
 package com.bookticket.booking_service.service;
 
 import com.bookticket.booking_service.dto.*;
+import com.bookticket.booking_service.exception.SeatLockException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
@@ -13,57 +16,82 @@ import java.util.List;
 @Service
 @Slf4j
 public class TheaterService {
+    private static final String SERVICE_ACCOUNT = "booking-service";
+
     private final RestClient theaterRestClient;
 
     public TheaterService(@Qualifier("theaterRestClient") RestClient theaterRestClient) {
         this.theaterRestClient = theaterRestClient;
     }
 
-    public List<ValidSeatResponse> verifySeats(CreateBookingRequest createBookingRequest) {
-        VerifySeatsRequest verifySeatsRequest = new VerifySeatsRequest(
-                createBookingRequest.showId(),
-                createBookingRequest.seatIds()
-        );
-        List<ValidSeatResponse> validSeats = theaterRestClient.post()
-                .uri("/api/v1/shows/internal/seats/verify")
-                .body(verifySeatsRequest)
+    /**
+     * Verify and lock the seats of several bookings of a show in a single call.
+     * Called by the seat reservation sequencer, outside of any user request, so it authenticates as this service.
+     *
+     * @param showId       show to reserve seats in
+     * @param reservations show seat ids of each booking
+     * @return priced seats of each booking in request order, an empty list for bookings whose seats are no longer available
+     */
+    public List<List<ValidSeatResponse>> reserveSeatsBatch(Long showId, List<List<Long>> reservations) {
+        ReserveSeatsBatchRequest reserveSeatsBatchRequest = new ReserveSeatsBatchRequest(showId, reservations);
+        List<List<ValidSeatResponse>> reservedSeats = theaterRestClient.post()
+                .uri("/api/v1/shows/internal/seats/reserve-batch")
+                .headers(this::serviceAccountHeaders)
+                .body(reserveSeatsBatchRequest)
                 .retrieve()
                 .onStatus(HttpStatusCode::isError, (request, response) -> {
-                    log.error("Error while Verifying Seats : Service Call to Theater Service Failed");
-                    throw new RuntimeException("Error while Verifying Seats: Http Status: " + response.getStatusCode());
+                    log.error("Error while Reserving Seats : Service Call to Theater Service Failed");
+                    throw new RuntimeException("Error while Reserving Seats: Http Status: " + response.getStatusCode());
                 })
                 .body(new ParameterizedTypeReference<>() {
                 });
-        if(validSeats == null || validSeats.isEmpty()){
-            throw new RuntimeException("No Valid Seats Found");
+        if(reservedSeats == null || reservedSeats.size() != reservations.size()){
+            throw new RuntimeException("Unexpected response while Reserving Seats of " + reservations.size() + " Bookings");
         }
-        log.info("Valid Seats Found: {}", validSeats);
-        return validSeats;
+        log.info("Seats Reserved for {} Bookings of show {}", reservations.size(), showId);
+        return reservedSeats;
     }
 
-    public List<ValidSeatResponse> lockSeats(Long showId, List<Long> seatIds) {
-        LockSeatsRequest lockSeatsRequest = new LockSeatsRequest(showId, seatIds);
-        List<ValidSeatResponse> lockedSeats = theaterRestClient.post()
-                .uri("/api/v1/shows/internal/seats/lock")
-                .body(lockSeatsRequest)
+    /**
+     * Let theater service pick and lock the best available block of adjacent seats
+     *
+     * @param seatType     seat type of the block, any type if null
+     * @param preferredRow preferred row, two thirds back from the screen if null
+     * @return priced seats, all of them locked
+     * @throws SeatLockException if the show has no such block of available seats
+     */
+    public List<ValidSeatResponse> allocateSeats(Long showId, int seatCount, String seatType, Integer preferredRow) {
+        AllocateSeatsRequest allocateSeatsRequest = new AllocateSeatsRequest(showId, seatCount, seatType, preferredRow);
+        List<ValidSeatResponse> allocatedSeats = theaterRestClient.post()
+                .uri("/api/v1/shows/internal/seats/allocate")
+                .body(allocateSeatsRequest)
                 .retrieve()
+                .onStatus(status -> status.isSameCodeAs(HttpStatus.CONFLICT), (request, response) -> {
+                    log.warn("No block of {} adjacent seats available in show {}", seatCount, showId);
+                    throw new SeatLockException("Not enough adjacent seats available, Please try again.");
+                })
                 .onStatus(HttpStatusCode::isError, (request, response) -> {
-                    log.error("Error while Locking Seats : Service Call to Theater Service Failed");
-                    throw new RuntimeException("Error while Locking Seats: Http Status: " + response.getStatusCode());
+                    log.error("Error while Allocating Seats : Service Call to Theater Service Failed");
+                    throw new RuntimeException("Error while Allocating Seats: Http Status: " + response.getStatusCode());
                 })
                 .body(new ParameterizedTypeReference<>() {
                 });
-        if(lockedSeats == null || lockedSeats.isEmpty()){
-            throw new RuntimeException("No Seats Locked");
+        if(allocatedSeats == null || allocatedSeats.size() != seatCount){
+            throw new RuntimeException("Unexpected response while Allocating " + seatCount + " Seats");
         }
-        log.info("Seats Locked: {}", lockedSeats);
-        return lockedSeats;
+        log.info("Seats Allocated: {}", allocatedSeats);
+        return allocatedSeats;
     }
 
+    /**
+     * Give seats back to the show
+     * Also called when a payment outcome arrives outside of any user request, so it authenticates as this service.
+     */
     public List<ValidSeatResponse> releaseSeats(Long showId, List<Long> seatIds) {
         ReleaseSeatsRequest releaseSeatsRequest = new ReleaseSeatsRequest(showId, seatIds);
         List<ValidSeatResponse> releasedSeats = theaterRestClient.post()
                 .uri("/api/v1/shows/internal/seats/release")
+                .headers(this::serviceAccountHeaders)
                 .body(releaseSeatsRequest)
                 .retrieve()
                 .onStatus(HttpStatusCode::isError, (request, response) -> {
@@ -79,10 +107,15 @@ public class TheaterService {
         return releasedSeats;
     }
 
+    /**
+     * Mark locked seats as booked once their payment completed
+     * Also called when a payment outcome arrives outside of any user request, so it authenticates as this service.
+     */
     public List<ValidSeatResponse> bookSeats(Long showId, List<Long> seatIds) {
         BookSeatsRequest bookSeatsRequest = new BookSeatsRequest(showId, seatIds);
         List<ValidSeatResponse> bookedSeats = theaterRestClient.post()
                 .uri("/api/v1/shows/internal/seats/book")
+                .headers(this::serviceAccountHeaders)
                 .body(bookSeatsRequest)
                 .retrieve()
                 .onStatus(HttpStatusCode::isError, (request, response) -> {
@@ -97,4 +130,22 @@ public class TheaterService {
         log.info("Seats Booked: {}", bookedSeats);
         return bookedSeats;
     }
+
+    // Used when there is no user request to propagate, the header propagation interceptor replaces them otherwise
+    private void serviceAccountHeaders(HttpHeaders headers) {
+        headers.set("X-User-Id", SERVICE_ACCOUNT);
+        headers.set("X-User-Name", SERVICE_ACCOUNT);
+        headers.set("X-User-Roles", "ROLE_SERVICE_ACCOUNT");
+    }
+
+    public ShowDetailsResponse getShowDetails(Long showId) {
+        return theaterRestClient.get()
+                .uri("/api/v1/shows/{showId}", showId)
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, (request, response) -> {
+                    log.error("Error while Fetching Show {} : Service Call to Theater Service Failed", showId);
+                    throw new RuntimeException("Error while Fetching Show: Http Status: " + response.getStatusCode());
+                })
+                .body(ShowDetailsResponse.class);
+    }
 }
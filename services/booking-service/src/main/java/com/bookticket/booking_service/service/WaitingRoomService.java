@@ -0,0 +1,224 @@
+package com.bookticket.booking_service.service;
+
+import com.bookticket.booking_service.configuration.WaitingRoomProperties;
+import com.bookticket.booking_service.dto.WaitingRoomResponse;
+import com.bookticket.booking_service.dto.WaitingRoomStatusResponse;
+import com.bookticket.booking_service.exception.WaitingRoomException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Admission control for shows under a rush, like the opening of a blockbuster
+ * While the waiting room of a show is open, users join its queue and are let through in arrival order
+ * at the admission rate of the show. Admitted users get a signed admission token, and bookings for the
+ * show are only accepted with a valid token, so the seat locks and seat rows of a single show never see
+ * more bookings than they can handle. A booking takes the user out of the queue, so an admission
+ * lets a single booking through however many tokens were issued for it. A booking that fails gives
+ * the admission back. Shows without an open room are booked as before.
+ */
+@Service
+@Slf4j
+public class WaitingRoomService {
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final WaitingRoomStore waitingRoomStore;
+    private final WaitingRoomProperties waitingRoomProperties;
+    private final SecretKeySpec tokenKey;
+
+    public WaitingRoomService(WaitingRoomStore waitingRoomStore, WaitingRoomProperties waitingRoomProperties) {
+        this.waitingRoomStore = waitingRoomStore;
+        this.waitingRoomProperties = waitingRoomProperties;
+        this.tokenKey = new SecretKeySpec(tokenSecret(waitingRoomProperties), HMAC_ALGORITHM);
+    }
+
+    /**
+     * Open the waiting room of a show, or change the admission rate of an open one
+     *
+     * @param admitRatePerSecond users let through per second, the configured default if null
+     */
+    public WaitingRoomResponse open(Long showId, Double admitRatePerSecond) {
+        double rate = admitRatePerSecond != null ? admitRatePerSecond : waitingRoomProperties.getDefaultAdmitRatePerSecond();
+        waitingRoomStore.open(showId, rate);
+        log.info("Opened waiting room of show {} admitting {} users per second", showId, rate);
+        return new WaitingRoomResponse(showId, rate);
+    }
+
+    /**
+     * Close the waiting room of a show, bookings for it no longer need an admission token
+     */
+    public void close(Long showId) {
+        waitingRoomStore.close(showId);
+        log.info("Closed waiting room of show {}", showId);
+    }
+
+    public List<WaitingRoomResponse> getOpenRooms() {
+        return waitingRoomStore.getOpenRooms().entrySet().stream()
+                .map(room -> new WaitingRoomResponse(room.getKey(), room.getValue()))
+                .toList();
+    }
+
+    /**
+     * Join the queue of a show, or poll the place of a user who already joined it
+     *
+     * @param join true to put the user at the end of the queue if not in it yet
+     * @return place of the user in the queue, with an admission token once let through
+     * @throws WaitingRoomException if the show has no open waiting room, or when polling for a user not in its queue
+     */
+    public WaitingRoomStatusResponse enter(Long showId, Long userId, boolean join) {
+        double rate = waitingRoomStore.getAdmitRate(showId)
+                .orElseThrow(() -> new WaitingRoomException("Show " + showId + " has no open waiting room",
+                        HttpStatus.NOT_FOUND, "WAITING_ROOM_NOT_OPEN"));
+        WaitingRoomStore.QueueTicket ticket = waitingRoomStore.enter(showId, userId, rate, join)
+                .orElseThrow(() -> new WaitingRoomException("User " + userId + " is not in the waiting room of show "
+                        + showId, HttpStatus.NOT_FOUND, "WAITING_ROOM_NOT_JOINED"));
+
+        if (!ticket.isAdmitted()) {
+            long estimatedWaitSeconds = (long) Math.ceil(ticket.position() / rate);
+            log.debug("User {} is at position {} in the waiting room of show {}", userId, ticket.position(), showId);
+            return new WaitingRoomStatusResponse(showId, false, ticket.position(), estimatedWaitSeconds, null, null);
+        }
+        long expiresAt = System.currentTimeMillis() + waitingRoomProperties.getTokenTtl().toMillis();
+        return new WaitingRoomStatusResponse(showId, true, 0, 0,
+                sign(showId, userId, expiresAt), expiresAt / 1000);
+    }
+
+    /**
+     * Book a show once the user was let through its waiting room
+     * Bookings for shows without an open room are always allowed. Each admission lets a single booking
+     * through, the user has to join the queue again for the next one. If the booking fails, the user
+     * gets the admission back and can book again without queueing.
+     *
+     * @param admissionToken value of the Admission-Token header, may be null
+     * @param booking        creates the booking, runs after the admission is redeemed
+     * @throws WaitingRoomException if the show has an open room and the token is missing, invalid, expired or used
+     */
+    public <T> T withAdmission(Long userId, Long showId, String admissionToken, Supplier<T> booking) {
+        Optional<Long> ticket = redeemAdmission(userId, showId, admissionToken);
+        try {
+            return booking.get();
+        } catch (RuntimeException e) {
+            ticket.ifPresent(redeemed -> restoreAdmission(userId, showId, redeemed));
+            throw e;
+        }
+    }
+
+    /**
+     * @return ticket of the redeemed admission, empty if the show needs none
+     */
+    private Optional<Long> redeemAdmission(Long userId, Long showId, String admissionToken) {
+        Optional<Double> rate;
+        try {
+            rate = waitingRoomStore.getAdmitRate(showId);
+        } catch (Exception e) {
+            // Seat locks still prevent double booking, the show is only left unprotected from the rush
+            log.warn("Waiting room store unavailable, letting booking for show {} through: {}", showId, e.getMessage());
+            return Optional.empty();
+        }
+        if (rate.isEmpty()) {
+            return Optional.empty();
+        }
+        if (admissionToken == null || admissionToken.isBlank()) {
+            throw new WaitingRoomException("Show " + showId + " is booked through its waiting room, join it first",
+                    HttpStatus.FORBIDDEN, "ADMISSION_TOKEN_REQUIRED");
+        }
+        long expiresAt = verify(showId, userId, admissionToken);
+        if (System.currentTimeMillis() > expiresAt) {
+            throw new WaitingRoomException("Admission token for show " + showId + " has expired, join the waiting room again",
+                    HttpStatus.FORBIDDEN, "ADMISSION_TOKEN_EXPIRED");
+        }
+        Optional<Long> ticket;
+        try {
+            ticket = waitingRoomStore.redeem(showId, userId);
+        } catch (Exception e) {
+            log.warn("Waiting room store unavailable, letting booking for show {} through: {}", showId, e.getMessage());
+            return Optional.empty();
+        }
+        if (ticket.isEmpty()) {
+            throw new WaitingRoomException("Admission to show " + showId + " was already used, join the waiting room again",
+                    HttpStatus.FORBIDDEN, "ADMISSION_TOKEN_USED");
+        }
+        return ticket;
+    }
+
+    private void restoreAdmission(Long userId, Long showId, long ticket) {
+        try {
+            waitingRoomStore.restore(showId, userId, ticket);
+            log.info("Booking of user {} for show {} failed, admission given back", userId, showId);
+        } catch (Exception e) {
+            log.warn("Failed to give admission to show {} back to user {}: {}", showId, userId, e.getMessage());
+        }
+    }
+
+    private String sign(Long showId, Long userId, long expiresAt) {
+        String payload = ENCODER.encodeToString(
+                (showId + ":" + userId + ":" + expiresAt).getBytes(StandardCharsets.UTF_8));
+        return payload + "." + ENCODER.encodeToString(hmac(payload));
+    }
+
+    /**
+     * @return expiry of the token in epoch milliseconds
+     */
+    private long verify(Long showId, Long userId, String admissionToken) {
+        WaitingRoomException invalid = new WaitingRoomException("Invalid admission token for show " + showId,
+                HttpStatus.FORBIDDEN, "ADMISSION_TOKEN_INVALID");
+        int separator = admissionToken.indexOf('.');
+        if (separator < 0) {
+            throw invalid;
+        }
+        String payload = admissionToken.substring(0, separator);
+        try {
+            byte[] signature = DECODER.decode(admissionToken.substring(separator + 1));
+            if (!MessageDigest.isEqual(hmac(payload), signature)) {
+                throw invalid;
+            }
+            // Tokens are bound to the show and the user they were issued for
+            String[] claims = new String(DECODER.decode(payload), StandardCharsets.UTF_8).split(":");
+            if (claims.length != 3 || !claims[0].equals(showId.toString()) || !claims[1].equals(userId.toString())) {
+                throw invalid;
+            }
+            return Long.parseLong(claims[2]);
+        } catch (IllegalArgumentException e) {
+            throw invalid;
+        }
+    }
+
+    private byte[] hmac(String payload) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(tokenKey);
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to sign admission token", e);
+        }
+    }
+
+    private static byte[] tokenSecret(WaitingRoomProperties waitingRoomProperties) {
+        String secret = waitingRoomProperties.getTokenSecret();
+        if (secret != null && !secret.isBlank()) {
+            return secret.getBytes(StandardCharsets.UTF_8);
+        }
+        // Every instance must accept the tokens of the others, a random secret only works for a single one
+        if (!"local".equals(waitingRoomProperties.getStore())) {
+            throw new IllegalStateException("booking.waiting-room.token-secret must be configured with the "
+                    + waitingRoomProperties.getStore() + " waiting room store");
+        }
+        log.warn("No booking.waiting-room.token-secret configured, admission tokens are only accepted by this instance");
+        byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        return random;
+    }
+}
@@ -0,0 +1,73 @@
+package com.bookticket.booking_service.service;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Queue state of the per-show waiting rooms
+ * {@link RedisWaitingRoomStore} keeps it in Redis sorted sets shared by every instance,
+ * {@link InMemoryWaitingRoomStore} is a local stand-in for tests.
+ */
+public interface WaitingRoomStore {
+
+    /**
+     * Open the waiting room of a show, or change the rate of an open one
+     */
+    void open(Long showId, double admitRatePerSecond);
+
+    /**
+     * Close the waiting room of a show and drop its queue
+     */
+    void close(Long showId);
+
+    /**
+     * @return admission rate of the waiting room of the show, empty if the show has no open room
+     */
+    Optional<Double> getAdmitRate(Long showId);
+
+    /**
+     * @return admission rates of all open waiting rooms by show ID
+     */
+    Map<Long, Double> getOpenRooms();
+
+    /**
+     * Let users through at the admission rate and return the place of the user in the queue
+     *
+     * @param join true to put the user at the end of the queue if not in it yet, false to only poll
+     * @return ticket of the user, empty if polling for a user that is not in the queue
+     */
+    Optional<QueueTicket> enter(Long showId, Long userId, double admitRatePerSecond, boolean join);
+
+    /**
+     * Take the user out of the queue of the show once an admission is used
+     *
+     * @return ticket the user held, empty if the admission was already used
+     */
+    Optional<Long> redeem(Long showId, Long userId);
+
+    /**
+     * Put a user back in the queue of the show with the ticket of a redeemed admission
+     * Used when the booking the admission was redeemed for failed. Does nothing if the room is gone.
+     */
+    void restore(Long showId, Long userId, long ticket);
+
+    /**
+     * Place of a user in the queue of a show
+     *
+     * @param ticket   number handed out to the user on joining, in arrival order
+     * @param admitted number of tickets let through so far
+     */
+    record QueueTicket(long ticket, long admitted) {
+
+        public boolean isAdmitted() {
+            return ticket <= admitted;
+        }
+
+        /**
+         * @return number of users to be let through before this one, 0 once admitted
+         */
+        public long position() {
+            return Math.max(0, ticket - admitted);
+        }
+    }
+}
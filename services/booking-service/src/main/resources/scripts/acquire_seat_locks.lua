@@ -0,0 +1,31 @@
+-- Atomic multi-seat lock acquisition
+-- KEYS[1..N]: seat lock keys (e.g., "lock:seat:42:1001")
+-- ARGV[1]: lock value identifying the owning booking (e.g., "booking:77")
+-- ARGV[2]: lock TTL in milliseconds
+--
+-- All-or-nothing: if any seat is held by another booking, nothing is written and the
+-- 1-based positions of the conflicting keys are returned. An empty table means every
+-- seat is now locked by this booking.
+
+local owner = ARGV[1]
+local ttl = tonumber(ARGV[2])
+
+-- First pass: detect conflicts without mutating anything
+local conflicts = {}
+for i, key in ipairs(KEYS) do
+  local current = redis.call('GET', key)
+  if current and current ~= owner then
+    table.insert(conflicts, i)
+  end
+end
+
+if #conflicts > 0 then
+  return conflicts
+end
+
+-- Second pass: lock every seat (re-locking by the same owner just refreshes the TTL)
+for _, key in ipairs(KEYS) do
+  redis.call('SET', key, owner, 'PX', ttl)
+end
+
+return {}
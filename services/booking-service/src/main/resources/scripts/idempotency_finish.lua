@@ -0,0 +1,21 @@
+-- Owner-checked completion or release of an idempotency key
+-- KEYS[1]: idempotency key
+-- ARGV[1]: in-flight marker written by the request finishing the key
+-- ARGV[2]: record to store, or an empty string to release the key
+-- ARGV[3]: TTL of the stored record in milliseconds
+--
+-- The marker carries a token unique to the request, so a request whose marker expired and
+-- was taken over by a retry can neither overwrite nor release the key of that retry.
+-- Returns 1 if the key was finished, 0 if the marker is no longer there.
+
+if redis.call('GET', KEYS[1]) ~= ARGV[1] then
+  return 0
+end
+
+if ARGV[2] == '' then
+  redis.call('DEL', KEYS[1])
+else
+  redis.call('SET', KEYS[1], ARGV[2], 'PX', tonumber(ARGV[3]))
+end
+
+return 1
@@ -0,0 +1,19 @@
+-- Owner-checked batch release of seat locks
+-- KEYS[1..N]: seat lock keys
+-- ARGV[1]: lock value of the booking releasing the seats
+--
+-- Only keys still held by the given owner are deleted, so a late release from an
+-- expired booking can never drop a lock that another booking has since acquired.
+-- Returns the number of locks released.
+
+local owner = ARGV[1]
+local released = 0
+
+for _, key in ipairs(KEYS) do
+  if redis.call('GET', key) == owner then
+    redis.call('DEL', key)
+    released = released + 1
+  end
+end
+
+return released
@@ -0,0 +1,49 @@
+-- Join or poll the waiting room of a show and let users through at the admission rate
+-- KEYS[1]: queue sorted set, member = user ID, score = ticket number (e.g., "waiting-room:42:queue")
+-- KEYS[2]: gate hash with fields joined, admitted, updated_at (e.g., "waiting-room:42:gate")
+-- ARGV[1]: user ID
+-- ARGV[2]: admission rate in users per second
+-- ARGV[3]: TTL of the queue in milliseconds
+-- ARGV[4]: "1" to join the queue if the user is not in it yet, "0" to only poll
+--
+-- Returns {ticket, admitted}: the user is let through once admitted >= ticket.
+-- Returns {} when polling for a user that is not in the queue.
+-- Time is read from Redis, so instances with skewed clocks share one admission rate.
+
+local user = ARGV[1]
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local rate = tonumber(ARGV[2])
+local ttl = tonumber(ARGV[3])
+
+local ticket = redis.call('ZSCORE', KEYS[1], user)
+if not ticket then
+  if ARGV[4] ~= '1' then
+    return {}
+  end
+  -- Tickets are handed out in arrival order, joining again keeps the original place
+  ticket = redis.call('HINCRBY', KEYS[2], 'joined', 1)
+  redis.call('ZADD', KEYS[1], ticket, user)
+end
+ticket = tonumber(ticket)
+
+local joined = tonumber(redis.call('HGET', KEYS[2], 'joined'))
+local admitted = tonumber(redis.call('HGET', KEYS[2], 'admitted') or '0')
+local updated = tonumber(redis.call('HGET', KEYS[2], 'updated_at') or now)
+
+-- Open the gate by the admissions earned since the last update
+local earned = math.floor(math.max(0, now - updated) * rate / 1000)
+if admitted + earned >= joined then
+  -- Queue drained: an idle gate does not bank admissions for the next rush
+  admitted = joined
+  updated = now
+elseif earned > 0 then
+  admitted = admitted + earned
+  -- Keep the fraction of an admission earned so far
+  updated = updated + math.floor(earned * 1000 / rate)
+end
+redis.call('HSET', KEYS[2], 'admitted', admitted, 'updated_at', updated)
+
+redis.call('PEXPIRE', KEYS[1], ttl)
+redis.call('PEXPIRE', KEYS[2], ttl)
+return {ticket, admitted}
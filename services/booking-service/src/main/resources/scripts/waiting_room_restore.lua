@@ -0,0 +1,15 @@
+-- Give an admission back to a user whose booking failed
+-- KEYS[1]: queue sorted set, member = user ID, score = ticket number (e.g., "waiting-room:42:queue")
+-- KEYS[2]: gate hash with fields joined, admitted, updated_at (e.g., "waiting-room:42:gate")
+-- ARGV[1]: user ID
+-- ARGV[2]: ticket number the user held before the admission was redeemed
+--
+-- The user gets the original ticket back, which was already let through, so the next poll is admitted
+-- right away. Nothing is restored once the room was closed or its queue expired.
+-- Returns 1 if the ticket was restored, 0 otherwise.
+
+if redis.call('EXISTS', KEYS[2]) == 0 then
+  return 0
+end
+
+return redis.call('ZADD', KEYS[1], 'NX', tonumber(ARGV[2]), ARGV[1])
@@ -0,0 +1,150 @@
+package com.bookticket.booking_service.service;
+
+import com.bookticket.booking_service.dto.CheckoutSessionResponse;
+import com.bookticket.booking_service.dto.CreateBookingRequest;
+import com.bookticket.booking_service.dto.CreateBookingResponse;
+import com.bookticket.booking_service.dto.PaymentResponse;
+import com.bookticket.booking_service.dto.ShowDetailsResponse;
+import com.bookticket.booking_service.dto.ValidSeatResponse;
+import com.bookticket.booking_service.entity.Booking;
+import com.bookticket.booking_service.entity.BookingSeat;
+import com.bookticket.booking_service.enums.BookingStatus;
+import com.bookticket.booking_service.exception.SeatLockException;
+import com.bookticket.booking_service.repository.BookingRepository;
+import com.bookticket.booking_service.repository.BookingSeatRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class BookingServiceTest {
+
+    private static final Long SHOW_ID = 7L;
+    private static final Long BOOKING_ID = 100L;
+
+    private BookingRepository bookingRepository;
+    private RedisLockService redisLockService;
+    private TheaterService theaterService;
+    private OutboxService outboxService;
+    private SeatReservationRouter seatReservationRouter;
+    private ShowDetailsCache showDetailsCache;
+    private PlatformTransactionManager transactionManager;
+    private BookingSeatRepository bookingSeatRepository;
+    private BookingService bookingService;
+    private final List<ValidSeatResponse> allocatedSeats = List.of(
+            new ValidSeatResponse(21L, "3-3", "GOLD", 250.0),
+            new ValidSeatResponse(22L, "3-4", "GOLD", 250.0));
+
+    @BeforeEach
+    void setUp() {
+        bookingRepository = mock(BookingRepository.class);
+        bookingSeatRepository = mock(BookingSeatRepository.class);
+        redisLockService = mock(RedisLockService.class);
+        PaymentService paymentService = mock(PaymentService.class);
+        theaterService = mock(TheaterService.class);
+        outboxService = mock(OutboxService.class);
+        seatReservationRouter = mock(SeatReservationRouter.class);
+        showDetailsCache = mock(ShowDetailsCache.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        bookingService = new BookingService(bookingRepository, bookingSeatRepository, redisLockService, paymentService,
+                theaterService, outboxService, seatReservationRouter, showDetailsCache,
+                new TransactionTemplate(transactionManager));
+
+        when(bookingRepository.save(any(Booking.class))).thenAnswer(invocation -> {
+            Booking booking = invocation.getArgument(0);
+            booking.setId(BOOKING_ID);
+            return booking;
+        });
+        when(bookingSeatRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(paymentService.createCheckoutSession(any())).thenReturn(new CheckoutSessionResponse(
+                "cs_1", "https://checkout.stripe.com/cs_1", BOOKING_ID, 500.0, "created", null, 0L));
+        when(theaterService.allocateSeats(SHOW_ID, 2, "GOLD", null)).thenReturn(allocatedSeats);
+    }
+
+    @Test
+    void allocatedSeatsAreLockedInRedisForTheBooking() {
+        CreateBookingResponse response = bookingService.createBooking(1L, "user@bookticket.com", allocation());
+
+        assertThat(response.status()).isEqualTo(BookingStatus.PENDING);
+        assertThat(response.totalAmount()).isEqualTo(500.0);
+        verify(redisLockService).acquireSeatsLock(SHOW_ID, List.of(21L, 22L), BOOKING_ID);
+        verifyNoInteractions(seatReservationRouter);
+        verify(theaterService, never()).releaseSeats(anyLong(), anyList());
+    }
+
+    @Test
+    void allocatedSeatHeldInRedisGivesTheAllocationBack() {
+        doThrow(new SeatLockException("Seat 22 is locked"))
+                .when(redisLockService).acquireSeatsLock(SHOW_ID, List.of(21L, 22L), BOOKING_ID);
+
+        assertThatThrownBy(() -> bookingService.createBooking(1L, "user@bookticket.com", allocation()))
+                .isInstanceOf(SeatLockException.class);
+
+        verify(theaterService).releaseSeats(SHOW_ID, List.of(21L, 22L));
+        verify(outboxService).enqueueBookingFailed(any(Booking.class), eq("Seats no longer available"));
+    }
+
+    @Test
+    void noAdjacentSeatsFailsTheBooking() {
+        when(theaterService.allocateSeats(SHOW_ID, 2, "GOLD", null))
+                .thenThrow(new SeatLockException("Not enough adjacent seats available, Please try again."));
+
+        assertThatThrownBy(() -> bookingService.createBooking(1L, "user@bookticket.com", allocation()))
+                .isInstanceOf(SeatLockException.class);
+
+        verifyNoInteractions(redisLockService);
+        verify(theaterService, never()).releaseSeats(anyLong(), anyList());
+        verify(outboxService).enqueueBookingFailed(any(Booking.class), any());
+    }
+
+    @Test
+    void pickedSeatsGoThroughTheSequencer() {
+        when(seatReservationRouter.reserve(SHOW_ID, List.of(21L, 22L), BOOKING_ID)).thenReturn(allocatedSeats);
+
+        bookingService.createBooking(1L, "user@bookticket.com",
+                new CreateBookingRequest(SHOW_ID, List.of(21L, 22L, 21L), null, null, null));
+
+        verify(theaterService, never()).allocateSeats(anyLong(), anyInt(), any(), any());
+    }
+
+    @Test
+    void showDetailsOfTheConfirmationAreResolvedBeforeTheTransaction() {
+        Booking booking = new Booking();
+        booking.setId(BOOKING_ID);
+        booking.setShowId(SHOW_ID);
+        booking.setStatus(BookingStatus.PENDING);
+        when(bookingRepository.findById(BOOKING_ID)).thenReturn(Optional.of(booking));
+        when(bookingRepository.findByIdForUpdate(BOOKING_ID)).thenReturn(Optional.of(booking));
+        BookingSeat seat = new BookingSeat();
+        seat.setSeatId(21L);
+        when(bookingSeatRepository.findByBookingId(BOOKING_ID)).thenReturn(List.of(seat));
+        ShowDetailsResponse show = new ShowDetailsResponse(SHOW_ID, LocalDateTime.now().plusDays(1),
+                LocalDateTime.now().plusDays(1).plusHours(3), "movie-1", "Dune", "PVR", "MG Road", "Screen 1");
+        when(showDetailsCache.get(SHOW_ID)).thenReturn(show);
+
+        bookingService.completeBooking(BOOKING_ID,
+                new PaymentResponse(1L, BOOKING_ID, "COMPLETED", "pi_1", 250.0, "Payment successful"));
+
+        InOrder inOrder = inOrder(showDetailsCache, transactionManager, outboxService);
+        inOrder.verify(showDetailsCache).get(SHOW_ID);
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(outboxService).enqueueBookingSuccess(booking, List.of(seat), show);
+        assertThat(booking.getStatus()).isEqualTo(BookingStatus.CONFIRMED);
+    }
+
+    private CreateBookingRequest allocation() {
+        return new CreateBookingRequest(SHOW_ID, null, 2, "GOLD", null);
+    }
+}
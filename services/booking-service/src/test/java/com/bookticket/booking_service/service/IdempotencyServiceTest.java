@@ -0,0 +1,186 @@
+package com.bookticket.booking_service.service;
+
+import com.bookticket.booking_service.configuration.IdempotencyProperties;
+import com.bookticket.booking_service.dto.CreateBookingRequest;
+import com.bookticket.booking_service.dto.CreateBookingResponse;
+import com.bookticket.booking_service.enums.BookingStatus;
+import com.bookticket.booking_service.exception.IdempotencyKeyException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpStatus;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class IdempotencyServiceTest {
+
+    private static final Long USER_ID = 1L;
+    private static final String KEY = "3f1c9a";
+    private static final String REDIS_KEY = "idempotency:booking:1:3f1c9a";
+
+    // Idempotency keys as stored in Redis
+    private final Map<String, String> redis = new ConcurrentHashMap<>();
+    private final AtomicInteger bookings = new AtomicInteger();
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private IdempotencyService idempotencyService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any()))
+                .thenAnswer(invocation -> redis.putIfAbsent(invocation.getArgument(0), invocation.getArgument(1)) == null);
+        when(valueOperations.get(anyString())).thenAnswer(invocation -> redis.get(invocation.<String>getArgument(0)));
+        RedisScript<Long> finishScript = mock(RedisScript.class);
+        // Same compare-and-set as scripts/idempotency_finish.lua
+        when(stringRedisTemplate.execute(eq(finishScript), anyList(), any(), any(), any())).thenAnswer(invocation -> {
+            String key = invocation.<List<String>>getArgument(1).get(0);
+            String marker = invocation.getArgument(2);
+            String value = invocation.getArgument(3);
+            boolean finished = value.isEmpty() ? redis.remove(key, marker) : redis.replace(key, marker, value);
+            return finished ? 1L : 0L;
+        });
+
+        IdempotencyProperties properties = new IdempotencyProperties();
+        properties.setPollIntervalMs(10);
+        properties.setWaitTimeoutMs(2000);
+        idempotencyService = new IdempotencyService(stringRedisTemplate, new ObjectMapper(), properties, finishScript);
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void retryWithTheSameKeyReplaysTheResponse() {
+        IdempotencyService.IdempotentResult first = idempotencyService.createOnce(USER_ID, KEY, request(1L, 2L), this::book);
+        IdempotencyService.IdempotentResult retry = idempotencyService.createOnce(USER_ID, KEY, request(2L, 1L), this::book);
+
+        assertThat(first.replayed()).isFalse();
+        assertThat(retry.replayed()).isTrue();
+        assertThat(retry.response().bookingId()).isEqualTo(first.response().bookingId());
+        assertThat(bookings).hasValue(1);
+    }
+
+    @Test
+    void keyReusedForADifferentRequestIsRejected() {
+        idempotencyService.createOnce(USER_ID, KEY, request(1L, 2L), this::book);
+
+        assertThatThrownBy(() -> idempotencyService.createOnce(USER_ID, KEY, request(3L), this::book))
+                .isInstanceOfSatisfying(IdempotencyKeyException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY));
+        assertThat(bookings).hasValue(1);
+    }
+
+    @Test
+    void concurrentDuplicateWaitsForTheOriginal() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<IdempotencyService.IdempotentResult> original = callers.submit(() ->
+                idempotencyService.createOnce(USER_ID, KEY, request(1L), () -> {
+                    await(release);
+                    return book();
+                }));
+        awaitMarker();
+
+        Future<IdempotencyService.IdempotentResult> duplicate = callers.submit(() ->
+                idempotencyService.createOnce(USER_ID, KEY, request(1L), this::book));
+        Thread.sleep(100);
+        assertThat(duplicate).isNotDone();
+        release.countDown();
+
+        assertThat(duplicate.get(5, TimeUnit.SECONDS).replayed()).isTrue();
+        assertThat(duplicate.get().response().bookingId()).isEqualTo(original.get(5, TimeUnit.SECONDS).response().bookingId());
+        assertThat(bookings).hasValue(1);
+    }
+
+    @Test
+    void failedRequestReleasesTheKeyForARetry() {
+        assertThatThrownBy(() -> idempotencyService.createOnce(USER_ID, KEY, request(1L), () -> {
+            throw new IllegalStateException("Theater service down");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(redis).doesNotContainKey(REDIS_KEY);
+        assertThat(idempotencyService.createOnce(USER_ID, KEY, request(1L), this::book).replayed()).isFalse();
+    }
+
+    @Test
+    void requestOutlivingItsMarkerLeavesTheKeyOfTheRetryAlone() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<IdempotencyService.IdempotentResult> slow = callers.submit(() ->
+                idempotencyService.createOnce(USER_ID, KEY, request(1L), () -> {
+                    await(release);
+                    throw new IllegalStateException("Payment service timed out");
+                }));
+        awaitMarker();
+        // The marker of the slow request expires and a retry takes the key over
+        redis.remove(REDIS_KEY);
+        CountDownLatch retryRunning = new CountDownLatch(1);
+        CountDownLatch retryRelease = new CountDownLatch(1);
+        Future<IdempotencyService.IdempotentResult> retry = callers.submit(() ->
+                idempotencyService.createOnce(USER_ID, KEY, request(1L), () -> {
+                    retryRunning.countDown();
+                    await(retryRelease);
+                    return book();
+                }));
+        assertThat(retryRunning.await(2, TimeUnit.SECONDS)).isTrue();
+
+        release.countDown();
+        assertThatThrownBy(() -> slow.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+
+        // The failed slow request did not release the key the retry holds
+        assertThat(redis).containsKey(REDIS_KEY);
+        retryRelease.countDown();
+        retry.get(5, TimeUnit.SECONDS);
+        assertThat(idempotencyService.createOnce(USER_ID, KEY, request(1L), this::book).replayed()).isTrue();
+        assertThat(bookings).hasValue(1);
+    }
+
+    private CreateBookingResponse book() {
+        long bookingId = 100 + bookings.incrementAndGet();
+        return new CreateBookingResponse(bookingId, USER_ID, 7L, 250.0, BookingStatus.PENDING, List.of(),
+                "cs_" + bookingId, "https://checkout.stripe.com/cs_" + bookingId, 0L);
+    }
+
+    private CreateBookingRequest request(Long... seatIds) {
+        return new CreateBookingRequest(7L, List.of(seatIds), null, null, null);
+    }
+
+    private void awaitMarker() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!redis.containsKey(REDIS_KEY) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(redis).containsKey(REDIS_KEY);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
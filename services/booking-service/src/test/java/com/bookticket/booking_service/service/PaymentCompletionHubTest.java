@@ -0,0 +1,127 @@
+package com.bookticket.booking_service.service;
+
+import com.bookticket.booking_service.configuration.PaymentPollingProperties;
+import com.bookticket.booking_service.dto.BookingStatusResponse;
+import com.bookticket.booking_service.entity.Booking;
+import com.bookticket.booking_service.entity.BookingSeat;
+import com.bookticket.booking_service.enums.BookingStatus;
+import com.bookticket.booking_service.repository.BookingRepository;
+import com.bookticket.booking_service.repository.BookingSeatRepository;
+import com.bookticket.booking_service.security.HeaderPropagationInterceptor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.AsyncEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class PaymentCompletionHubTest {
+
+    private static final Long BOOKING_ID = 100L;
+    private static final Long SHOW_ID = 7L;
+    private static final String SESSION_ID = "cs_100";
+
+    private final Booking booking = new Booking();
+    private MockRestServiceServer paymentServer;
+    private MockRestServiceServer theaterServer;
+    private StringRedisTemplate stringRedisTemplate;
+    private PaymentCompletionHub paymentCompletionHub;
+
+    @BeforeEach
+    void setUp() {
+        booking.setId(BOOKING_ID);
+        booking.setUserId(1L);
+        booking.setShowId(SHOW_ID);
+        booking.setTotalAmount(250.0);
+        booking.setStatus(BookingStatus.PENDING);
+        BookingRepository bookingRepository = mock(BookingRepository.class);
+        when(bookingRepository.findById(BOOKING_ID)).thenReturn(Optional.of(booking));
+        when(bookingRepository.findByIdForUpdate(BOOKING_ID)).thenReturn(Optional.of(booking));
+        when(bookingRepository.save(booking)).thenReturn(booking);
+        BookingSeat seat = new BookingSeat();
+        seat.setSeatId(21L);
+        BookingSeatRepository bookingSeatRepository = mock(BookingSeatRepository.class);
+        when(bookingSeatRepository.findByBookingId(BOOKING_ID)).thenReturn(List.of(seat));
+
+        // Rest clients as configured in AppConfig, propagating the headers of the current request if any
+        RestClient.Builder paymentBuilder = RestClient.builder().requestInterceptor(new HeaderPropagationInterceptor());
+        paymentServer = MockRestServiceServer.bindTo(paymentBuilder).build();
+        RestClient.Builder theaterBuilder = RestClient.builder().requestInterceptor(new HeaderPropagationInterceptor());
+        theaterServer = MockRestServiceServer.bindTo(theaterBuilder).build();
+
+        BookingService bookingService = new BookingService(bookingRepository, bookingSeatRepository,
+                mock(RedisLockService.class), new PaymentService(paymentBuilder.build()),
+                new TheaterService(theaterBuilder.build()), mock(OutboxService.class), mock(SeatReservationRouter.class),
+                mock(ShowDetailsCache.class), new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        stringRedisTemplate = mock(StringRedisTemplate.class);
+        PaymentPollingProperties pollingProperties = new PaymentPollingProperties();
+        pollingProperties.setTimeoutMs(100);
+        paymentCompletionHub = new PaymentCompletionHub(bookingService, stringRedisTemplate, new ObjectMapper(),
+                Runnable::run, pollingProperties);
+    }
+
+    @Test
+    void timedOutWaitVerifiesTheSessionAsThisService() throws Exception {
+        paymentServer.expect(requestTo("/api/v1/internal/payments/checkout/verify/" + SESSION_ID))
+                .andExpect(method(HttpMethod.GET))
+                .andExpect(header("X-User-Roles", "ROLE_SERVICE_ACCOUNT"))
+                .andRespond(withSuccess("{\"paymentId\":1,\"bookingId\":100,\"paymentStatus\":\"COMPLETED\"}",
+                        MediaType.APPLICATION_JSON));
+        theaterServer.expect(requestTo("/api/v1/shows/internal/seats/book"))
+                .andExpect(method(HttpMethod.POST))
+                .andExpect(header("X-User-Roles", "ROLE_SERVICE_ACCOUNT"))
+                .andRespond(withSuccess("[{\"seatId\":21,\"seatNumber\":\"3-3\",\"seatType\":\"GOLD\",\"price\":250.0}]",
+                        MediaType.APPLICATION_JSON));
+
+        DeferredResult<ResponseEntity<BookingStatusResponse>> result =
+                paymentCompletionHub.awaitCompletion(BOOKING_ID, SESSION_ID);
+        timeOut(result);
+
+        // The request is answered right away, the verification runs without a request to propagate headers from
+        assertThat(RequestContextHolder.getRequestAttributes()).isNull();
+        ResponseEntity<?> response = (ResponseEntity<?>) result.getResult();
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        paymentServer.verify();
+        theaterServer.verify();
+        assertThat(booking.getStatus()).isEqualTo(BookingStatus.CONFIRMED);
+        verify(stringRedisTemplate).convertAndSend(eq(PaymentCompletionHub.CHANNEL), anyString());
+    }
+
+    // Let the servlet container time the long-poll out, as it does once the wait time passed
+    private void timeOut(DeferredResult<ResponseEntity<BookingStatusResponse>> result) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAsyncSupported(true);
+        StandardServletAsyncWebRequest asyncWebRequest =
+                new StandardServletAsyncWebRequest(request, new MockHttpServletResponse());
+        WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(request);
+        asyncManager.setAsyncWebRequest(asyncWebRequest);
+        asyncManager.startDeferredResultProcessing(result);
+        asyncWebRequest.onTimeout(new AsyncEvent(request.getAsyncContext()));
+    }
+}
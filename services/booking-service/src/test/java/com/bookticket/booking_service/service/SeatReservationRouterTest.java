@@ -0,0 +1,124 @@
+package com.bookticket.booking_service.service;
+
+import com.bookticket.booking_service.configuration.SequencerProperties;
+import com.bookticket.booking_service.dto.ValidSeatResponse;
+import com.bookticket.booking_service.exception.SeatLockException;
+import com.bookticket.booking_service.exception.SeatReservationBusyException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.jsonPath;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withException;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class SeatReservationRouterTest {
+
+    private static final Long SHOW_ID = 7L;
+    private static final List<Long> SEAT_IDS = List.of(1L, 2L);
+    private static final Long BOOKING_ID = 100L;
+    private static final String OWNER_URL = "http://10.0.0.2:8080/api/v1/bookings/internal/reservations";
+
+    private SeatReservationSequencer sequencer;
+    private SequencerRing ring;
+    private SequencerProperties properties;
+    private MockRestServiceServer owner;
+    private SeatReservationRouter router;
+    private final List<ValidSeatResponse> localSeats = List.of(new ValidSeatResponse(1L, "1-1", "GOLD", 250.0));
+
+    @BeforeEach
+    void setUp() {
+        sequencer = mock(SeatReservationSequencer.class);
+        ring = mock(SequencerRing.class);
+        properties = new SequencerProperties();
+        RestClient.Builder builder = RestClient.builder();
+        owner = MockRestServiceServer.bindTo(builder).build();
+        router = new SeatReservationRouter(sequencer, ring, properties, builder.build());
+
+        when(sequencer.reserve(SHOW_ID, SEAT_IDS, BOOKING_ID)).thenReturn(localSeats);
+        ServiceInstance ownerInstance = new DefaultServiceInstance("booking-b", "booking-service", "10.0.0.2", 8080, false);
+        when(ring.ownerOf(SHOW_ID)).thenReturn(Optional.of(ownerInstance));
+    }
+
+    @Test
+    void showOwnedByThisInstanceIsReservedLocally() {
+        when(ring.ownerOf(SHOW_ID)).thenReturn(Optional.empty());
+
+        assertThat(router.reserve(SHOW_ID, SEAT_IDS, BOOKING_ID)).isEqualTo(localSeats);
+        owner.verify();
+    }
+
+    @Test
+    void disabledRoutingReservesLocally() {
+        properties.setRoutingEnabled(false);
+
+        assertThat(router.reserve(SHOW_ID, SEAT_IDS, BOOKING_ID)).isEqualTo(localSeats);
+        verifyNoInteractions(ring);
+    }
+
+    @Test
+    void showOwnedByAnotherInstanceIsForwarded() {
+        owner.expect(requestTo(OWNER_URL))
+                .andExpect(method(HttpMethod.POST))
+                .andExpect(jsonPath("$.bookingId").value(BOOKING_ID))
+                .andRespond(withSuccess("[{\"seatId\":1,\"seatNumber\":\"1-1\",\"seatType\":\"GOLD\",\"seatPrice\":250.0}]",
+                        MediaType.APPLICATION_JSON));
+
+        assertThat(router.reserve(SHOW_ID, SEAT_IDS, BOOKING_ID)).containsExactly(localSeats.get(0));
+        owner.verify();
+        verify(sequencer, never()).reserve(anyLong(), anyList(), anyLong());
+    }
+
+    @Test
+    void conflictAtTheOwnerIsASeatLockFailure() {
+        owner.expect(requestTo(OWNER_URL)).andRespond(withStatus(HttpStatus.CONFLICT));
+
+        assertThatThrownBy(() -> router.reserve(SHOW_ID, SEAT_IDS, BOOKING_ID)).isInstanceOf(SeatLockException.class);
+    }
+
+    @Test
+    void saturatedOwnerRejectsTheBookingAsBusy() {
+        owner.expect(requestTo(OWNER_URL)).andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+
+        assertThatThrownBy(() -> router.reserve(SHOW_ID, SEAT_IDS, BOOKING_ID))
+                .isInstanceOf(SeatReservationBusyException.class);
+        verify(sequencer, never()).reserve(anyLong(), anyList(), anyLong());
+    }
+
+    @Test
+    void unreachableOwnerFallsBackToTheLocalSequencer() {
+        owner.expect(requestTo(OWNER_URL)).andRespond(withException(new ConnectException("Connection refused")));
+
+        assertThat(router.reserve(SHOW_ID, SEAT_IDS, BOOKING_ID)).isEqualTo(localSeats);
+    }
+
+    @Test
+    void ownerTimingOutIsNotRetriedLocally() {
+        // The owner may still reserve the seats, reserving them here too would race with it
+        owner.expect(requestTo(OWNER_URL)).andRespond(withException(new SocketTimeoutException("Read timed out")));
+
+        assertThatThrownBy(() -> router.reserve(SHOW_ID, SEAT_IDS, BOOKING_ID))
+                .isInstanceOf(ResourceAccessException.class);
+        verify(sequencer, never()).reserve(anyLong(), anyList(), anyLong());
+    }
+}
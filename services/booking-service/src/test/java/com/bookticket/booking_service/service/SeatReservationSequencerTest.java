@@ -0,0 +1,196 @@
+package com.bookticket.booking_service.service;
+
+import com.bookticket.booking_service.configuration.SequencerProperties;
+import com.bookticket.booking_service.dto.ValidSeatResponse;
+import com.bookticket.booking_service.exception.SeatLockException;
+import com.bookticket.booking_service.exception.SeatReservationBusyException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SeatReservationSequencerTest {
+
+    private static final Long SHOW_ID = 7L;
+
+    private RedisLockService redisLockService;
+    private TheaterService theaterService;
+    private SequencerProperties properties;
+    private SeatReservationSequencer sequencer;
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    // Holds the first theater-service call until released, so later bookings queue up behind it
+    private final CountDownLatch firstCall = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        redisLockService = mock(RedisLockService.class);
+        theaterService = mock(TheaterService.class);
+        properties = new SequencerProperties();
+        properties.setLanes(1);
+        properties.setWaitTimeoutMs(5000);
+
+        when(theaterService.reserveSeatsBatch(eq(SHOW_ID), anyList())).thenAnswer(invocation -> {
+            List<List<Long>> reservations = invocation.getArgument(1);
+            if (reservations.contains(List.of(1L))) {
+                firstCall.await(5, TimeUnit.SECONDS);
+            }
+            return reservations.stream().map(seatIds -> seatIds.stream().map(this::seat).toList()).toList();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        firstCall.countDown();
+        sequencer.shutdown();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void queuedReservationsOfAShowShareOneTheaterCall() throws Exception {
+        sequencer = new SeatReservationSequencer(redisLockService, theaterService, properties);
+        Future<List<ValidSeatResponse>> first = reserveAsync(List.of(1L), 100L);
+        awaitTheaterCalls(1);
+        Future<List<ValidSeatResponse>> second = reserveAsync(List.of(2L), 101L);
+        Future<List<ValidSeatResponse>> third = reserveAsync(List.of(3L, 4L), 102L);
+        Thread.sleep(200);
+
+        firstCall.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).extracting(ValidSeatResponse::seatId).containsExactly(1L);
+        assertThat(second.get(5, TimeUnit.SECONDS)).extracting(ValidSeatResponse::seatId).containsExactly(2L);
+        assertThat(third.get(5, TimeUnit.SECONDS)).extracting(ValidSeatResponse::seatId).containsExactly(3L, 4L);
+        verify(theaterService).reserveSeatsBatch(SHOW_ID, List.of(List.of(2L), List.of(3L, 4L)));
+        verify(theaterService, times(2)).reserveSeatsBatch(eq(SHOW_ID), anyList());
+    }
+
+    @Test
+    void reservationSharingASeatWaitsForTheNextRound() throws Exception {
+        sequencer = new SeatReservationSequencer(redisLockService, theaterService, properties);
+        // Seat 3 stays locked by booking 101 once it is reserved
+        doThrow(new SeatLockException("Seat 3 is locked", List.of(3L)))
+                .when(redisLockService).acquireSeatsLock(SHOW_ID, List.of(3L, 4L), 102L);
+        Future<List<ValidSeatResponse>> first = reserveAsync(List.of(1L), 100L);
+        awaitTheaterCalls(1);
+        Future<List<ValidSeatResponse>> second = reserveAsync(List.of(2L, 3L), 101L);
+        Future<List<ValidSeatResponse>> third = reserveAsync(List.of(3L, 4L), 102L);
+        Thread.sleep(200);
+
+        firstCall.countDown();
+
+        first.get(5, TimeUnit.SECONDS);
+        assertThat(second.get(5, TimeUnit.SECONDS)).extracting(ValidSeatResponse::seatId).containsExactly(2L, 3L);
+        assertThatThrownBy(() -> third.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(SeatLockException.class);
+        InOrder inOrder = inOrder(redisLockService, theaterService);
+        inOrder.verify(redisLockService).acquireSeatsLock(SHOW_ID, List.of(2L, 3L), 101L);
+        inOrder.verify(theaterService).reserveSeatsBatch(SHOW_ID, List.of(List.of(2L, 3L)));
+        inOrder.verify(redisLockService).acquireSeatsLock(SHOW_ID, List.of(3L, 4L), 102L);
+        verify(theaterService, never()).reserveSeatsBatch(SHOW_ID, List.of(List.of(3L, 4L)));
+    }
+
+    @Test
+    void unavailableSeatsFailOnlyTheirBookingAndReleaseItsLocks() {
+        sequencer = new SeatReservationSequencer(redisLockService, theaterService, properties);
+        when(theaterService.reserveSeatsBatch(SHOW_ID, List.of(List.of(5L)))).thenReturn(List.of(List.of()));
+
+        assertThatThrownBy(() -> sequencer.reserve(SHOW_ID, List.of(5L), 103L))
+                .isInstanceOf(SeatLockException.class);
+
+        verify(redisLockService).releaseSeatsLock(SHOW_ID, List.of(5L), 103L);
+        verify(theaterService, never()).releaseSeats(anyLong(), anyList());
+    }
+
+    @Test
+    void seatsLockedByAnAllocationFailTheBookingAsAConflict() {
+        sequencer = new SeatReservationSequencer(redisLockService, theaterService, properties);
+        // Seat 6 was allocated and locked outside the lane
+        doThrow(new SeatLockException("Seat 6 is locked", List.of(6L)))
+                .when(redisLockService).acquireSeatsLock(SHOW_ID, List.of(6L), 104L);
+
+        assertThatThrownBy(() -> sequencer.reserve(SHOW_ID, List.of(6L), 104L))
+                .isInstanceOfSatisfying(SeatLockException.class,
+                        e -> assertThat(e.getConflictingSeatIds()).containsExactly(6L));
+        verify(theaterService, never()).reserveSeatsBatch(SHOW_ID, List.of(List.of(6L)));
+    }
+
+    @Test
+    void failingLockStoreRejectsTheBookingAsBusy() {
+        sequencer = new SeatReservationSequencer(redisLockService, theaterService, properties);
+        doThrow(new SeatLockException("Failed to acquire seat locks due to system error", new IllegalStateException("Redis down")))
+                .when(redisLockService).acquireSeatsLock(SHOW_ID, List.of(7L), 105L);
+
+        assertThatThrownBy(() -> sequencer.reserve(SHOW_ID, List.of(7L), 105L))
+                .isInstanceOf(SeatReservationBusyException.class);
+        verify(theaterService, never()).reserveSeatsBatch(SHOW_ID, List.of(List.of(7L)));
+    }
+
+    @Test
+    void fullLaneRejectsBookingsRightAway() throws Exception {
+        properties.setQueueCapacity(1);
+        sequencer = new SeatReservationSequencer(redisLockService, theaterService, properties);
+        reserveAsync(List.of(1L), 100L);
+        awaitTheaterCalls(1);
+        reserveAsync(List.of(2L), 101L);
+        Thread.sleep(200);
+
+        assertThatThrownBy(() -> sequencer.reserve(SHOW_ID, List.of(3L), 102L))
+                .isInstanceOf(SeatReservationBusyException.class);
+        verify(redisLockService, never()).acquireSeatsLock(SHOW_ID, List.of(3L), 102L);
+    }
+
+    @Test
+    void seatsReservedAfterTheBookingStoppedWaitingAreReleased() throws Exception {
+        properties.setWaitTimeoutMs(200);
+        sequencer = new SeatReservationSequencer(redisLockService, theaterService, properties);
+        reserveAsync(List.of(1L), 100L);
+        awaitTheaterCalls(1);
+        // Booking 101 is queued behind the held call and gives up before the lane gets to it
+        Future<List<ValidSeatResponse>> second = reserveAsync(List.of(2L), 101L);
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(SeatReservationBusyException.class);
+
+        firstCall.countDown();
+
+        // The cancelled booking is skipped, nothing is locked for it
+        verify(theaterService, after(300).never()).reserveSeatsBatch(SHOW_ID, List.of(List.of(2L)));
+        verify(redisLockService, never()).acquireSeatsLock(SHOW_ID, List.of(2L), 101L);
+    }
+
+    @Test
+    void bookingCancelledWhileItsSeatsAreReservedGetsThemReleased() throws Exception {
+        properties.setWaitTimeoutMs(200);
+        sequencer = new SeatReservationSequencer(redisLockService, theaterService, properties);
+        // Booking 100 gives up while its own theater-service call is held
+        Future<List<ValidSeatResponse>> first = reserveAsync(List.of(1L), 100L);
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(SeatReservationBusyException.class);
+
+        firstCall.countDown();
+
+        verify(redisLockService, timeout(2000)).releaseSeatsLock(SHOW_ID, List.of(1L), 100L);
+        verify(theaterService, timeout(2000)).releaseSeats(SHOW_ID, List.of(1L));
+    }
+
+    private Future<List<ValidSeatResponse>> reserveAsync(List<Long> seatIds, Long bookingId) {
+        return callers.submit(() -> sequencer.reserve(SHOW_ID, seatIds, bookingId));
+    }
+
+    private void awaitTheaterCalls(int calls) {
+        verify(theaterService, timeout(2000).times(calls)).reserveSeatsBatch(eq(SHOW_ID), anyList());
+    }
+
+    private ValidSeatResponse seat(Long seatId) {
+        return new ValidSeatResponse(seatId, "1-" + seatId, "GOLD", 250.0);
+    }
+}
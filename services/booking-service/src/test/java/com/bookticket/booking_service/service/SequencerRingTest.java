@@ -0,0 +1,114 @@
+package com.bookticket.booking_service.service;
+
+import com.bookticket.booking_service.configuration.SequencerProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class SequencerRingTest {
+
+    private DiscoveryClient discoveryClient;
+    private Registration self;
+    private SequencerRing ring;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        discoveryClient = mock(DiscoveryClient.class);
+        self = mock(Registration.class);
+        when(self.getInstanceId()).thenReturn("booking-a");
+        ObjectProvider<Registration> registration = mock(ObjectProvider.class);
+        when(registration.getIfAvailable()).thenReturn(self);
+        ring = new SequencerRing(discoveryClient, registration, mock(ObjectProvider.class), new SequencerProperties());
+    }
+
+    @Test
+    void showsAreReservedLocallyUntilTheRingIsKnown() {
+        assertThat(ring.ownerOf(1L)).isEmpty();
+    }
+
+    @Test
+    void everyShowHasOneOwnerAndThisInstanceKeepsItsOwn() {
+        when(discoveryClient.getInstances("booking-service"))
+                .thenReturn(List.of(sequencer("booking-a"), sequencer("booking-b"), sequencer("booking-c")));
+        ring.refresh();
+
+        int local = 0;
+        for (long showId = 1; showId <= 300; showId++) {
+            if (ring.ownerOf(showId).isEmpty()) {
+                local++;
+            } else {
+                assertThat(ring.ownerOf(showId).get().getInstanceId()).isIn("booking-b", "booking-c");
+            }
+        }
+        // Virtual nodes spread shows roughly evenly
+        assertThat(local).isBetween(50, 150);
+    }
+
+    @Test
+    void instanceLeavingOnlyMovesItsOwnShows() {
+        when(discoveryClient.getInstances("booking-service"))
+                .thenReturn(List.of(sequencer("booking-a"), sequencer("booking-b"), sequencer("booking-c")));
+        ring.refresh();
+        Map<Long, String> owners = owners();
+
+        when(discoveryClient.getInstances("booking-service"))
+                .thenReturn(List.of(sequencer("booking-a"), sequencer("booking-b")));
+        ring.refresh();
+
+        owners().forEach((showId, owner) -> {
+            if (!owners.get(showId).equals("booking-c")) {
+                assertThat(owner).isEqualTo(owners.get(showId));
+            }
+        });
+        assertThat(owners()).doesNotContainValue("booking-c");
+    }
+
+    @Test
+    void instancesNotAdvertisingTheSequencerAreLeftOut() {
+        ServiceInstance starting = new DefaultServiceInstance("booking-b", "booking-service", "10.0.0.2", 8080, false);
+        when(discoveryClient.getInstances("booking-service")).thenReturn(List.of(sequencer("booking-a"), starting));
+        ring.refresh();
+
+        assertThat(owners()).isEmpty();
+    }
+
+    @Test
+    void failedRefreshKeepsTheLastRing() {
+        when(discoveryClient.getInstances("booking-service"))
+                .thenReturn(List.of(sequencer("booking-a"), sequencer("booking-b")));
+        ring.refresh();
+        Map<Long, String> owners = owners();
+
+        when(discoveryClient.getInstances("booking-service")).thenThrow(new IllegalStateException("Eureka down"));
+        ring.refresh();
+
+        assertThat(owners()).isEqualTo(owners).isNotEmpty();
+    }
+
+    // Shows owned by other instances, by show id
+    private Map<Long, String> owners() {
+        Map<Long, String> owners = new HashMap<>();
+        for (long showId = 1; showId <= 300; showId++) {
+            long id = showId;
+            ring.ownerOf(showId).ifPresent(owner -> owners.put(id, owner.getInstanceId()));
+        }
+        return owners;
+    }
+
+    private ServiceInstance sequencer(String instanceId) {
+        return new DefaultServiceInstance(instanceId, "booking-service", "10.0.0.1", 8080, false,
+                Map.of("booking-sequencer", "true"));
+    }
+}
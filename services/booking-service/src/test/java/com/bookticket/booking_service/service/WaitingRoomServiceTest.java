@@ -0,0 +1,138 @@
+package com.bookticket.booking_service.service;
+
+import com.bookticket.booking_service.configuration.WaitingRoomProperties;
+import com.bookticket.booking_service.dto.WaitingRoomStatusResponse;
+import com.bookticket.booking_service.exception.WaitingRoomException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WaitingRoomServiceTest {
+
+    private static final Long SHOW_ID = 42L;
+
+    // Clock of the queue, tokens expire by the wall clock
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private WaitingRoomProperties properties;
+    private WaitingRoomService waitingRoomService;
+
+    @BeforeEach
+    void setUp() {
+        properties = new WaitingRoomProperties();
+        properties.setStore("local");
+        properties.setTokenSecret("test-secret");
+        waitingRoomService = new WaitingRoomService(new InMemoryWaitingRoomStore(now::get), properties);
+        waitingRoomService.open(SHOW_ID, 2.0);
+    }
+
+    @Test
+    void usersAreLetThroughAtTheAdmissionRate() {
+        for (long userId = 1; userId <= 5; userId++) {
+            waitingRoomService.enter(SHOW_ID, userId, true);
+        }
+
+        now.addAndGet(1000);
+        assertThat(poll(1L).admitted()).isTrue();
+        assertThat(poll(2L).admitted()).isTrue();
+        WaitingRoomStatusResponse third = poll(3L);
+        assertThat(third.admitted()).isFalse();
+        assertThat(third.position()).isEqualTo(1);
+        assertThat(third.admissionToken()).isNull();
+
+        now.addAndGet(1000);
+        assertThat(poll(4L).admitted()).isTrue();
+        assertThat(poll(5L).admitted()).isFalse();
+    }
+
+    @Test
+    void admissionTokenLetsASingleBookingThrough() {
+        waitingRoomService.enter(SHOW_ID, 1L, true);
+        now.addAndGet(1000);
+        String token = poll(1L).admissionToken();
+        String reissued = poll(1L).admissionToken();
+
+        assertThat(book(1L, SHOW_ID, token)).isEqualTo("booked");
+
+        assertRejected(1L, token, "ADMISSION_TOKEN_USED");
+        assertRejected(1L, reissued, "ADMISSION_TOKEN_USED");
+        assertThatThrownBy(() -> poll(1L)).isInstanceOfSatisfying(WaitingRoomException.class,
+                e -> assertThat(e.getErrorCode()).isEqualTo("WAITING_ROOM_NOT_JOINED"));
+    }
+
+    @Test
+    void tokenIsBoundToItsUserAndShow() {
+        waitingRoomService.enter(SHOW_ID, 1L, true);
+        now.addAndGet(1000);
+        String token = poll(1L).admissionToken();
+
+        assertRejected(2L, token, "ADMISSION_TOKEN_INVALID");
+        waitingRoomService.open(43L, 2.0);
+        assertThatThrownBy(() -> book(1L, 43L, token))
+                .isInstanceOfSatisfying(WaitingRoomException.class,
+                        e -> assertThat(e.getErrorCode()).isEqualTo("ADMISSION_TOKEN_INVALID"));
+        assertRejected(1L, token + "x", "ADMISSION_TOKEN_INVALID");
+        assertRejected(1L, null, "ADMISSION_TOKEN_REQUIRED");
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        properties.setTokenTtl(Duration.ofMillis(-1));
+        waitingRoomService.enter(SHOW_ID, 1L, true);
+        now.addAndGet(1000);
+
+        assertRejected(1L, poll(1L).admissionToken(), "ADMISSION_TOKEN_EXPIRED");
+    }
+
+    @Test
+    void showsWithoutAnOpenRoomNeedNoToken() {
+        waitingRoomService.close(SHOW_ID);
+
+        assertThat(book(1L, SHOW_ID, null)).isEqualTo("booked");
+    }
+
+    @Test
+    void failedBookingGivesTheAdmissionBack() {
+        waitingRoomService.enter(SHOW_ID, 1L, true);
+        now.addAndGet(1000);
+        String token = poll(1L).admissionToken();
+
+        assertThatThrownBy(() -> waitingRoomService.withAdmission(1L, SHOW_ID, token, () -> {
+            throw new IllegalStateException("Seats no longer available");
+        })).isInstanceOf(IllegalStateException.class);
+
+        // The user keeps the place that was let through and books without queueing again
+        assertThat(poll(1L).admitted()).isTrue();
+        assertThat(book(1L, SHOW_ID, token)).isEqualTo("booked");
+        assertRejected(1L, token, "ADMISSION_TOKEN_USED");
+    }
+
+    @Test
+    void sharedStoreRequiresAConfiguredSecret() {
+        WaitingRoomProperties shared = new WaitingRoomProperties();
+
+        assertThatThrownBy(() -> new WaitingRoomService(new InMemoryWaitingRoomStore(), shared))
+                .isInstanceOf(IllegalStateException.class);
+        shared.setStore("local");
+        assertThatCode(() -> new WaitingRoomService(new InMemoryWaitingRoomStore(), shared)).doesNotThrowAnyException();
+    }
+
+    private WaitingRoomStatusResponse poll(Long userId) {
+        return waitingRoomService.enter(SHOW_ID, userId, false);
+    }
+
+    private String book(Long userId, Long showId, String token) {
+        return waitingRoomService.withAdmission(userId, showId, token, () -> "booked");
+    }
+
+    private void assertRejected(Long userId, String token, String errorCode) {
+        assertThatThrownBy(() -> book(userId, SHOW_ID, token))
+                .isInstanceOfSatisfying(WaitingRoomException.class,
+                        e -> assertThat(e.getErrorCode()).isEqualTo(errorCode));
+    }
+}
@@ -1,5 +1,7 @@
 package com.bookticket.notification_service;
 
+import com.bookticket.notification_service.configuration.NotificationDLQProperties;
+import com.bookticket.notification_service.configuration.NotificationKafkaProperties;
 import com.bookticket.notification_service.configuration.ServiceUrlProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
@@ -10,7 +12,11 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 @SpringBootApplication
 @EnableAsync
 @EnableScheduling
-@EnableConfigurationProperties(ServiceUrlProperties.class)
+@EnableConfigurationProperties({
+        ServiceUrlProperties.class,
+        NotificationKafkaProperties.class,
+        NotificationDLQProperties.class}
+)
 public class NotificationServiceApplication {
 
 	public static void main(String[] args) {
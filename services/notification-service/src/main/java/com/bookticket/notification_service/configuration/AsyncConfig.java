@@ -9,6 +9,7 @@ import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * Configuration for async processing and retry mechanism
@@ -38,6 +39,22 @@ public class AsyncConfig implements AsyncConfigurer {
         return executor;
     }
     
+    /**
+     * Pool replaying DLQ notifications, the scheduler thread replays notifications itself when it is saturated
+     * Calls made by replays are further limited by the dependency bulkheads
+     */
+    @Bean(name = "notificationDLQExecutor")
+    public Executor notificationDLQExecutor(NotificationDLQProperties dlqProperties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(dlqProperties.getParallelism());
+        executor.setMaxPoolSize(dlqProperties.getParallelism());
+        executor.setQueueCapacity(dlqProperties.getBatchSize());
+        executor.setThreadNamePrefix("notification-dlq-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+    
     /**
      * Default async executor for other async operations
      */
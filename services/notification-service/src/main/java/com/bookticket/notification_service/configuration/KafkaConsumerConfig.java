@@ -4,6 +4,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.listener.DefaultErrorHandler;
 import org.springframework.util.backoff.ExponentialBackOff;
 
@@ -19,6 +20,12 @@ import org.springframework.util.backoff.ExponentialBackOff;
 @Configuration
 public class KafkaConsumerConfig {
 
+    private final NotificationKafkaProperties kafkaProperties;
+
+    public KafkaConsumerConfig(NotificationKafkaProperties kafkaProperties) {
+        this.kafkaProperties = kafkaProperties;
+    }
+
     @Bean
     public DefaultErrorHandler errorHandler() {
         ExponentialBackOff exponentialBackOff = new ExponentialBackOff();
@@ -38,4 +45,20 @@ public class KafkaConsumerConfig {
         factory.setCommonErrorHandler(errorHandler());
         return factory;
     }
+
+    /**
+     * Batch listener factory for booking events
+     * One consumer per partition, offsets are committed only after the listener acknowledged the whole batch
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> batchKafkaListenerContainerFactory(
+            ConsumerFactory<String, String> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setBatchListener(true);
+        factory.setConcurrency(kafkaProperties.getPartitions());
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.setCommonErrorHandler(errorHandler());
+        return factory;
+    }
 }
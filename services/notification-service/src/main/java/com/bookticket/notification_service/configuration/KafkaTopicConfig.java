@@ -10,15 +10,23 @@ import org.springframework.kafka.config.TopicBuilder;
 @Slf4j
 public class KafkaTopicConfig {
 
+    private final NotificationKafkaProperties kafkaProperties;
+
+    public KafkaTopicConfig(NotificationKafkaProperties kafkaProperties) {
+        this.kafkaProperties = kafkaProperties;
+    }
+
     @Bean
     public NewTopic bookingSuccessTopic() {
         return TopicBuilder.name("booking_success")
+                .partitions(kafkaProperties.getPartitions())
                 .build();
     }
 
     @Bean
     public NewTopic bookingFailedTopic() {
         return TopicBuilder.name("booking_failed")
+                .partitions(kafkaProperties.getPartitions())
                 .build();
     }
 }
@@ -0,0 +1,44 @@
+package com.bookticket.notification_service.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "notification.dlq")
+@Data
+public class NotificationDLQProperties {
+    /**
+     * Number of due notifications claimed and replayed per round
+     */
+    private int batchSize = 200;
+    /**
+     * Notifications of a round replayed concurrently, calls are further limited by the dependency bulkheads
+     */
+    private int parallelism = 32;
+    /**
+     * How long claimed notifications stay hidden from other instances, must cover the replays of one round
+     */
+    private long leaseMs = 600000;
+    /**
+     * Delay before the first replay of a failing notification, doubled on every further failure
+     */
+    private long baseBackoffMs = 60000;
+    /**
+     * Upper bound of the delay between two replays of a notification
+     */
+    private long maxBackoffMs = 3600000;
+    /**
+     * Concurrent calls allowed per dependency, across live notifications and replays
+     */
+    private int emailConcurrency = 8;
+    private int userServiceConcurrency = 16;
+    private int theaterServiceConcurrency = 16;
+    private int bookingServiceConcurrency = 16;
+    /**
+     * How long a live notification waits for a free slot of its dependency before it is stored in the DLQ
+     */
+    private long liveBulkheadWaitMs = 0;
+    /**
+     * How long a DLQ replay waits for a free slot of its dependency before it is rescheduled
+     */
+    private long bulkheadWaitMs = 30000;
+}
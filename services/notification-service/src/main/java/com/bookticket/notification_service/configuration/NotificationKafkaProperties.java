@@ -0,0 +1,18 @@
+package com.bookticket.notification_service.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "notification.kafka")
+@Data
+public class NotificationKafkaProperties {
+    /**
+     * Partitions of the booking topics, one consumer thread is started per partition
+     */
+    private int partitions = 6;
+    /**
+     * Notifications dispatched to the notification executor and not finished yet, across all consumers
+     * Must not exceed max pool size + queue capacity of the executor, or tasks get rejected
+     */
+    private int maxInFlight = 100;
+}
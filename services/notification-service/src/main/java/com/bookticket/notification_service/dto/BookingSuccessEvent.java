@@ -1,9 +1,22 @@
 package com.bookticket.notification_service.dto;
 
+import java.util.List;
+
+/**
+ * Version 2 events carry the email, show and seats of the ticket.
+ * Version 1 events (no eventVersion) only carry the ids, the details are fetched from the owning services.
+ */
 public record BookingSuccessEvent(
+        Integer eventVersion,
         Long bookingId,
         Long userId,
         Long showId,
-        Double totalAmount
+        Double totalAmount,
+        String userEmail,
+        ShowDetails show,
+        List<SeatDetails> seats
 ) {
+    public BookingSuccessEvent(Long bookingId, Long userId, Long showId, Double totalAmount) {
+        this(1, bookingId, userId, showId, totalAmount, null, null, null);
+    }
 }
@@ -14,7 +14,7 @@ import java.time.LocalDateTime;
  * When REST calls to fetch user/show/seat details fail, notifications are stored here for retry
  */
 @Entity
-@Table(name = "failed_notifications")
+@Table(name = "failed_notifications", indexes = @Index(name = "idx_failed_notifications_status_next_retry_at", columnList = "status, next_retry_at"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -71,9 +71,15 @@ public class FailedNotification {
     @Column
     private LocalDateTime processedAt;
     
+    @Column
+    private LocalDateTime nextRetryAt;  // Due time of the next replay, or end of the lease while being replayed
+    
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
+        if (nextRetryAt == null) {
+            nextRetryAt = createdAt;
+        }
     }
 }
 
@@ -0,0 +1,17 @@
+package com.bookticket.notification_service.exception;
+
+/**
+ * Exception for calls rejected because every slot of the dependency bulkhead is taken
+ * Retryable, but not retried in place: the dependency is saturated, so the notification goes to the DLQ
+ * and is replayed once the dependency has free slots again
+ */
+public class BulkheadFullException extends RetryableNotificationException {
+
+    public BulkheadFullException(String message, String failureReason) {
+        super(message, failureReason);
+    }
+
+    public BulkheadFullException(String message, String failureReason, Throwable cause) {
+        super(message, failureReason, cause);
+    }
+}
@@ -3,8 +3,13 @@ package com.bookticket.notification_service.repository;
 import com.bookticket.notification_service.entity.FailedNotification;
 import com.bookticket.notification_service.enums.NotificationStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -24,5 +29,76 @@ public interface FailedNotificationRepository extends JpaRepository<FailedNotifi
      * Find all notifications with FAILED status (exhausted retries)
      */
     List<FailedNotification> findByStatus(NotificationStatus status);
+
+    /**
+     * Lock the next notifications due for replay, in due order
+     * Notifications being replayed are due again once their lease ran out, rows locked by another instance are skipped
+     */
+    @Query(value = """
+            SELECT * FROM failed_notifications
+            WHERE status IN ('PENDING', 'RETRYING')
+              AND next_retry_at <= :now
+            ORDER BY next_retry_at, id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED""", nativeQuery = true)
+    List<FailedNotification> lockDueNotifications(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * Notifications stored before next_retry_at existed, due right away
+     */
+    @Modifying
+    @Query("UPDATE FailedNotification n SET n.nextRetryAt = n.createdAt WHERE n.nextRetryAt IS NULL AND n.status = :status")
+    int scheduleUnscheduled(@Param("status") NotificationStatus status);
+
+    /**
+     * Hide notifications from other instances until the lease ends
+     */
+    @Modifying
+    @Query("UPDATE FailedNotification n SET n.status = :status, n.nextRetryAt = :leaseUntil WHERE n.id IN :ids")
+    int leaseNotifications(@Param("ids") Collection<Long> ids,
+                           @Param("status") NotificationStatus status,
+                           @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Modifying
+    @Query("UPDATE FailedNotification n SET n.status = :status, n.processedAt = :now, n.lastRetryAt = :now WHERE n.id IN :ids")
+    int markProcessed(@Param("ids") Collection<Long> ids,
+                      @Param("status") NotificationStatus status,
+                      @Param("now") LocalDateTime now);
+
+    /**
+     * Record a replay that can never succeed, the notifications are not replayed again
+     */
+    @Modifying
+    @Query("""
+            UPDATE FailedNotification n
+            SET n.status = :status, n.retryCount = n.retryCount + 1, n.lastRetryAt = :now,
+                n.failureReason = :failureReason, n.lastError = :error
+            WHERE n.id IN :ids""")
+    int markFailed(@Param("ids") Collection<Long> ids,
+                   @Param("status") NotificationStatus status,
+                   @Param("failureReason") String failureReason,
+                   @Param("error") String error,
+                   @Param("now") LocalDateTime now);
+
+    /**
+     * Count a failed replay and schedule the next one with exponential backoff
+     * Notifications reaching their max retries are marked as FAILED
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE failed_notifications
+            SET retry_count = retry_count + 1,
+                last_retry_at = :now,
+                failure_reason = :failureReason,
+                last_error = :error,
+                status = CASE WHEN retry_count + 1 >= max_retries THEN 'FAILED' ELSE 'PENDING' END,
+                next_retry_at = :now + make_interval(secs => LEAST(:maxBackoffSeconds, :baseBackoffSeconds * power(2, retry_count)))
+            WHERE id IN (:ids)""", nativeQuery = true)
+    int recordFailedRetries(@Param("ids") Collection<Long> ids,
+                            @Param("failureReason") String failureReason,
+                            @Param("error") String error,
+                            @Param("now") LocalDateTime now,
+                            @Param("baseBackoffSeconds") double baseBackoffSeconds,
+                            @Param("maxBackoffSeconds") double maxBackoffSeconds);
 }
 
@@ -3,28 +3,60 @@ package com.bookticket.notification_service.service;
 import com.bookticket.notification_service.dto.BookingFailedEvent;
 import com.bookticket.notification_service.dto.BookingSuccessEvent;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Service;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 @Service
 @Slf4j
 public class BookingListener {
+    public static final String BOOKING_SUCCESS_LISTENER_ID = "booking-success-listener";
+    public static final String BOOKING_FAILED_LISTENER_ID = "booking-failed-listener";
 
     private final NotificationOrchestrationService orchestrationService;
+    private final NotificationDispatcher notificationDispatcher;
 
-    public BookingListener(NotificationOrchestrationService orchestrationService) {
+    public BookingListener(NotificationOrchestrationService orchestrationService,
+                           NotificationDispatcher notificationDispatcher) {
         this.orchestrationService = orchestrationService;
+        this.notificationDispatcher = notificationDispatcher;
+    }
+
+    @KafkaListener(id = BOOKING_SUCCESS_LISTENER_ID, topics = "booking_success", groupId = "notification-group",
+            containerFactory = "batchKafkaListenerContainerFactory")
+    public void handleBookingSuccess(List<BookingSuccessEvent> bookingSuccessEvents,
+                                     @Header(KafkaHeaders.RECEIVED_TOPIC) List<String> topics,
+                                     @Header(KafkaHeaders.RECEIVED_PARTITION) List<Integer> partitions,
+                                     Acknowledgment acknowledgment) {
+        log.info("Received {} Kafka messages for successful bookings", bookingSuccessEvents.size());
+        // Offsets are acknowledged by the dispatcher once the notifications are done
+        notificationDispatcher.dispatch(BOOKING_SUCCESS_LISTENER_ID, bookingSuccessEvents,
+                topicPartitions(topics, partitions), acknowledgment, orchestrationService::processBookingSuccess);
     }
 
-    @KafkaListener(topics = "booking_success", groupId = "notification-group", containerFactory = "kafkaListenerContainerFactory")
-    public void handleBookingSuccess(BookingSuccessEvent bookingSuccessEvent) {
-        log.info("Received Kafka message for successful booking: {}", bookingSuccessEvent);
-        orchestrationService.processBookingSuccess(bookingSuccessEvent);
+    @KafkaListener(id = BOOKING_FAILED_LISTENER_ID, topics = "booking_failed", groupId = "notification-group",
+            containerFactory = "batchKafkaListenerContainerFactory")
+    public void handleBookingFailed(List<BookingFailedEvent> bookingFailedEvents,
+                                    @Header(KafkaHeaders.RECEIVED_TOPIC) List<String> topics,
+                                    @Header(KafkaHeaders.RECEIVED_PARTITION) List<Integer> partitions,
+                                    Acknowledgment acknowledgment) {
+        log.info("Received {} Kafka messages for failed bookings", bookingFailedEvents.size());
+        notificationDispatcher.dispatch(BOOKING_FAILED_LISTENER_ID, bookingFailedEvents,
+                topicPartitions(topics, partitions), acknowledgment, orchestrationService::processBookingFailure);
     }
 
-    @KafkaListener(topics = "booking_failed", groupId = "notification-group", containerFactory = "kafkaListenerContainerFactory")
-    public void handleBookingFailed(BookingFailedEvent bookingFailedEvent) {
-        log.info("Received Kafka message for failed booking: {}", bookingFailedEvent);
-        orchestrationService.processBookingFailure(bookingFailedEvent);
+    private static Set<TopicPartition> topicPartitions(List<String> topics, List<Integer> partitions) {
+        Set<TopicPartition> topicPartitions = new HashSet<>();
+        for (int i = 0; i < topics.size(); i++) {
+            topicPartitions.add(new TopicPartition(topics.get(i), partitions.get(i)));
+        }
+        return topicPartitions;
     }
 }
@@ -0,0 +1,74 @@
+package com.bookticket.notification_service.service;
+
+import com.bookticket.notification_service.configuration.NotificationDLQProperties;
+import com.bookticket.notification_service.exception.BulkheadFullException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Limits concurrent calls to each downstream dependency
+ * A slow or failing dependency only holds its own slots, so it cannot take every notification thread,
+ * and a DLQ backlog is replayed as fast as each dependency allows.
+ * Dependencies are named like the failure reasons stored in the DLQ.
+ * Live notifications do not wait for a slot, so a saturated dependency never holds the Kafka path up,
+ * the DLQ replay waits as it has no deadline.
+ */
+@Component
+@Slf4j
+public class DependencyBulkheads {
+    public static final String EMAIL_SERVICE = "EMAIL_SERVICE";
+    public static final String USER_SERVICE = "USER_SERVICE";
+    public static final String THEATER_SERVICE = "THEATER_SERVICE";
+    public static final String BOOKING_SERVICE = "BOOKING_SERVICE";
+
+    private final Map<String, Semaphore> bulkheads;
+    private final long liveWaitMs;
+    private final long replayWaitMs;
+
+    public DependencyBulkheads(NotificationDLQProperties dlqProperties) {
+        this.bulkheads = Map.of(
+                EMAIL_SERVICE, new Semaphore(dlqProperties.getEmailConcurrency()),
+                USER_SERVICE, new Semaphore(dlqProperties.getUserServiceConcurrency()),
+                THEATER_SERVICE, new Semaphore(dlqProperties.getTheaterServiceConcurrency()),
+                BOOKING_SERVICE, new Semaphore(dlqProperties.getBookingServiceConcurrency()));
+        this.liveWaitMs = dlqProperties.getLiveBulkheadWaitMs();
+        this.replayWaitMs = dlqProperties.getBulkheadWaitMs();
+    }
+
+    /**
+     * Call a dependency once one of its slots is free
+     *
+     * @param live true for live notifications, which only take a slot that is free right away
+     * @throws BulkheadFullException if no slot got free in time
+     */
+    public <T> T call(String dependency, boolean live, Supplier<T> call) {
+        Semaphore bulkhead = bulkheads.get(dependency);
+        long waitMs = live ? liveWaitMs : replayWaitMs;
+        try {
+            if (!bulkhead.tryAcquire(waitMs, TimeUnit.MILLISECONDS)) {
+                log.warn("Bulkhead of {} is full, rejecting {} call after {}ms", dependency, live ? "live" : "replay", waitMs);
+                throw new BulkheadFullException("Too many concurrent calls to " + dependency, dependency);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BulkheadFullException("Interrupted waiting for " + dependency, dependency, e);
+        }
+        try {
+            return call.get();
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    public void run(String dependency, boolean live, Runnable call) {
+        call(dependency, live, () -> {
+            call.run();
+            return null;
+        });
+    }
+}
@@ -1,91 +1,143 @@
 package com.bookticket.notification_service.service;
 
+import com.bookticket.notification_service.configuration.NotificationDLQProperties;
 import com.bookticket.notification_service.dto.BookingFailedEvent;
 import com.bookticket.notification_service.dto.BookingSuccessEvent;
 import com.bookticket.notification_service.entity.FailedNotification;
 import com.bookticket.notification_service.enums.NotificationType;
+import com.bookticket.notification_service.exception.NonRetryableNotificationException;
+import com.bookticket.notification_service.exception.RetryableNotificationException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Scheduled service to automatically retry failed notifications from Dead Letter Queue
- * Runs every 5 minutes to process pending notifications
+ * Due notifications are claimed in batches ordered by their next_retry_at and leased, so several
+ * instances share the work. The notifications of a batch are replayed concurrently, with the calls to
+ * each dependency limited by its bulkhead, and the results are written back in batched updates.
  */
 @Service
 @Slf4j
 public class NotificationDLQRetryScheduler {
-    
+
     private final NotificationDLQService dlqService;
     private final NotificationOrchestrationService orchestrationService;
-    
+    private final NotificationDLQProperties dlqProperties;
+    private final Executor notificationDLQExecutor;
+
     public NotificationDLQRetryScheduler(NotificationDLQService dlqService,
-                                        NotificationOrchestrationService orchestrationService) {
+                                        NotificationOrchestrationService orchestrationService,
+                                        NotificationDLQProperties dlqProperties,
+                                        @Qualifier("notificationDLQExecutor") Executor notificationDLQExecutor) {
         this.dlqService = dlqService;
         this.orchestrationService = orchestrationService;
+        this.dlqProperties = dlqProperties;
+        this.notificationDLQExecutor = notificationDLQExecutor;
     }
-    
+
     /**
-     * Scheduled job to retry failed notifications
-     * Runs every 5 minutes (300000 ms)
+     * Scheduled job to retry failed notifications that are due
      * Initial delay of 1 minute to allow application to fully start
      */
-    @Scheduled(fixedDelay = 300000, initialDelay = 60000)
+    @Scheduled(fixedDelayString = "${notification.dlq.poll-interval-ms:30000}", initialDelay = 60000)
     public void retryFailedNotifications() {
-        log.info("Starting notification DLQ retry job...");
-        
-        List<FailedNotification> pendingNotifications = dlqService.getPendingNotifications();
-        
-        if (pendingNotifications.isEmpty()) {
-            log.info("No pending notifications in DLQ to retry");
-            return;
+        int batchSize = dlqProperties.getBatchSize();
+        int processed = 0;
+        int failed = 0;
+        while (true) {
+            // Claimed notifications are leased or rescheduled, so the next claim returns the next ones
+            List<FailedNotification> batch = dlqService.claimDueNotifications(batchSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+            int batchProcessed = retryBatch(batch);
+            processed += batchProcessed;
+            failed += batch.size() - batchProcessed;
+            if (batch.size() < batchSize) {
+                break;
+            }
+        }
+
+        if (processed + failed > 0) {
+            log.info("Notification DLQ retry job completed: {} notifications processed, {} failed", processed, failed);
         }
-        
-        log.info("Found {} pending notifications in DLQ to retry", pendingNotifications.size());
-        
-        for (FailedNotification notification : pendingNotifications) {
-            try {
-                retryNotification(notification);
-            } catch (Exception e) {
-                log.error("Error retrying DLQ notification {}: {}", notification.getId(), e.getMessage(), e);
+    }
+
+    /**
+     * Replay the notifications of a batch concurrently and write the results back
+     *
+     * @return number of notifications successfully processed
+     */
+    private int retryBatch(List<FailedNotification> batch) {
+        List<CompletableFuture<ReplayFailure>> replays = batch.stream()
+                .map(notification -> CompletableFuture.supplyAsync(() -> retryNotification(notification), notificationDLQExecutor))
+                .toList();
+
+        List<Long> processedIds = new ArrayList<>();
+        // Failures are written back per dependency, not per error message, which may differ for every notification
+        // The group keeps the error of its first failure, the error of each notification is in the log of its replay
+        Map<FailureGroup, List<Long>> failedIds = new HashMap<>();
+        Map<FailureGroup, String> groupErrors = new HashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            ReplayFailure failure = replays.get(i).join();
+            if (failure == null) {
+                processedIds.add(batch.get(i).getId());
+            } else {
+                FailureGroup group = new FailureGroup(failure.failureReason(), failure.retryable());
+                failedIds.computeIfAbsent(group, g -> new ArrayList<>()).add(batch.get(i).getId());
+                groupErrors.putIfAbsent(group, failure.error());
             }
         }
-        
-        log.info("Notification DLQ retry job completed");
+
+        dlqService.markAsProcessed(processedIds);
+        failedIds.forEach((group, ids) ->
+                dlqService.recordFailedRetries(ids, group.failureReason(), groupErrors.get(group), group.retryable()));
+        return processedIds.size();
     }
-    
+
     /**
      * Retry a single failed notification
+     *
+     * @return null if the notification was sent, the failure otherwise
      */
-    private void retryNotification(FailedNotification notification) {
+    private ReplayFailure retryNotification(FailedNotification notification) {
         log.info("Retrying DLQ notification {} (type: {}, booking: {}, attempt: {}/{})",
-                notification.getId(), notification.getNotificationType(), notification.getBookingId(), 
+                notification.getId(), notification.getNotificationType(), notification.getBookingId(),
                 notification.getRetryCount() + 1, notification.getMaxRetries());
-        
+
         try {
             if (notification.getNotificationType() == NotificationType.BOOKING_SUCCESS) {
                 retryBookingSuccessNotification(notification);
             } else if (notification.getNotificationType() == NotificationType.BOOKING_FAILED) {
                 retryBookingFailureNotification(notification);
             }
-            
-            // If successful, mark as processed
-            dlqService.markAsProcessed(notification.getId());
             log.info("Successfully processed DLQ notification {}", notification.getId());
-            
+            return null;
+
+        } catch (RetryableNotificationException e) {
+            log.error("Failed to retry DLQ notification {}: {}", notification.getId(), e.getMessage());
+            return new ReplayFailure(e.getFailureReason(), e.getMessage(), true);
+        } catch (NonRetryableNotificationException e) {
+            log.error("DLQ notification {} can not be sent: {}", notification.getId(), e.getMessage());
+            return new ReplayFailure(e.getFailureReason(), e.getMessage(), false);
         } catch (Exception e) {
-            // Increment retry count and update error
-            dlqService.incrementRetryCount(notification.getId(), e.getMessage());
             log.error("Failed to retry DLQ notification {}: {}", notification.getId(), e.getMessage());
+            return new ReplayFailure(notification.getFailureReason(), e.getMessage(), true);
         }
     }
-    
+
     /**
      * Retry booking success notification
-     * Note: This will NOT use the @Retryable mechanism as it's called directly
-     * The orchestration service will handle the retry logic
+     * Sent synchronously without the @Retryable mechanism, the DLQ schedules the next attempt itself
      */
     private void retryBookingSuccessNotification(FailedNotification notification) {
         BookingSuccessEvent successEvent = new BookingSuccessEvent(
@@ -94,13 +146,9 @@ public class NotificationDLQRetryScheduler {
                 notification.getShowId(),
                 notification.getTotalAmount()
         );
-        
-        // Call the orchestration service directly
-        // Note: Since this is called from scheduler, it won't be async
-        // We need to call it synchronously to catch exceptions
-        orchestrationService.processBookingSuccess(successEvent);
+        orchestrationService.deliverBookingSuccess(successEvent);
     }
-    
+
     /**
      * Retry booking failure notification
      */
@@ -112,9 +160,12 @@ public class NotificationDLQRetryScheduler {
                 notification.getTotalAmount(),
                 notification.getReason()
         );
-        
-        // Call the orchestration service directly
-        orchestrationService.processBookingFailure(failedEvent);
+        orchestrationService.deliverBookingFailure(failedEvent);
+    }
+
+    private record ReplayFailure(String failureReason, String error, boolean retryable) {
     }
-}
 
+    private record FailureGroup(String failureReason, boolean retryable) {
+    }
+}
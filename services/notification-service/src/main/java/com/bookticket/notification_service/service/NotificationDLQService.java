@@ -1,5 +1,6 @@
 package com.bookticket.notification_service.service;
 
+import com.bookticket.notification_service.configuration.NotificationDLQProperties;
 import com.bookticket.notification_service.entity.FailedNotification;
 import com.bookticket.notification_service.enums.NotificationStatus;
 import com.bookticket.notification_service.enums.NotificationType;
@@ -10,6 +11,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Service to manage Dead Letter Queue (DLQ) for failed notifications
@@ -20,9 +22,12 @@ import java.util.List;
 public class NotificationDLQService {
     
     private final FailedNotificationRepository failedNotificationRepository;
+    private final NotificationDLQProperties dlqProperties;
     
-    public NotificationDLQService(FailedNotificationRepository failedNotificationRepository) {
+    public NotificationDLQService(FailedNotificationRepository failedNotificationRepository,
+                                  NotificationDLQProperties dlqProperties) {
         this.failedNotificationRepository = failedNotificationRepository;
+        this.dlqProperties = dlqProperties;
     }
     
     /**
@@ -175,23 +180,53 @@ public class NotificationDLQService {
     }
     
     /**
-     * Increment retry count and update last error
+     * Claim the notifications due for replay and lease them to this instance
+     * Leased notifications are skipped by other instances until they are written back or the lease ends
      */
     @Transactional
-    public void incrementRetryCount(Long notificationId, String errorMessage) {
-        failedNotificationRepository.findById(notificationId).ifPresent(notification -> {
-            notification.setRetryCount(notification.getRetryCount() + 1);
-            notification.setLastRetryAt(LocalDateTime.now());
-            notification.setLastError(truncateError(errorMessage));
-            
-            // If max retries reached, mark as FAILED
-            if (notification.getRetryCount() >= notification.getMaxRetries()) {
-                notification.setStatus(NotificationStatus.FAILED);
-                log.error("DLQ notification {} has exhausted all retries. Marking as FAILED", notificationId);
-            }
-            
-            failedNotificationRepository.save(notification);
-        });
+    public List<FailedNotification> claimDueNotifications(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        failedNotificationRepository.scheduleUnscheduled(NotificationStatus.PENDING);
+        List<FailedNotification> notifications = failedNotificationRepository.lockDueNotifications(now, limit);
+        if (!notifications.isEmpty()) {
+            failedNotificationRepository.leaseNotifications(
+                    notifications.stream().map(FailedNotification::getId).toList(), NotificationStatus.RETRYING,
+                    now.plusNanos(TimeUnit.MILLISECONDS.toNanos(dlqProperties.getLeaseMs())));
+        }
+        return notifications;
+    }
+    
+    /**
+     * Mark replayed notifications as successfully processed
+     */
+    @Transactional
+    public void markAsProcessed(List<Long> notificationIds) {
+        if (notificationIds.isEmpty()) {
+            return;
+        }
+        int updated = failedNotificationRepository.markProcessed(notificationIds, NotificationStatus.PROCESSED, LocalDateTime.now());
+        log.info("Marked {} DLQ notifications as PROCESSED", updated);
+    }
+    
+    /**
+     * Record replays that failed on the same dependency, with the error of one of them
+     *
+     * @param retryable false if the notifications can never be sent and must not be replayed again
+     */
+    @Transactional
+    public void recordFailedRetries(List<Long> notificationIds, String failureReason, String errorMessage, boolean retryable) {
+        if (notificationIds.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (!retryable) {
+            failedNotificationRepository.markFailed(notificationIds, NotificationStatus.FAILED, failureReason,
+                    truncateError(errorMessage), now);
+            log.error("{} DLQ notifications failed permanently ({}). Marking as FAILED", notificationIds.size(), failureReason);
+            return;
+        }
+        failedNotificationRepository.recordFailedRetries(notificationIds, failureReason, truncateError(errorMessage), now,
+                dlqProperties.getBaseBackoffMs() / 1000.0, dlqProperties.getMaxBackoffMs() / 1000.0);
     }
     
     /**
@@ -0,0 +1,155 @@
+package com.bookticket.notification_service.service;
+
+import com.bookticket.notification_service.configuration.NotificationKafkaProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Runs batches of booking events through the notification executor without blocking the Kafka consumer threads.
+ * The partitions of a batch are paused when it is handed over and resumed once every event of it is done,
+ * only then its offsets are acknowledged, so a consumer holds at most one batch and keeps polling meanwhile.
+ * In-flight notifications are bounded across consumers: events that find no free slot wait in the batch
+ * and are started as earlier notifications finish.
+ */
+@Service
+@Slf4j
+public class NotificationDispatcher {
+
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final NotificationKafkaProperties kafkaProperties;
+    private final Semaphore inFlight;
+    // Batches with events not started yet, in arrival order
+    private final Queue<Batch<?>> waiting = new ArrayDeque<>();
+
+    public NotificationDispatcher(KafkaListenerEndpointRegistry listenerRegistry,
+                                  NotificationKafkaProperties kafkaProperties) {
+        this.listenerRegistry = listenerRegistry;
+        this.kafkaProperties = kafkaProperties;
+        this.inFlight = new Semaphore(kafkaProperties.getMaxInFlight());
+    }
+
+    /**
+     * Hand over a polled batch and return right away
+     * Failed notifications are already stored in DLQ by the handler, so they don't fail the batch
+     *
+     * @param listenerId     listener that polled the batch
+     * @param events         events of the polled batch
+     * @param partitions     partitions the batch was polled from
+     * @param acknowledgment acknowledged once every event of the batch is done
+     * @param handler        async notification handler
+     */
+    public <T> void dispatch(String listenerId, List<T> events, Collection<TopicPartition> partitions,
+                             Acknowledgment acknowledgment, Function<T, CompletableFuture<Void>> handler) {
+        if (events.isEmpty()) {
+            acknowledgment.acknowledge();
+            return;
+        }
+        MessageListenerContainer container = listenerRegistry.getListenerContainer(listenerId);
+        // Takes effect before the next poll, the consumer keeps polling and committing while paused
+        if (container != null) {
+            partitions.forEach(container::pausePartition);
+        }
+
+        synchronized (waiting) {
+            waiting.add(new Batch<>(new ArrayDeque<>(events), handler, acknowledgment, container, partitions));
+        }
+        startWaiting();
+    }
+
+    /**
+     * Start waiting events while in-flight slots are free
+     */
+    private void startWaiting() {
+        while (inFlight.tryAcquire()) {
+            Batch<?> batch;
+            synchronized (waiting) {
+                batch = waiting.peek();
+                if (batch == null) {
+                    inFlight.release();
+                    return;
+                }
+                if (!batch.hasNext()) {
+                    waiting.remove();
+                    inFlight.release();
+                    continue;
+                }
+                batch.started.incrementAndGet();
+            }
+            batch.startNext();
+        }
+        if (log.isDebugEnabled() && inFlight.availablePermits() == 0) {
+            log.debug("Notification executor saturated ({} in flight), waiting events start as slots free up",
+                    kafkaProperties.getMaxInFlight());
+        }
+    }
+
+    private void onComplete(Batch<?> batch) {
+        inFlight.release();
+        if (batch.completed.incrementAndGet() == batch.size) {
+            batch.acknowledgment.acknowledge();
+            if (batch.container != null) {
+                batch.partitions.forEach(batch.container::resumePartition);
+            }
+        }
+        startWaiting();
+    }
+
+    private final class Batch<T> {
+        private final Deque<T> events;
+        private final Function<T, CompletableFuture<Void>> handler;
+        private final Acknowledgment acknowledgment;
+        private final MessageListenerContainer container;
+        private final Collection<TopicPartition> partitions;
+        private final int size;
+        private final AtomicInteger started = new AtomicInteger();
+        private final AtomicInteger completed = new AtomicInteger();
+
+        private Batch(Deque<T> events, Function<T, CompletableFuture<Void>> handler, Acknowledgment acknowledgment,
+                      MessageListenerContainer container, Collection<TopicPartition> partitions) {
+            this.events = events;
+            this.handler = handler;
+            this.acknowledgment = acknowledgment;
+            this.container = container;
+            this.partitions = partitions;
+            this.size = events.size();
+        }
+
+        // Called while holding the waiting queue
+        private boolean hasNext() {
+            return started.get() < size;
+        }
+
+        private void startNext() {
+            T event;
+            synchronized (waiting) {
+                event = events.poll();
+            }
+            CompletableFuture<Void> future;
+            try {
+                future = handler.apply(event);
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            future.whenComplete((result, e) -> {
+                if (e != null) {
+                    log.error("Notification failed for event {}: {}", event, e.getMessage());
+                }
+                onComplete(this);
+            });
+        }
+    }
+}
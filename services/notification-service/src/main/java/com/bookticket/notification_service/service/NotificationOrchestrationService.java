@@ -6,6 +6,7 @@ import com.bookticket.notification_service.dto.SeatDetails;
 import com.bookticket.notification_service.dto.ShowDetails;
 import com.bookticket.notification_service.dto.TicketDetails;
 import com.bookticket.notification_service.enums.NotificationType;
+import com.bookticket.notification_service.exception.BulkheadFullException;
 import com.bookticket.notification_service.exception.NonRetryableNotificationException;
 import com.bookticket.notification_service.exception.RetryableNotificationException;
 import com.bookticket.notification_service.security.UserContext;
@@ -21,6 +22,7 @@ import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClientException;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @Slf4j
@@ -33,11 +35,13 @@ public class NotificationOrchestrationService {
     private final BookingService bookingService;
     private final EmailTemplateService emailTemplateService;
     private final NotificationDLQService dlqService;
+    private final DependencyBulkheads bulkheads;
 
     public NotificationOrchestrationService(EmailService emailService, PdfService pdfService, UserService userService,
                                             TheaterService theaterService, BookingService bookingService,
                                             EmailTemplateService emailTemplateService,
-                                            NotificationDLQService dlqService) {
+                                            NotificationDLQService dlqService,
+                                            DependencyBulkheads bulkheads) {
         this.emailService = emailService;
         this.pdfService = pdfService;
         this.userService = userService;
@@ -45,36 +49,60 @@ public class NotificationOrchestrationService {
         this.bookingService = bookingService;
         this.emailTemplateService = emailTemplateService;
         this.dlqService = dlqService;
+        this.bulkheads = bulkheads;
     }
 
     /**
      * Process booking success notification with retry mechanism
      * Retries 3 times with exponential backoff (1s, 2s, 4s) for retryable errors
      * Excludes 4xx client errors (404, 403) from retry as they won't succeed
+     * A saturated dependency is not waited for or retried in place, the notification goes to the DLQ right away
      * If all retries fail, stores in Dead Letter Queue
+     * The returned future completes once the notification is sent or stored in DLQ
      */
     @Async("notificationExecutor")
     @Retryable(
         retryFor = {RetryableNotificationException.class},
-        noRetryFor = {NonRetryableNotificationException.class},
+        noRetryFor = {NonRetryableNotificationException.class, BulkheadFullException.class},
         maxAttempts = 3,
         backoff = @Backoff(delay = 1000, multiplier = 2)
     )
-    public void processBookingSuccess(BookingSuccessEvent bookingSuccessEvent) {
-        log.info("Processing successful booking for user: {}", bookingSuccessEvent.userId());
+    public CompletableFuture<Void> processBookingSuccess(BookingSuccessEvent bookingSuccessEvent) {
+        deliverBookingSuccess(bookingSuccessEvent, true);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Send the booking success notification once, on the calling thread
+     * Used by the DLQ replay, which schedules its own retries
+     *
+     * @throws RetryableNotificationException if a dependency failed with a transient error
+     * @throws NonRetryableNotificationException if the notification can never be sent
+     */
+    public void deliverBookingSuccess(BookingSuccessEvent bookingSuccessEvent) {
+        deliverBookingSuccess(bookingSuccessEvent, false);
+    }
+
+    private void deliverBookingSuccess(BookingSuccessEvent bookingSuccessEvent, boolean live) {
+        log.info("Processing successful booking for user: {} (event version {})",
+                bookingSuccessEvent.userId(), bookingSuccessEvent.eventVersion());
 
         TicketDetails ticketDetails;
         try {
             UserContext.setUserId(bookingSuccessEvent.userId());
 
-            // Fetch user email with proper error handling
-            String userEmail = fetchUserEmail(bookingSuccessEvent.userId());
+            // Enriched events carry the ticket details, only fetch what is missing (old-format events)
+            String userEmail = bookingSuccessEvent.userEmail() != null
+                    ? bookingSuccessEvent.userEmail()
+                    : fetchUserEmail(bookingSuccessEvent.userId(), live);
 
-            // Fetch show details with proper error handling
-            ShowDetails showDetails = fetchShowDetails(bookingSuccessEvent.showId());
+            ShowDetails showDetails = bookingSuccessEvent.show() != null
+                    ? bookingSuccessEvent.show()
+                    : fetchShowDetails(bookingSuccessEvent.showId(), live);
 
-            // Fetch seat details with proper error handling
-            List<SeatDetails> seatDetails = fetchSeatDetails(bookingSuccessEvent.bookingId());
+            List<SeatDetails> seatDetails = bookingSuccessEvent.seats() != null && !bookingSuccessEvent.seats().isEmpty()
+                    ? bookingSuccessEvent.seats()
+                    : fetchSeatDetails(bookingSuccessEvent.bookingId(), live);
 
             ticketDetails = new TicketDetails(
                 bookingSuccessEvent.bookingId(),
@@ -99,14 +127,17 @@ public class NotificationOrchestrationService {
         try {
             byte[] pdfBytes = pdfService.generateTicketPdf(ticketDetails);
             String htmlBody = emailTemplateService.generateBookingSuccessEmail(ticketDetails);
-            emailService.sendEmailWithAttachment(
+            bulkheads.run(DependencyBulkheads.EMAIL_SERVICE, live, () -> emailService.sendEmailWithAttachment(
                     ticketDetails.emailId(),
                     "🎉 Booking Confirmed - Your Tickets are Ready!",
                     htmlBody,
                     "ticket.pdf",
                     pdfBytes
-            );
+            ));
             log.info("Successfully sent ticket to: {}", ticketDetails.emailId());
+        } catch (BulkheadFullException e) {
+            log.error("Email service saturated, booking {}: {}", bookingSuccessEvent.bookingId(), e.getMessage());
+            throw e; // Re-throw, goes to DLQ without retry
         } catch (Exception e) {
             log.error("Failed to send email for booking {}: {}", bookingSuccessEvent.bookingId(), e.getMessage());
             throw new RetryableNotificationException(
@@ -123,7 +154,7 @@ public class NotificationOrchestrationService {
      * Stores the failed notification in DLQ
      */
     @Recover
-    public void recoverBookingSuccess(RetryableNotificationException e, BookingSuccessEvent bookingSuccessEvent) {
+    public CompletableFuture<Void> recoverBookingSuccess(RetryableNotificationException e, BookingSuccessEvent bookingSuccessEvent) {
         log.error("All retry attempts exhausted for booking success notification, booking {}: {}",
                 bookingSuccessEvent.bookingId(), e.getMessage());
 
@@ -137,6 +168,7 @@ public class NotificationOrchestrationService {
         );
 
         log.warn("Booking success notification stored in DLQ for booking {}", bookingSuccessEvent.bookingId());
+        return CompletableFuture.completedFuture(null);
     }
 
     /**
@@ -145,7 +177,7 @@ public class NotificationOrchestrationService {
      * This provides visibility and monitoring for permanent failures like 404, 403
      */
     @Recover
-    public void recoverBookingSuccessNonRetryable(NonRetryableNotificationException e, BookingSuccessEvent bookingSuccessEvent) {
+    public CompletableFuture<Void> recoverBookingSuccessNonRetryable(NonRetryableNotificationException e, BookingSuccessEvent bookingSuccessEvent) {
         log.error("Non-retryable error for booking success notification, booking {}: {}. Storing in DLQ as FAILED.",
                 bookingSuccessEvent.bookingId(), e.getMessage());
 
@@ -162,22 +194,41 @@ public class NotificationOrchestrationService {
         );
 
         log.warn("Non-retryable notification stored in DLQ as FAILED for booking {}", bookingSuccessEvent.bookingId());
+        return CompletableFuture.completedFuture(null);
     }
 
     /**
      * Process booking failure notification with retry mechanism
      * Retries 3 times with exponential backoff (1s, 2s, 4s) for retryable errors
      * Excludes 4xx client errors (404, 403) from retry as they won't succeed
+     * A saturated dependency is not waited for or retried in place, the notification goes to the DLQ right away
      * If all retries fail, stores in Dead Letter Queue
+     * The returned future completes once the notification is sent or stored in DLQ
      */
     @Async("notificationExecutor")
     @Retryable(
         retryFor = {RetryableNotificationException.class},
-        noRetryFor = {NonRetryableNotificationException.class},
+        noRetryFor = {NonRetryableNotificationException.class, BulkheadFullException.class},
         maxAttempts = 3,
         backoff = @Backoff(delay = 1000, multiplier = 2)
     )
-    public void processBookingFailure(BookingFailedEvent bookingFailedEvent) {
+    public CompletableFuture<Void> processBookingFailure(BookingFailedEvent bookingFailedEvent) {
+        deliverBookingFailure(bookingFailedEvent, true);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Send the booking failure notification once, on the calling thread
+     * Used by the DLQ replay, which schedules its own retries
+     *
+     * @throws RetryableNotificationException if a dependency failed with a transient error
+     * @throws NonRetryableNotificationException if the notification can never be sent
+     */
+    public void deliverBookingFailure(BookingFailedEvent bookingFailedEvent) {
+        deliverBookingFailure(bookingFailedEvent, false);
+    }
+
+    private void deliverBookingFailure(BookingFailedEvent bookingFailedEvent, boolean live) {
         log.info("Processing failed booking for user: {}", bookingFailedEvent.userId());
         String userEmail = null;
 
@@ -185,7 +236,7 @@ public class NotificationOrchestrationService {
             UserContext.setUserId(bookingFailedEvent.userId());
 
             // Fetch user email with proper error handling
-            userEmail = fetchUserEmail(bookingFailedEvent.userId());
+            userEmail = fetchUserEmail(bookingFailedEvent.userId(), live);
 
             String htmlBody = emailTemplateService.generateBookingFailureEmail(
                     "Valued Customer",
@@ -193,7 +244,9 @@ public class NotificationOrchestrationService {
                     bookingFailedEvent.reason()
             );
 
-            emailService.sendHtmlEmail(userEmail, "❌ Booking Unsuccessful - Please Try Again", htmlBody);
+            String recipient = userEmail;
+            bulkheads.run(DependencyBulkheads.EMAIL_SERVICE, live,
+                    () -> emailService.sendHtmlEmail(recipient, "❌ Booking Unsuccessful - Please Try Again", htmlBody));
             log.info("Successfully sent failure notification to: {}", userEmail);
 
         } catch (RetryableNotificationException e) {
@@ -223,7 +276,7 @@ public class NotificationOrchestrationService {
      * Stores the failed notification in DLQ
      */
     @Recover
-    public void recoverBookingFailure(RetryableNotificationException e, BookingFailedEvent bookingFailedEvent) {
+    public CompletableFuture<Void> recoverBookingFailure(RetryableNotificationException e, BookingFailedEvent bookingFailedEvent) {
         log.error("All retry attempts exhausted for booking failure notification, booking {}: {}",
                 bookingFailedEvent.bookingId(), e.getMessage());
 
@@ -238,6 +291,7 @@ public class NotificationOrchestrationService {
         );
 
         log.warn("Booking failure notification stored in DLQ for booking {}", bookingFailedEvent.bookingId());
+        return CompletableFuture.completedFuture(null);
     }
 
     /**
@@ -246,7 +300,7 @@ public class NotificationOrchestrationService {
      * This provides visibility and monitoring for permanent failures like 404, 403
      */
     @Recover
-    public void recoverBookingFailureNonRetryable(NonRetryableNotificationException e, BookingFailedEvent bookingFailedEvent) {
+    public CompletableFuture<Void> recoverBookingFailureNonRetryable(NonRetryableNotificationException e, BookingFailedEvent bookingFailedEvent) {
         log.error("Non-retryable error for booking failure notification, booking {}: {}. Storing in DLQ as FAILED.",
                 bookingFailedEvent.bookingId(), e.getMessage());
 
@@ -263,15 +317,16 @@ public class NotificationOrchestrationService {
         );
 
         log.warn("Non-retryable notification stored in DLQ as FAILED for booking {}", bookingFailedEvent.bookingId());
+        return CompletableFuture.completedFuture(null);
     }
 
     /**
      * Fetch user email with proper error handling
      * Distinguishes between retryable (5xx, network) and non-retryable (4xx) errors
      */
-    private String fetchUserEmail(Long userId) {
+    private String fetchUserEmail(Long userId, boolean live) {
         try {
-            return userService.getEmailById(userId);
+            return bulkheads.call(DependencyBulkheads.USER_SERVICE, live, () -> userService.getEmailById(userId));
         } catch (HttpClientErrorException e) {
             // 4xx errors - client errors, don't retry
             log.error("Client error fetching user email for user {}: {} {}",
@@ -311,9 +366,9 @@ public class NotificationOrchestrationService {
     /**
      * Fetch show details with proper error handling
      */
-    private ShowDetails fetchShowDetails(Long showId) {
+    private ShowDetails fetchShowDetails(Long showId, boolean live) {
         try {
-            return theaterService.getShowDetails(showId);
+            return bulkheads.call(DependencyBulkheads.THEATER_SERVICE, live, () -> theaterService.getShowDetails(showId));
         } catch (HttpClientErrorException e) {
             log.error("Client error fetching show details for show {}: {} {}",
                     showId, e.getStatusCode(), e.getMessage());
@@ -349,9 +404,9 @@ public class NotificationOrchestrationService {
     /**
      * Fetch seat details with proper error handling
      */
-    private List<SeatDetails> fetchSeatDetails(Long bookingId) {
+    private List<SeatDetails> fetchSeatDetails(Long bookingId, boolean live) {
         try {
-            return bookingService.getSeatDetails(bookingId);
+            return bulkheads.call(DependencyBulkheads.BOOKING_SERVICE, live, () -> bookingService.getSeatDetails(bookingId));
         } catch (HttpClientErrorException e) {
             log.error("Client error fetching seat details for booking {}: {} {}",
                     bookingId, e.getStatusCode(), e.getMessage());
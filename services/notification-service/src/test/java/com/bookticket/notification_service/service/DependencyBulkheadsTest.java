@@ -0,0 +1,76 @@
+package com.bookticket.notification_service.service;
+
+import com.bookticket.notification_service.configuration.NotificationDLQProperties;
+import com.bookticket.notification_service.exception.BulkheadFullException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DependencyBulkheadsTest {
+
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private DependencyBulkheads bulkheads;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        NotificationDLQProperties properties = new NotificationDLQProperties();
+        properties.setEmailConcurrency(1);
+        properties.setBulkheadWaitMs(5000);
+        bulkheads = new DependencyBulkheads(properties);
+
+        // A slow send holds the only email slot
+        CountDownLatch holding = new CountDownLatch(1);
+        callers.submit(() -> bulkheads.run(DependencyBulkheads.EMAIL_SERVICE, false, () -> {
+            holding.countDown();
+            await(release);
+        }));
+        assertThat(holding.await(2, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void liveCallIsRejectedRightAwayWhenTheDependencyIsSaturated() {
+        long start = System.nanoTime();
+
+        assertThatThrownBy(() -> bulkheads.call(DependencyBulkheads.EMAIL_SERVICE, true, () -> "sent"))
+                .isInstanceOfSatisfying(BulkheadFullException.class,
+                        e -> assertThat(e.getFailureReason()).isEqualTo(DependencyBulkheads.EMAIL_SERVICE));
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+        // Other dependencies keep their own slots
+        assertThat(bulkheads.call(DependencyBulkheads.USER_SERVICE, true, () -> "user@bookticket.com"))
+                .isEqualTo("user@bookticket.com");
+    }
+
+    @Test
+    void replayWaitsForAFreeSlot() throws Exception {
+        Future<String> replay = callers.submit(() -> bulkheads.call(DependencyBulkheads.EMAIL_SERVICE, false, () -> "sent"));
+        Thread.sleep(100);
+        assertThat(replay).isNotDone();
+
+        release.countDown();
+        assertThat(replay.get(5, TimeUnit.SECONDS)).isEqualTo("sent");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.bookticket.notification_service.service;
+
+import com.bookticket.notification_service.configuration.NotificationKafkaProperties;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class NotificationDispatcherTest {
+
+    private static final String LISTENER_ID = "booking-success-listener";
+    private static final TopicPartition PARTITION = new TopicPartition("booking_success", 0);
+
+    private MessageListenerContainer container;
+    private NotificationDispatcher dispatcher;
+    private final List<String> started = new ArrayList<>();
+    private final List<CompletableFuture<Void>> running = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        KafkaListenerEndpointRegistry registry = mock(KafkaListenerEndpointRegistry.class);
+        container = mock(MessageListenerContainer.class);
+        when(registry.getListenerContainer(LISTENER_ID)).thenReturn(container);
+        NotificationKafkaProperties properties = new NotificationKafkaProperties();
+        properties.setMaxInFlight(2);
+        dispatcher = new NotificationDispatcher(registry, properties);
+    }
+
+    @Test
+    void saturatedDispatchReturnsWithoutBlockingAndAcksOnceAllEventsAreDone() {
+        Acknowledgment acknowledgment = mock(Acknowledgment.class);
+
+        dispatcher.dispatch(LISTENER_ID, List.of("e1", "e2", "e3", "e4", "e5"), Set.of(PARTITION),
+                acknowledgment, this::handle);
+
+        // Only as many notifications as there are slots are started, the consumer thread is already back
+        assertThat(started).containsExactly("e1", "e2");
+        verify(container).pausePartition(PARTITION);
+        verify(acknowledgment, never()).acknowledge();
+
+        running.get(0).complete(null);
+        assertThat(started).containsExactly("e1", "e2", "e3");
+        // A failed notification is in DLQ already and frees its slot like a successful one
+        running.get(1).completeExceptionally(new IllegalStateException("SMTP down"));
+        assertThat(started).containsExactly("e1", "e2", "e3", "e4");
+        running.get(2).complete(null);
+        running.get(3).complete(null);
+        assertThat(started).containsExactly("e1", "e2", "e3", "e4", "e5");
+        verify(acknowledgment, never()).acknowledge();
+        verify(container, never()).resumePartition(PARTITION);
+
+        running.get(4).complete(null);
+        verify(acknowledgment).acknowledge();
+        verify(container).resumePartition(PARTITION);
+    }
+
+    @Test
+    void batchesWaitingForSlotsStartInArrivalOrder() {
+        Acknowledgment first = mock(Acknowledgment.class);
+        Acknowledgment second = mock(Acknowledgment.class);
+        TopicPartition otherPartition = new TopicPartition("booking_success", 1);
+
+        dispatcher.dispatch(LISTENER_ID, List.of("a1", "a2"), Set.of(PARTITION), first, this::handle);
+        dispatcher.dispatch(LISTENER_ID, List.of("b1"), Set.of(otherPartition), second, this::handle);
+        assertThat(started).containsExactly("a1", "a2");
+
+        running.get(0).complete(null);
+        running.get(1).complete(null);
+        verify(first).acknowledge();
+        verify(container).resumePartition(PARTITION);
+        assertThat(started).containsExactly("a1", "a2", "b1");
+        verify(second, never()).acknowledge();
+
+        running.get(2).complete(null);
+        verify(second).acknowledge();
+        verify(container).resumePartition(otherPartition);
+    }
+
+    @Test
+    void handlerThrowingSynchronouslyStillCompletesTheBatch() {
+        Acknowledgment acknowledgment = mock(Acknowledgment.class);
+
+        dispatcher.dispatch(LISTENER_ID, List.of("e1"), Set.of(PARTITION), acknowledgment, event -> {
+            throw new IllegalStateException("executor rejected");
+        });
+
+        verify(acknowledgment).acknowledge();
+        verify(container).resumePartition(PARTITION);
+    }
+
+    @Test
+    void emptyBatchIsAcknowledgedRightAway() {
+        Acknowledgment acknowledgment = mock(Acknowledgment.class);
+
+        dispatcher.dispatch(LISTENER_ID, List.of(), Set.of(PARTITION), acknowledgment, this::handle);
+
+        verify(acknowledgment).acknowledge();
+        verifyNoInteractions(container);
+    }
+
+    private CompletableFuture<Void> handle(String event) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        started.add(event);
+        running.add(future);
+        return future;
+    }
+}
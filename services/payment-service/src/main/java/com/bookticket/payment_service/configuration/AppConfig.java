@@ -0,0 +1,44 @@
+package com.bookticket.payment_service.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.client.RestClient;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class AppConfig {
+
+    @Bean
+    @LoadBalanced
+    public RestClient.Builder loadBalancedRestClientBuilder() {
+        return RestClient.builder();
+    }
+
+    /**
+     * Bounded pool for Stripe expire calls, the scheduler thread runs calls itself when it is saturated
+     */
+    @Bean("stripeExpiryExecutor")
+    public Executor stripeExpiryExecutor(PaymentExpiryConfig paymentExpiryConfig) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(paymentExpiryConfig.getParallelism());
+        executor.setMaxPoolSize(paymentExpiryConfig.getParallelism());
+        executor.setQueueCapacity(paymentExpiryConfig.getBatchSize());
+        executor.setThreadNamePrefix("stripe-expiry-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean("bookingRestClient")
+    public RestClient bookingRestClient(RestClient.Builder loadBalancedRestClientBuilder,
+                                        @Value("${services.booking-url:lb://booking-service}") String bookingUrl) {
+        return loadBalancedRestClientBuilder
+                .baseUrl(bookingUrl)
+                .build();
+    }
+}
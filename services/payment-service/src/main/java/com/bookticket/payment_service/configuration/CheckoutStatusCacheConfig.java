@@ -0,0 +1,15 @@
+package com.bookticket.payment_service.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "payment.verify-cache")
+@Getter
+@Setter
+public class CheckoutStatusCacheConfig {
+    private long pendingTtlMs = 300;      // Time a pending status is served before the gateway is asked again
+    private long maxEntries = 100_000;    // Sessions kept, completed and failed ones stay until evicted by size
+}
@@ -0,0 +1,25 @@
+package com.bookticket.payment_service.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Behaviour of the in-process gateway used for load tests (payment.gateway.type=fake)
+ */
+@Configuration
+@ConfigurationProperties(prefix = "payment.gateway.fake")
+@Getter
+@Setter
+public class FakeGatewayConfig {
+    private long latencyMs = 150;           // Added to every gateway call, like a Stripe round trip
+    private long latencyJitterMs = 100;     // Random extra latency, up to this value
+    private double failureRate = 0.0;       // Share of create calls failing with a gateway error
+    private double declineRate = 0.05;      // Share of sessions ending with a failed payment
+    private double abandonRate = 0.05;      // Share of sessions never paid, left for the expiry job
+    private long completionDelayMs = 2000;  // Time the customer spends on the checkout page
+    private long completionJitterMs = 1000; // Random extra checkout time, up to this value
+    private int completionThreads = 4;      // Threads delivering session outcomes
+    private int retentionMinutes = 60;      // Time finished sessions stay retrievable
+}
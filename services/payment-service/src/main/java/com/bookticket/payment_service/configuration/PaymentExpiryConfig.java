@@ -0,0 +1,15 @@
+package com.bookticket.payment_service.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "payment.expiry")
+@Getter
+@Setter
+public class PaymentExpiryConfig {
+    private int batchSize = 100;  // Expired payments loaded and committed per chunk
+    private int parallelism = 8;  // Concurrent Stripe expire calls
+}
@@ -31,6 +31,7 @@ public class SecurityConfig {
                 .authorizeHttpRequests(requests -> requests
                         .requestMatchers("/actuator/**").permitAll()
                         .requestMatchers("v3/api-docs/**").permitAll()
+                        .requestMatchers("/api/v1/payments/webhook").permitAll() // Authenticated by Stripe signature
                         .requestMatchers("/api/v1/internal/payments/**").hasRole("SERVICE_ACCOUNT")
                         .anyRequest().authenticated()
                 )
@@ -18,6 +18,7 @@ public class StripeConfig {
     private String successUrl;  // For Checkout Session
     private String cancelUrl;   // For Checkout Session
     private Integer checkoutSessionExpiryMinutes;  // Checkout session expiry time in minutes
+    private String webhookSecret;  // Signing secret (whsec_...) of the webhook endpoint
 
     @PostConstruct
     public void init() {
@@ -0,0 +1,35 @@
+package com.bookticket.payment_service.controller;
+
+import com.bookticket.payment_service.service.StripeWebhookService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/payments")
+@RequiredArgsConstructor
+@Tag(name = "Stripe Webhook Controller", description = "Receives payment events from Stripe")
+public class StripeWebhookController {
+
+    private final StripeWebhookService stripeWebhookService;
+
+    @Operation(
+            summary = "Receive Stripe webhook event",
+            description = "Endpoint registered in the Stripe dashboard. Events are authenticated with the Stripe-Signature header, redelivered events are acknowledged without being applied again.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Event accepted"),
+                    @ApiResponse(responseCode = "400", description = "Missing or invalid signature"),
+                    @ApiResponse(responseCode = "500", description = "Event could not be applied, Stripe will redeliver it")
+            }
+    )
+    @PostMapping("/webhook")
+    public ResponseEntity<Void> handleStripeEvent(
+            @RequestBody String payload,
+            @RequestHeader(value = "Stripe-Signature", required = false) String signatureHeader) {
+        stripeWebhookService.handleEvent(payload, signatureHeader);
+        return ResponseEntity.ok().build();
+    }
+}
@@ -8,7 +8,10 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "payments")
+@Table(name = "payments", indexes = {
+        // Expiry scan of pending payments
+        @Index(name = "idx_payments_status_created_at", columnList = "payment_status, created_at")
+})
 @Data
 @Builder
 @NoArgsConstructor
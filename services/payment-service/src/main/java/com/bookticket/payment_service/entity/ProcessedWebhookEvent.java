@@ -0,0 +1,24 @@
+package com.bookticket.payment_service.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Stripe webhook event that was already applied, used to drop redelivered events
+ */
+@Entity
+@Table(name = "processed_webhook_events")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProcessedWebhookEvent extends Auditable {
+    @Id
+    @Column(name = "event_id")
+    private String eventId; // Stripe event ID (evt_...)
+    @Column(nullable = false)
+    private String eventType;
+}
@@ -40,6 +40,20 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
     }
 
+    @ExceptionHandler(InvalidWebhookSignatureException.class)
+    public ResponseEntity<PaymentResponse> handleInvalidWebhookSignatureException(InvalidWebhookSignatureException ex) {
+        log.error("Rejected webhook event: {}", ex.getMessage());
+        PaymentResponse response = new PaymentResponse(
+                null,
+                null,
+                "INVALID_SIGNATURE",
+                null,
+                null,
+                ex.getMessage()
+        );
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<PaymentResponse> handleIllegalArgumentException(IllegalArgumentException ex) {
         log.error("Invalid argument: {}", ex.getMessage());
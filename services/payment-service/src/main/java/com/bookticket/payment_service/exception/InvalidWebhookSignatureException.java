@@ -0,0 +1,11 @@
+package com.bookticket.payment_service.exception;
+
+public class InvalidWebhookSignatureException extends RuntimeException {
+    public InvalidWebhookSignatureException(String message) {
+        super(message);
+    }
+
+    public InvalidWebhookSignatureException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,10 +1,17 @@
 package com.bookticket.payment_service.repository;
 
 import com.bookticket.payment_service.entity.Payment;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.bookticket.payment_service.enums.PaymentStatus;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,4 +19,30 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     Optional<Payment> findByTransactionId(String transactionId);
     Optional<Payment> findByBookingId(Long bookingId);
     List<Payment> findByPaymentStatus(PaymentStatus status);
+
+    // Expiry scan, keyset paged by id so payments left pending by a failed Stripe call are not reloaded
+    @Query("SELECT p FROM Payment p " +
+            "WHERE p.paymentStatus = :status AND p.createdAt < :createdBefore AND p.id > :afterId " +
+            "AND p.transactionId IS NOT NULL " +
+            "ORDER BY p.id")
+    List<Payment> findByPaymentStatusCreatedBefore(@Param("status") PaymentStatus status,
+                                                   @Param("createdBefore") LocalDateTime createdBefore,
+                                                   @Param("afterId") Long afterId,
+                                                   Pageable pageable);
+
+    // Payments of the ids still in the status, locked so the status cannot change before the caller updates them
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Payment p WHERE p.id IN :paymentIds AND p.paymentStatus = :status ORDER BY p.id")
+    List<Payment> findByIdInAndStatusForUpdate(@Param("paymentIds") List<Long> paymentIds,
+                                               @Param("status") PaymentStatus status);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Payment p SET p.paymentStatus = :newStatus, p.paymentGatewayResponse = :gatewayResponse, " +
+            "p.updatedAt = :updatedAt " +
+            "WHERE p.id IN :paymentIds AND p.paymentStatus = :currentStatus")
+    int updateStatusIfCurrent(@Param("paymentIds") List<Long> paymentIds,
+                              @Param("currentStatus") PaymentStatus currentStatus,
+                              @Param("newStatus") PaymentStatus newStatus,
+                              @Param("gatewayResponse") String gatewayResponse,
+                              @Param("updatedAt") LocalDateTime updatedAt);
 }
@@ -0,0 +1,7 @@
+package com.bookticket.payment_service.repository;
+
+import com.bookticket.payment_service.entity.ProcessedWebhookEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ProcessedWebhookEventRepository extends JpaRepository<ProcessedWebhookEvent, String> {
+}
@@ -0,0 +1,42 @@
+package com.bookticket.payment_service.service;
+
+import com.bookticket.payment_service.dto.PaymentResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+
+/**
+ * Pushes final payment outcomes to booking service
+ */
+@Service
+@Slf4j
+public class BookingServiceClient {
+
+    private final RestClient bookingRestClient;
+
+    public BookingServiceClient(@Qualifier("bookingRestClient") RestClient bookingRestClient) {
+        this.bookingRestClient = bookingRestClient;
+    }
+
+    /**
+     * Notify booking service that the payment of a booking reached a final state.
+     * There is no incoming user request to propagate headers from, so the call is made
+     * on behalf of the booking owner with the service account role.
+     *
+     * @param paymentResponse final payment state
+     * @param userId          owner of the booking
+     */
+    public void notifyPaymentCompleted(PaymentResponse paymentResponse, Long userId) {
+        log.info("Notifying booking service of payment {} for booking {}",
+                paymentResponse.paymentStatus(), paymentResponse.bookingId());
+        bookingRestClient.post()
+                .uri("/api/v1/bookings/internal/payment-events")
+                .header("X-User-Id", String.valueOf(userId))
+                .header("X-User-Name", "payment-service")
+                .header("X-User-Roles", "ROLE_SERVICE_ACCOUNT")
+                .body(paymentResponse)
+                .retrieve()
+                .toBodilessEntity();
+    }
+}
@@ -0,0 +1,88 @@
+package com.bookticket.payment_service.service;
+
+import com.bookticket.payment_service.configuration.CheckoutStatusCacheConfig;
+import com.bookticket.payment_service.dto.PaymentResponse;
+import com.bookticket.payment_service.enums.PaymentStatus;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Checkout session statuses served to verify polls.
+ * Completed and failed statuses never change and are kept until evicted by size, pending ones
+ * expire after a few hundred milliseconds. Concurrent polls for one session share a single load,
+ * which runs on the thread of the first caller.
+ */
+@Component
+public class CheckoutStatusCache {
+
+    private final AsyncCache<String, PaymentResponse> cache;
+
+    public CheckoutStatusCache(CheckoutStatusCacheConfig config) {
+        long pendingTtlNanos = TimeUnit.MILLISECONDS.toNanos(config.getPendingTtlMs());
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaxEntries())
+                .expireAfter(new Expiry<String, PaymentResponse>() {
+                    @Override
+                    public long expireAfterCreate(String sessionId, PaymentResponse response, long currentTime) {
+                        return isTerminal(response) ? Long.MAX_VALUE : pendingTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String sessionId, PaymentResponse response, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(sessionId, response, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String sessionId, PaymentResponse response, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .buildAsync();
+    }
+
+    /**
+     * Get the cached status of a session, or load it once for all concurrent callers
+     *
+     * @param sessionId Checkout Session ID
+     * @param loader    loads the status, failures are passed to every waiting caller and not cached
+     */
+    public PaymentResponse get(String sessionId, Function<String, PaymentResponse> loader) {
+        CompletableFuture<PaymentResponse> load = new CompletableFuture<>();
+        CompletableFuture<PaymentResponse> existing = cache.asMap().putIfAbsent(sessionId, load);
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            load.complete(loader.apply(sessionId));
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        }
+        return load.join();
+    }
+
+    private static PaymentResponse await(CompletableFuture<PaymentResponse> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static boolean isTerminal(PaymentResponse response) {
+        return PaymentStatus.COMPLETED.name().equals(response.paymentStatus())
+                || PaymentStatus.FAILED.name().equals(response.paymentStatus());
+    }
+}
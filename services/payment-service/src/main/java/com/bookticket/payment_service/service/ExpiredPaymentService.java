@@ -1,100 +1,174 @@
 package com.bookticket.payment_service.service;
 
+import com.bookticket.payment_service.configuration.PaymentExpiryConfig;
 import com.bookticket.payment_service.configuration.StripeConfig;
+import com.bookticket.payment_service.dto.PaymentResponse;
 import com.bookticket.payment_service.entity.Payment;
 import com.bookticket.payment_service.enums.PaymentStatus;
+import com.bookticket.payment_service.exception.PaymentProcessingException;
 import com.bookticket.payment_service.repository.PaymentRepository;
-import com.stripe.Stripe;
-import com.stripe.exception.StripeException;
-import com.stripe.model.checkout.Session;
-import lombok.RequiredArgsConstructor;
+import com.bookticket.payment_service.service.gateway.PaymentGateway;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Instant;
-import java.time.ZoneId;
-import java.time.temporal.ChronoUnit;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
+/**
+ * Expires checkout sessions of payments left pending for longer than the session expiry.
+ * Expired payments are read in keyset-paged chunks through the (payment_status, created_at) index.
+ * The gateway calls of a chunk run in parallel on a bounded pool, and every chunk commits on its own,
+ * so no transaction is held open across gateway calls. Booking service is told about every payment
+ * the job failed, the checkout.session.expired webhook pushes the same outcome again.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class ExpiredPaymentService {
 
     private final PaymentRepository paymentRepository;
     private final StripeConfig stripeConfig;
+    private final PaymentExpiryConfig paymentExpiryConfig;
+    private final PaymentGateway paymentGateway;
+    private final BookingServiceClient bookingServiceClient;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor stripeExpiryExecutor;
+
+    public ExpiredPaymentService(PaymentRepository paymentRepository,
+                                 StripeConfig stripeConfig,
+                                 PaymentExpiryConfig paymentExpiryConfig,
+                                 PaymentGateway paymentGateway,
+                                 BookingServiceClient bookingServiceClient,
+                                 TransactionTemplate transactionTemplate,
+                                 @Qualifier("stripeExpiryExecutor") Executor stripeExpiryExecutor) {
+        this.paymentRepository = paymentRepository;
+        this.stripeConfig = stripeConfig;
+        this.paymentExpiryConfig = paymentExpiryConfig;
+        this.paymentGateway = paymentGateway;
+        this.bookingServiceClient = bookingServiceClient;
+        this.transactionTemplate = transactionTemplate;
+        this.stripeExpiryExecutor = stripeExpiryExecutor;
+    }
 
     /**
      * Scheduled task to check for expired payment sessions
      * Runs every minute to check for expired sessions
      */
-    @Scheduled(fixedRate = 60000) // Run every minute
-    @Transactional
+    @Scheduled(fixedDelay = 60000) // Run every minute
     public void expireOldSessions() {
         log.info("Starting session expiration check at: {}", Instant.now());
 
-        // Find all pending payments
-        List<Payment> pendingPayments = paymentRepository.findByPaymentStatus(PaymentStatus.PENDING);
-        if (pendingPayments.isEmpty()) {
-            log.info("No pending payments found. Exiting session expiration check.");
-            return;
+        LocalDateTime createdBefore = LocalDateTime.now().minusMinutes(stripeConfig.getCheckoutSessionExpiryMinutes());
+        int batchSize = paymentExpiryConfig.getBatchSize();
+        long afterId = 0;
+        int expired = 0;
+        while (true) {
+            List<Payment> chunk = paymentRepository.findByPaymentStatusCreatedBefore(
+                    PaymentStatus.PENDING, createdBefore, afterId, PageRequest.of(0, batchSize));
+            if (chunk.isEmpty()) {
+                break;
+            }
+            expired += expireChunk(chunk);
+            if (chunk.size() < batchSize) {
+                break;
+            }
+            afterId = chunk.get(chunk.size() - 1).getId();
         }
 
-        for (Payment payment : pendingPayments) {
-            try {
-                // Skip if no transaction ID or created time
-                if (payment.getTransactionId() == null || payment.getTransactionId().isBlank() ||
-                        payment.getCreatedAt() == null) {
-                    continue;
-                }
-
-                // Check if payment is older than 4 minutes
-                if (isSessionExpired(payment.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant())) {
-                    log.info("Expiring session - Transaction ID: {}, Booking ID: {}",
-                            payment.getTransactionId(), payment.getBookingId());
-
-                    // Expire the session in Stripe
-                    expireStripeSession(payment.getTransactionId());
-
-                    // Update payment status
-                    payment.setPaymentStatus(PaymentStatus.FAILED);
-                    payment.setPaymentGatewayResponse(
-                            "Payment session expired after " + stripeConfig.getCheckoutSessionExpiryMinutes() + " minutes");
-                    paymentRepository.save(payment);
+        if (expired == 0) {
+            log.info("No expired pending payments found. Exiting session expiration check.");
+        } else {
+            log.info("Expired {} payment sessions", expired);
+        }
+    }
 
-                    log.info("Successfully expired session - Transaction ID: {}, Booking ID: {}",
-                            payment.getTransactionId(), payment.getBookingId());
-                }
+    /**
+     * Expire the checkout sessions of a chunk in parallel, then mark the expired ones as failed in one transaction
+     * and notify booking service of the payments that were failed
+     *
+     * @return number of payments marked as failed
+     */
+    private int expireChunk(List<Payment> chunk) {
+        List<CompletableFuture<Payment>> calls = chunk.stream()
+                .filter(payment -> !payment.getTransactionId().isBlank())
+                .map(payment -> CompletableFuture.supplyAsync(() -> expireSession(payment), stripeExpiryExecutor))
+                .toList();
+        List<Payment> expiredPayments = calls.stream()
+                .map(CompletableFuture::join)
+                .filter(Objects::nonNull)
+                .toList();
+        if (expiredPayments.isEmpty()) {
+            return 0;
+        }
 
-            } catch (Exception e) {
-                log.error("Error expiring session for payment {}: {}",
-                        payment.getTransactionId(), e.getMessage(), e);
+        String reason = "Payment session expired after " + stripeConfig.getCheckoutSessionExpiryMinutes() + " minutes";
+        List<Long> paymentIds = expiredPayments.stream().map(Payment::getId).toList();
+        // Payments completed by a webhook in the meantime stay untouched, the locked ones are exactly those updated
+        List<Payment> failedPayments = transactionTemplate.execute(status -> {
+            List<Payment> pending = paymentRepository.findByIdInAndStatusForUpdate(paymentIds, PaymentStatus.PENDING);
+            if (!pending.isEmpty()) {
+                paymentRepository.updateStatusIfCurrent(pending.stream().map(Payment::getId).toList(),
+                        PaymentStatus.PENDING, PaymentStatus.FAILED, reason, LocalDateTime.now());
             }
+            return pending;
+        });
+        if (failedPayments == null || failedPayments.isEmpty()) {
+            return 0;
         }
+        failedPayments.forEach(payment -> log.info("Successfully expired session - Transaction ID: {}, Booking ID: {}",
+                payment.getTransactionId(), payment.getBookingId()));
+
+        List<CompletableFuture<Void>> notifications = failedPayments.stream()
+                .map(payment -> CompletableFuture.runAsync(() -> notifyBookingService(payment, reason), stripeExpiryExecutor))
+                .toList();
+        notifications.forEach(CompletableFuture::join);
+        return failedPayments.size();
     }
 
     /**
-     * Check if the given instant is older than K minutes
+     * Push the failed payment to booking service, so the booking fails and its seats are released
+     * A failed push is left to the checkout.session.expired webhook, which pushes until booking service takes it
      */
-    private boolean isSessionExpired(Instant instant) {
-        return instant.plus(stripeConfig.getCheckoutSessionExpiryMinutes(), ChronoUnit.MINUTES).isBefore(Instant.now());
+    private void notifyBookingService(Payment payment, String reason) {
+        try {
+            bookingServiceClient.notifyPaymentCompleted(new PaymentResponse(
+                    payment.getId(),
+                    payment.getBookingId(),
+                    PaymentStatus.FAILED.name(),
+                    payment.getTransactionId(),
+                    payment.getAmount(),
+                    reason
+            ), payment.getUserId());
+        } catch (Exception e) {
+            log.error("Failed to notify booking service of expired payment for booking {}: {}",
+                    payment.getBookingId(), e.getMessage());
+        }
     }
 
     /**
-     * Call Stripe API to expire a checkout session
+     * Call the payment gateway to expire a checkout session
+     *
+     * @return the payment if its session was expired, null if the call failed
      */
-    private void expireStripeSession(String sessionId) throws StripeException {
-        log.info("Expiring Stripe session: {}", sessionId);
+    private Payment expireSession(Payment payment) {
+        String sessionId = payment.getTransactionId();
+        log.info("Expiring session - Transaction ID: {}, Booking ID: {}", sessionId, payment.getBookingId());
         try {
-            Session session = Session.retrieve(sessionId);
-            session.expire();
-        } catch (StripeException e) {
-            log.error("Failed to expire Stripe session {}: {}", sessionId, e.getMessage(), e);
-            throw new RuntimeException(e);
+            paymentGateway.expireCheckoutSession(sessionId);
+            return payment;
+        } catch (PaymentProcessingException e) {
+            log.error("Failed to expire session {}: {}", sessionId, e.getMessage(), e);
+            return null;
+        } catch (Exception e) {
+            log.error("Error expiring session for payment {}: {}", sessionId, e.getMessage(), e);
+            return null;
         }
-        log.info("Successfully expired Stripe session: {}", sessionId);
     }
 }
@@ -0,0 +1,195 @@
+package com.bookticket.payment_service.service;
+
+import com.bookticket.payment_service.configuration.StripeConfig;
+import com.bookticket.payment_service.dto.PaymentResponse;
+import com.bookticket.payment_service.entity.Payment;
+import com.bookticket.payment_service.entity.ProcessedWebhookEvent;
+import com.bookticket.payment_service.enums.PaymentStatus;
+import com.bookticket.payment_service.exception.InvalidWebhookSignatureException;
+import com.bookticket.payment_service.repository.PaymentRepository;
+import com.bookticket.payment_service.repository.ProcessedWebhookEventRepository;
+import com.stripe.exception.EventDataObjectDeserializationException;
+import com.stripe.exception.SignatureVerificationException;
+import com.stripe.model.Event;
+import com.stripe.model.StripeObject;
+import com.stripe.model.checkout.Session;
+import com.stripe.net.Webhook;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+
+/**
+ * Applies Stripe webhook events to payments and pushes final outcomes to booking service.
+ * Events are verified against the endpoint signing secret and applied at most once.
+ * An event is only recorded as processed once booking service acknowledged the outcome, a failed push
+ * fails the delivery so Stripe redelivers the event and the push is retried.
+ */
+@Service
+@Slf4j
+public class StripeWebhookService {
+
+    private final PaymentRepository paymentRepository;
+    private final ProcessedWebhookEventRepository processedWebhookEventRepository;
+    private final BookingServiceClient bookingServiceClient;
+    private final StripeConfig stripeConfig;
+    private final TransactionTemplate transactionTemplate;
+
+    public StripeWebhookService(PaymentRepository paymentRepository,
+                                ProcessedWebhookEventRepository processedWebhookEventRepository,
+                                BookingServiceClient bookingServiceClient,
+                                StripeConfig stripeConfig,
+                                TransactionTemplate transactionTemplate) {
+        this.paymentRepository = paymentRepository;
+        this.processedWebhookEventRepository = processedWebhookEventRepository;
+        this.bookingServiceClient = bookingServiceClient;
+        this.stripeConfig = stripeConfig;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Verify and apply a webhook event delivered by Stripe
+     *
+     * @param payload         raw request body, exactly as received
+     * @param signatureHeader value of the Stripe-Signature header
+     * @throws InvalidWebhookSignatureException if the event was not signed with the endpoint secret
+     */
+    public void handleEvent(String payload, String signatureHeader) {
+        if (signatureHeader == null || signatureHeader.isBlank()) {
+            throw new InvalidWebhookSignatureException("Missing Stripe-Signature header");
+        }
+        Event event;
+        try {
+            event = Webhook.constructEvent(payload, signatureHeader, stripeConfig.getWebhookSecret());
+        } catch (SignatureVerificationException e) {
+            throw new InvalidWebhookSignatureException("Invalid Stripe signature", e);
+        } catch (Exception e) {
+            throw new InvalidWebhookSignatureException("Malformed Stripe event: " + e.getMessage(), e);
+        }
+        log.info("Received Stripe event {} of type {}", event.getId(), event.getType());
+        handleVerifiedEvent(event);
+    }
+
+    /**
+     * Apply an event whose origin is already established, such as one raised by an in-process gateway
+     *
+     * @param event Stripe event, applied at most once by its id
+     */
+    public void handleVerifiedEvent(Event event) {
+        if (processedWebhookEventRepository.existsById(event.getId())) {
+            log.info("Stripe event {} was already processed, skipping", event.getId());
+            return;
+        }
+        Optional<Payment> finalPayment = transactionTemplate.execute(status -> applyEvent(event));
+
+        // Pushed after commit, the event stays unrecorded until booking service took the outcome
+        finalPayment.ifPresent(payment -> {
+            try {
+                bookingServiceClient.notifyPaymentCompleted(buildPaymentResponse(payment), payment.getUserId());
+            } catch (Exception e) {
+                log.error("Failed to notify booking service of payment {} for booking {}: {}",
+                        payment.getPaymentStatus(), payment.getBookingId(), e.getMessage());
+                throw new IllegalStateException("Booking service did not take the outcome of event " + event.getId()
+                        + ", waiting for redelivery", e);
+            }
+        });
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> processedWebhookEventRepository.saveAndFlush(
+                    ProcessedWebhookEvent.builder()
+                            .eventId(event.getId())
+                            .eventType(event.getType())
+                            .build()));
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent delivery of the same event recorded it first, booking service applies outcomes once
+            log.info("Stripe event {} was processed concurrently", event.getId());
+        }
+    }
+
+    /**
+     * Move the payment to the final state of the event
+     * A payment already final is returned as it is, so a redelivered event pushes its outcome again
+     * when the push of an earlier delivery failed.
+     *
+     * @return payment in a final state to push to booking service, empty if the event does not end the payment
+     */
+    private Optional<Payment> applyEvent(Event event) {
+        if (!event.getType().startsWith("checkout.session.")) {
+            log.debug("Ignoring Stripe event type {}", event.getType());
+            return Optional.empty();
+        }
+        Session session = extractSession(event);
+        PaymentStatus newStatus = mapEventToStatus(event.getType(), session);
+        if (newStatus == PaymentStatus.PENDING) {
+            log.info("Checkout Session {} is still pending after event {}", session.getId(), event.getType());
+            return Optional.empty();
+        }
+
+        Optional<Payment> found = paymentRepository.findByTransactionId(session.getId());
+        if (found.isEmpty()) {
+            log.warn("No payment found for Checkout Session {} of event {}", session.getId(), event.getId());
+            return Optional.empty();
+        }
+        Payment payment = found.get();
+        if (payment.getPaymentStatus() != PaymentStatus.PENDING) {
+            log.info("Payment for session {} is already {}, pushing it again for event {}",
+                    session.getId(), payment.getPaymentStatus(), event.getType());
+            return Optional.of(payment);
+        }
+
+        payment.setPaymentStatus(newStatus);
+        if (session.getPaymentIntent() != null) {
+            payment.setPaymentIntentId(session.getPaymentIntent());
+        }
+        payment.setPaymentGatewayResponse(String.format("Event: %s (%s), Session: %s, Status: %s, PaymentIntent: %s",
+                event.getId(), event.getType(), session.getId(), session.getPaymentStatus(), session.getPaymentIntent()));
+        log.info("Payment for session {} updated to {} by event {}", session.getId(), newStatus, event.getId());
+        return Optional.of(paymentRepository.save(payment));
+    }
+
+    private Session extractSession(Event event) {
+        Optional<StripeObject> dataObject = event.getDataObjectDeserializer().getObject();
+        if (dataObject.isPresent()) {
+            return (Session) dataObject.get();
+        }
+        // Event was rendered with an API version other than the one of the library
+        try {
+            return (Session) event.getDataObjectDeserializer().deserializeUnsafe();
+        } catch (EventDataObjectDeserializationException e) {
+            throw new IllegalArgumentException("Cannot read Checkout Session from event " + event.getId(), e);
+        }
+    }
+
+    /**
+     * Map a Checkout Session event to internal PaymentStatus enum
+     * @param eventType Stripe event type
+     * @param session Checkout Session carried by the event
+     * @return Final status, or PENDING if the event does not end the payment
+     */
+    private PaymentStatus mapEventToStatus(String eventType, Session session) {
+        return switch (eventType) {
+            // Delayed payment methods complete the session before the money arrives
+            case "checkout.session.completed" -> "unpaid".equalsIgnoreCase(session.getPaymentStatus())
+                    ? PaymentStatus.PENDING
+                    : PaymentStatus.COMPLETED;
+            case "checkout.session.async_payment_succeeded" -> PaymentStatus.COMPLETED;
+            case "checkout.session.async_payment_failed", "checkout.session.expired" -> PaymentStatus.FAILED;
+            default -> PaymentStatus.PENDING;
+        };
+    }
+
+    private PaymentResponse buildPaymentResponse(Payment payment) {
+        return new PaymentResponse(
+                payment.getId(),
+                payment.getBookingId(),
+                payment.getPaymentStatus().name(),
+                payment.getTransactionId(),
+                payment.getAmount(),
+                payment.getPaymentStatus() == PaymentStatus.COMPLETED
+                        ? "Payment verification successful"
+                        : "Payment failed or checkout session expired"
+        );
+    }
+}
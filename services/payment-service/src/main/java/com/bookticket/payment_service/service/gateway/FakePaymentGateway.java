@@ -0,0 +1,214 @@
+package com.bookticket.payment_service.service.gateway;
+
+import com.bookticket.payment_service.configuration.FakeGatewayConfig;
+import com.bookticket.payment_service.exception.PaymentProcessingException;
+import com.bookticket.payment_service.repository.PaymentRepository;
+import com.bookticket.payment_service.service.StripeWebhookService;
+import com.stripe.Stripe;
+import com.stripe.model.Event;
+import com.stripe.net.ApiResource;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process stand-in for Stripe Checkout, for benchmarking booking end to end without network.
+ * Calls sleep for the configured latency and fail at the configured rate. Each session is paid,
+ * declined or abandoned after a simulated checkout time, and the outcome is delivered as a Checkout
+ * Session event through the same webhook path Stripe events take, so payments and bookings move
+ * exactly as they do in production.
+ */
+@Component
+@ConditionalOnProperty(name = "payment.gateway.type", havingValue = "fake")
+@Slf4j
+public class FakePaymentGateway implements PaymentGateway {
+
+    private static final int MAX_DELIVERY_ATTEMPTS = 10;
+    private static final long DELIVERY_RETRY_MS = 500;
+
+    private final FakeGatewayConfig config;
+    private final StripeWebhookService stripeWebhookService;
+    private final PaymentRepository paymentRepository;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, FakeSession> sessions = new ConcurrentHashMap<>();
+
+    public FakePaymentGateway(FakeGatewayConfig config,
+                              StripeWebhookService stripeWebhookService,
+                              PaymentRepository paymentRepository) {
+        this.config = config;
+        this.stripeWebhookService = stripeWebhookService;
+        this.paymentRepository = paymentRepository;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.scheduler = Executors.newScheduledThreadPool(config.getCompletionThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "fake-gateway-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.warn("Fake payment gateway is active, no payment reaches Stripe");
+    }
+
+    @Override
+    public GatewaySession createCheckoutSession(Long bookingId, Long userId, long amountInCents,
+                                                String successUrl, String cancelUrl) {
+        simulateLatency();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < config.getFailureRate()) {
+            throw new PaymentProcessingException("Failed to create checkout session. Please try again.");
+        }
+
+        String sessionId = "cs_fake_" + UUID.randomUUID().toString().replace("-", "");
+        FakeSession session = new FakeSession(sessionId, System.currentTimeMillis() / 1000 + 18000);
+        sessions.put(sessionId, session);
+
+        double outcome = random.nextDouble();
+        if (outcome >= config.getAbandonRate()) {
+            boolean paid = outcome >= config.getAbandonRate() + config.getDeclineRate();
+            long delayMs = config.getCompletionDelayMs() + jitter(config.getCompletionJitterMs());
+            scheduler.schedule(() -> finishCheckout(session, paid, 1), delayMs, TimeUnit.MILLISECONDS);
+        }
+        return session.toGatewaySession();
+    }
+
+    @Override
+    public GatewaySession retrieveCheckoutSession(String sessionId) {
+        simulateLatency();
+        FakeSession session = sessions.get(sessionId);
+        if (session == null) {
+            throw new PaymentProcessingException("Invalid session ID: No such checkout.session: " + sessionId);
+        }
+        return session.toGatewaySession();
+    }
+
+    @Override
+    public void expireCheckoutSession(String sessionId) {
+        simulateLatency();
+        FakeSession session = sessions.get(sessionId);
+        if (session == null) {
+            // Sessions do not survive a restart, an unknown session can no longer be paid either
+            return;
+        }
+        if (!session.finish("expired", "unpaid")) {
+            throw new PaymentProcessingException("Failed to expire session " + sessionId + ": session is " + session.status);
+        }
+        deliver(session, "checkout.session.expired", 1);
+    }
+
+    @Override
+    public String paymentMethod() {
+        return "Fake_Checkout_Session";
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void finishCheckout(FakeSession session, boolean paid, int attempt) {
+        // The session is lost to the expiry job if it expired meanwhile
+        if (!session.finish("complete", paid ? "paid" : "unpaid")) {
+            return;
+        }
+        deliver(session, paid ? "checkout.session.completed" : "checkout.session.async_payment_failed", attempt);
+    }
+
+    private void deliver(FakeSession session, String eventType, int attempt) {
+        // Checkout may finish before the transaction that saved the payment commits
+        if (paymentRepository.findByTransactionId(session.id).isEmpty() && attempt < MAX_DELIVERY_ATTEMPTS) {
+            scheduler.schedule(() -> deliver(session, eventType, attempt + 1), DELIVERY_RETRY_MS, TimeUnit.MILLISECONDS);
+            return;
+        }
+        try {
+            stripeWebhookService.handleVerifiedEvent(session.toEvent(eventType));
+        } catch (Exception e) {
+            log.error("Failed to deliver fake event {} for session {}: {}", eventType, session.id, e.getMessage(), e);
+        }
+        scheduler.schedule(() -> sessions.remove(session.id), config.getRetentionMinutes(), TimeUnit.MINUTES);
+    }
+
+    private void simulateLatency() {
+        long latencyMs = config.getLatencyMs() + jitter(config.getLatencyJitterMs());
+        if (latencyMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(latencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentProcessingException("Payment gateway call interrupted", e);
+        }
+    }
+
+    private static long jitter(long maxJitterMs) {
+        return maxJitterMs > 0 ? ThreadLocalRandom.current().nextLong(maxJitterMs + 1) : 0;
+    }
+
+    private static final class FakeSession {
+        private final String id;
+        private final String paymentIntentId;
+        private final long expiresAt;
+        private String status = "open";
+        private String paymentStatus = "unpaid";
+
+        FakeSession(String id, long expiresAt) {
+            this.id = id;
+            this.paymentIntentId = "pi_fake_" + id.substring("cs_fake_".length());
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * Move an open session to its final state
+         *
+         * @return false if the session was already finished
+         */
+        synchronized boolean finish(String newStatus, String newPaymentStatus) {
+            if (!"open".equals(status)) {
+                return false;
+            }
+            status = newStatus;
+            paymentStatus = newPaymentStatus;
+            return true;
+        }
+
+        synchronized GatewaySession toGatewaySession() {
+            boolean paid = "paid".equals(paymentStatus);
+            return new GatewaySession(id, "http://localhost/fake-checkout/" + id, status, paymentStatus,
+                    "open".equals(status) ? null : paymentIntentId,
+                    paid ? "succeeded" : "requires_payment_method",
+                    "complete".equals(status) && !paid ? "Your card was declined." : null,
+                    expiresAt);
+        }
+
+        synchronized Event toEvent(String eventType) {
+            String payload = """
+                    {
+                      "id": "evt_fake_%s",
+                      "object": "event",
+                      "api_version": "%s",
+                      "created": %d,
+                      "type": "%s",
+                      "data": {
+                        "object": {
+                          "id": "%s",
+                          "object": "checkout.session",
+                          "payment_status": "%s",
+                          "payment_intent": "%s",
+                          "status": "%s"
+                        }
+                      }
+                    }
+                    """.formatted(UUID.randomUUID().toString().replace("-", ""), Stripe.API_VERSION,
+                    System.currentTimeMillis() / 1000, eventType, id, paymentStatus, paymentIntentId, status);
+            return ApiResource.GSON.fromJson(payload, Event.class);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.bookticket.payment_service.service.gateway;
+
+/**
+ * Checkout session as reported by the payment gateway, using Stripe's status vocabulary
+ */
+public record GatewaySession(
+        String id,
+        String url,
+        String status,                  // "open", "complete", "expired"
+        String paymentStatus,           // "paid", "unpaid", "no_payment_required"
+        String paymentIntentId,
+        String paymentIntentStatus,
+        String lastPaymentError,
+        Long expiresAt                  // Unix timestamp when session expires
+) {
+}
@@ -0,0 +1,32 @@
+package com.bookticket.payment_service.service.gateway;
+
+/**
+ * Hosted checkout provider behind PaymentService.
+ * Stripe is used unless payment.gateway.type selects another implementation.
+ * Failures are reported as PaymentProcessingException with a message safe to return to clients.
+ */
+public interface PaymentGateway {
+
+    /**
+     * Create a hosted checkout session
+     *
+     * @param amountInCents amount in the smallest currency unit
+     */
+    GatewaySession createCheckoutSession(Long bookingId, Long userId, long amountInCents,
+                                         String successUrl, String cancelUrl);
+
+    /**
+     * Retrieve the current state of a checkout session, including its payment intent
+     */
+    GatewaySession retrieveCheckoutSession(String sessionId);
+
+    /**
+     * Expire an open checkout session so it can no longer be paid
+     */
+    void expireCheckoutSession(String sessionId);
+
+    /**
+     * Payment method recorded on payments created through this gateway
+     */
+    String paymentMethod();
+}
@@ -0,0 +1,161 @@
+package com.bookticket.payment_service.service.gateway;
+
+import com.bookticket.payment_service.exception.PaymentProcessingException;
+import com.stripe.exception.AuthenticationException;
+import com.stripe.exception.InvalidRequestException;
+import com.stripe.exception.RateLimitException;
+import com.stripe.exception.StripeException;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.checkout.Session;
+import com.stripe.param.checkout.SessionCreateParams;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Stripe Checkout, the production gateway
+ */
+@Component
+@ConditionalOnProperty(name = "payment.gateway.type", havingValue = "stripe", matchIfMissing = true)
+@Slf4j
+public class StripePaymentGateway implements PaymentGateway {
+
+    @Override
+    public GatewaySession createCheckoutSession(Long bookingId, Long userId, long amountInCents,
+                                                String successUrl, String cancelUrl) {
+        try {
+            // Create metadata to track booking and user
+            HashMap<String, String> metadata = new HashMap<>();
+            metadata.put("bookingId", String.valueOf(bookingId));
+            metadata.put("userId", String.valueOf(userId));
+
+            // Create Checkout Session parameters
+            SessionCreateParams params = SessionCreateParams.builder()
+                    .setMode(SessionCreateParams.Mode.PAYMENT)
+                    .setSuccessUrl(successUrl)
+                    .setCancelUrl(cancelUrl)
+                    .addLineItem(
+                            SessionCreateParams.LineItem.builder()
+                                    .setPriceData(
+                                            SessionCreateParams.LineItem.PriceData.builder()
+                                                    .setCurrency("inr")
+                                                    .setUnitAmount(amountInCents)
+                                                    .setProductData(
+                                                            SessionCreateParams.LineItem.PriceData.ProductData.builder()
+                                                                    .setName("Booking Payment")
+                                                                    .setDescription("Payment for booking ID: " + bookingId)
+                                                                    .build()
+                                                    )
+                                                    .build()
+                                    )
+                                    .setQuantity(1L)
+                                    .build()
+                    )
+                    .putAllMetadata(metadata)
+                    .setExpiresAt(System.currentTimeMillis() / 1000 + 18000) // Checkout Must be 30 minutes
+                    .build();
+
+            // Create Checkout Session via Stripe API
+            Session session = Session.create(params);
+            return toGatewaySession(session, null);
+
+        } catch (InvalidRequestException e) {
+            log.error("Invalid request creating Checkout Session for booking ID {}: Param: {}, Message: {}",
+                    bookingId, e.getParam(), e.getMessage(), e);
+            throw new PaymentProcessingException(
+                    "Invalid payment request: " + e.getMessage(), e);
+
+        } catch (AuthenticationException e) {
+            log.error("Stripe authentication failed creating Checkout Session for booking ID {}: {}",
+                    bookingId, e.getMessage(), e);
+            throw new PaymentProcessingException(
+                    "Payment service authentication error. Please contact support.", e);
+
+        } catch (RateLimitException e) {
+            log.error("Rate limit exceeded creating Checkout Session for booking ID {}: {}",
+                    bookingId, e.getMessage(), e);
+            throw new PaymentProcessingException(
+                    "Too many requests. Please try again in a few moments.", e);
+
+        } catch (StripeException e) {
+            log.error("Stripe error creating Checkout Session for booking ID {}: {}",
+                    bookingId, e.getMessage(), e);
+            throw new PaymentProcessingException(
+                    "Failed to create checkout session. Please try again.", e);
+        }
+    }
+
+    @Override
+    public GatewaySession retrieveCheckoutSession(String sessionId) {
+        try {
+            // IMPORTANT: We need to expand payment_intent to get the actual payment status
+            HashMap<String, Object> params = new HashMap<>();
+            params.put("expand", List.of("payment_intent"));
+
+            Session session = Session.retrieve(sessionId, params, null);
+            PaymentIntent paymentIntent = session.getPaymentIntentObject();
+            if (paymentIntent == null && session.getPaymentIntent() != null) {
+                log.warn("PaymentIntent not expanded, only ID available: {}", session.getPaymentIntent());
+            }
+            return toGatewaySession(session, paymentIntent);
+
+        } catch (InvalidRequestException e) {
+            log.error("Invalid session ID {}: {}", sessionId, e.getMessage(), e);
+            throw new PaymentProcessingException(
+                    "Invalid session ID: " + e.getMessage(), e);
+
+        } catch (AuthenticationException e) {
+            log.error("Stripe authentication failed verifying session {}: {}",
+                    sessionId, e.getMessage(), e);
+            throw new PaymentProcessingException(
+                    "Payment service authentication error. Please contact support.", e);
+
+        } catch (RateLimitException e) {
+            log.error("Rate limit exceeded verifying session {}: {}", sessionId, e.getMessage(), e);
+            throw new PaymentProcessingException(
+                    "Too many requests. Please try again in a few moments.", e);
+
+        } catch (StripeException e) {
+            log.error("Stripe error verifying session {}: {}", sessionId, e.getMessage(), e);
+            throw new PaymentProcessingException(
+                    "Failed to verify checkout session. Please try again.", e);
+        }
+    }
+
+    @Override
+    public void expireCheckoutSession(String sessionId) {
+        try {
+            // Expire only needs the session id, no need to retrieve the session first
+            Session session = new Session();
+            session.setId(sessionId);
+            session.expire();
+        } catch (StripeException e) {
+            throw new PaymentProcessingException("Failed to expire Stripe session " + sessionId + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String paymentMethod() {
+        return "Stripe_Checkout_Session";
+    }
+
+    private GatewaySession toGatewaySession(Session session, PaymentIntent paymentIntent) {
+        String paymentIntentId = paymentIntent != null ? paymentIntent.getId() : session.getPaymentIntent();
+        String lastPaymentError = paymentIntent != null && paymentIntent.getLastPaymentError() != null
+                ? paymentIntent.getLastPaymentError().getMessage()
+                : null;
+        return new GatewaySession(
+                session.getId(),
+                session.getUrl(),
+                session.getStatus(),
+                session.getPaymentStatus(),
+                paymentIntentId,
+                paymentIntent != null ? paymentIntent.getStatus() : null,
+                lastPaymentError,
+                session.getExpiresAt()
+        );
+    }
+}
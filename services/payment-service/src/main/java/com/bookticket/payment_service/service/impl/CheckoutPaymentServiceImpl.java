@@ -7,26 +7,27 @@ import com.bookticket.payment_service.enums.PaymentStatus;
 import com.bookticket.payment_service.exception.PaymentNotFoundException;
 import com.bookticket.payment_service.exception.PaymentProcessingException;
 import com.bookticket.payment_service.repository.PaymentRepository;
+import com.bookticket.payment_service.service.CheckoutStatusCache;
 import com.bookticket.payment_service.service.PaymentService;
-import com.stripe.exception.*;
-import com.stripe.model.PaymentIntent;
-import com.stripe.model.checkout.Session;
-import com.stripe.param.checkout.SessionCreateParams;
+import com.bookticket.payment_service.service.gateway.GatewaySession;
+import com.bookticket.payment_service.service.gateway.PaymentGateway;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.HashMap;
-import java.util.List;
-
+/**
+ * Checkout Session payments, independent of the gateway hosting the checkout page
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
-public class StripePaymentServiceImpl implements PaymentService {
+public class CheckoutPaymentServiceImpl implements PaymentService {
 
     private final PaymentRepository paymentRepository;
     private final StripeConfig stripeConfig;
+    private final PaymentGateway paymentGateway;
+    private final CheckoutStatusCache checkoutStatusCache;
 
     /**
      * Create Stripe Checkout Session - SECURE & BACKEND-FOCUSED
@@ -60,90 +61,38 @@ public class StripePaymentServiceImpl implements PaymentService {
                     ? request.cancelUrl()
                     : stripeConfig.getCancelUrl();
 
-            // Create metadata to track booking and user
-            HashMap<String, String> metadata = new HashMap<>();
-            metadata.put("bookingId", String.valueOf(request.bookingId()));
-            metadata.put("userId", String.valueOf(request.userId()));
-
-            // Create Checkout Session parameters
-            SessionCreateParams params = SessionCreateParams.builder()
-                    .setMode(SessionCreateParams.Mode.PAYMENT)
-                    .setSuccessUrl(successUrl)
-                    .setCancelUrl(cancelUrl)
-                    .addLineItem(
-                            SessionCreateParams.LineItem.builder()
-                                    .setPriceData(
-                                            SessionCreateParams.LineItem.PriceData.builder()
-                                                    .setCurrency("inr")
-                                                    .setUnitAmount(amountInCents)
-                                                    .setProductData(
-                                                            SessionCreateParams.LineItem.PriceData.ProductData.builder()
-                                                                    .setName("Booking Payment")
-                                                                    .setDescription("Payment for booking ID: " + request.bookingId())
-                                                                    .build()
-                                                    )
-                                                    .build()
-                                    )
-                                    .setQuantity(1L)
-                                    .build()
-                    )
-                    .putAllMetadata(metadata)
-                    .setExpiresAt(System.currentTimeMillis() / 1000 + 18000) // Checkout Must be 30 minutes
-                    .build();
-
-            // Create Checkout Session via Stripe API
-            Session session = Session.create(params);
+            GatewaySession session = paymentGateway.createCheckoutSession(
+                    request.bookingId(), request.userId(), amountInCents, successUrl, cancelUrl);
 
             log.info("Checkout Session created successfully: {}, URL: {}",
-                    session.getId(), session.getUrl());
+                    session.id(), session.url());
 
             // Save initial payment record
             Payment payment = Payment.builder()
                     .bookingId(request.bookingId())
                     .userId(request.userId())
                     .amount(request.amount())
-                    .paymentMethod("Stripe_Checkout_Session")
+                    .paymentMethod(paymentGateway.paymentMethod())
                     .paymentStatus(PaymentStatus.PENDING)
-                    .transactionId(session.getId())
-                    .paymentGatewayResponse("Checkout Session created: " + session.getId())
+                    .transactionId(session.id())
+                    .paymentGatewayResponse("Checkout Session created: " + session.id())
                     .build();
             paymentRepository.save(payment);
 
-            log.info("Payment record saved with Checkout Session ID: {}", session.getId());
+            log.info("Payment record saved with Checkout Session ID: {}", session.id());
 
             return new CheckoutSessionResponse(
-                    session.getId(),
-                    session.getUrl(),
+                    session.id(),
+                    session.url(),
                     request.bookingId(),
                     request.amount(),
                     "pending",
                     "Checkout session created. Go to the provided paymentUrl to complete payment.",
-                    session.getExpiresAt()
+                    session.expiresAt()
             );
 
-        } catch (InvalidRequestException e) {
-            log.error("Invalid request creating Checkout Session for booking ID {}: Param: {}, Message: {}",
-                    request.bookingId(), e.getParam(), e.getMessage(), e);
-            throw new PaymentProcessingException(
-                    "Invalid payment request: " + e.getMessage(), e);
-
-        } catch (AuthenticationException e) {
-            log.error("Stripe authentication failed creating Checkout Session for booking ID {}: {}",
-                    request.bookingId(), e.getMessage(), e);
-            throw new PaymentProcessingException(
-                    "Payment service authentication error. Please contact support.", e);
-
-        } catch (RateLimitException e) {
-            log.error("Rate limit exceeded creating Checkout Session for booking ID {}: {}",
-                    request.bookingId(), e.getMessage(), e);
-            throw new PaymentProcessingException(
-                    "Too many requests. Please try again in a few moments.", e);
-
-        } catch (StripeException e) {
-            log.error("Stripe error creating Checkout Session for booking ID {}: {}",
-                    request.bookingId(), e.getMessage(), e);
-            throw new PaymentProcessingException(
-                    "Failed to create checkout session. Please try again.", e);
+        } catch (PaymentProcessingException e) {
+            throw e;
 
         } catch (Exception e) {
             log.error("Unexpected error creating Checkout Session for booking ID {}: {}",
@@ -156,74 +105,64 @@ public class StripePaymentServiceImpl implements PaymentService {
     /**
      * Verify Checkout Session and update payment status
      * Call this after user completes payment on Stripe's hosted page
+     * Polls are answered from the status cache, so the gateway is asked at most once per pending TTL
      */
     @Override
-    @Transactional
     public PaymentResponse verifyCheckoutSession(String sessionId) {
+        return checkoutStatusCache.get(sessionId, this::loadCheckoutStatus);
+    }
+
+    private PaymentResponse loadCheckoutStatus(String sessionId) {
         log.info("Verifying Checkout Session: {}", sessionId);
 
         try {
-            // Retrieve Checkout Session from Stripe with expanded payment_intent
-            // IMPORTANT: We need to expand payment_intent to get the actual payment status
-            HashMap<String, Object> params = new HashMap<>();
-            params.put("expand", List.of("payment_intent"));
-
-            Session session = Session.retrieve(sessionId, params, null);
-
-            // Get the PaymentIntent object (now expanded)
-            PaymentIntent paymentIntent = null;
-            String paymentIntentId = null;
-            String paymentIntentStatus = null;
-
-            if (session.getPaymentIntentObject() != null) {
-                paymentIntent = session.getPaymentIntentObject();
-                paymentIntentId = paymentIntent.getId();
-                paymentIntentStatus = paymentIntent.getStatus();
-                log.info("PaymentIntent expanded - ID: {}, Status: {}", paymentIntentId, paymentIntentStatus);
-            } else if (session.getPaymentIntent() != null) {
-                paymentIntentId = session.getPaymentIntent();
-                log.warn("PaymentIntent not expanded, only ID available: {}", paymentIntentId);
-            }
-
-            log.info("Checkout Session retrieved: {}, payment_status: {}, payment_intent: {}, session status: {}",
-                    session.getId(), session.getPaymentStatus(), paymentIntentId, session.getStatus());
-
             // Find payment record by session ID
             Payment payment = paymentRepository.findByTransactionId(sessionId)
                     .orElseThrow(() -> new PaymentNotFoundException(
                             "Payment not found for session ID: " + sessionId));
 
+            // Completed and failed payments do not change anymore, no need to ask the gateway
+            if (payment.getPaymentStatus() != PaymentStatus.PENDING) {
+                return buildPaymentResponse(payment, payment.getPaymentStatus() == PaymentStatus.COMPLETED
+                        ? "Payment verification successful"
+                        : "Payment failed or checkout session expired");
+            }
+
+            GatewaySession session = paymentGateway.retrieveCheckoutSession(sessionId);
+
+            log.info("Checkout Session retrieved: {}, payment_status: {}, payment_intent: {}, session status: {}",
+                    session.id(), session.paymentStatus(), session.paymentIntentId(), session.status());
+
             // Check if session is expired
-            if ("expired".equalsIgnoreCase(session.getStatus())) {
+            if ("expired".equalsIgnoreCase(session.status())) {
                 log.warn("Checkout Session expired: {}", sessionId);
                 payment.setPaymentStatus(PaymentStatus.FAILED);
                 payment.setPaymentGatewayResponse(
-                        String.format("Session expired: %s", session.getId())
+                        String.format("Session expired: %s", session.id())
                 );
                 paymentRepository.save(payment);
                 return buildPaymentResponse(payment, "Checkout session expired. Please create a new payment.");
             }
 
             // Log PaymentIntent failures (card declined, etc.) but don't fail the session yet
-            if (paymentIntent != null && "requires_payment_method".equals(paymentIntentStatus)) {
-                String failureReason = paymentIntent.getLastPaymentError() != null
-                        ? paymentIntent.getLastPaymentError().getMessage()
+            if ("requires_payment_method".equals(session.paymentIntentStatus())) {
+                String failureReason = session.lastPaymentError() != null
+                        ? session.lastPaymentError()
                         : "Unknown error";
                 log.warn("Payment attempt failed for session {}: PaymentIntent status: {}, Reason: {}",
-                        sessionId, paymentIntentStatus, failureReason);
+                        sessionId, session.paymentIntentStatus(), failureReason);
                 log.info("Customer can retry with another payment method on the same session");
                 // Don't update payment status yet - customer can still retry
             }
 
             // Update payment status based on Checkout Session payment_status
-            PaymentStatus newStatus = mapCheckoutSessionStatus(session.getPaymentStatus());
+            PaymentStatus newStatus = mapCheckoutSessionStatus(session.paymentStatus());
             if(newStatus == PaymentStatus.COMPLETED) {
-                payment.setPaymentIntentId(paymentIntentId);
+                payment.setPaymentIntentId(session.paymentIntentId());
                 String gatewayResponse = String.format("Session: %s, Status: %s, PaymentIntent: %s",
-                        session.getId(), session.getPaymentStatus(), paymentIntentId);
-                if (paymentIntent != null && paymentIntent.getLastPaymentError() != null) {
-                    gatewayResponse += String.format(", Last Error: %s",
-                            paymentIntent.getLastPaymentError().getMessage());
+                        session.id(), session.paymentStatus(), session.paymentIntentId());
+                if (session.lastPaymentError() != null) {
+                    gatewayResponse += String.format(", Last Error: %s", session.lastPaymentError());
                 }
                 payment.setPaymentGatewayResponse(gatewayResponse);
 
@@ -235,30 +174,9 @@ public class StripePaymentServiceImpl implements PaymentService {
             }
             return buildPaymentResponse(payment, "Payment is Pending. Please try again.");
 
-        } catch (PaymentNotFoundException e) {
+        } catch (PaymentNotFoundException | PaymentProcessingException e) {
             throw e;
 
-        } catch (InvalidRequestException e) {
-            log.error("Invalid session ID {}: {}", sessionId, e.getMessage(), e);
-            throw new PaymentProcessingException(
-                    "Invalid session ID: " + e.getMessage(), e);
-
-        } catch (AuthenticationException e) {
-            log.error("Stripe authentication failed verifying session {}: {}",
-                    sessionId, e.getMessage(), e);
-            throw new PaymentProcessingException(
-                    "Payment service authentication error. Please contact support.", e);
-
-        } catch (RateLimitException e) {
-            log.error("Rate limit exceeded verifying session {}: {}", sessionId, e.getMessage(), e);
-            throw new PaymentProcessingException(
-                    "Too many requests. Please try again in a few moments.", e);
-
-        } catch (StripeException e) {
-            log.error("Stripe error verifying session {}: {}", sessionId, e.getMessage(), e);
-            throw new PaymentProcessingException(
-                    "Failed to verify checkout session. Please try again.", e);
-
         } catch (Exception e) {
             log.error("Unexpected error verifying session {}: {}", sessionId, e.getMessage(), e);
             throw new PaymentProcessingException(
@@ -0,0 +1,139 @@
+package com.bookticket.payment_service.service;
+
+import com.bookticket.payment_service.configuration.PaymentExpiryConfig;
+import com.bookticket.payment_service.configuration.StripeConfig;
+import com.bookticket.payment_service.dto.PaymentResponse;
+import com.bookticket.payment_service.entity.Payment;
+import com.bookticket.payment_service.enums.PaymentStatus;
+import com.bookticket.payment_service.exception.PaymentProcessingException;
+import com.bookticket.payment_service.repository.PaymentRepository;
+import com.bookticket.payment_service.service.gateway.PaymentGateway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ExpiredPaymentServiceTest {
+
+    private PaymentRepository paymentRepository;
+    private PaymentGateway paymentGateway;
+    private BookingServiceClient bookingServiceClient;
+    private ExpiredPaymentService expiredPaymentService;
+
+    @BeforeEach
+    void setUp() {
+        paymentRepository = mock(PaymentRepository.class);
+        paymentGateway = mock(PaymentGateway.class);
+        bookingServiceClient = mock(BookingServiceClient.class);
+        StripeConfig stripeConfig = new StripeConfig();
+        stripeConfig.setCheckoutSessionExpiryMinutes(30);
+        PaymentExpiryConfig paymentExpiryConfig = new PaymentExpiryConfig();
+        paymentExpiryConfig.setBatchSize(2);
+        expiredPaymentService = new ExpiredPaymentService(paymentRepository, stripeConfig, paymentExpiryConfig,
+                paymentGateway, bookingServiceClient, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                Runnable::run);
+    }
+
+    @Test
+    void pagesThroughExpiredPaymentsAfterTheLastIdOfEachChunk() {
+        Payment first = pendingPayment(1L);
+        Payment second = pendingPayment(2L);
+        Payment third = pendingPayment(3L);
+        when(paymentRepository.findByPaymentStatusCreatedBefore(eq(PaymentStatus.PENDING), any(LocalDateTime.class),
+                eq(0L), any(Pageable.class))).thenReturn(List.of(first, second));
+        when(paymentRepository.findByPaymentStatusCreatedBefore(eq(PaymentStatus.PENDING), any(LocalDateTime.class),
+                eq(2L), any(Pageable.class))).thenReturn(List.of(third));
+        when(paymentRepository.findByIdInAndStatusForUpdate(List.of(1L, 2L), PaymentStatus.PENDING))
+                .thenReturn(List.of(first, second));
+        when(paymentRepository.findByIdInAndStatusForUpdate(List.of(3L), PaymentStatus.PENDING))
+                .thenReturn(List.of(third));
+
+        expiredPaymentService.expireOldSessions();
+
+        // A chunk shorter than the batch size is the last one
+        verify(paymentRepository, times(2)).findByPaymentStatusCreatedBefore(
+                eq(PaymentStatus.PENDING), any(LocalDateTime.class), anyLong(), any(Pageable.class));
+        verify(paymentRepository).updateStatusIfCurrent(eq(List.of(1L, 2L)), eq(PaymentStatus.PENDING),
+                eq(PaymentStatus.FAILED), anyString(), any(LocalDateTime.class));
+        verify(paymentRepository).updateStatusIfCurrent(eq(List.of(3L)), eq(PaymentStatus.PENDING),
+                eq(PaymentStatus.FAILED), anyString(), any(LocalDateTime.class));
+        verify(bookingServiceClient, times(3)).notifyPaymentCompleted(any(PaymentResponse.class), anyLong());
+    }
+
+    @Test
+    void onlyPaymentsStillPendingAreFailedAndPushedToBooking() {
+        Payment stillPending = pendingPayment(1L);
+        Payment completedMeanwhile = pendingPayment(2L);
+        when(paymentRepository.findByPaymentStatusCreatedBefore(eq(PaymentStatus.PENDING), any(LocalDateTime.class),
+                eq(0L), any(Pageable.class))).thenReturn(List.of(stillPending, completedMeanwhile));
+        // The webhook completed the second payment while its session was being expired
+        when(paymentRepository.findByIdInAndStatusForUpdate(List.of(1L, 2L), PaymentStatus.PENDING))
+                .thenReturn(List.of(stillPending));
+
+        expiredPaymentService.expireOldSessions();
+
+        verify(paymentRepository).updateStatusIfCurrent(eq(List.of(1L)), eq(PaymentStatus.PENDING),
+                eq(PaymentStatus.FAILED), anyString(), any(LocalDateTime.class));
+        ArgumentCaptor<PaymentResponse> pushed = ArgumentCaptor.forClass(PaymentResponse.class);
+        verify(bookingServiceClient).notifyPaymentCompleted(pushed.capture(), eq(7L));
+        assertThat(pushed.getValue().bookingId()).isEqualTo(41L);
+        assertThat(pushed.getValue().paymentStatus()).isEqualTo("FAILED");
+        verifyNoMoreInteractions(bookingServiceClient);
+    }
+
+    @Test
+    void paymentWhoseSessionCouldNotBeExpiredStaysPending() {
+        Payment payment = pendingPayment(1L);
+        when(paymentRepository.findByPaymentStatusCreatedBefore(eq(PaymentStatus.PENDING), any(LocalDateTime.class),
+                eq(0L), any(Pageable.class))).thenReturn(List.of(payment));
+        doThrow(new PaymentProcessingException("Stripe unavailable"))
+                .when(paymentGateway).expireCheckoutSession("cs_1");
+
+        expiredPaymentService.expireOldSessions();
+
+        verify(paymentRepository, never()).findByIdInAndStatusForUpdate(any(), any());
+        verify(paymentRepository, never()).updateStatusIfCurrent(any(), any(), any(), any(), any());
+        verifyNoInteractions(bookingServiceClient);
+    }
+
+    @Test
+    void failedPushDoesNotUndoTheExpiry() {
+        Payment payment = pendingPayment(1L);
+        when(paymentRepository.findByPaymentStatusCreatedBefore(eq(PaymentStatus.PENDING), any(LocalDateTime.class),
+                eq(0L), any(Pageable.class))).thenReturn(List.of(payment));
+        when(paymentRepository.findByIdInAndStatusForUpdate(List.of(1L), PaymentStatus.PENDING))
+                .thenReturn(List.of(payment));
+        doThrow(new RuntimeException("Booking service unavailable"))
+                .when(bookingServiceClient).notifyPaymentCompleted(any(PaymentResponse.class), anyLong());
+
+        expiredPaymentService.expireOldSessions();
+
+        // The checkout.session.expired webhook pushes the outcome again
+        verify(paymentRepository).updateStatusIfCurrent(eq(List.of(1L)), eq(PaymentStatus.PENDING),
+                eq(PaymentStatus.FAILED), anyString(), any(LocalDateTime.class));
+    }
+
+    private Payment pendingPayment(Long id) {
+        return Payment.builder()
+                .id(id)
+                .bookingId(40L + id)
+                .amount(250.0)
+                .paymentMethod("card")
+                .transactionId("cs_" + id)
+                .paymentStatus(PaymentStatus.PENDING)
+                .userId(7L)
+                .build();
+    }
+}
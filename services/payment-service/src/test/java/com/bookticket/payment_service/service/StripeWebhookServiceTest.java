@@ -0,0 +1,151 @@
+package com.bookticket.payment_service.service;
+
+import com.bookticket.payment_service.configuration.StripeConfig;
+import com.bookticket.payment_service.dto.PaymentResponse;
+import com.bookticket.payment_service.entity.Payment;
+import com.bookticket.payment_service.entity.ProcessedWebhookEvent;
+import com.bookticket.payment_service.enums.PaymentStatus;
+import com.bookticket.payment_service.exception.InvalidWebhookSignatureException;
+import com.bookticket.payment_service.repository.PaymentRepository;
+import com.bookticket.payment_service.repository.ProcessedWebhookEventRepository;
+import com.bookticket.payment_service.support.FakeStripeEventSource;
+import com.bookticket.payment_service.support.FakeStripeEventSource.SignedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class StripeWebhookServiceTest {
+
+    private static final String WEBHOOK_SECRET = "whsec_test_secret";
+    private static final String SESSION_ID = "cs_test_123";
+
+    private PaymentRepository paymentRepository;
+    private ProcessedWebhookEventRepository processedWebhookEventRepository;
+    private BookingServiceClient bookingServiceClient;
+    private StripeWebhookService stripeWebhookService;
+    private final FakeStripeEventSource stripe = new FakeStripeEventSource(WEBHOOK_SECRET);
+
+    @BeforeEach
+    void setUp() {
+        paymentRepository = mock(PaymentRepository.class);
+        processedWebhookEventRepository = mock(ProcessedWebhookEventRepository.class);
+        bookingServiceClient = mock(BookingServiceClient.class);
+        StripeConfig stripeConfig = new StripeConfig();
+        stripeConfig.setWebhookSecret(WEBHOOK_SECRET);
+        stripeWebhookService = new StripeWebhookService(paymentRepository, processedWebhookEventRepository,
+                bookingServiceClient, stripeConfig, new TransactionTemplate(mock(PlatformTransactionManager.class)));
+
+        when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void completedSessionMarksPaymentCompletedAndNotifiesBooking() {
+        Payment payment = pendingPayment();
+        when(paymentRepository.findByTransactionId(SESSION_ID)).thenReturn(Optional.of(payment));
+
+        SignedEvent event = stripe.checkoutSessionEvent("checkout.session.completed", SESSION_ID, "paid");
+        stripeWebhookService.handleEvent(event.payload(), event.signatureHeader());
+
+        assertThat(payment.getPaymentStatus()).isEqualTo(PaymentStatus.COMPLETED);
+        assertThat(payment.getPaymentIntentId()).isEqualTo("pi_" + SESSION_ID);
+        ArgumentCaptor<PaymentResponse> pushed = ArgumentCaptor.forClass(PaymentResponse.class);
+        verify(bookingServiceClient).notifyPaymentCompleted(pushed.capture(), eq(7L));
+        assertThat(pushed.getValue().bookingId()).isEqualTo(42L);
+        assertThat(pushed.getValue().paymentStatus()).isEqualTo("COMPLETED");
+    }
+
+    @Test
+    void expiredSessionMarksPaymentFailed() {
+        Payment payment = pendingPayment();
+        when(paymentRepository.findByTransactionId(SESSION_ID)).thenReturn(Optional.of(payment));
+
+        SignedEvent event = stripe.checkoutSessionEvent("checkout.session.expired", SESSION_ID, "unpaid");
+        stripeWebhookService.handleEvent(event.payload(), event.signatureHeader());
+
+        assertThat(payment.getPaymentStatus()).isEqualTo(PaymentStatus.FAILED);
+        verify(bookingServiceClient).notifyPaymentCompleted(any(PaymentResponse.class), eq(7L));
+    }
+
+    @Test
+    void unpaidCompletedSessionStaysPending() {
+        SignedEvent event = stripe.checkoutSessionEvent("checkout.session.completed", SESSION_ID, "unpaid");
+        stripeWebhookService.handleEvent(event.payload(), event.signatureHeader());
+
+        verify(paymentRepository, never()).save(any());
+        verifyNoInteractions(bookingServiceClient);
+    }
+
+    @Test
+    void redeliveredEventIsAppliedOnlyOnce() {
+        SignedEvent event = stripe.checkoutSessionEvent("evt_duplicate", "checkout.session.completed", SESSION_ID, "paid");
+        when(processedWebhookEventRepository.existsById("evt_duplicate")).thenReturn(true);
+
+        stripeWebhookService.handleEvent(event.payload(), event.signatureHeader());
+
+        verify(paymentRepository, never()).findByTransactionId(any());
+        verifyNoInteractions(bookingServiceClient);
+    }
+
+    @Test
+    void failedPushLeavesTheEventForRedelivery() {
+        Payment payment = pendingPayment();
+        when(paymentRepository.findByTransactionId(SESSION_ID)).thenReturn(Optional.of(payment));
+        doThrow(new IllegalStateException("Booking service unavailable"))
+                .doNothing()
+                .when(bookingServiceClient).notifyPaymentCompleted(any(PaymentResponse.class), eq(7L));
+        SignedEvent event = stripe.checkoutSessionEvent("evt_redelivered", "checkout.session.completed", SESSION_ID, "paid");
+
+        // The delivery fails, so Stripe redelivers the event
+        assertThatThrownBy(() -> stripeWebhookService.handleEvent(event.payload(), event.signatureHeader()))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(payment.getPaymentStatus()).isEqualTo(PaymentStatus.COMPLETED);
+        verify(processedWebhookEventRepository, never()).saveAndFlush(any());
+
+        // The redelivery finds the payment completed already and pushes it again
+        stripeWebhookService.handleEvent(event.payload(), event.signatureHeader());
+
+        ArgumentCaptor<PaymentResponse> pushed = ArgumentCaptor.forClass(PaymentResponse.class);
+        verify(bookingServiceClient, times(2)).notifyPaymentCompleted(pushed.capture(), eq(7L));
+        assertThat(pushed.getAllValues()).extracting(PaymentResponse::paymentStatus).containsOnly("COMPLETED");
+        ArgumentCaptor<ProcessedWebhookEvent> recorded = ArgumentCaptor.forClass(ProcessedWebhookEvent.class);
+        verify(processedWebhookEventRepository).saveAndFlush(recorded.capture());
+        assertThat(recorded.getValue().getEventId()).isEqualTo("evt_redelivered");
+    }
+
+    @Test
+    void eventWithInvalidSignatureIsRejected() {
+        SignedEvent genuine = stripe.checkoutSessionEvent("checkout.session.completed", SESSION_ID, "paid");
+        SignedEvent forged = stripe.forge(genuine.payload());
+
+        assertThatThrownBy(() -> stripeWebhookService.handleEvent(forged.payload(), forged.signatureHeader()))
+                .isInstanceOf(InvalidWebhookSignatureException.class);
+        assertThatThrownBy(() -> stripeWebhookService.handleEvent(genuine.payload(), null))
+                .isInstanceOf(InvalidWebhookSignatureException.class);
+
+        verifyNoInteractions(processedWebhookEventRepository, paymentRepository);
+        verify(bookingServiceClient, never()).notifyPaymentCompleted(any(), anyLong());
+    }
+
+    private Payment pendingPayment() {
+        return Payment.builder()
+                .id(1L)
+                .bookingId(42L)
+                .userId(7L)
+                .amount(500.0)
+                .paymentMethod("Stripe_Checkout_Session")
+                .paymentStatus(PaymentStatus.PENDING)
+                .transactionId(SESSION_ID)
+                .build();
+    }
+}
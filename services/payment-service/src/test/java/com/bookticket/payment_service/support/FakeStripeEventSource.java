@@ -0,0 +1,75 @@
+package com.bookticket.payment_service.support;
+
+import com.stripe.Stripe;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Local stand-in for Stripe webhook deliveries.
+ * Builds Checkout Session events and signs them the way Stripe does (t=timestamp,v1=HMAC-SHA256),
+ * so they pass the real signature verification without any network access.
+ */
+public class FakeStripeEventSource {
+
+    private final String webhookSecret;
+
+    public FakeStripeEventSource(String webhookSecret) {
+        this.webhookSecret = webhookSecret;
+    }
+
+    public SignedEvent checkoutSessionEvent(String eventType, String sessionId, String paymentStatus) {
+        return checkoutSessionEvent("evt_" + UUID.randomUUID().toString().replace("-", ""), eventType, sessionId, paymentStatus);
+    }
+
+    public SignedEvent checkoutSessionEvent(String eventId, String eventType, String sessionId, String paymentStatus) {
+        String payload = """
+                {
+                  "id": "%s",
+                  "object": "event",
+                  "api_version": "%s",
+                  "created": %d,
+                  "type": "%s",
+                  "data": {
+                    "object": {
+                      "id": "%s",
+                      "object": "checkout.session",
+                      "payment_status": "%s",
+                      "payment_intent": "pi_%s",
+                      "status": "complete"
+                    }
+                  }
+                }
+                """.formatted(eventId, Stripe.API_VERSION, now(), eventType, sessionId, paymentStatus, sessionId);
+        return new SignedEvent(payload, sign(payload, webhookSecret));
+    }
+
+    /**
+     * Sign a payload with a secret other than the endpoint secret
+     */
+    public SignedEvent forge(String payload) {
+        return new SignedEvent(payload, sign(payload, "whsec_forged"));
+    }
+
+    private static String sign(String payload, String secret) {
+        long timestamp = now();
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            byte[] signature = mac.doFinal((timestamp + "." + payload).getBytes(StandardCharsets.UTF_8));
+            return "t=" + timestamp + ",v1=" + HexFormat.of().formatHex(signature);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to sign fake Stripe event", e);
+        }
+    }
+
+    private static long now() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    public record SignedEvent(String payload, String signatureHeader) {
+    }
+}
@@ -0,0 +1,40 @@
+package com.bookticket.theater_service.Entity;
+
+import com.bookticket.theater_service.enums.ScheduleJobStatus;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Progress of a bulk show scheduling job, kept in the database so it outlives the instance running it
+ */
+@Entity
+@Table(name = "schedule_jobs")
+@Getter
+@Setter
+public class ScheduleJob extends Auditable {
+    @Id
+    @Column(name = "job_id")
+    private String id;
+    private int totalShows;
+    private int createdShows;
+    private int skippedShows;
+    private int failedShows;
+    // Chunks not persisted yet, the job is finished once none is left
+    private int pendingChunks;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ScheduleJobStatus status;
+    // Last time a chunk of the job was done
+    private LocalDateTime progressAt;
+    private LocalDateTime finishedAt;
+    @ElementCollection
+    @CollectionTable(name = "schedule_job_errors", joinColumns = @JoinColumn(name = "job_id"))
+    @OrderColumn(name = "position")
+    @Column(name = "error", length = 1000)
+    private List<String> errors = new ArrayList<>();
+}
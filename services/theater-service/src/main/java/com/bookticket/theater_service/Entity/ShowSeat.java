@@ -4,8 +4,13 @@ import com.bookticket.theater_service.enums.ShowSeatStatus;
 import jakarta.persistence.*;
 import lombok.Data;
 
+import java.time.LocalDateTime;
+
 @Entity
-@Table(name = "show_seats")
+@Table(name = "show_seats", indexes = {
+        // Hold expiry sweep
+        @Index(name = "idx_show_seats_status_locked_until", columnList = "status, locked_until")
+})
 @Data
 public class ShowSeat extends Auditable{
     @Id
@@ -23,6 +28,9 @@ public class ShowSeat extends Auditable{
     @Enumerated(EnumType.STRING)
     private ShowSeatStatus status;
 
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil; // Set while LOCKED, the hold is returned to AVAILABLE afterwards
+
     @Column(nullable = false)
     private double price; // Copied from Seat, can be changed by dynamic pricing
 }
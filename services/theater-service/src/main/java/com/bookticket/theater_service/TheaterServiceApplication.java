@@ -1,9 +1,13 @@
 package com.bookticket.theater_service;
 
+import com.bookticket.theater_service.configuration.SeatStateProperties;
+import com.bookticket.theater_service.configuration.SeatStreamProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
@@ -11,6 +15,8 @@ import org.springframework.transaction.annotation.EnableTransactionManagement;
 @EnableMethodSecurity
 @EnableDiscoveryClient
 @EnableTransactionManagement
+@EnableScheduling
+@EnableConfigurationProperties({SeatStateProperties.class, SeatStreamProperties.class})
 public class TheaterServiceApplication {
 
 	public static void main(String[] args) {
@@ -4,8 +4,11 @@ import com.bookticket.theater_service.security.HeaderPropagationInterceptor;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.client.RestClient;
 
+import java.util.concurrent.Executor;
+
 @Configuration
 public class AppConfig {
 
@@ -14,6 +17,22 @@ public class AppConfig {
         return new HeaderPropagationInterceptor();
     }
 
+    /**
+     * Executor for bulk show scheduling, every task persists one chunk of shows of a screen
+     */
+    @Bean(name = "showScheduleExecutor")
+    public Executor showScheduleExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(10000);
+        executor.setThreadNamePrefix("show-schedule-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+
     @Bean("movieApiClient")
     @LoadBalanced
     public RestClient.Builder movieRestClientBuilder() {
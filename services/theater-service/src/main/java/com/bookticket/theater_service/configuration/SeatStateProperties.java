@@ -0,0 +1,34 @@
+package com.bookticket.theater_service.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+
+@ConfigurationProperties(prefix = "theater.seat-state")
+@Data
+public class SeatStateProperties {
+
+    /**
+     * Shows starting within this window are loaded into the seat state engine on startup.
+     * Other shows are loaded lazily on first access.
+     */
+    private Duration warmUpWindow = Duration.ofHours(24);
+
+    /**
+     * Maximum number of show seat ids sent in a single write-behind UPDATE statement
+     */
+    private int flushBatchSize = 500;
+
+    /**
+     * How long locked seats are held before being returned to available.
+     * Must outlast the checkout session, a booking can only book seats that are still locked.
+     */
+    private Duration holdDuration = Duration.ofMinutes(35);
+
+    /**
+     * Maximum number of expired holds released per statement by the hold sweeper
+     */
+    private int holdSweepBatchSize = 500;
+}
@@ -0,0 +1,38 @@
+package com.bookticket.theater_service.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+
+@ConfigurationProperties(prefix = "theater.seat-stream")
+@Data
+public class SeatStreamProperties {
+
+    /**
+     * Maximum number of frames buffered per connection, a connection that falls further behind is closed
+     */
+    private int bufferSize = 32;
+
+    /**
+     * Maximum number of open streams per show on this instance
+     */
+    private int maxSubscribersPerShow = 50000;
+
+    /**
+     * Number of threads writing frames to the connections
+     */
+    private int writerThreads = 8;
+
+    /**
+     * Longest time a single frame may take to be written, a connection blocking longer is dropped
+     * so that it hands its writer thread back
+     */
+    private Duration writeTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Lifetime of a stream, clients reconnect with Last-Event-ID afterwards
+     */
+    private Duration timeout = Duration.ofMinutes(30);
+}
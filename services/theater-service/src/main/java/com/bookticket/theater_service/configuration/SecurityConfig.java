@@ -53,6 +53,7 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.POST,"/api/v1/shows/**").hasAnyRole("ADMIN","THEATER_OWNER")
                         .requestMatchers(HttpMethod.PATCH,"/api/v1/shows/**").hasAnyRole("ADMIN", "THEATER_OWNER")
                         .requestMatchers(HttpMethod.DELETE,"/api/v1/shows/**").hasAnyRole("ADMIN", "THEATER_OWNER")
+                        .requestMatchers(HttpMethod.GET,"/api/v1/shows/schedules/**").hasAnyRole("ADMIN", "THEATER_OWNER")
                         .requestMatchers(HttpMethod.GET,"/api/v1/shows/**").permitAll()
                         // Actuator and any other authenticated requests
                         .requestMatchers("/actuator/**").permitAll()
@@ -86,6 +86,50 @@ public class SeatController {
         return new ResponseEntity<>(seatService.lockSeatsByShowAndSeatIds(lockSeatsRequest), HttpStatus.OK);
     }
 
+    @InternalApi
+    @Operation(summary = "Verify and lock seats for a show in a single call",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "All seats were available and are now locked"),
+                    @ApiResponse(responseCode = "409", description = "Some seats are invalid or no longer available, nothing was locked")
+            }
+    )
+    @PostMapping("/shows/internal/seats/reserve")
+    public ResponseEntity<List<ValidSeatResponse>> reserveSeats(@Valid @RequestBody ReserveSeatsRequest reserveSeatsRequest) {
+        List<ValidSeatResponse> reservedSeats = seatService.reserveSeatsByShowAndSeatIds(reserveSeatsRequest);
+        if(reservedSeats.isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+        return new ResponseEntity<>(reservedSeats, HttpStatus.OK);
+    }
+
+    @InternalApi
+    @Operation(summary = "Verify and lock the seats of several bookings of a show in a single call",
+            description = "Each booking is reserved all-or-nothing on its own. The response holds the seats of each booking in request order, an empty list for bookings whose seats are invalid or no longer available.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Seats of every booking that could be reserved are now locked")
+            }
+    )
+    @PostMapping("/shows/internal/seats/reserve-batch")
+    public ResponseEntity<List<List<ValidSeatResponse>>> reserveSeatsBatch(@Valid @RequestBody ReserveSeatsBatchRequest reserveSeatsBatchRequest) {
+        return new ResponseEntity<>(seatService.reserveSeatsBatch(reserveSeatsBatchRequest), HttpStatus.OK);
+    }
+
+    @InternalApi
+    @Operation(summary = "Pick and lock the best available adjacent seats for a show",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Seats were picked and are now locked"),
+                    @ApiResponse(responseCode = "409", description = "No block of adjacent seats is available, nothing was locked")
+            }
+    )
+    @PostMapping("/shows/internal/seats/allocate")
+    public ResponseEntity<List<ValidSeatResponse>> allocateSeats(@Valid @RequestBody AllocateSeatsRequest allocateSeatsRequest) {
+        List<ValidSeatResponse> allocatedSeats = seatService.allocateSeats(allocateSeatsRequest);
+        if(allocatedSeats.isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+        return new ResponseEntity<>(allocatedSeats, HttpStatus.OK);
+    }
+
     @InternalApi
     @Operation(summary = "Release locked seats for a show")
     @PostMapping("/shows/internal/seats/release")
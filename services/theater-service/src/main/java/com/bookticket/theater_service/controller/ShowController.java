@@ -1,8 +1,13 @@
 package com.bookticket.theater_service.controller;
 
 import com.bookticket.theater_service.dto.CreateShowRequest;
+import com.bookticket.theater_service.dto.ScheduleJobResponse;
+import com.bookticket.theater_service.dto.ScheduleShowsRequest;
+import com.bookticket.theater_service.dto.SeatMapResponse;
+import com.bookticket.theater_service.dto.ShowAvailabilityResponse;
 import com.bookticket.theater_service.dto.ShowResponse;
 import com.bookticket.theater_service.dto.ShowSeatResponse;
+import com.bookticket.theater_service.service.ShowScheduleService;
 import com.bookticket.theater_service.service.ShowService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -13,9 +18,12 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -27,8 +35,11 @@ import java.util.List;
 public class ShowController {
     private final ShowService showService;
 
-    public ShowController(ShowService showService) {
+    private final ShowScheduleService showScheduleService;
+
+    public ShowController(ShowService showService, ShowScheduleService showScheduleService) {
         this.showService = showService;
+        this.showScheduleService = showScheduleService;
     }
 
     @Operation(
@@ -54,6 +65,46 @@ public class ShowController {
         return new ResponseEntity<>(showService.createShow(screenId, createShowRequest), HttpStatus.CREATED);
     }
 
+    @Operation(
+            summary = "Schedule recurring shows",
+            description = "Schedules shows in bulk from recurrence rules spanning many screens. Shows overlapping an existing or another requested show on the same screen are skipped. The shows are created in the background, poll the returned job for progress.",
+            responses = {
+                    @ApiResponse(responseCode = "202", description = "Scheduling started",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ScheduleJobResponse.class))),
+                    @ApiResponse(responseCode = "400", description = "Invalid rules, unknown screen or unknown movie"),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized"),
+                    @ApiResponse(responseCode = "403", description = "Forbidden - Insufficient privileges"),
+                    @ApiResponse(responseCode = "500", description = "Internal server error")
+            }
+    )
+    @PostMapping("/schedules")
+    public ResponseEntity<ScheduleJobResponse> scheduleShows(@Valid @RequestBody ScheduleShowsRequest scheduleShowsRequest) {
+        try {
+            return new ResponseEntity<>(showScheduleService.scheduleShows(scheduleShowsRequest), HttpStatus.ACCEPTED);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(
+            summary = "Get show scheduling progress",
+            description = "Reports the progress of a bulk scheduling job. Finished jobs are kept for an hour. A job cut off by a restart is reported as INTERRUPTED, scheduling its rules again creates the shows it missed.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Successfully retrieved job progress",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ScheduleJobResponse.class))),
+                    @ApiResponse(responseCode = "404", description = "Job not found")
+            }
+    )
+    @GetMapping("/schedules/{jobId}")
+    public ResponseEntity<ScheduleJobResponse> getScheduleJob(
+            @Parameter(description = "ID of the scheduling job", required = true) @PathVariable String jobId) {
+        ScheduleJobResponse job = showScheduleService.getScheduleJob(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job);
+    }
+
     @Operation(
             summary = "Find shows with filters",
             description = "Finds shows with flexible filtering. Supports combinations of city, theaterId, movieId, and date. If no date is provided, returns shows for the next 15 days.",
@@ -78,6 +129,24 @@ public class ShowController {
         return ResponseEntity.ok(showResponses);
     }
 
+    @Operation(
+            summary = "Get seat availability of shows",
+            description = "Returns the number of available, locked and booked seats of every requested show, in total and per seat type. Meant for listing pages, one call covers all the shows of a page.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Successfully retrieved availability, shows without seats are left out",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ShowAvailabilityResponse.class))),
+                    @ApiResponse(responseCode = "400", description = "Too many shows requested")
+            }
+    )
+    @GetMapping("/availability")
+    public ResponseEntity<List<ShowAvailabilityResponse>> getShowAvailability(
+            @Parameter(description = "IDs of the shows, at most 200", required = true) @RequestParam List<Long> showIds) {
+        if (showIds.size() > 200) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(showService.getShowAvailability(showIds));
+    }
+
     @Operation(
             summary = "Get movie IDs by city (Internal)",
             description = "An internal service-to-service endpoint to get a list of movie IDs playing in a specific city. Not intended for public use.",
@@ -128,10 +197,11 @@ public class ShowController {
 
     @Operation(
             summary = "Get seat map for a show",
-            description = "Retrieves the complete seat map for a show, including the layout and availability status of each seat.",
+            description = "Retrieves the complete seat map for a show, including the layout and availability status of each seat. The ETag is the seat map revision, send it back in If-None-Match to get 304 when nothing changed.",
             responses = {
                     @ApiResponse(responseCode = "200", description = "Successfully retrieved seat map",
                             content = @Content(mediaType = "application/json", schema = @Schema(implementation = ShowSeatResponse.class))),
+                    @ApiResponse(responseCode = "304", description = "Seat map not modified since the given revision"),
                     @ApiResponse(responseCode = "404", description = "Show not found"),
                     @ApiResponse(responseCode = "500", description = "Internal server error"),
                     @ApiResponse(responseCode = "503", description = "Service unavailable"),
@@ -141,11 +211,63 @@ public class ShowController {
     )
     @GetMapping("/{showId}/seats")
     public ResponseEntity<List<ShowSeatResponse>> getShowSeats(
-            @Parameter(description = "ID of the show to get the seat map for", required = true) @PathVariable Long showId) {
-        List<ShowSeatResponse> showSeatResponses = showService.getShowSeatsByShowId(showId);
-        if(showSeatResponses.isEmpty()) {
+            @Parameter(description = "ID of the show to get the seat map for", required = true) @PathVariable Long showId,
+            @Parameter(description = "ETag of a seat map already held by the client") @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        SeatMapResponse seatMap = showService.getShowSeatsByShowId(showId);
+        if (seatMap == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(showService.getShowSeatsByShowId(showId));
+        String eTag = "\"" + seatMap.revision() + "\"";
+        if (eTag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).body(seatMap.seats());
+    }
+
+    @Operation(
+            summary = "Get seat map changes for a show",
+            description = "Retrieves only the seats whose status changed after the given seat map revision. If the revision is unknown (for example after a restart) the complete seat map is returned with full set to true.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Successfully retrieved seat map changes",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = SeatMapResponse.class))),
+                    @ApiResponse(responseCode = "404", description = "Show not found"),
+                    @ApiResponse(responseCode = "500", description = "Internal server error"),
+                    @ApiResponse(responseCode = "429", description = "Too many requests")
+            }
+    )
+    @GetMapping("/{showId}/seats/changes")
+    public ResponseEntity<SeatMapResponse> getShowSeatChanges(
+            @Parameter(description = "ID of the show to get the seat map changes for", required = true) @PathVariable Long showId,
+            @Parameter(description = "Seat map revision held by the client", required = true) @RequestParam long sinceRevision) {
+        SeatMapResponse changes = showService.getShowSeatChanges(showId, sinceRevision);
+        if (changes == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok().eTag("\"" + changes.revision() + "\"").body(changes);
+    }
+
+    @Operation(
+            summary = "Stream seat changes for a show",
+            description = "Opens a Server-Sent Events stream of the show seat map. The first event holds the complete seat map (or the changes since Last-Event-ID when reconnecting), every following event holds the seats whose status changed. Event ids are seat map revisions.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Stream opened",
+                            content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE, schema = @Schema(implementation = SeatMapResponse.class))),
+                    @ApiResponse(responseCode = "404", description = "Show not found"),
+                    @ApiResponse(responseCode = "503", description = "Too many open streams for the show")
+            }
+    )
+    @GetMapping(value = "/{showId}/seats/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamShowSeats(
+            @Parameter(description = "ID of the show to stream the seat map of", required = true) @PathVariable Long showId,
+            @Parameter(description = "Seat map revision received last, set by the browser when reconnecting") @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        try {
+            SseEmitter emitter = showService.streamShowSeats(showId, lastEventId);
+            if (emitter == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok().header(HttpHeaders.CACHE_CONTROL, "no-cache").header("X-Accel-Buffering", "no").body(emitter);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
     }
 }
@@ -0,0 +1,23 @@
+package com.bookticket.theater_service.dto;
+
+import com.bookticket.theater_service.enums.SeatType;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+public record AllocateSeatsRequest(
+        @NotNull(message = "Show ID is required")
+        Long showId,
+
+        @NotNull(message = "Seat count is required")
+        @Min(value = 1, message = "Seat count must be greater than 0")
+        @Max(value = 10, message = "At most 10 seats can be allocated together")
+        Integer seatCount,
+
+        // Any seat type when null
+        SeatType seatType,
+
+        // Two thirds back from the screen when null
+        Integer preferredRow
+) {
+}
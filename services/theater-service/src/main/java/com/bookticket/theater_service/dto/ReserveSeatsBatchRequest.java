@@ -0,0 +1,12 @@
+package com.bookticket.theater_service.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.List;
+
+public record ReserveSeatsBatchRequest(
+        @NotNull Long showId,
+        @NotEmpty List<List<Long>> reservations  // Show seat ids of each booking, reserved all-or-nothing per booking
+) {
+}
@@ -1,12 +1,12 @@
-package com.bookticket.booking_service.dto;
+package com.bookticket.theater_service.dto;
 
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 
 import java.util.List;
 
-public record VerifySeatsRequest(
-       @NotNull Long showId,
+public record ReserveSeatsRequest(
+        @NotNull Long showId,
         @NotEmpty List<Long> seatIds
 ) {
 }
@@ -0,0 +1,16 @@
+package com.bookticket.theater_service.dto;
+
+import com.bookticket.theater_service.enums.ScheduleJobStatus;
+
+import java.util.List;
+
+public record ScheduleJobResponse(
+        String jobId,
+        ScheduleJobStatus status,
+        int totalShows,
+        int createdShows,
+        int skippedShows,
+        int failedShows,
+        List<String> errors
+) {
+}
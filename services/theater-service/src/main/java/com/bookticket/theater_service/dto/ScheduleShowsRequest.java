@@ -0,0 +1,12 @@
+package com.bookticket.theater_service.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+public record ScheduleShowsRequest(
+        @NotEmpty(message = "At least one recurrence rule is required")
+        List<@Valid ShowRecurrenceRule> rules
+) {
+}
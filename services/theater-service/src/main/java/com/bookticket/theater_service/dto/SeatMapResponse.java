@@ -0,0 +1,17 @@
+package com.bookticket.theater_service.dto;
+
+import java.util.List;
+
+/**
+ * Seat map of a show at a given revision
+ *
+ * @param revision revision of the seat map, pass it back as sinceRevision to get the next changes
+ * @param full     true if seats holds the whole seat map, false if only seats changed since the requested revision
+ */
+public record SeatMapResponse(
+        Long showId,
+        long revision,
+        boolean full,
+        List<ShowSeatResponse> seats
+) {
+}
@@ -0,0 +1,11 @@
+package com.bookticket.theater_service.dto;
+
+import com.bookticket.theater_service.enums.SeatType;
+
+public record SeatTypeAvailability(
+        SeatType seatType,
+        int available,
+        int locked,
+        int booked
+) {
+}
@@ -0,0 +1,12 @@
+package com.bookticket.theater_service.dto;
+
+import java.util.List;
+
+public record ShowAvailabilityResponse(
+        Long showId,
+        int available,
+        int locked,
+        int booked,
+        List<SeatTypeAvailability> seatTypes
+) {
+}
@@ -0,0 +1,39 @@
+package com.bookticket.theater_service.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Shows of one movie on every given screen, at every start time of every matching day
+ */
+public record ShowRecurrenceRule(
+        @NotNull(message = "Movie ID is required")
+        String movieId,
+
+        @NotEmpty(message = "At least one screen is required")
+        List<Long> screenIds,
+
+        @NotNull(message = "Start date is required")
+        LocalDate startDate,
+
+        @NotNull(message = "End date is required")
+        LocalDate endDate,
+
+        // Every day of the range when empty
+        Set<DayOfWeek> daysOfWeek,
+
+        @NotEmpty(message = "At least one start time is required")
+        List<LocalTime> startTimes,
+
+        @NotNull(message = "Duration is required")
+        @Min(value = 1, message = "Duration must be greater than 0")
+        Integer durationMinutes
+) {
+}
@@ -0,0 +1,17 @@
+package com.bookticket.theater_service.dto;
+
+import com.bookticket.theater_service.enums.SeatType;
+import com.bookticket.theater_service.enums.ShowSeatStatus;
+
+import java.time.LocalDateTime;
+
+public record ShowSeatSnapshot(
+        Long showSeatId,
+        int row,
+        int column,
+        SeatType seatType,
+        double price,
+        ShowSeatStatus status,
+        LocalDateTime lockedUntil
+) {
+}
@@ -0,0 +1,9 @@
+package com.bookticket.theater_service.enums;
+
+public enum ScheduleJobStatus {
+    RUNNING,
+    COMPLETED,
+    COMPLETED_WITH_ERRORS,
+    // No progress for long, the instance running it stopped before it finished
+    INTERRUPTED
+}
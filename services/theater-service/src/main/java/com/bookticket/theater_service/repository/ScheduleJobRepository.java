@@ -0,0 +1,26 @@
+package com.bookticket.theater_service.repository;
+
+import com.bookticket.theater_service.Entity.ScheduleJob;
+import com.bookticket.theater_service.enums.ScheduleJobStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface ScheduleJobRepository extends JpaRepository<ScheduleJob, String> {
+
+    /**
+     * Lock the job row, so chunks finishing at the same time do not lose each other's progress
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT j FROM ScheduleJob j WHERE j.id = :jobId")
+    Optional<ScheduleJob> findByIdForUpdate(@Param("jobId") String jobId);
+
+    long deleteByFinishedAtBefore(LocalDateTime cutoff);
+
+    long deleteByStatusAndProgressAtBefore(ScheduleJobStatus status, LocalDateTime cutoff);
+}
@@ -1,11 +1,22 @@
 package com.bookticket.theater_service.repository;
 
 import com.bookticket.theater_service.Entity.Screen;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
 
 public interface ScreenRepository extends JpaRepository<Screen,Long> {
     Optional<List<Screen>> findByTheaterId(Long theaterId);
+
+    /**
+     * Lock the screen row, so shows are scheduled on a screen one transaction at a time
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Screen s WHERE s.id = :screenId")
+    Optional<Screen> findByIdForUpdate(@Param("screenId") Long screenId);
 }
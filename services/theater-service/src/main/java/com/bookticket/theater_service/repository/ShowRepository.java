@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface ShowRepository extends JpaRepository<Show,Long> {
@@ -44,4 +45,13 @@ public interface ShowRepository extends JpaRepository<Show,Long> {
     @Query("SELECT s FROM Show s WHERE s.screen.id = :screenId")
     List<Show> findShowsByScreenId(@Param("screenId") Long screenId);
 
+    @Query("SELECT s.screen.id, s.startTime, s.endTime FROM Show s " +
+            "WHERE s.screen.id IN :screenIds AND s.startTime < :to AND s.endTime > :from")
+    List<Object[]> findShowIntervalsByScreenIds(@Param("screenIds") Collection<Long> screenIds,
+                                               @Param("from") LocalDateTime from,
+                                               @Param("to") LocalDateTime to);
+
+    @Query("SELECT s FROM Show s WHERE s.startTime >= :from AND s.startTime < :to")
+    List<Show> findShowsStartingBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
 }
@@ -2,13 +2,20 @@ package com.bookticket.theater_service.repository;
 
 import com.bookticket.theater_service.Entity.ShowSeat;
 import com.bookticket.theater_service.dto.ShowSeatResponse;
+import com.bookticket.theater_service.dto.ShowSeatSnapshot;
 import com.bookticket.theater_service.enums.ShowSeatStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -45,4 +52,76 @@ public interface ShowSeatRepository extends JpaRepository<ShowSeat,Long> {
                              @Param("showSeatIds") List<Long> showSeatIds,
                              @Param("status") ShowSeatStatus status
     );
+
+    // Show seat inventory, one row per template seat of the screen
+    @Modifying
+    @Query(value = "INSERT INTO show_seats (show_id, seat_id, status, price, created_at, updated_at, created_by) " +
+            "SELECT :showId, s.seat_id, :status, s.price, :createdAt, :createdAt, :createdBy " +
+            "FROM seats s " +
+            "WHERE s.screen_id = :screenId", nativeQuery = true)
+    int insertShowSeatsFromTemplate(@Param("showId") Long showId,
+                                    @Param("screenId") Long screenId,
+                                    @Param("status") String status,
+                                    @Param("createdAt") LocalDate createdAt,
+                                    @Param("createdBy") String createdBy
+    );
+
+    // Show seat inventory of many shows at once, used by bulk scheduling
+    @Modifying
+    @Query(value = "INSERT INTO show_seats (show_id, seat_id, status, price, created_at, updated_at, created_by) " +
+            "SELECT sh.show_id, s.seat_id, :status, s.price, :createdAt, :createdAt, :createdBy " +
+            "FROM shows sh " +
+            "JOIN seats s ON s.screen_id = sh.screen_id " +
+            "WHERE sh.show_id IN :showIds", nativeQuery = true)
+    int insertShowSeatsForShows(@Param("showIds") List<Long> showIds,
+                                @Param("status") String status,
+                                @Param("createdAt") LocalDate createdAt,
+                                @Param("createdBy") String createdBy
+    );
+
+    // Availability of shows not resident in the seat state engine: show id, seat type, status, count
+    @Query("SELECT ss.show.id, s.seatType, ss.status, COUNT(ss) " +
+            "FROM ShowSeat ss " +
+            "JOIN ss.seat s " +
+            "WHERE ss.show.id IN :showIds " +
+            "GROUP BY ss.show.id, s.seatType, ss.status")
+    List<Object[]> countSeatsByShowIds(@Param("showIds") Collection<Long> showIds);
+
+    // Seat state engine load and reconcile
+    @Query("SELECT new com.bookticket.theater_service.dto.ShowSeatSnapshot(" +
+            "ss.id, s.row, s.column, s.seatType, ss.price, ss.status, ss.lockedUntil) " +
+            "FROM ShowSeat ss " +
+            "JOIN ss.seat s " +
+            "WHERE ss.show.id = :showId")
+    List<ShowSeatSnapshot> findSeatSnapshotsByShowId(@Param("showId") Long showId);
+
+    // Seat state engine write-behind, current status of the rows about to be written, locked until commit
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT ss.id, ss.status FROM ShowSeat ss WHERE ss.id IN :showSeatIds")
+    List<Object[]> lockShowSeatStatuses(@Param("showSeatIds") List<Long> showSeatIds);
+
+    // Seat state engine write-behind, only for rows locked and verified with lockShowSeatStatuses
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ShowSeat ss SET ss.status = :status, ss.lockedUntil = :lockedUntil WHERE ss.id IN :showSeatIds")
+    int overwriteShowSeatStatus(@Param("showSeatIds") List<Long> showSeatIds,
+                                @Param("status") ShowSeatStatus status,
+                                @Param("lockedUntil") LocalDateTime lockedUntil
+    );
+
+    // Hold expiry sweep of shows not resident in the seat state engine, keyset paged by id
+    @Query("SELECT ss.id, ss.show.id FROM ShowSeat ss " +
+            "WHERE ss.status = com.bookticket.theater_service.enums.ShowSeatStatus.LOCKED " +
+            "AND ss.lockedUntil < :now AND ss.id > :afterId " +
+            "ORDER BY ss.id")
+    List<Object[]> findExpiredHolds(@Param("now") LocalDateTime now,
+                                    @Param("afterId") Long afterId,
+                                    Pageable pageable);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ShowSeat ss SET ss.status = com.bookticket.theater_service.enums.ShowSeatStatus.AVAILABLE, ss.lockedUntil = NULL " +
+            "WHERE ss.id IN :showSeatIds " +
+            "AND ss.status = com.bookticket.theater_service.enums.ShowSeatStatus.LOCKED " +
+            "AND ss.lockedUntil < :now")
+    int releaseExpiredHolds(@Param("showSeatIds") List<Long> showSeatIds,
+                            @Param("now") LocalDateTime now);
 }
@@ -2,13 +2,11 @@ package com.bookticket.theater_service.service;
 
 import com.bookticket.theater_service.Entity.Screen;
 import com.bookticket.theater_service.Entity.Seat;
-import com.bookticket.theater_service.Entity.ShowSeat;
 import com.bookticket.theater_service.dto.*;
 import com.bookticket.theater_service.enums.SeatType;
-import com.bookticket.theater_service.enums.ShowSeatStatus;
 import com.bookticket.theater_service.repository.ScreenRepository;
 import com.bookticket.theater_service.repository.SeatRepository;
-import com.bookticket.theater_service.repository.ShowSeatRepository;
+import com.bookticket.theater_service.service.seatstate.SeatStateEngine;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -16,19 +14,17 @@ import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 import java.util.stream.Collectors;
 
-import static java.util.Arrays.stream;
-
 @Service
 @Slf4j
 public class SeatService {
     private final SeatRepository seatRepository;
     private final ScreenRepository screenRepository;
-    private final ShowSeatRepository showSeatRepository;
+    private final SeatStateEngine seatStateEngine;
 
-    public SeatService(SeatRepository seatRepository, ScreenRepository screenRepository, ShowSeatRepository showSeatRepository) {
+    public SeatService(SeatRepository seatRepository, ScreenRepository screenRepository, SeatStateEngine seatStateEngine) {
         this.seatRepository = seatRepository;
         this.screenRepository = screenRepository;
-        this.showSeatRepository = showSeatRepository;
+        this.seatStateEngine = seatStateEngine;
     }
 
     public SeatResponse getSeatById(Long seatId) {
@@ -44,17 +40,16 @@ public class SeatService {
     }
 
     public List<ValidSeatResponse> getAvailableSeats(Long showId, List<Long> seatIds) {
-        List<ShowSeat> validSeats = showSeatRepository.findByShowIdAndShowSeatIdsAndStatus(showId, seatIds, ShowSeatStatus.AVAILABLE);
-        return buildValidSeatResponse(validSeats);
+        return seatStateEngine.getAvailableSeats(showId, seatIds);
     }
 
     public List<ValidSeatResponse> getSeatByShowAndSeatIds(Long showId, List<Long> seatIds) {
-        List<ShowSeat>showSeats = showSeatRepository.findByShowIdAndShowSeatIds(showId, seatIds);
+        List<ValidSeatResponse> showSeats = seatStateEngine.getSeats(showId, seatIds);
         log.info("Found {} seats", showSeats.size());
         if(showSeats.size() != seatIds.size()) {
             log.warn("Requested {} seats, but found only {} seats", seatIds.size(), showSeats.size());
         }
-        return buildValidSeatResponse(showSeats);
+        return showSeats;
     }
 
     @Transactional
@@ -187,90 +182,128 @@ public class SeatService {
                 .toList();
     }
 
-    @Transactional
     public List<ValidSeatResponse> lockSeatsByShowAndSeatIds(LockSeatsRequest lockSeatsRequest) {
        log.info("Locking seats for show id: {} and seat ids: {}",
                 lockSeatsRequest.showId(),
                 lockSeatsRequest.seatIds()
         );
 
-       int updatedCount = showSeatRepository.updateShowSeatStatus(
-                lockSeatsRequest.showId(),
-                lockSeatsRequest.seatIds(),
-                ShowSeatStatus.LOCKED
-       );
-
-       if(updatedCount != lockSeatsRequest.seatIds().size()) {
-           log.warn("Failed to lock all seats. Requested: {}, Locked : {}, Rolling Back",
-                   lockSeatsRequest.seatIds().size(),
-                   updatedCount
+       if(!seatStateEngine.lockSeats(lockSeatsRequest.showId(), lockSeatsRequest.seatIds())) {
+           log.warn("Failed to lock all seats. Requested: {}, Some seats are no longer available",
+                   lockSeatsRequest.seatIds().size()
            );
            // TODO - throws SeatsUnavailableException("Some Seats are not longer avaialble, Please try again."); 409 Conflict
             throw new RuntimeException("Failed to lock seats");
        }
 
-       log.info("Successfully locked {} seats for show id: {}", updatedCount, lockSeatsRequest.showId());
+       log.info("Successfully locked {} seats for show id: {}", lockSeatsRequest.seatIds().size(), lockSeatsRequest.showId());
        return getSeatByShowAndSeatIds(lockSeatsRequest.showId(), lockSeatsRequest.seatIds());
     }
 
-    @Transactional
+    /**
+     * Validate and lock the requested seats in a single step.
+     *
+     * @param reserveSeatsRequest show id and show seat ids to reserve
+     * @return priced seats if all of them were available and are now locked, an empty list otherwise
+     */
+    public List<ValidSeatResponse> reserveSeatsByShowAndSeatIds(ReserveSeatsRequest reserveSeatsRequest) {
+        log.info("Reserving seats for show id: {} and seat ids: {}",
+                reserveSeatsRequest.showId(),
+                reserveSeatsRequest.seatIds()
+        );
+
+        if(reserveSeatsRequest.seatIds() == null || reserveSeatsRequest.seatIds().isEmpty()
+                || !seatStateEngine.lockSeats(reserveSeatsRequest.showId(), reserveSeatsRequest.seatIds())) {
+            log.warn("Failed to reserve seats for show id: {}, Some seats are invalid or no longer available",
+                    reserveSeatsRequest.showId());
+            return List.of();
+        }
+
+        List<ValidSeatResponse> reservedSeats = seatStateEngine.getSeats(reserveSeatsRequest.showId(), reserveSeatsRequest.seatIds());
+        log.info("Successfully reserved {} seats for show id: {}", reservedSeats.size(), reserveSeatsRequest.showId());
+        return reservedSeats;
+    }
+
+    /**
+     * Validate and lock the seats of several bookings of a show in a single call.
+     * Each reservation is locked all-or-nothing on its own, so a rejected one does not affect the others.
+     *
+     * @param reserveSeatsBatchRequest show id and the show seat ids of each booking
+     * @return priced seats of each reservation in request order, an empty list for reservations that were not locked
+     */
+    public List<List<ValidSeatResponse>> reserveSeatsBatch(ReserveSeatsBatchRequest reserveSeatsBatchRequest) {
+        Long showId = reserveSeatsBatchRequest.showId();
+        log.info("Reserving seats of {} bookings for show id: {}", reserveSeatsBatchRequest.reservations().size(), showId);
+
+        List<List<ValidSeatResponse>> reservedSeats = reserveSeatsBatchRequest.reservations().stream()
+                .map(seatIds -> reserveSeatsByShowAndSeatIds(new ReserveSeatsRequest(showId, seatIds)))
+                .toList();
+        log.info("Successfully reserved seats of {} out of {} bookings for show id: {}",
+                reservedSeats.stream().filter(seats -> !seats.isEmpty()).count(), reservedSeats.size(), showId);
+        return reservedSeats;
+    }
+
+    /**
+     * Pick and lock the best available adjacent seats in a single step.
+     *
+     * @param allocateSeatsRequest show id, number of seats and seat preferences
+     * @return priced seats now locked, an empty list if no block of adjacent seats is available
+     */
+    public List<ValidSeatResponse> allocateSeats(AllocateSeatsRequest allocateSeatsRequest) {
+        log.info("Allocating {} {} seats for show id: {}",
+                allocateSeatsRequest.seatCount(),
+                allocateSeatsRequest.seatType() == null ? "any" : allocateSeatsRequest.seatType(),
+                allocateSeatsRequest.showId()
+        );
+
+        List<ValidSeatResponse> allocatedSeats = seatStateEngine.allocateSeats(allocateSeatsRequest.showId(),
+                allocateSeatsRequest.seatCount(), allocateSeatsRequest.seatType(), allocateSeatsRequest.preferredRow());
+        if (allocatedSeats.isEmpty()) {
+            log.warn("No block of {} adjacent seats available for show id: {}",
+                    allocateSeatsRequest.seatCount(), allocateSeatsRequest.showId());
+            return List.of();
+        }
+        log.info("Successfully allocated seats {} for show id: {}",
+                allocatedSeats.stream().map(ValidSeatResponse::seatNumber).toList(), allocateSeatsRequest.showId());
+        return allocatedSeats;
+    }
+
     public List<ValidSeatResponse> bookSeatsByShowAndSeatIds(BookSeatsRequest bookSeatsRequest) {
         log.info("Booking seats for show id: {} and seat ids: {}",
                 bookSeatsRequest.showId(),
                 bookSeatsRequest.seatIds()
         );
 
-        int updatedCount = showSeatRepository.updateShowSeatStatus(
-                bookSeatsRequest.showId(),
-                bookSeatsRequest.seatIds(),
-                ShowSeatStatus.BOOKED
-        );
-
-        if(updatedCount != bookSeatsRequest.seatIds().size()) {
-            log.warn("Failed to book all seats. Requested: {}, Booked : {}, Rolling Back",
-                    bookSeatsRequest.seatIds().size(),
-                    updatedCount
+        if(!seatStateEngine.bookSeats(bookSeatsRequest.showId(), bookSeatsRequest.seatIds())) {
+            log.warn("Failed to book all seats. Requested: {}, Some seats are no longer locked",
+                    bookSeatsRequest.seatIds().size()
             );
             throw new RuntimeException("Failed to book seats");
         }
 
-        log.info("Successfully booked {} seats for show id: {}", updatedCount, bookSeatsRequest.showId());
+        log.info("Successfully booked {} seats for show id: {}", bookSeatsRequest.seatIds().size(), bookSeatsRequest.showId());
         return getSeatByShowAndSeatIds(bookSeatsRequest.showId(), bookSeatsRequest.seatIds());
     }
 
-    @Transactional
     public List<ValidSeatResponse> releaseSeatsByShowAndSeatIds(ReleaseSeatsRequest releaseSeatsRequest) {
         log.info("Releasing seats for show id: {} and seat ids: {}",
                 releaseSeatsRequest.showId(),
                 releaseSeatsRequest.showSeatIds()
         );
 
-        int updatedCount = showSeatRepository.updateShowSeatStatus(
+        int updatedCount = seatStateEngine.releaseSeats(
                 releaseSeatsRequest.showId(),
-                releaseSeatsRequest.showSeatIds(),
-                ShowSeatStatus.AVAILABLE
+                releaseSeatsRequest.showSeatIds()
         );
 
         if(updatedCount != releaseSeatsRequest.showSeatIds().size()) {
-            log.warn("Failed to release all seats. Requested: {}, Released : {}, Rolling Back",
+            log.warn("Failed to release all seats. Requested: {}, Released : {}",
                     releaseSeatsRequest.showSeatIds().size(),
                     updatedCount
             );
-//            throw new RuntimeException("Failed to release seats");
         }
 
         log.info("Successfully released {} seats for show id: {}", updatedCount, releaseSeatsRequest.showId());
         return getSeatByShowAndSeatIds(releaseSeatsRequest.showId(), releaseSeatsRequest.showSeatIds());
     }
-
-    private List<ValidSeatResponse> buildValidSeatResponse(List<ShowSeat> showSeats) {
-        return showSeats.stream()
-                .map(showSeat -> new ValidSeatResponse(
-                        showSeat.getId(),
-                        showSeat.getSeat().getSeatNumber(),
-                        showSeat.getSeat().getSeatType().name(),
-                        showSeat.getPrice()
-                ))
-                .toList();
-    }
 }
@@ -0,0 +1,361 @@
+package com.bookticket.theater_service.service;
+
+import com.bookticket.theater_service.Entity.ScheduleJob;
+import com.bookticket.theater_service.Entity.Screen;
+import com.bookticket.theater_service.Entity.Show;
+import com.bookticket.theater_service.dto.MovieResponse;
+import com.bookticket.theater_service.dto.ScheduleJobResponse;
+import com.bookticket.theater_service.dto.ScheduleShowsRequest;
+import com.bookticket.theater_service.dto.ShowRecurrenceRule;
+import com.bookticket.theater_service.enums.ScheduleJobStatus;
+import com.bookticket.theater_service.enums.ShowSeatStatus;
+import com.bookticket.theater_service.repository.ScheduleJobRepository;
+import com.bookticket.theater_service.repository.ScreenRepository;
+import com.bookticket.theater_service.repository.ShowRepository;
+import com.bookticket.theater_service.repository.ShowSeatRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.Executor;
+
+/**
+ * Bulk scheduling of recurring shows.
+ * The request is expanded and checked in the calling thread: every movie is fetched from movie service
+ * once, and every planned show is checked against an interval index of its screen holding the existing
+ * shows and the shows accepted so far. Accepted shows are then persisted in chunks on the schedule
+ * executor, each chunk in its own transaction with a single inventory statement for all of its shows.
+ * A chunk locks its screen and checks its shows again against the shows persisted by then, so jobs
+ * scheduling the same screen at the same time cannot both create overlapping shows.
+ * Job progress is kept in the database and updated in the transaction of each chunk.
+ */
+@Service
+@Slf4j
+public class ShowScheduleService {
+    private static final int CHUNK_SIZE = 100;
+    private static final int MAX_SHOWS_PER_REQUEST = 20000;
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final Duration JOB_RETENTION = Duration.ofHours(1);
+    // Chunks of a job follow each other, a running job this long without progress lost its instance
+    private static final Duration INTERRUPTED_AFTER = Duration.ofMinutes(30);
+
+    private final ShowRepository showRepository;
+    private final ScreenRepository screenRepository;
+    private final ShowSeatRepository showSeatRepository;
+    private final RestClient movieRestClient;
+    private final AuditorAware<String> auditorAware;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor showScheduleExecutor;
+    private final ScheduleJobRepository scheduleJobRepository;
+
+    public ShowScheduleService(ShowRepository showRepository, ScreenRepository screenRepository,
+                               ShowSeatRepository showSeatRepository, RestClient movieRestClient,
+                               AuditorAware<String> auditorAware, TransactionTemplate transactionTemplate,
+                               @Qualifier("showScheduleExecutor") Executor showScheduleExecutor,
+                               ScheduleJobRepository scheduleJobRepository) {
+        this.showRepository = showRepository;
+        this.screenRepository = screenRepository;
+        this.showSeatRepository = showSeatRepository;
+        this.scheduleJobRepository = scheduleJobRepository;
+        this.movieRestClient = movieRestClient;
+        this.auditorAware = auditorAware;
+        this.transactionTemplate = transactionTemplate;
+        this.showScheduleExecutor = showScheduleExecutor;
+    }
+
+    /**
+     * Start scheduling the shows described by the recurrence rules
+     *
+     * @return job progress, shows overlapping an existing or another planned show are skipped
+     * @throws IllegalArgumentException if a rule is invalid, or a screen or movie does not exist
+     */
+    public ScheduleJobResponse scheduleShows(ScheduleShowsRequest request) {
+        List<PlannedShow> planned = expand(request.rules());
+        Set<Long> screenIds = new HashSet<>();
+        planned.forEach(show -> screenIds.add(show.screenId()));
+        List<Long> foundScreenIds = screenRepository.findAllById(screenIds).stream().map(Screen::getId).toList();
+        if (foundScreenIds.size() != screenIds.size()) {
+            screenIds.removeAll(foundScreenIds);
+            throw new IllegalArgumentException("Screens not found: " + screenIds);
+        }
+        Map<String, MovieResponse> movies = resolveMovies(request.rules());
+        String createdBy = auditorAware.getCurrentAuditor().orElse("system");
+
+        ScheduleJob job = new ScheduleJob();
+        job.setId(UUID.randomUUID().toString());
+        job.setTotalShows(planned.size());
+        job.setStatus(ScheduleJobStatus.RUNNING);
+        Map<Long, List<PlannedShow>> accepted = acceptNonOverlapping(job, planned);
+        log.info("Schedule job {}: {} shows planned on {} screens, {} skipped", job.getId(), planned.size(),
+                screenIds.size(), job.getSkippedShows());
+
+        List<List<PlannedShow>> chunks = new ArrayList<>();
+        accepted.values().forEach(shows -> {
+            for (int from = 0; from < shows.size(); from += CHUNK_SIZE) {
+                chunks.add(shows.subList(from, Math.min(from + CHUNK_SIZE, shows.size())));
+            }
+        });
+        job.setPendingChunks(chunks.size());
+        job.setProgressAt(LocalDateTime.now());
+        if (chunks.isEmpty()) {
+            finish(job);
+        }
+        scheduleJobRepository.save(job);
+        for (List<PlannedShow> chunk : chunks) {
+            try {
+                showScheduleExecutor.execute(() -> persistChunk(job.getId(), chunk, movies, createdBy));
+            } catch (Exception e) {
+                chunkFailed(job.getId(), chunk, e);
+            }
+        }
+        return toResponse(job);
+    }
+
+    /**
+     * @return progress of the job, or null if the job is unknown or expired
+     */
+    public ScheduleJobResponse getScheduleJob(String jobId) {
+        return transactionTemplate.execute(status -> scheduleJobRepository.findById(jobId)
+                .map(this::toResponse)
+                .orElse(null));
+    }
+
+    @Scheduled(fixedDelay = 600000)
+    public void evictFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(JOB_RETENTION);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                scheduleJobRepository.deleteByFinishedAtBefore(cutoff);
+                scheduleJobRepository.deleteByStatusAndProgressAtBefore(ScheduleJobStatus.RUNNING,
+                        cutoff.minus(INTERRUPTED_AFTER));
+            });
+        } catch (Exception e) {
+            log.warn("Failed to evict finished schedule jobs: {}", e.getMessage());
+        }
+    }
+
+    private List<PlannedShow> expand(List<ShowRecurrenceRule> rules) {
+        LocalDateTime now = LocalDateTime.now();
+        List<PlannedShow> planned = new ArrayList<>();
+        for (ShowRecurrenceRule rule : rules) {
+            if (rule.endDate().isBefore(rule.startDate())) {
+                throw new IllegalArgumentException("End date is before start date for movie " + rule.movieId());
+            }
+            for (LocalDate date = rule.startDate(); !date.isAfter(rule.endDate()); date = date.plusDays(1)) {
+                if (rule.daysOfWeek() != null && !rule.daysOfWeek().isEmpty()
+                        && !rule.daysOfWeek().contains(date.getDayOfWeek())) {
+                    continue;
+                }
+                for (LocalTime startTime : rule.startTimes()) {
+                    LocalDateTime start = date.atTime(startTime);
+                    if (!start.isAfter(now)) {
+                        continue;
+                    }
+                    for (Long screenId : rule.screenIds()) {
+                        planned.add(new PlannedShow(screenId, rule.movieId(), start,
+                                start.plusMinutes(rule.durationMinutes())));
+                    }
+                    if (planned.size() > MAX_SHOWS_PER_REQUEST) {
+                        throw new IllegalArgumentException("At most " + MAX_SHOWS_PER_REQUEST + " shows can be scheduled per request");
+                    }
+                }
+            }
+        }
+        return planned;
+    }
+
+    private Map<String, MovieResponse> resolveMovies(List<ShowRecurrenceRule> rules) {
+        Map<String, MovieResponse> movies = new HashMap<>();
+        for (ShowRecurrenceRule rule : rules) {
+            movies.computeIfAbsent(rule.movieId(), movieId -> {
+                MovieResponse movieResponse;
+                try {
+                    movieResponse = movieRestClient.get()
+                            .uri("/api/v1/movies/{movieId}", movieId)
+                            .retrieve()
+                            .body(MovieResponse.class);
+                } catch (HttpClientErrorException e) {
+                    throw new IllegalArgumentException("Movie not found with id : " + movieId, e);
+                }
+                if (movieResponse == null) {
+                    throw new IllegalArgumentException("Movie not found with id : " + movieId);
+                }
+                return movieResponse;
+            });
+        }
+        return movies;
+    }
+
+    /**
+     * Keep the planned shows that overlap neither an existing show nor a previously accepted one
+     *
+     * @return accepted shows by screen, in start time order
+     */
+    private Map<Long, List<PlannedShow>> acceptNonOverlapping(ScheduleJob job, List<PlannedShow> planned) {
+        if (planned.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, List<PlannedShow>> byScreen = new HashMap<>();
+        LocalDateTime from = LocalDateTime.MAX;
+        LocalDateTime to = LocalDateTime.MIN;
+        for (PlannedShow show : planned) {
+            byScreen.computeIfAbsent(show.screenId(), id -> new ArrayList<>()).add(show);
+            from = show.start().isBefore(from) ? show.start() : from;
+            to = show.end().isAfter(to) ? show.end() : to;
+        }
+
+        // Existing shows of the planned screens, indexed by start time
+        Map<Long, TreeMap<LocalDateTime, LocalDateTime>> index = new HashMap<>();
+        for (Object[] interval : showRepository.findShowIntervalsByScreenIds(byScreen.keySet(), from, to)) {
+            index.computeIfAbsent((Long) interval[0], id -> new TreeMap<>())
+                    .put((LocalDateTime) interval[1], (LocalDateTime) interval[2]);
+        }
+
+        Map<Long, List<PlannedShow>> accepted = new HashMap<>();
+        byScreen.forEach((screenId, shows) -> {
+            TreeMap<LocalDateTime, LocalDateTime> intervals = index.computeIfAbsent(screenId, id -> new TreeMap<>());
+            shows.sort(Comparator.comparing(PlannedShow::start));
+            for (PlannedShow show : shows) {
+                if (overlaps(intervals, show)) {
+                    skip(job, "Screen " + screenId + " is busy at " + show.start());
+                    continue;
+                }
+                intervals.put(show.start(), show.end());
+                accepted.computeIfAbsent(screenId, id -> new ArrayList<>()).add(show);
+            }
+        });
+        return accepted;
+    }
+
+    // Intervals on a screen never overlap, so a start time index finds any conflict in two lookups
+    private boolean overlaps(TreeMap<LocalDateTime, LocalDateTime> intervals, PlannedShow show) {
+        Map.Entry<LocalDateTime, LocalDateTime> before = intervals.floorEntry(show.start());
+        Map.Entry<LocalDateTime, LocalDateTime> after = intervals.ceilingEntry(show.start());
+        return (before != null && before.getValue().isAfter(show.start()))
+                || (after != null && after.getKey().isBefore(show.end()));
+    }
+
+    /**
+     * Persist a chunk of shows of one screen, in start time order, and count them in the job
+     * The screen row stays locked until the chunk commits, so no show is added to the screen
+     * between the check of the chunk against the persisted shows and the insert of its shows.
+     */
+    private void persistChunk(String jobId, List<PlannedShow> chunk, Map<String, MovieResponse> movies,
+                              String createdBy) {
+        Long screenId = chunk.get(0).screenId();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Screen screen = screenRepository.findByIdForUpdate(screenId)
+                        .orElseThrow(() -> new IllegalStateException("Screen " + screenId + " no longer exists"));
+                TreeMap<LocalDateTime, LocalDateTime> intervals = new TreeMap<>();
+                for (Object[] interval : showRepository.findShowIntervalsByScreenIds(List.of(screenId),
+                        chunk.get(0).start(), chunk.get(chunk.size() - 1).end())) {
+                    intervals.put((LocalDateTime) interval[1], (LocalDateTime) interval[2]);
+                }
+                // Shows persisted by another job since this one was planned win
+                List<PlannedShow> free = new ArrayList<>();
+                List<String> busy = new ArrayList<>();
+                for (PlannedShow planned : chunk) {
+                    if (overlaps(intervals, planned)) {
+                        busy.add("Screen " + screenId + " is busy at " + planned.start());
+                    } else {
+                        free.add(planned);
+                    }
+                }
+                if (!free.isEmpty()) {
+                    List<Show> shows = free.stream().map(planned -> {
+                        MovieResponse movie = movies.get(planned.movieId());
+                        Show show = new Show();
+                        show.setStartTime(planned.start());
+                        show.setEndTime(planned.end());
+                        show.setMovieId(planned.movieId());
+                        show.setMovieTitle(movie.title());
+                        show.setMovieBannerUrl(movie.bannerUrl());
+                        show.setScreen(screen);
+                        return show;
+                    }).toList();
+                    List<Long> showIds = showRepository.saveAll(shows).stream().map(Show::getId).toList();
+                    showSeatRepository.insertShowSeatsForShows(showIds, ShowSeatStatus.AVAILABLE.name(),
+                            LocalDate.now(), createdBy);
+                }
+
+                ScheduleJob job = lockJob(jobId);
+                job.setCreatedShows(job.getCreatedShows() + free.size());
+                busy.forEach(reason -> skip(job, reason));
+                chunkDone(job);
+            });
+        } catch (Exception e) {
+            log.error("Schedule job {}: failed to create {} shows on screen {}", jobId, chunk.size(), screenId, e);
+            chunkFailed(jobId, chunk, e);
+        }
+    }
+
+    private void chunkFailed(String jobId, List<PlannedShow> chunk, Exception e) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                ScheduleJob job = lockJob(jobId);
+                job.setFailedShows(job.getFailedShows() + chunk.size());
+                addError(job, "Failed to create " + chunk.size() + " shows on screen " + chunk.get(0).screenId()
+                        + " from " + chunk.get(0).start() + ": " + e.getMessage());
+                chunkDone(job);
+            });
+        } catch (Exception recordError) {
+            log.error("Schedule job {}: failed to record {} failed shows: {}", jobId, chunk.size(),
+                    recordError.getMessage());
+        }
+    }
+
+    private ScheduleJob lockJob(String jobId) {
+        return scheduleJobRepository.findByIdForUpdate(jobId)
+                .orElseThrow(() -> new IllegalStateException("Schedule job " + jobId + " no longer exists"));
+    }
+
+    private void skip(ScheduleJob job, String reason) {
+        job.setSkippedShows(job.getSkippedShows() + 1);
+        addError(job, reason);
+    }
+
+    private void chunkDone(ScheduleJob job) {
+        job.setPendingChunks(job.getPendingChunks() - 1);
+        job.setProgressAt(LocalDateTime.now());
+        if (job.getPendingChunks() == 0) {
+            finish(job);
+        }
+    }
+
+    private void finish(ScheduleJob job) {
+        job.setStatus(job.getFailedShows() > 0 ? ScheduleJobStatus.COMPLETED_WITH_ERRORS : ScheduleJobStatus.COMPLETED);
+        job.setFinishedAt(LocalDateTime.now());
+        log.info("Schedule job {} finished: {} created, {} skipped, {} failed", job.getId(), job.getCreatedShows(),
+                job.getSkippedShows(), job.getFailedShows());
+    }
+
+    private void addError(ScheduleJob job, String error) {
+        if (job.getErrors().size() < MAX_REPORTED_ERRORS) {
+            job.getErrors().add(error);
+        }
+    }
+
+    private ScheduleJobResponse toResponse(ScheduleJob job) {
+        ScheduleJobStatus status = job.getStatus();
+        if (status == ScheduleJobStatus.RUNNING
+                && job.getProgressAt().isBefore(LocalDateTime.now().minus(INTERRUPTED_AFTER))) {
+            status = ScheduleJobStatus.INTERRUPTED;
+        }
+        return new ScheduleJobResponse(job.getId(), status, job.getTotalShows(), job.getCreatedShows(),
+                job.getSkippedShows(), job.getFailedShows(), List.copyOf(job.getErrors()));
+    }
+
+    private record PlannedShow(Long screenId, String movieId, LocalDateTime start, LocalDateTime end) {
+    }
+}
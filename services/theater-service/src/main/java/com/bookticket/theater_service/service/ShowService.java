@@ -2,23 +2,24 @@ package com.bookticket.theater_service.service;
 
 
 import com.bookticket.theater_service.Entity.Screen;
-import com.bookticket.theater_service.Entity.Seat;
 import com.bookticket.theater_service.Entity.Show;
-import com.bookticket.theater_service.Entity.ShowSeat;
 import com.bookticket.theater_service.dto.CreateShowRequest;
 import com.bookticket.theater_service.dto.MovieResponse;
+import com.bookticket.theater_service.dto.SeatMapResponse;
+import com.bookticket.theater_service.dto.ShowAvailabilityResponse;
 import com.bookticket.theater_service.dto.ShowResponse;
-import com.bookticket.theater_service.dto.ShowSeatResponse;
 import com.bookticket.theater_service.enums.ShowSeatStatus;
 import com.bookticket.theater_service.repository.ScreenRepository;
-import com.bookticket.theater_service.repository.SeatRepository;
 import com.bookticket.theater_service.repository.ShowRepository;
 import com.bookticket.theater_service.repository.ShowSeatRepository;
+import com.bookticket.theater_service.service.seatstate.SeatStateEngine;
 import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.AuditorAware;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -31,15 +32,18 @@ public class ShowService {
     private final ScreenRepository screenRepository;
     private final RestClient movieRestClient;
     private final ShowSeatRepository showSeatRepository;
-    private final SeatRepository seatRepository;
+    private final AuditorAware<String> auditorAware;
+    private final SeatStateEngine seatStateEngine;
 
     public ShowService(ShowRepository showRepository, ScreenRepository screenRepository, RestClient movieRestClient,
-                       ShowSeatRepository showSeatRepository, SeatRepository seatRepository) {
+                       ShowSeatRepository showSeatRepository, AuditorAware<String> auditorAware,
+                       SeatStateEngine seatStateEngine) {
         this.showRepository = showRepository;
         this.screenRepository = screenRepository;
         this.movieRestClient = movieRestClient;
         this.showSeatRepository = showSeatRepository;
-        this.seatRepository = seatRepository;
+        this.auditorAware = auditorAware;
+        this.seatStateEngine = seatStateEngine;
     }
 
     @Transactional
@@ -72,23 +76,11 @@ public class ShowService {
             throw new RuntimeException(e);
         }
 
-        // Populate ShowSeat Inventory
-        List<Seat> templateSeats = seatRepository.findByScreenId(screenId);
-        Show finalSavedShow = savedShow;
-        List<ShowSeat> showSeats = templateSeats.stream()
-                .map(seat -> {
-                    ShowSeat showSeat = new ShowSeat();
-                    showSeat.setShow(finalSavedShow);
-                    showSeat.setSeat(seat);
-                    showSeat.setStatus(ShowSeatStatus.AVAILABLE);
-                    showSeat.setPrice(seat.getPrice());
-                    return showSeat;
-                })
-                .toList();
-
+        // Populate ShowSeat Inventory, copied from the screen's seat template in a single statement
         try {
-            showSeatRepository.saveAll(showSeats);
-            log.info("ShowSeat created successfully");
+            int created = showSeatRepository.insertShowSeatsFromTemplate(savedShow.getId(), screenId,
+                    ShowSeatStatus.AVAILABLE.name(), LocalDate.now(), auditorAware.getCurrentAuditor().orElse("system"));
+            log.info("{} ShowSeats created successfully", created);
         } catch (Exception e) {
             log.error("Error creating showSeat", e);
             throw new RuntimeException(e);
@@ -143,8 +135,20 @@ public class ShowService {
         return getShowsByFilters(city, null, movieId, date);
     }
 
-    public List<ShowSeatResponse> getShowSeatsByShowId(Long showId) {
-        return showSeatRepository.findShowSeatsByShowId(showId);
+    public SeatMapResponse getShowSeatsByShowId(Long showId) {
+        return seatStateEngine.getSeatMap(showId);
+    }
+
+    public SeatMapResponse getShowSeatChanges(Long showId, long sinceRevision) {
+        return seatStateEngine.getSeatMapChanges(showId, sinceRevision);
+    }
+
+    public List<ShowAvailabilityResponse> getShowAvailability(List<Long> showIds) {
+        return seatStateEngine.getAvailability(showIds);
+    }
+
+    public SseEmitter streamShowSeats(Long showId, Long lastRevision) {
+        return seatStateEngine.streamSeatMap(showId, lastRevision);
     }
 
     public ShowResponse getShowById(Long showId) {
@@ -0,0 +1,96 @@
+package com.bookticket.theater_service.service.seatstate;
+
+import com.bookticket.theater_service.configuration.SeatStateProperties;
+import com.bookticket.theater_service.repository.ShowSeatRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Returns seat holds that outlived their locked_until to available, so seats of abandoned
+ * checkouts are sold again even if booking service never releases them.
+ * Resident shows are swept in memory and written behind like any other transition. Shows not
+ * resident are swept in Postgres in small keyset-paged batches, each in its own short transaction.
+ */
+@Component
+@Slf4j
+public class SeatHoldSweeper {
+    private final SeatStateEngine seatStateEngine;
+    private final ShowSeatRepository showSeatRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final SeatStateProperties seatStateProperties;
+    private final Counter residentReclaimed;
+    private final Counter persistedReclaimed;
+
+    public SeatHoldSweeper(SeatStateEngine seatStateEngine, ShowSeatRepository showSeatRepository,
+                           TransactionTemplate transactionTemplate, SeatStateProperties seatStateProperties,
+                           MeterRegistry meterRegistry) {
+        this.seatStateEngine = seatStateEngine;
+        this.showSeatRepository = showSeatRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.seatStateProperties = seatStateProperties;
+        this.residentReclaimed = Counter.builder("theater.seat.holds.reclaimed")
+                .description("Expired seat holds returned to available")
+                .tag("source", "memory")
+                .register(meterRegistry);
+        this.persistedReclaimed = Counter.builder("theater.seat.holds.reclaimed")
+                .description("Expired seat holds returned to available")
+                .tag("source", "database")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${theater.seat-state.hold-sweep-interval-ms:30000}",
+            initialDelayString = "${theater.seat-state.hold-sweep-interval-ms:30000}")
+    public void sweep() {
+        try {
+            residentReclaimed.increment(seatStateEngine.expireHolds());
+        } catch (Exception e) {
+            log.error("Failed to expire seat holds of resident shows", e);
+        }
+        try {
+            int released = sweepPersistedHolds();
+            if (released > 0) {
+                persistedReclaimed.increment(released);
+                log.info("Released {} expired seat holds in Postgres", released);
+            }
+        } catch (Exception e) {
+            log.error("Failed to expire persisted seat holds", e);
+        }
+    }
+
+    private int sweepPersistedHolds() {
+        LocalDateTime now = LocalDateTime.now();
+        int batchSize = seatStateProperties.getHoldSweepBatchSize();
+        int released = 0;
+        long afterId = 0;
+        while (true) {
+            List<Object[]> expired = showSeatRepository.findExpiredHolds(now, afterId, PageRequest.of(0, batchSize));
+            if (expired.isEmpty()) {
+                return released;
+            }
+            // Holds of resident shows are owned by the engine, memory may be ahead of Postgres for them
+            List<Long> showSeatIds = new ArrayList<>(expired.size());
+            for (Object[] hold : expired) {
+                if (!seatStateEngine.isResident((Long) hold[1])) {
+                    showSeatIds.add((Long) hold[0]);
+                }
+            }
+            if (!showSeatIds.isEmpty()) {
+                Integer count = transactionTemplate.execute(tx -> showSeatRepository.releaseExpiredHolds(showSeatIds, now));
+                released += count != null ? count : 0;
+            }
+            if (expired.size() < batchSize) {
+                return released;
+            }
+            afterId = (Long) expired.get(expired.size() - 1)[0];
+        }
+    }
+}
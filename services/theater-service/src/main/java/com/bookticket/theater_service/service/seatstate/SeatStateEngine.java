@@ -0,0 +1,314 @@
+package com.bookticket.theater_service.service.seatstate;
+
+import com.bookticket.theater_service.Entity.Show;
+import com.bookticket.theater_service.configuration.SeatStateProperties;
+import com.bookticket.theater_service.dto.SeatMapResponse;
+import com.bookticket.theater_service.dto.SeatTypeAvailability;
+import com.bookticket.theater_service.dto.ShowAvailabilityResponse;
+import com.bookticket.theater_service.dto.ShowSeatSnapshot;
+import com.bookticket.theater_service.dto.ValidSeatResponse;
+import com.bookticket.theater_service.enums.SeatType;
+import com.bookticket.theater_service.enums.ShowSeatStatus;
+import com.bookticket.theater_service.repository.ShowRepository;
+import com.bookticket.theater_service.repository.ShowSeatRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resident seat state of shows, the source of truth for seat status transitions.
+ * Transitions are answered in memory and persisted to show_seats by {@link SeatStateWriter}.
+ * Postgres stays the durable copy: states are rebuilt from it on startup (warm-up or lazily),
+ * and periodically reconciled against it to pick up changes made outside this engine.
+ * A show is expected to be served by a single theater-service instance. Should another instance change
+ * its seats anyway, the guarded write-behind refuses to overwrite them and reconcile adopts their status.
+ */
+@Service
+@Slf4j
+public class SeatStateEngine {
+    private final ShowRepository showRepository;
+    private final ShowSeatRepository showSeatRepository;
+    private final SeatStateWriter seatStateWriter;
+    private final SeatStateProperties seatStateProperties;
+    private final SeatStreamHub seatStreamHub;
+
+    private final Map<Long, ShowSeatState> states = new ConcurrentHashMap<>();
+
+    public SeatStateEngine(ShowRepository showRepository, ShowSeatRepository showSeatRepository,
+                           SeatStateWriter seatStateWriter, SeatStateProperties seatStateProperties,
+                           SeatStreamHub seatStreamHub) {
+        this.showRepository = showRepository;
+        this.showSeatRepository = showSeatRepository;
+        this.seatStateWriter = seatStateWriter;
+        this.seatStateProperties = seatStateProperties;
+        this.seatStreamHub = seatStreamHub;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Show> upcomingShows = showRepository.findShowsStartingBetween(now, now.plus(seatStateProperties.getWarmUpWindow()));
+        for (Show show : upcomingShows) {
+            states.computeIfAbsent(show.getId(), id -> load(show));
+        }
+        log.info("Seat state engine warmed up with {} shows", upcomingShows.size());
+    }
+
+    /**
+     * @return seat map of the show, or null if the show has no seats
+     */
+    public SeatMapResponse getSeatMap(Long showId) {
+        ShowSeatState state = getState(showId);
+        return state == null || state.size() == 0 ? null : state.getSeatMap();
+    }
+
+    /**
+     * @return seats changed since the given revision, or null if the show has no seats
+     */
+    public SeatMapResponse getSeatMapChanges(Long showId, long sinceRevision) {
+        ShowSeatState state = getState(showId);
+        return state == null || state.size() == 0 ? null : state.getSeatMapChanges(sinceRevision);
+    }
+
+    /**
+     * Open a stream of seat changes of the show
+     *
+     * @param lastRevision revision the client already has, or null to start with the whole seat map
+     * @return emitter of the stream, or null if the show has no seats
+     * @throws IllegalStateException if the show has too many open streams
+     */
+    public SseEmitter streamSeatMap(Long showId, Long lastRevision) {
+        ShowSeatState state = getState(showId);
+        if (state == null || state.size() == 0) {
+            return null;
+        }
+        SseEmitter emitter = seatStreamHub.subscribe(showId,
+                () -> lastRevision == null ? state.getSeatMap() : state.getSeatMapChanges(lastRevision));
+        if (emitter == null) {
+            throw new IllegalStateException("Too many seat streams for show " + showId);
+        }
+        return emitter;
+    }
+
+    /**
+     * Get seat counts of shows, from the resident state when loaded and with a single grouped query otherwise.
+     * Shows are not loaded into the engine for this, listing pages touch far more shows than get booked.
+     *
+     * @return availability of every show that has seats, in the requested order
+     */
+    public List<ShowAvailabilityResponse> getAvailability(List<Long> showIds) {
+        Map<Long, ShowAvailabilityResponse> availabilities = new HashMap<>();
+        List<Long> notResident = new ArrayList<>();
+        for (Long showId : showIds) {
+            ShowSeatState state = states.get(showId);
+            if (state != null) {
+                availabilities.put(showId, state.getAvailability());
+            } else {
+                notResident.add(showId);
+            }
+        }
+        if (!notResident.isEmpty()) {
+            availabilities.putAll(countPersistedSeats(notResident));
+        }
+        return showIds.stream().distinct().map(availabilities::get).filter(Objects::nonNull).toList();
+    }
+
+    private Map<Long, ShowAvailabilityResponse> countPersistedSeats(List<Long> showIds) {
+        Map<Long, Map<SeatType, int[]>> counts = new HashMap<>();
+        for (Object[] row : showSeatRepository.countSeatsByShowIds(showIds)) {
+            counts.computeIfAbsent((Long) row[0], id -> new EnumMap<>(SeatType.class))
+                    .computeIfAbsent((SeatType) row[1], seatType -> new int[ShowSeatStatus.values().length])
+                    [((ShowSeatStatus) row[2]).ordinal()] += ((Number) row[3]).intValue();
+        }
+        Map<Long, ShowAvailabilityResponse> availabilities = new HashMap<>();
+        counts.forEach((showId, bySeatType) -> {
+            int[] total = new int[ShowSeatStatus.values().length];
+            List<SeatTypeAvailability> seatTypes = new ArrayList<>();
+            bySeatType.forEach((seatType, seatTypeCounts) -> {
+                for (int i = 0; i < total.length; i++) {
+                    total[i] += seatTypeCounts[i];
+                }
+                seatTypes.add(new SeatTypeAvailability(seatType, seatTypeCounts[ShowSeatStatus.AVAILABLE.ordinal()],
+                        seatTypeCounts[ShowSeatStatus.LOCKED.ordinal()], seatTypeCounts[ShowSeatStatus.BOOKED.ordinal()]));
+            });
+            availabilities.put(showId, new ShowAvailabilityResponse(showId, total[ShowSeatStatus.AVAILABLE.ordinal()],
+                    total[ShowSeatStatus.LOCKED.ordinal()], total[ShowSeatStatus.BOOKED.ordinal()], seatTypes));
+        });
+        return availabilities;
+    }
+
+    public List<ValidSeatResponse> getSeats(Long showId, List<Long> showSeatIds) {
+        ShowSeatState state = getState(showId);
+        return state == null ? List.of() : state.getSeats(showSeatIds, null);
+    }
+
+    public List<ValidSeatResponse> getAvailableSeats(Long showId, List<Long> showSeatIds) {
+        ShowSeatState state = getState(showId);
+        return state == null ? List.of() : state.getSeats(showSeatIds, ShowSeatStatus.AVAILABLE);
+    }
+
+    /**
+     * Lock seats only if all of them are available.
+     *
+     * @return true if all seats were locked
+     */
+    public boolean lockSeats(Long showId, List<Long> showSeatIds) {
+        return transition(showId, showSeatIds, ShowSeatStatus.AVAILABLE, ShowSeatStatus.LOCKED, true) >= 0;
+    }
+
+    /**
+     * Book seats only if all of them are locked. A booking is written through to Postgres
+     * before returning, and the seats go back to locked if it could not be persisted.
+     *
+     * @return true if all seats were booked and persisted
+     */
+    public boolean bookSeats(Long showId, List<Long> showSeatIds) {
+        if (transition(showId, showSeatIds, ShowSeatStatus.LOCKED, ShowSeatStatus.BOOKED, true) < 0) {
+            return false;
+        }
+        Set<Long> conflicts;
+        try {
+            conflicts = seatStateWriter.flushNow();
+        } catch (Exception e) {
+            log.error("Failed to write booked seats {} of show {} through, returning them to locked", showSeatIds, showId, e);
+            transition(showId, showSeatIds, ShowSeatStatus.BOOKED, ShowSeatStatus.LOCKED, false);
+            return false;
+        }
+        List<Long> conflicting = showSeatIds.stream().filter(conflicts::contains).toList();
+        if (conflicting.isEmpty()) {
+            return true;
+        }
+        // Seats whose booking did reach Postgres go back to locked with the next flush
+        log.warn("Seats {} of show {} were changed outside the seat state engine, booking rejected", conflicting, showId);
+        transition(showId, showSeatIds.stream().filter(id -> !conflicts.contains(id)).toList(),
+                ShowSeatStatus.BOOKED, ShowSeatStatus.LOCKED, false);
+        reconcile(getState(showId));
+        return false;
+    }
+
+    /**
+     * Lock the best block of adjacent available seats, see {@link ShowSeatState#allocateBestAvailable}
+     *
+     * @return locked seats, empty if the show is unknown or has no such block
+     */
+    public List<ValidSeatResponse> allocateSeats(Long showId, int count, SeatType seatType, Integer preferredRow) {
+        ShowSeatState state = getState(showId);
+        if (state == null) {
+            log.warn("Show {} not found, cannot allocate {} seats", showId, count);
+            return List.of();
+        }
+        List<ValidSeatResponse> allocated = state.allocateBestAvailable(count, seatType, preferredRow, seatStateWriter::enqueue);
+        if (!allocated.isEmpty()) {
+            seatStreamHub.publish(state);
+        }
+        return allocated;
+    }
+
+    /**
+     * Release the seats that are still locked, other seats are left untouched.
+     *
+     * @return number of seats released
+     */
+    public int releaseSeats(Long showId, List<Long> showSeatIds) {
+        return Math.max(transition(showId, showSeatIds, ShowSeatStatus.LOCKED, ShowSeatStatus.AVAILABLE, false), 0);
+    }
+
+    /**
+     * Return expired holds of resident shows to available
+     *
+     * @return number of seats released
+     */
+    public int expireHolds() {
+        long now = System.currentTimeMillis();
+        int released = 0;
+        for (ShowSeatState state : states.values()) {
+            int expired = state.expireHolds(now, seatStateWriter::enqueue);
+            if (expired > 0) {
+                seatStreamHub.publish(state);
+                log.info("Released {} expired seat holds of show {}", expired, state.getShowId());
+                released += expired;
+            }
+        }
+        return released;
+    }
+
+    public boolean isResident(Long showId) {
+        return states.containsKey(showId);
+    }
+
+    /**
+     * Evict ended shows and adopt seat status changes made directly in Postgres.
+     */
+    @Scheduled(fixedDelayString = "${theater.seat-state.reconcile-interval-ms:60000}",
+            initialDelayString = "${theater.seat-state.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        LocalDateTime now = LocalDateTime.now();
+        for (ShowSeatState state : states.values()) {
+            try {
+                if (state.getEndTime().isBefore(now)) {
+                    seatStateWriter.flush();
+                    states.remove(state.getShowId(), state);
+                    log.info("Evicted seat state of ended show {}", state.getShowId());
+                    continue;
+                }
+                reconcile(state);
+            } catch (Exception e) {
+                log.error("Failed to reconcile seat state of show {}", state.getShowId(), e);
+            }
+        }
+    }
+
+    private void reconcile(ShowSeatState state) {
+        // No flush may run between reading the revision and loading the snapshots,
+        // otherwise a freshly flushed write could be compared against a stale row
+        int repaired = seatStateWriter.withFlushLock(() -> {
+            long revision = state.getRevision();
+            List<ShowSeatSnapshot> snapshots = showSeatRepository.findSeatSnapshotsByShowId(state.getShowId());
+            return state.reconcile(snapshots, revision, seatStateWriter::hasPendingWrite);
+        });
+        if (repaired > 0) {
+            seatStreamHub.publish(state);
+            log.warn("Reconciled {} drifted seats of show {} from Postgres", repaired, state.getShowId());
+        } else if (repaired < 0) {
+            log.debug("Seat state of show {} changed during reconcile, retrying next round", state.getShowId());
+        }
+    }
+
+    private int transition(Long showId, List<Long> showSeatIds, ShowSeatStatus from, ShowSeatStatus to,
+                           boolean allOrNothing) {
+        ShowSeatState state = getState(showId);
+        if (state == null) {
+            log.warn("Show {} not found, cannot move seats {} to {}", showId, showSeatIds, to);
+            return allOrNothing ? -1 : 0;
+        }
+        int count = state.transition(showSeatIds, from, to, allOrNothing, seatStateWriter::enqueue);
+        if (count > 0) {
+            seatStreamHub.publish(state);
+        }
+        return count;
+    }
+
+    private ShowSeatState getState(Long showId) {
+        ShowSeatState state = states.get(showId);
+        if (state != null) {
+            return state;
+        }
+        return states.computeIfAbsent(showId, id -> {
+            Show show = showRepository.findShowById(id);
+            return show == null ? null : load(show);
+        });
+    }
+
+    private ShowSeatState load(Show show) {
+        List<ShowSeatSnapshot> snapshots = showSeatRepository.findSeatSnapshotsByShowId(show.getId());
+        log.debug("Loaded {} seats of show {} into the seat state engine", snapshots.size(), show.getId());
+        return new ShowSeatState(show.getId(), show.getEndTime(), snapshots, seatStateProperties.getHoldDuration());
+    }
+}
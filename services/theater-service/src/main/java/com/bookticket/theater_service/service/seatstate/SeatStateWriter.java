@@ -0,0 +1,146 @@
+package com.bookticket.theater_service.service.seatstate;
+
+import com.bookticket.theater_service.configuration.SeatStateProperties;
+import com.bookticket.theater_service.enums.ShowSeatStatus;
+import com.bookticket.theater_service.repository.ShowSeatRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Write-behind persistence of seat state transitions to show_seats.
+ * Only the latest status of every show seat is kept, so repeated transitions of a seat
+ * between two flushes collapse into a single row update. All flushes are serialized,
+ * which keeps Postgres writes in the same order as the in-memory transitions.
+ * Every write is guarded by the status this engine last persisted for the seat: a row changed
+ * meanwhile by someone else (another instance, a manual fix) is not overwritten but reported as a
+ * conflict, and its pending write is dropped so that reconcile adopts the persisted status.
+ */
+@Component
+@Slf4j
+public class SeatStateWriter {
+    private final ShowSeatRepository showSeatRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final SeatStateProperties seatStateProperties;
+
+    private final Map<Long, PendingWrite> pendingWrites = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public SeatStateWriter(ShowSeatRepository showSeatRepository, TransactionTemplate transactionTemplate,
+                           SeatStateProperties seatStateProperties) {
+        this.showSeatRepository = showSeatRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.seatStateProperties = seatStateProperties;
+    }
+
+    void enqueue(Long showSeatId, ShowSeatStatus from, ShowSeatStatus to) {
+        // Collapsed transitions still expect the status persisted before the first of them
+        pendingWrites.compute(showSeatId, (id, pending) -> new PendingWrite(pending != null ? pending.expected() : from, to));
+    }
+
+    boolean hasPendingWrite(Long showSeatId) {
+        return pendingWrites.containsKey(showSeatId);
+    }
+
+    @Scheduled(fixedDelayString = "${theater.seat-state.flush-interval-ms:200}")
+    public void flush() {
+        try {
+            flushNow();
+        } catch (Exception e) {
+            log.error("Failed to flush {} pending seat state writes, will retry", pendingWrites.size(), e);
+        }
+    }
+
+    /**
+     * Persist all pending writes in a single transaction.
+     * Entries are only removed once committed, and only if no newer status was enqueued meanwhile.
+     *
+     * @return show seat ids whose row no longer had the expected status, their writes were dropped
+     */
+    Set<Long> flushNow() {
+        flushLock.lock();
+        try {
+            if (pendingWrites.isEmpty()) {
+                return Set.of();
+            }
+            Map<Long, PendingWrite> snapshot = new HashMap<>(pendingWrites);
+            Map<PendingWrite, List<Long>> idsByWrite = new HashMap<>();
+            snapshot.forEach((showSeatId, write) ->
+                    idsByWrite.computeIfAbsent(write, w -> new ArrayList<>()).add(showSeatId));
+
+            int batchSize = seatStateProperties.getFlushBatchSize();
+            // Holds are persisted from flush time, slightly after the in-memory expiry
+            LocalDateTime lockedUntil = LocalDateTime.now().plus(seatStateProperties.getHoldDuration());
+            Set<Long> conflicts = new HashSet<>();
+            transactionTemplate.executeWithoutResult(tx -> {
+                conflicts.clear();
+                idsByWrite.forEach((write, ids) -> {
+                    for (int from = 0; from < ids.size(); from += batchSize) {
+                        List<Long> batch = ids.subList(from, Math.min(from + batchSize, ids.size()));
+                        Set<Long> unchanged = lockUnchanged(batch, write.expected());
+                        if (unchanged.size() < batch.size()) {
+                            batch.stream().filter(id -> !unchanged.contains(id)).forEach(conflicts::add);
+                        }
+                        if (!unchanged.isEmpty()) {
+                            showSeatRepository.overwriteShowSeatStatus(new ArrayList<>(unchanged), write.status(),
+                                    write.status() == ShowSeatStatus.LOCKED ? lockedUntil : null);
+                        }
+                    }
+                });
+            });
+
+            // Newer writes now expect what was just persisted, writes of conflicting seats are dropped
+            snapshot.forEach((showSeatId, written) -> pendingWrites.computeIfPresent(showSeatId, (id, pending) ->
+                    conflicts.contains(id) || pending.equals(written) ? null
+                            : new PendingWrite(written.status(), pending.status())));
+            if (!conflicts.isEmpty()) {
+                log.warn("Skipped {} seat state writes, their rows were changed outside this engine: {}",
+                        conflicts.size(), conflicts);
+            }
+            log.debug("Flushed {} seat state writes", snapshot.size() - conflicts.size());
+            return conflicts;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private Set<Long> lockUnchanged(List<Long> showSeatIds, ShowSeatStatus expected) {
+        Set<Long> unchanged = new HashSet<>();
+        for (Object[] row : showSeatRepository.lockShowSeatStatuses(showSeatIds)) {
+            ShowSeatStatus persisted = row[1] != null ? (ShowSeatStatus) row[1] : ShowSeatStatus.AVAILABLE;
+            if (persisted == expected) {
+                unchanged.add((Long) row[0]);
+            }
+        }
+        return unchanged;
+    }
+
+    /**
+     * Run the given action while no flush can run, used to read a consistent view of show_seats.
+     */
+    <T> T withFlushLock(Supplier<T> action) {
+        flushLock.lock();
+        try {
+            return action.get();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        log.info("Flushing pending seat state writes before shutdown");
+        flush();
+    }
+
+    private record PendingWrite(ShowSeatStatus expected, ShowSeatStatus status) {
+    }
+}
@@ -0,0 +1,266 @@
+package com.bookticket.theater_service.service.seatstate;
+
+import com.bookticket.theater_service.configuration.SeatStreamProperties;
+import com.bookticket.theater_service.dto.SeatMapResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Fan-out of seat status changes to Server-Sent Events streams.
+ * Every show with open streams has a channel. A change of the show is turned into a single
+ * frame (the seats changed since the last frame, encoded once) on the dispatcher thread, which
+ * only hands it to every connection of the channel and never writes itself. Connections are
+ * written from their own bounded buffer on the writer pool, a connection whose buffer overflows
+ * is closed instead of slowing down the others, and one whose write blocks past the write timeout
+ * is dropped and its writer interrupted.
+ */
+@Component
+@Slf4j
+public class SeatStreamHub {
+    private static final String SEATS_EVENT = "seats";
+
+    private final ObjectMapper objectMapper;
+    private final SeatStreamProperties seatStreamProperties;
+    private final ExecutorService writerPool;
+    private final ExecutorService dispatcher;
+
+    private final Map<Long, ShowChannel> channels = new ConcurrentHashMap<>();
+    private final Set<DataWithMediaType> heartbeatFrame = SseEmitter.event().comment("heartbeat").build();
+
+    public SeatStreamHub(ObjectMapper objectMapper, SeatStreamProperties seatStreamProperties) {
+        this.objectMapper = objectMapper;
+        this.seatStreamProperties = seatStreamProperties;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.writerPool = Executors.newFixedThreadPool(seatStreamProperties.getWriterThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "seat-stream-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "seat-stream-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Open a stream of seat changes of a show
+     *
+     * @param showId  Show ID
+     * @param initial seat map sent as first frame, read while no change of the show can be dispatched
+     * @return emitter of the stream, or null if the show already has the maximum number of streams
+     */
+    public SseEmitter subscribe(Long showId, Supplier<SeatMapResponse> initial) {
+        while (true) {
+            ShowChannel channel = channels.computeIfAbsent(showId, ShowChannel::new);
+            synchronized (channel) {
+                if (channel.closed) {
+                    continue;
+                }
+                if (channel.subscribers.size() >= seatStreamProperties.getMaxSubscribersPerShow()) {
+                    log.warn("Show {} reached {} seat streams, rejecting subscriber", showId, channel.subscribers.size());
+                    return null;
+                }
+                SeatMapResponse seatMap = initial.get();
+                if (channel.subscribers.isEmpty()) {
+                    channel.lastRevision = seatMap.revision();
+                }
+                Subscriber subscriber = new Subscriber(channel, createEmitter());
+                channel.subscribers.add(subscriber);
+                subscriber.offer(encode(seatMap));
+                return subscriber.emitter;
+            }
+        }
+    }
+
+    /**
+     * Schedule a frame with the changes of a show, changes published in quick succession share one frame
+     */
+    void publish(ShowSeatState state) {
+        ShowChannel channel = channels.get(state.getShowId());
+        if (channel == null) {
+            return;
+        }
+        channel.state = state;
+        if (channel.dispatchScheduled.compareAndSet(false, true)) {
+            dispatcher.execute(channel::dispatch);
+        }
+    }
+
+    /**
+     * Keep idle streams open through proxies, and find connections that stopped reading
+     */
+    @Scheduled(fixedDelayString = "${theater.seat-stream.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        for (ShowChannel channel : channels.values()) {
+            channel.subscribers.forEach(subscriber -> subscriber.offer(heartbeatFrame));
+        }
+    }
+
+    /**
+     * Drop connections stuck writing a frame, a client that stopped reading blocks its writer thread until then
+     */
+    @Scheduled(fixedDelayString = "${theater.seat-stream.write-check-interval-ms:1000}")
+    public void abortStalledWrites() {
+        long deadline = System.nanoTime() - seatStreamProperties.getWriteTimeout().toNanos();
+        for (ShowChannel channel : channels.values()) {
+            channel.subscribers.forEach(subscriber -> subscriber.abortIfWritingSince(deadline));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        channels.values().forEach(channel -> channel.subscribers.forEach(Subscriber::close));
+        dispatcher.shutdownNow();
+        writerPool.shutdownNow();
+    }
+
+    SseEmitter createEmitter() {
+        return new SseEmitter(seatStreamProperties.getTimeout().toMillis());
+    }
+
+    private Set<DataWithMediaType> encode(SeatMapResponse seatMap) {
+        try {
+            return SseEmitter.event()
+                    .id(String.valueOf(seatMap.revision()))
+                    .name(SEATS_EVENT)
+                    .data(objectMapper.writeValueAsString(seatMap))
+                    .build();
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to encode seat changes of show " + seatMap.showId(), e);
+        }
+    }
+
+    private final class ShowChannel {
+        private final Long showId;
+        private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        private final AtomicBoolean dispatchScheduled = new AtomicBoolean();
+        private volatile ShowSeatState state;
+        private long lastRevision;
+        private boolean closed;
+
+        private ShowChannel(Long showId) {
+            this.showId = showId;
+        }
+
+        private synchronized void dispatch() {
+            dispatchScheduled.set(false);
+            if (closed || state == null) {
+                return;
+            }
+            try {
+                SeatMapResponse changes = state.getSeatMapChanges(lastRevision);
+                if (!changes.full() && changes.seats().isEmpty()) {
+                    return;
+                }
+                lastRevision = changes.revision();
+                Set<DataWithMediaType> frame = encode(changes);
+                subscribers.forEach(subscriber -> subscriber.offer(frame));
+            } catch (Exception e) {
+                log.error("Failed to dispatch seat changes of show {}", showId, e);
+            }
+        }
+
+        private void remove(Subscriber subscriber) {
+            if (subscribers.remove(subscriber)) {
+                synchronized (this) {
+                    if (subscribers.isEmpty() && !closed) {
+                        closed = true;
+                        channels.remove(showId, this);
+                    }
+                }
+            }
+        }
+    }
+
+    private final class Subscriber {
+        private final ShowChannel channel;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Set<DataWithMediaType>> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+        // Thread writing a frame and when it started, only changed while holding the subscriber
+        private Thread writer;
+        private long writeStartedAt;
+
+        private Subscriber(ShowChannel channel, SseEmitter emitter) {
+            this.channel = channel;
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(seatStreamProperties.getBufferSize());
+            emitter.onCompletion(this::detach);
+            emitter.onTimeout(this::detach);
+            emitter.onError(e -> detach());
+        }
+
+        private void offer(Set<DataWithMediaType> frame) {
+            if (closed) {
+                return;
+            }
+            if (!buffer.offer(frame)) {
+                log.debug("Closing slow seat stream of show {}", channel.showId);
+                close();
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                writerPool.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                Set<DataWithMediaType> frame;
+                while (!closed && (frame = buffer.poll()) != null) {
+                    synchronized (this) {
+                        writer = Thread.currentThread();
+                        writeStartedAt = System.nanoTime();
+                    }
+                    try {
+                        emitter.send(frame);
+                    } catch (Exception e) {
+                        log.debug("Seat stream of show {} is gone: {}", channel.showId, e.getMessage());
+                        close();
+                    } finally {
+                        synchronized (this) {
+                            writer = null;
+                        }
+                        // An abort arriving after the write returned must not hit the next connection
+                        Thread.interrupted();
+                    }
+                }
+                draining.set(false);
+            } while (!closed && !buffer.isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        private synchronized void abortIfWritingSince(long deadline) {
+            if (writer == null || writeStartedAt - deadline > 0) {
+                return;
+            }
+            log.debug("Dropping seat stream of show {}, its write blocked past the write timeout", channel.showId);
+            // The emitter is completed by the writer once the interrupted write fails
+            detach();
+            writer.interrupt();
+        }
+
+        private void close() {
+            detach();
+            emitter.complete();
+        }
+
+        private void detach() {
+            closed = true;
+            buffer.clear();
+            channel.remove(this);
+        }
+    }
+}
@@ -0,0 +1,431 @@
+package com.bookticket.theater_service.service.seatstate;
+
+import com.bookticket.theater_service.dto.SeatMapResponse;
+import com.bookticket.theater_service.dto.SeatTypeAvailability;
+import com.bookticket.theater_service.dto.ShowAvailabilityResponse;
+import com.bookticket.theater_service.dto.ShowSeatResponse;
+import com.bookticket.theater_service.dto.ShowSeatSnapshot;
+import com.bookticket.theater_service.dto.ValidSeatResponse;
+import com.bookticket.theater_service.enums.SeatType;
+import com.bookticket.theater_service.enums.ShowSeatStatus;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * Resident seat state of a single show.
+ * Seats are addressed by their index in the sorted show seat id array, the status of every
+ * seat is kept in two bitmaps (locked, booked). A seat with neither bit set is available.
+ * All reads and transitions synchronize on the instance, so a transition over several seats
+ * is applied all-or-nothing without any row locks in Postgres.
+ * Every change bumps the show revision and stamps the changed seats with it, so the rendered
+ * seat map is cached per revision and clients can fetch only the seats changed since theirs.
+ * Rows are indexed over the display order, so best-available allocation scans the free runs
+ * of every row in a single pass over the availability bitmaps.
+ */
+public class ShowSeatState {
+    // One row away from the preferred row costs as much as two seats away from the row center
+    private static final double ROW_DISTANCE_WEIGHT = 2.0;
+
+    @Getter
+    private final Long showId;
+    @Getter
+    private final LocalDateTime endTime;
+
+    private final long[] showSeatIds;
+    private final int[] rows;
+    private final int[] columns;
+    private final SeatType[] seatTypes;
+    private final double[] prices;
+    private final int[] displayOrder;
+    // Row r spans displayOrder[rowStarts[r]] .. displayOrder[rowStarts[r + 1] - 1]
+    private final int[] rowStarts;
+
+    private final BitSet locked;
+    private final BitSet booked;
+    // Seats by seat type and status, kept up to date by every status change, seats without a type are not counted
+    private final int[][] counts = new int[SeatType.values().length][ShowSeatStatus.values().length];
+    private final long[] changedAt;
+    // Epoch millis at which the hold of a locked seat expires
+    private final long[] lockedUntil;
+    private final long holdMillis;
+    // Starts from the load time, so revisions keep increasing when a show is evicted and reloaded
+    private final long baseRevision;
+    private long revision;
+    private SeatMapResponse seatMap;
+
+    /**
+     * Called for every seat whose status changed, while the state is still held
+     */
+    @FunctionalInterface
+    interface SeatChangeListener {
+        void onChange(Long showSeatId, ShowSeatStatus from, ShowSeatStatus to);
+    }
+
+    ShowSeatState(Long showId, LocalDateTime endTime, List<ShowSeatSnapshot> snapshots, Duration holdDuration) {
+        this.showId = showId;
+        this.endTime = endTime;
+        this.holdMillis = holdDuration.toMillis();
+
+        List<ShowSeatSnapshot> sorted = new ArrayList<>(snapshots);
+        sorted.sort(Comparator.comparing(ShowSeatSnapshot::showSeatId));
+        int size = sorted.size();
+        this.showSeatIds = new long[size];
+        this.rows = new int[size];
+        this.columns = new int[size];
+        this.seatTypes = new SeatType[size];
+        this.prices = new double[size];
+        this.locked = new BitSet(size);
+        this.booked = new BitSet(size);
+        this.baseRevision = System.currentTimeMillis() * 1000;
+        this.revision = baseRevision;
+        this.changedAt = new long[size];
+        Arrays.fill(changedAt, baseRevision);
+        this.lockedUntil = new long[size];
+
+        for (int i = 0; i < size; i++) {
+            ShowSeatSnapshot snapshot = sorted.get(i);
+            showSeatIds[i] = snapshot.showSeatId();
+            rows[i] = snapshot.row();
+            columns[i] = snapshot.column();
+            seatTypes[i] = snapshot.seatType();
+            prices[i] = snapshot.price();
+            int[] seatTypeCounts = countsOf(i);
+            if (seatTypeCounts != null) {
+                seatTypeCounts[ShowSeatStatus.AVAILABLE.ordinal()]++;
+            }
+            setStatus(i, snapshot.status());
+            adoptHold(i, snapshot);
+        }
+
+        // Seat map is rendered by row and then column
+        this.displayOrder = IntStream.range(0, size)
+                .boxed()
+                .sorted(Comparator.<Integer>comparingInt(i -> rows[i]).thenComparingInt(i -> columns[i]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        List<Integer> starts = new ArrayList<>();
+        for (int position = 0; position < size; position++) {
+            if (position == 0 || rows[displayOrder[position]] != rows[displayOrder[position - 1]]) {
+                starts.add(position);
+            }
+        }
+        starts.add(size);
+        this.rowStarts = starts.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    public int size() {
+        return showSeatIds.length;
+    }
+
+    public synchronized long getRevision() {
+        return revision;
+    }
+
+    /**
+     * Move the given seats from one status to another.
+     *
+     * @param ids          show seat ids to transition
+     * @param from         expected current status of every seat
+     * @param to           target status
+     * @param allOrNothing reject the whole transition if any seat is unknown or not in the expected status,
+     *                     otherwise only the seats that are in the expected status are moved
+     * @param onChange     called for every seat that changed, while the state is still held
+     * @return number of seats moved, or -1 if an all-or-nothing transition was rejected
+     */
+    synchronized int transition(List<Long> ids, ShowSeatStatus from, ShowSeatStatus to, boolean allOrNothing,
+                                SeatChangeListener onChange) {
+        int[] indices = new int[ids.size()];
+        int count = 0;
+        for (Long id : ids) {
+            int index = indexOf(id);
+            if (index < 0 || statusAt(index) != from) {
+                if (allOrNothing) {
+                    return -1;
+                }
+                continue;
+            }
+            indices[count++] = index;
+        }
+
+        long next = revision + 1;
+        for (int i = 0; i < count; i++) {
+            setStatus(indices[i], to);
+            changedAt[indices[i]] = next;
+            onChange.onChange(showSeatIds[indices[i]], from, to);
+        }
+        if (count > 0) {
+            revision = next;
+        }
+        return count;
+    }
+
+    /**
+     * Find the best block of adjacent available seats and lock it.
+     * Blocks are scored by the distance of their center to the center of their row and by the
+     * distance of their row to the preferred row, the lowest score wins.
+     *
+     * @param count        number of adjacent seats
+     * @param seatType     only consider seats of this type, or any type if null
+     * @param preferredRow preferred row number, or null for two thirds back from the screen
+     * @param onChange     called for every seat locked, while the state is still held
+     * @return locked seats, empty if no row has enough adjacent available seats
+     */
+    synchronized List<ValidSeatResponse> allocateBestAvailable(int count, SeatType seatType, Integer preferredRow,
+                                                               SeatChangeListener onChange) {
+        int rowCount = rowStarts.length - 1;
+        if (count <= 0 || rowCount == 0) {
+            return List.of();
+        }
+        int targetRow = preferredRow != null ? preferredRow
+                : rows[displayOrder[rowStarts[(rowCount - 1) * 2 / 3]]];
+
+        int bestStart = -1;
+        double bestScore = Double.MAX_VALUE;
+        for (int r = 0; r < rowCount; r++) {
+            int from = rowStarts[r];
+            int to = rowStarts[r + 1];
+            double rowScore = ROW_DISTANCE_WEIGHT * Math.abs(rows[displayOrder[from]] - targetRow);
+            if (rowScore >= bestScore || to - from < count) {
+                continue;
+            }
+            double rowCenter = (columns[displayOrder[from]] + columns[displayOrder[to - 1]]) / 2.0;
+            int runStart = from;
+            for (int position = from; position < to; position++) {
+                int index = displayOrder[position];
+                if (!isFree(index, seatType)) {
+                    runStart = position + 1;
+                    continue;
+                }
+                if (position > runStart && columns[index] != columns[displayOrder[position - 1]] + 1) {
+                    runStart = position; // Aisle or missing seat breaks the run
+                }
+                if (position - runStart + 1 >= count) {
+                    int start = position - count + 1;
+                    double center = (columns[displayOrder[start]] + columns[index]) / 2.0;
+                    double score = rowScore + Math.abs(center - rowCenter);
+                    if (score < bestScore) {
+                        bestScore = score;
+                        bestStart = start;
+                    }
+                }
+            }
+        }
+        if (bestStart < 0) {
+            return List.of();
+        }
+
+        long next = revision + 1;
+        List<ValidSeatResponse> allocated = new ArrayList<>(count);
+        for (int position = bestStart; position < bestStart + count; position++) {
+            int index = displayOrder[position];
+            setStatus(index, ShowSeatStatus.LOCKED);
+            changedAt[index] = next;
+            onChange.onChange(showSeatIds[index], ShowSeatStatus.AVAILABLE, ShowSeatStatus.LOCKED);
+            allocated.add(new ValidSeatResponse(showSeatIds[index], seatNumber(index), seatTypeName(index), prices[index]));
+        }
+        revision = next;
+        return allocated;
+    }
+
+    /**
+     * Return locked seats whose hold has expired to available
+     *
+     * @param nowMillis current time in epoch millis
+     * @param onChange  called for every seat released, while the state is still held
+     * @return number of seats released
+     */
+    synchronized int expireHolds(long nowMillis, SeatChangeListener onChange) {
+        int expired = 0;
+        long next = revision + 1;
+        for (int index = locked.nextSetBit(0); index >= 0; index = locked.nextSetBit(index + 1)) {
+            if (lockedUntil[index] > nowMillis) {
+                continue;
+            }
+            setStatus(index, ShowSeatStatus.AVAILABLE);
+            changedAt[index] = next;
+            onChange.onChange(showSeatIds[index], ShowSeatStatus.LOCKED, ShowSeatStatus.AVAILABLE);
+            expired++;
+        }
+        if (expired > 0) {
+            revision = next;
+        }
+        return expired;
+    }
+
+    /**
+     * Adopt the persisted status of seats that have drifted from the resident state.
+     * Seats with a write still pending are skipped, as memory is ahead of Postgres for them.
+     *
+     * @param snapshots        seats as currently persisted in Postgres
+     * @param expectedRevision revision read before the snapshots were loaded
+     * @param hasPendingWrite  tells if a show seat still has an unflushed write
+     * @return number of seats repaired, or -1 if the state changed while the snapshots were loaded
+     */
+    synchronized int reconcile(List<ShowSeatSnapshot> snapshots, long expectedRevision, Predicate<Long> hasPendingWrite) {
+        if (revision != expectedRevision) {
+            return -1;
+        }
+        int repaired = 0;
+        long next = revision + 1;
+        for (ShowSeatSnapshot snapshot : snapshots) {
+            int index = indexOf(snapshot.showSeatId());
+            if (index < 0 || hasPendingWrite.test(snapshot.showSeatId())) {
+                continue;
+            }
+            ShowSeatStatus persisted = snapshot.status() != null ? snapshot.status() : ShowSeatStatus.AVAILABLE;
+            if (statusAt(index) != persisted) {
+                setStatus(index, persisted);
+                adoptHold(index, snapshot);
+                changedAt[index] = next;
+                repaired++;
+            }
+        }
+        if (repaired > 0) {
+            revision = next;
+        }
+        return repaired;
+    }
+
+    /**
+     * Get the whole seat map, rendered once per revision
+     */
+    public synchronized SeatMapResponse getSeatMap() {
+        if (seatMap == null || seatMap.revision() != revision) {
+            List<ShowSeatResponse> seats = new ArrayList<>(displayOrder.length);
+            for (int index : displayOrder) {
+                seats.add(toShowSeatResponse(index));
+            }
+            seatMap = new SeatMapResponse(showId, revision, true, Collections.unmodifiableList(seats));
+        }
+        return seatMap;
+    }
+
+    /**
+     * Get the seats changed after the given revision.
+     * Falls back to the whole seat map if the revision was not issued by this state (older load, other instance).
+     *
+     * @param sinceRevision revision the client already has
+     * @return changed seats, or the whole seat map
+     */
+    public synchronized SeatMapResponse getSeatMapChanges(long sinceRevision) {
+        if (sinceRevision < baseRevision || sinceRevision > revision) {
+            return getSeatMap();
+        }
+        List<ShowSeatResponse> changed = new ArrayList<>();
+        if (sinceRevision < revision) {
+            for (int index : displayOrder) {
+                if (changedAt[index] > sinceRevision) {
+                    changed.add(toShowSeatResponse(index));
+                }
+            }
+        }
+        return new SeatMapResponse(showId, revision, false, changed);
+    }
+
+    /**
+     * Get the number of available, locked and booked seats, in total and per seat type present in the show
+     */
+    public synchronized ShowAvailabilityResponse getAvailability() {
+        int available = 0;
+        int locked = 0;
+        int booked = 0;
+        List<SeatTypeAvailability> seatTypeAvailabilities = new ArrayList<>();
+        for (SeatType seatType : SeatType.values()) {
+            int[] seatTypeCounts = counts[seatType.ordinal()];
+            SeatTypeAvailability availability = new SeatTypeAvailability(seatType,
+                    seatTypeCounts[ShowSeatStatus.AVAILABLE.ordinal()],
+                    seatTypeCounts[ShowSeatStatus.LOCKED.ordinal()],
+                    seatTypeCounts[ShowSeatStatus.BOOKED.ordinal()]);
+            if (availability.available() + availability.locked() + availability.booked() == 0) {
+                continue;
+            }
+            available += availability.available();
+            locked += availability.locked();
+            booked += availability.booked();
+            seatTypeAvailabilities.add(availability);
+        }
+        return new ShowAvailabilityResponse(showId, available, locked, booked, seatTypeAvailabilities);
+    }
+
+    private ShowSeatResponse toShowSeatResponse(int index) {
+        return new ShowSeatResponse(showSeatIds[index], seatNumber(index), seatTypes[index],
+                prices[index], statusAt(index));
+    }
+
+    /**
+     * Get the given seats of this show, skipping unknown ids.
+     *
+     * @param ids    show seat ids
+     * @param status only return seats in this status, or all seats if null
+     * @return matching seats
+     */
+    public synchronized List<ValidSeatResponse> getSeats(List<Long> ids, ShowSeatStatus status) {
+        List<ValidSeatResponse> seats = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            int index = indexOf(id);
+            if (index < 0 || (status != null && statusAt(index) != status)) {
+                continue;
+            }
+            seats.add(new ValidSeatResponse(showSeatIds[index], seatNumber(index), seatTypeName(index), prices[index]));
+        }
+        return seats;
+    }
+
+    private int indexOf(Long showSeatId) {
+        if (showSeatId == null) {
+            return -1;
+        }
+        int index = Arrays.binarySearch(showSeatIds, showSeatId);
+        return index >= 0 ? index : -1;
+    }
+
+    // A hold persisted by another instance or before a restart keeps its original expiry
+    private void adoptHold(int index, ShowSeatSnapshot snapshot) {
+        if (locked.get(index) && snapshot.lockedUntil() != null) {
+            lockedUntil[index] = snapshot.lockedUntil().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+    }
+
+    private boolean isFree(int index, SeatType seatType) {
+        return !locked.get(index) && !booked.get(index) && (seatType == null || seatTypes[index] == seatType);
+    }
+
+    private ShowSeatStatus statusAt(int index) {
+        if (booked.get(index)) {
+            return ShowSeatStatus.BOOKED;
+        }
+        return locked.get(index) ? ShowSeatStatus.LOCKED : ShowSeatStatus.AVAILABLE;
+    }
+
+    private void setStatus(int index, ShowSeatStatus status) {
+        status = status != null ? status : ShowSeatStatus.AVAILABLE;
+        lockedUntil[index] = status == ShowSeatStatus.LOCKED ? System.currentTimeMillis() + holdMillis : 0;
+        int[] seatTypeCounts = countsOf(index);
+        if (seatTypeCounts != null) {
+            seatTypeCounts[statusAt(index).ordinal()]--;
+            seatTypeCounts[status.ordinal()]++;
+        }
+        locked.set(index, status == ShowSeatStatus.LOCKED);
+        booked.set(index, status == ShowSeatStatus.BOOKED);
+    }
+
+    // A seat template row without a seat type must not fail the load of the whole show
+    private int[] countsOf(int index) {
+        return seatTypes[index] != null ? counts[seatTypes[index].ordinal()] : null;
+    }
+
+    private String seatTypeName(int index) {
+        return seatTypes[index] != null ? seatTypes[index].name() : null;
+    }
+
+    private String seatNumber(int index) {
+        return rows[index] + "-" + columns[index];
+    }
+}
@@ -0,0 +1,159 @@
+package com.bookticket.theater_service.service;
+
+import com.bookticket.theater_service.Entity.ScheduleJob;
+import com.bookticket.theater_service.Entity.Screen;
+import com.bookticket.theater_service.Entity.Show;
+import com.bookticket.theater_service.dto.ScheduleJobResponse;
+import com.bookticket.theater_service.dto.ScheduleShowsRequest;
+import com.bookticket.theater_service.dto.ShowRecurrenceRule;
+import com.bookticket.theater_service.enums.ScheduleJobStatus;
+import com.bookticket.theater_service.repository.ScheduleJobRepository;
+import com.bookticket.theater_service.repository.ScreenRepository;
+import com.bookticket.theater_service.repository.ShowRepository;
+import com.bookticket.theater_service.repository.ShowSeatRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestClient;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.client.ExpectedCount.manyTimes;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.anything;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class ShowScheduleServiceTest {
+
+    private static final Long SCREEN_ID = 5L;
+    private static final LocalDate DAY = LocalDate.now().plusDays(7);
+
+    // Shows and jobs as persisted in Postgres
+    private final List<Show> shows = new ArrayList<>();
+    private final Map<String, ScheduleJob> jobs = new HashMap<>();
+    private final AtomicLong showIds = new AtomicLong();
+    private final List<Runnable> queuedChunks = new ArrayList<>();
+
+    private ScreenRepository screenRepository;
+    private ShowScheduleService showScheduleService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        Screen screen = new Screen();
+        screen.setId(SCREEN_ID);
+        screenRepository = mock(ScreenRepository.class);
+        when(screenRepository.findAllById(any())).thenReturn(List.of(screen));
+        when(screenRepository.findByIdForUpdate(SCREEN_ID)).thenReturn(Optional.of(screen));
+
+        ShowRepository showRepository = mock(ShowRepository.class);
+        when(showRepository.findShowIntervalsByScreenIds(anyCollection(), any(), any())).thenAnswer(invocation -> {
+            LocalDateTime from = invocation.getArgument(1);
+            LocalDateTime to = invocation.getArgument(2);
+            return shows.stream()
+                    .filter(show -> show.getStartTime().isBefore(to) && show.getEndTime().isAfter(from))
+                    .map(show -> new Object[]{SCREEN_ID, show.getStartTime(), show.getEndTime()})
+                    .toList();
+        });
+        when(showRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Show> saved = invocation.getArgument(0);
+            saved.forEach(show -> show.setId(showIds.incrementAndGet()));
+            shows.addAll(saved);
+            return saved;
+        });
+
+        ScheduleJobRepository scheduleJobRepository = mock(ScheduleJobRepository.class);
+        when(scheduleJobRepository.save(any(ScheduleJob.class))).thenAnswer(invocation -> {
+            ScheduleJob job = invocation.getArgument(0);
+            jobs.put(job.getId(), job);
+            return job;
+        });
+        when(scheduleJobRepository.findById(anyString())).thenAnswer(invocation ->
+                Optional.ofNullable(jobs.get(invocation.<String>getArgument(0))));
+        when(scheduleJobRepository.findByIdForUpdate(anyString())).thenAnswer(invocation ->
+                Optional.ofNullable(jobs.get(invocation.<String>getArgument(0))));
+
+        RestClient.Builder builder = RestClient.builder();
+        MockRestServiceServer movieService = MockRestServiceServer.bindTo(builder).build();
+        movieService.expect(manyTimes(), anything())
+                .andRespond(withSuccess("{\"title\":\"Dune\",\"bannerUrl\":null}", MediaType.APPLICATION_JSON));
+
+        AuditorAware<String> auditorAware = mock(AuditorAware.class);
+        when(auditorAware.getCurrentAuditor()).thenReturn(Optional.of("admin"));
+        showScheduleService = new ShowScheduleService(showRepository, screenRepository, mock(ShowSeatRepository.class),
+                builder.build(), auditorAware, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                queuedChunks::add, scheduleJobRepository);
+    }
+
+    @Test
+    void jobProgressIsKeptWithTheShows() {
+        ScheduleJobResponse started = showScheduleService.scheduleShows(rule(LocalTime.of(10, 0), LocalTime.of(14, 0)));
+        assertThat(started.status()).isEqualTo(ScheduleJobStatus.RUNNING);
+
+        runChunks();
+
+        ScheduleJobResponse job = showScheduleService.getScheduleJob(started.jobId());
+        assertThat(job.status()).isEqualTo(ScheduleJobStatus.COMPLETED);
+        assertThat(job.createdShows()).isEqualTo(2);
+        assertThat(shows).hasSize(2);
+    }
+
+    @Test
+    void concurrentJobsDoNotBothCreateOverlappingShows() {
+        // Both jobs are planned before either persisted its shows
+        ScheduleJobResponse first = showScheduleService.scheduleShows(rule(LocalTime.of(10, 0)));
+        ScheduleJobResponse second = showScheduleService.scheduleShows(rule(LocalTime.of(11, 0), LocalTime.of(14, 0)));
+        assertThat(second.skippedShows()).isZero();
+
+        runChunks();
+
+        assertThat(shows).extracting(Show::getStartTime)
+                .containsExactly(DAY.atTime(10, 0), DAY.atTime(14, 0));
+        ScheduleJobResponse secondJob = showScheduleService.getScheduleJob(second.jobId());
+        assertThat(secondJob.createdShows()).isEqualTo(1);
+        assertThat(secondJob.skippedShows()).isEqualTo(1);
+        assertThat(secondJob.status()).isEqualTo(ScheduleJobStatus.COMPLETED);
+        assertThat(showScheduleService.getScheduleJob(first.jobId()).createdShows()).isEqualTo(1);
+        verify(screenRepository, times(2)).findByIdForUpdate(SCREEN_ID);
+    }
+
+    @Test
+    void runningJobWithoutProgressIsReportedInterrupted() {
+        ScheduleJobResponse started = showScheduleService.scheduleShows(rule(LocalTime.of(10, 0)));
+        // The instance running the job stopped, its chunks are gone
+        queuedChunks.clear();
+        jobs.get(started.jobId()).setProgressAt(LocalDateTime.now().minusHours(1));
+
+        assertThat(showScheduleService.getScheduleJob(started.jobId()).status())
+                .isEqualTo(ScheduleJobStatus.INTERRUPTED);
+    }
+
+    private void runChunks() {
+        List<Runnable> chunks = new ArrayList<>(queuedChunks);
+        queuedChunks.clear();
+        chunks.forEach(Runnable::run);
+    }
+
+    // Two and a half hour shows of one movie on the screen, at every start time on a single day
+    private ScheduleShowsRequest rule(LocalTime... startTimes) {
+        return new ScheduleShowsRequest(List.of(new ShowRecurrenceRule("movie-1", List.of(SCREEN_ID), DAY, DAY,
+                null, List.of(startTimes), 150)));
+    }
+}
@@ -0,0 +1,153 @@
+package com.bookticket.theater_service.service.seatstate;
+
+import com.bookticket.theater_service.Entity.Show;
+import com.bookticket.theater_service.configuration.SeatStateProperties;
+import com.bookticket.theater_service.dto.ShowAvailabilityResponse;
+import com.bookticket.theater_service.dto.ShowSeatSnapshot;
+import com.bookticket.theater_service.enums.SeatType;
+import com.bookticket.theater_service.enums.ShowSeatStatus;
+import com.bookticket.theater_service.repository.ShowRepository;
+import com.bookticket.theater_service.repository.ShowSeatRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class SeatStateEngineTest {
+
+    private static final Long SHOW_ID = 1L;
+
+    // show_seats rows as persisted in Postgres
+    private final Map<Long, ShowSeatStatus> persisted = new HashMap<>();
+    private boolean failWrites;
+
+    private SeatStateWriter seatStateWriter;
+    private SeatStateEngine seatStateEngine;
+
+    @BeforeEach
+    void setUp() {
+        persisted.put(10L, ShowSeatStatus.AVAILABLE);
+        persisted.put(11L, ShowSeatStatus.AVAILABLE);
+        persisted.put(12L, ShowSeatStatus.AVAILABLE);
+
+        ShowRepository showRepository = mock(ShowRepository.class);
+        Show show = new Show();
+        show.setId(SHOW_ID);
+        show.setEndTime(LocalDateTime.now().plusHours(3));
+        when(showRepository.findShowById(SHOW_ID)).thenReturn(show);
+
+        ShowSeatRepository showSeatRepository = mock(ShowSeatRepository.class);
+        when(showSeatRepository.findSeatSnapshotsByShowId(SHOW_ID)).thenAnswer(invocation -> snapshots());
+        when(showSeatRepository.lockShowSeatStatuses(anyList())).thenAnswer(invocation -> {
+            List<Object[]> rows = new ArrayList<>();
+            for (Long id : invocation.<List<Long>>getArgument(0)) {
+                rows.add(new Object[]{id, persisted.get(id)});
+            }
+            return rows;
+        });
+        when(showSeatRepository.overwriteShowSeatStatus(anyList(), any(), any())).thenAnswer(invocation -> {
+            if (failWrites) {
+                throw new IllegalStateException("Connection refused");
+            }
+            List<Long> ids = invocation.getArgument(0);
+            ids.forEach(id -> persisted.put(id, invocation.getArgument(1)));
+            return ids.size();
+        });
+
+        SeatStateProperties properties = new SeatStateProperties();
+        seatStateWriter = new SeatStateWriter(showSeatRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), properties);
+        seatStateEngine = new SeatStateEngine(showRepository, showSeatRepository, seatStateWriter, properties,
+                mock(SeatStreamHub.class));
+    }
+
+    @Test
+    void bookedSeatsAreWrittenThrough() {
+        assertThat(seatStateEngine.lockSeats(SHOW_ID, List.of(10L, 11L))).isTrue();
+
+        assertThat(seatStateEngine.bookSeats(SHOW_ID, List.of(10L, 11L))).isTrue();
+
+        assertThat(persisted).containsEntry(10L, ShowSeatStatus.BOOKED).containsEntry(11L, ShowSeatStatus.BOOKED);
+    }
+
+    @Test
+    void failedWriteThroughRejectsBookingAndKeepsSeatsLocked() {
+        seatStateEngine.lockSeats(SHOW_ID, List.of(10L, 11L));
+        failWrites = true;
+
+        assertThat(seatStateEngine.bookSeats(SHOW_ID, List.of(10L, 11L))).isFalse();
+
+        assertThat(availability().locked()).isEqualTo(2);
+        assertThat(availability().booked()).isZero();
+        failWrites = false;
+        seatStateWriter.flush();
+        assertThat(persisted).containsEntry(10L, ShowSeatStatus.LOCKED).containsEntry(11L, ShowSeatStatus.LOCKED);
+        assertThat(seatStateEngine.bookSeats(SHOW_ID, List.of(10L, 11L))).isTrue();
+    }
+
+    @Test
+    void bookingIsRejectedWhenAnotherInstanceChangedASeat() {
+        seatStateEngine.lockSeats(SHOW_ID, List.of(10L, 11L));
+        seatStateWriter.flush();
+        // Released by another instance behind the back of this one
+        persisted.put(11L, ShowSeatStatus.AVAILABLE);
+
+        assertThat(seatStateEngine.bookSeats(SHOW_ID, List.of(10L, 11L))).isFalse();
+
+        seatStateWriter.flush();
+        assertThat(persisted).containsEntry(10L, ShowSeatStatus.LOCKED).containsEntry(11L, ShowSeatStatus.AVAILABLE);
+        // The persisted status of the conflicting seat is adopted right away
+        assertThat(availability().locked()).isEqualTo(1);
+        assertThat(availability().available()).isEqualTo(2);
+    }
+
+    @Test
+    void writeBehindDoesNotOverwriteRowsChangedOutsideTheEngine() {
+        seatStateEngine.lockSeats(SHOW_ID, List.of(12L));
+        persisted.put(12L, ShowSeatStatus.BOOKED);
+
+        seatStateWriter.flush();
+
+        assertThat(persisted).containsEntry(12L, ShowSeatStatus.BOOKED);
+        seatStateEngine.reconcile();
+        assertThat(availability().booked()).isEqualTo(1);
+    }
+
+    @Test
+    void collapsedTransitionsExpectTheLastPersistedStatus() {
+        seatStateEngine.lockSeats(SHOW_ID, List.of(10L));
+        seatStateWriter.flush();
+        seatStateEngine.releaseSeats(SHOW_ID, List.of(10L));
+        seatStateEngine.lockSeats(SHOW_ID, List.of(10L));
+        seatStateEngine.releaseSeats(SHOW_ID, List.of(10L));
+
+        seatStateWriter.flush();
+
+        assertThat(persisted).containsEntry(10L, ShowSeatStatus.AVAILABLE);
+        assertThat(seatStateEngine.lockSeats(SHOW_ID, List.of(10L))).isTrue();
+        assertThat(seatStateEngine.bookSeats(SHOW_ID, List.of(10L))).isTrue();
+        assertThat(persisted).containsEntry(10L, ShowSeatStatus.BOOKED);
+    }
+
+    private ShowAvailabilityResponse availability() {
+        return seatStateEngine.getAvailability(List.of(SHOW_ID)).get(0);
+    }
+
+    private List<ShowSeatSnapshot> snapshots() {
+        List<ShowSeatSnapshot> snapshots = new ArrayList<>();
+        persisted.forEach((id, status) -> snapshots.add(
+                new ShowSeatSnapshot(id, 1, (int) (id - 9), SeatType.GOLD, 250.0, status, null)));
+        return snapshots;
+    }
+}
@@ -0,0 +1,158 @@
+package com.bookticket.theater_service.service.seatstate;
+
+import com.bookticket.theater_service.configuration.SeatStreamProperties;
+import com.bookticket.theater_service.dto.ShowSeatSnapshot;
+import com.bookticket.theater_service.enums.SeatType;
+import com.bookticket.theater_service.enums.ShowSeatStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SeatStreamHubTest {
+
+    private static final Long SHOW_ID = 1L;
+
+    private final Queue<RecordingEmitter> emitters = new ArrayDeque<>();
+    private SeatStreamProperties properties;
+    private SeatStreamHub hub;
+    private ShowSeatState state;
+
+    @BeforeEach
+    void setUp() {
+        properties = new SeatStreamProperties();
+        // A single writer, a stalled connection would hold all writes up without the write timeout
+        properties.setWriterThreads(1);
+        properties.setWriteTimeout(Duration.ofMillis(100));
+        hub = new SeatStreamHub(new ObjectMapper(), properties) {
+            @Override
+            SseEmitter createEmitter() {
+                return emitters.remove();
+            }
+        };
+        state = new ShowSeatState(SHOW_ID, LocalDateTime.now().plusHours(3), List.of(
+                new ShowSeatSnapshot(10L, 1, 1, SeatType.GOLD, 250.0, ShowSeatStatus.AVAILABLE, null),
+                new ShowSeatSnapshot(11L, 1, 2, SeatType.GOLD, 250.0, ShowSeatStatus.AVAILABLE, null)),
+                Duration.ofMinutes(35));
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Interrupts writes still stalled
+        hub.shutdown();
+    }
+
+    @Test
+    void stalledSubscriberIsDroppedAndOthersKeepReceiving() throws Exception {
+        RecordingEmitter stalled = new RecordingEmitter(true);
+        RecordingEmitter healthy = new RecordingEmitter(false);
+        emitters.add(stalled);
+        emitters.add(healthy);
+
+        assertThat(hub.subscribe(SHOW_ID, state::getSeatMap)).isSameAs(stalled);
+        assertThat(stalled.writeStarted.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(hub.subscribe(SHOW_ID, state::getSeatMap)).isSameAs(healthy);
+        // The only writer is stuck on the stalled connection, changes are still dispatched meanwhile
+        lockSeat(10L);
+
+        Thread.sleep(200);
+        hub.abortStalledWrites();
+
+        assertThat(stalled.completed.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(healthy.frames.poll(2, TimeUnit.SECONDS)).isNotNull(); // initial seat map
+        assertThat(healthy.frames.poll(2, TimeUnit.SECONDS)).isNotNull(); // seat 10 locked
+        lockSeat(11L);
+        assertThat(healthy.frames.poll(2, TimeUnit.SECONDS)).isNotNull();
+        assertThat(stalled.frames).isEmpty();
+    }
+
+    @Test
+    void writeWithinTheTimeoutIsNotAborted() throws Exception {
+        RecordingEmitter healthy = new RecordingEmitter(false);
+        emitters.add(healthy);
+        hub.subscribe(SHOW_ID, state::getSeatMap);
+        assertThat(healthy.frames.poll(2, TimeUnit.SECONDS)).isNotNull();
+
+        hub.abortStalledWrites();
+        lockSeat(10L);
+
+        assertThat(healthy.frames.poll(2, TimeUnit.SECONDS)).isNotNull();
+        assertThat(healthy.completed.getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void subscriberFallingBehindItsBufferIsClosed() throws Exception {
+        properties.setBufferSize(1);
+        RecordingEmitter stalled = new RecordingEmitter(true);
+        emitters.add(stalled);
+        hub.subscribe(SHOW_ID, state::getSeatMap);
+        assertThat(stalled.writeStarted.await(2, TimeUnit.SECONDS)).isTrue();
+
+        hub.heartbeat();
+        hub.heartbeat();
+
+        stalled.unstall();
+        assertThat(stalled.completed.await(2, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private void lockSeat(Long showSeatId) {
+        state.transition(List.of(showSeatId), ShowSeatStatus.AVAILABLE, ShowSeatStatus.LOCKED, true,
+                (id, from, to) -> {
+                });
+        hub.publish(state);
+    }
+
+    /**
+     * Emitter recording the frames written to it, a stalled one blocks its writes until interrupted
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+        private final BlockingQueue<Set<DataWithMediaType>> frames = new LinkedBlockingQueue<>();
+        private final CountDownLatch writeStarted = new CountDownLatch(1);
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private final CountDownLatch unstalled;
+
+        private RecordingEmitter(boolean stalled) {
+            this.unstalled = new CountDownLatch(stalled ? 1 : 0);
+        }
+
+        @Override
+        public void send(Set<DataWithMediaType> items) throws IOException {
+            writeStarted.countDown();
+            try {
+                unstalled.await();
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException("Write interrupted");
+            }
+            if (completed.getCount() == 0) {
+                throw new IOException("Stream completed");
+            }
+            frames.add(items);
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+        }
+
+        private void unstall() {
+            unstalled.countDown();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.bookticket.theater_service.service.seatstate;
+
+import com.bookticket.theater_service.dto.ShowSeatSnapshot;
+import com.bookticket.theater_service.dto.ValidSeatResponse;
+import com.bookticket.theater_service.enums.SeatType;
+import com.bookticket.theater_service.enums.ShowSeatStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShowSeatStateTest {
+
+    private final List<Long> changed = new ArrayList<>();
+
+    @Test
+    void allocatesTheCenterOfTheRowTwoThirdsBack() {
+        // Rows 1 to 4 of 6 seats, row 3 is two thirds back
+        ShowSeatState state = state(grid(4, 6, SeatType.GOLD));
+
+        List<ValidSeatResponse> seats = allocate(state, 2, null, null);
+
+        assertThat(seats).extracting(ValidSeatResponse::seatNumber).containsExactly("3-3", "3-4");
+        assertThat(changed).containsExactlyElementsOf(seats.stream().map(ValidSeatResponse::seatId).toList());
+        assertThat(state.getSeats(changed, ShowSeatStatus.LOCKED)).hasSize(2);
+    }
+
+    @Test
+    void preferredRowWins() {
+        ShowSeatState state = state(grid(4, 6, SeatType.GOLD));
+
+        assertThat(allocate(state, 3, null, 1)).extracting(ValidSeatResponse::seatNumber)
+                .containsExactly("1-2", "1-3", "1-4");
+    }
+
+    @Test
+    void onlySeatsOfTheRequestedTypeAreAllocated() {
+        List<ShowSeatSnapshot> seats = new ArrayList<>(grid(3, 4, SeatType.SILVER));
+        seats.addAll(snapshots(100, 4, 4, SeatType.PLATINUM));
+        ShowSeatState state = state(seats);
+
+        assertThat(allocate(state, 2, SeatType.PLATINUM, null)).extracting(ValidSeatResponse::seatNumber)
+                .containsExactly("4-2", "4-3");
+    }
+
+    @Test
+    void aislesAndTakenSeatsBreakABlock() {
+        // Row 1 has an aisle after column 2, row 2 has its middle seat locked
+        List<ShowSeatSnapshot> seats = new ArrayList<>();
+        seats.add(snapshot(1L, 1, 1, SeatType.GOLD, ShowSeatStatus.AVAILABLE));
+        seats.add(snapshot(2L, 1, 2, SeatType.GOLD, ShowSeatStatus.AVAILABLE));
+        seats.add(snapshot(3L, 1, 4, SeatType.GOLD, ShowSeatStatus.AVAILABLE));
+        seats.add(snapshot(4L, 1, 5, SeatType.GOLD, ShowSeatStatus.AVAILABLE));
+        seats.add(snapshot(5L, 2, 1, SeatType.GOLD, ShowSeatStatus.AVAILABLE));
+        seats.add(snapshot(6L, 2, 2, SeatType.GOLD, ShowSeatStatus.LOCKED));
+        seats.add(snapshot(7L, 2, 3, SeatType.GOLD, ShowSeatStatus.AVAILABLE));
+        ShowSeatState state = state(seats);
+
+        assertThat(allocate(state, 3, null, null)).isEmpty();
+        assertThat(changed).isEmpty();
+        assertThat(allocate(state, 2, null, 2)).extracting(ValidSeatResponse::seatNumber)
+                .containsExactly("1-1", "1-2");
+    }
+
+    @Test
+    void seatsWithoutATypeDoNotFailTheShow() {
+        List<ShowSeatSnapshot> seats = new ArrayList<>();
+        seats.add(snapshot(1L, 1, 1, null, ShowSeatStatus.AVAILABLE));
+        seats.add(snapshot(2L, 1, 2, SeatType.GOLD, ShowSeatStatus.AVAILABLE));
+        ShowSeatState state = state(seats);
+
+        assertThat(state.getSeats(List.of(1L, 2L), null)).extracting(ValidSeatResponse::seatType)
+                .containsExactly(null, "GOLD");
+        assertThat(allocate(state, 2, null, null)).extracting(ValidSeatResponse::seatType)
+                .containsExactly(null, "GOLD");
+        // A seat without a type never matches a requested type
+        assertThat(allocate(state(seats), 2, SeatType.GOLD, null)).isEmpty();
+    }
+
+    private List<ValidSeatResponse> allocate(ShowSeatState state, int count, SeatType seatType, Integer preferredRow) {
+        return state.allocateBestAvailable(count, seatType, preferredRow, (id, from, to) -> changed.add(id));
+    }
+
+    private ShowSeatState state(List<ShowSeatSnapshot> seats) {
+        return new ShowSeatState(1L, LocalDateTime.now().plusHours(3), seats, Duration.ofMinutes(35));
+    }
+
+    private List<ShowSeatSnapshot> grid(int rows, int columns, SeatType seatType) {
+        List<ShowSeatSnapshot> seats = new ArrayList<>();
+        for (int row = 1; row <= rows; row++) {
+            seats.addAll(snapshots(row * columns, row, columns, seatType));
+        }
+        return seats;
+    }
+
+    private List<ShowSeatSnapshot> snapshots(long firstId, int row, int columns, SeatType seatType) {
+        List<ShowSeatSnapshot> seats = new ArrayList<>();
+        for (int column = 1; column <= columns; column++) {
+            seats.add(snapshot(firstId + column, row, column, seatType, ShowSeatStatus.AVAILABLE));
+        }
+        return seats;
+    }
+
+    private ShowSeatSnapshot snapshot(Long id, int row, int column, SeatType seatType, ShowSeatStatus status) {
+        return new ShowSeatSnapshot(id, row, column, seatType, 250.0, status, null);
+    }
+}
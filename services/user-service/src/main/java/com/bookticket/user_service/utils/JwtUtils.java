@@ -54,6 +54,7 @@ public class JwtUtils {
         Map<String, Object> claims = new HashMap<>();
         claims.put("roles", userDetails.getAuthorities());
         claims.put("username", userDetails.getUserIdAndName());
+        claims.put("email", userDetails.getUsername());
         return createToken(claims, userDetails.getId().toString());
     }
 